@@ -4,20 +4,169 @@
 package cyc;
 
 import graph.core.CommonConcepts;
+import graph.inference.CommonQuery;
 import io.ontology.OntologySocket;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import util.DistanceFunction;
+import util.collection.CacheMap;
 
 /**
  * 
  * @author Sam Sarjant
  */
 public class ConceptDistanceFunction extends DistanceFunction {
+	/** The number of measured pairs to remember. */
+	public static final int DISTANCE_CACHE_SIZE = 50000;
+
+	/** The number of concept neighbourhoods to keep. */
+	public static final int NEIGHBOUR_CACHE_SIZE = 20000;
+
 	private static final String TRANSITIVE_PRED = "(isa genls TransitiveBinaryPredicate)";
 
+	/** The number of bits in the filter of concepts a search visited. */
+	private static final int VISITED_BITS = 256;
+
+	/** The remembered distances of measured pairs. */
+	private static final CacheMap<String, Distance> distances_ = new CacheMap<>(
+			DISTANCE_CACHE_SIZE, false);
+
+	/** The direct genls/isa/specs of recently searched concepts. */
+	private static final CacheMap<String, Collection<String>> neighbours_ = new CacheMap<>(
+			NEIGHBOUR_CACHE_SIZE, false);
+
+	/**
+	 * If distances are found by a local search over the taxonomy rather than
+	 * by justifying the relationship in the ontology.
+	 */
+	public static boolean localSearch_ = true;
+
+	/** The maximum path length the local search looks for. */
+	public static int maxDepth_ = 8;
+
+	/**
+	 * Clears the cached neighbourhoods and distances (e.g. after the taxonomy
+	 * has changed).
+	 */
+	public static void clearCache() {
+		synchronized (neighbours_) {
+			neighbours_.clear();
+		}
+		synchronized (distances_) {
+			distances_.clear();
+		}
+	}
+
+	/**
+	 * Drops the cached neighbourhoods and distances that a change to an
+	 * isa/genls edge may have invalidated: the neighbourhoods of (or
+	 * containing) the edge's arguments, and the distances whose searches
+	 * visited either argument. A search that did not reach the child from
+	 * below or the parent from above cannot have used, or been shortened by,
+	 * the edge.
+	 *
+	 * @param child
+	 *            The identifiers (ID and/or name) of the edge's child.
+	 * @param parent
+	 *            The identifiers (ID and/or name) of the edge's parent.
+	 */
+	public static void forget(Collection<String> child,
+			Collection<String> parent) {
+		Collection<String> arguments = new ArrayList<>(child);
+		arguments.addAll(parent);
+		synchronized (neighbours_) {
+			for (Iterator<Map.Entry<String, Collection<String>>> iter = neighbours_
+					.entrySet().iterator(); iter.hasNext();) {
+				Map.Entry<String, Collection<String>> entry = iter.next();
+				String key = entry.getKey();
+				String concept = key.substring(key.indexOf(' ') + 1);
+				if (arguments.contains(concept)
+						|| !Collections.disjoint(entry.getValue(), arguments))
+					iter.remove();
+			}
+		}
+		synchronized (distances_) {
+			for (Iterator<Distance> iter = distances_.values().iterator(); iter
+					.hasNext();) {
+				Distance distance = iter.next();
+				for (String argument : arguments)
+					if (distance.visited(argument)) {
+						iter.remove();
+						break;
+					}
+			}
+		}
+	}
+
+	/**
+	 * Gets the direct neighbours of a concept, from the cache if possible.
+	 *
+	 * @param cq
+	 *            The neighbour query (direct genls, isa or specs).
+	 * @param concept
+	 *            The concept identifier.
+	 * @param cyc
+	 *            The ontology access.
+	 * @return The identifiers of the neighbours.
+	 */
+	private Collection<String> getNeighbours(CommonQuery cq, String concept,
+			OntologySocket cyc) {
+		String key = cq + " " + concept;
+		synchronized (neighbours_) {
+			Collection<String> neighbours = neighbours_.get(key);
+			if (neighbours != null)
+				return neighbours;
+		}
+
+		Collection<OntologyConcept> results = cyc.quickQuery(cq, concept);
+		Collection<String> neighbours = new ArrayList<>(
+				(results != null) ? results.size() : 0);
+		if (results != null)
+			for (OntologyConcept result : results)
+				neighbours.add(result.getIdentifier());
+		synchronized (neighbours_) {
+			neighbours_.put(key, neighbours);
+		}
+		return neighbours;
+	}
+
+	/**
+	 * Justifies the isa and genls relationships between two concepts in the
+	 * ontology and measures the shortest justification.
+	 */
+	private float justifyDistance(OntologyConcept termA,
+			OntologyConcept collectionB, OntologySocket cyc) throws Exception {
+		// Isa distance
+		int minDist = -1;
+		List<String> whyIsa = cyc.justify(CommonConcepts.ISA.getID(),
+				termA.getIdentifier(), collectionB.getIdentifier());
+		removeSpecialTerms(whyIsa);
+		if (!whyIsa.isEmpty()) {
+			minDist = whyIsa.size();
+		}
+
+		// Genls distance
+		List<String> whyGenls = cyc.justify(CommonConcepts.GENLS.getID(),
+				termA.getIdentifier(), collectionB.getIdentifier());
+		removeSpecialTerms(whyGenls);
+		if (!whyGenls.isEmpty()) {
+			int genlsDist = whyGenls.size();
+			if (minDist == -1)
+				minDist = genlsDist;
+			else
+				minDist = Math.min(minDist, genlsDist);
+		}
+
+		return minDist;
+	}
+
 	/**
 	 * Removes special Cyc justifications from the list of terms.
 	 * 
@@ -54,33 +203,127 @@ public class ConceptDistanceFunction extends DistanceFunction {
 			return -1;
 		if (termA.equals(collectionB))
 			return 0;
+		if (!localSearch_)
+			return justifyDistance(termA, collectionB, cyc);
 
-		// Isa distance
-		int minDist = -1;
-		List<String> whyIsa = cyc.justify(CommonConcepts.ISA.getID(),
-				termA.getIdentifier(), collectionB.getIdentifier());
-		removeSpecialTerms(whyIsa);
-		if (!whyIsa.isEmpty()) {
-			minDist = whyIsa.size();
+		String key = termA.getIdentifier() + " " + collectionB.getIdentifier();
+		synchronized (distances_) {
+			Distance known = distances_.get(key);
+			if (known != null)
+				return known.distance_;
+		}
+		Distance distance = new Distance();
+		distance.distance_ = searchDistance(termA.getIdentifier(),
+				collectionB.getIdentifier(), cyc, distance);
+		synchronized (distances_) {
+			distances_.put(key, distance);
 		}
+		return distance.distance_;
+	}
 
-		// Genls distance
-		List<String> whyGenls = cyc.justify(CommonConcepts.GENLS.getID(),
-				termA.getIdentifier(), collectionB.getIdentifier());
-		removeSpecialTerms(whyGenls);
-		if (!whyGenls.isEmpty()) {
-			int genlsDist = whyGenls.size();
-			if (minDist == -1)
-				minDist = genlsDist;
+	/**
+	 * Finds the length of the shortest isa/genls path from a concept to a
+	 * collection (an optional isa edge followed by genls edges) with a
+	 * bidirectional breadth-first search: up from the concept and down (over
+	 * specs) from the collection, always expanding the smaller frontier.
+	 *
+	 * @param source
+	 *            The concept identifier.
+	 * @param target
+	 *            The collection identifier.
+	 * @param cyc
+	 *            The ontology access.
+	 * @param result
+	 *            The result to record the visited concepts in.
+	 * @return The length of the shortest path, or -1 if there is no path of
+	 *         at most maxDepth_ edges.
+	 */
+	private int searchDistance(String source, String target,
+			OntologySocket cyc, Distance result) {
+		Map<String, Integer> up = new HashMap<>();
+		Map<String, Integer> down = new HashMap<>();
+		up.put(source, 0);
+		down.put(target, 0);
+		result.visit(source);
+		result.visit(target);
+		Collection<String> upFrontier = new ArrayList<>();
+		Collection<String> downFrontier = new ArrayList<>();
+		upFrontier.add(source);
+		downFrontier.add(target);
+		int upDepth = 0;
+		int downDepth = 0;
+		while (!upFrontier.isEmpty() && !downFrontier.isEmpty()
+				&& upDepth + downDepth < maxDepth_) {
+			boolean expandUp = upFrontier.size() <= downFrontier.size();
+			Map<String, Integer> visited = (expandUp) ? up : down;
+			Map<String, Integer> other = (expandUp) ? down : up;
+			int depth = (expandUp) ? ++upDepth : ++downDepth;
+
+			Collection<String> next = new ArrayList<>();
+			int shortest = -1;
+			for (String concept : (expandUp) ? upFrontier : downFrontier) {
+				Collection<String> neighbours = new ArrayList<>();
+				if (expandUp) {
+					// Only the first edge may be an isa edge
+					neighbours.addAll(getNeighbours(CommonQuery.DIRECTGENLS,
+							concept, cyc));
+					if (concept.equals(source))
+						neighbours.addAll(getNeighbours(CommonQuery.DIRECTISA,
+								concept, cyc));
+				} else
+					neighbours.addAll(getNeighbours(CommonQuery.DIRECTSPECS,
+							concept, cyc));
+
+				for (String neighbour : neighbours) {
+					if (visited.containsKey(neighbour))
+						continue;
+					visited.put(neighbour, depth);
+					result.visit(neighbour);
+					next.add(neighbour);
+					Integer meeting = other.get(neighbour);
+					if (meeting != null
+							&& (shortest == -1 || depth + meeting < shortest))
+						shortest = depth + meeting;
+				}
+			}
+			if (shortest != -1)
+				return shortest;
+
+			if (expandUp)
+				upFrontier = next;
 			else
-				minDist = Math.min(minDist, genlsDist);
+				downFrontier = next;
 		}
-
-		return minDist;
+		return -1;
 	}
 
 	@Override
 	public float getMaxDistance() {
 		return Byte.MAX_VALUE;
 	}
+
+	/**
+	 * A measured distance, with a filter of the concepts its search visited
+	 * (false positives only cause needless eviction).
+	 */
+	private static class Distance {
+		private float distance_;
+		private long[] visited_ = new long[VISITED_BITS / Long.SIZE];
+
+		public void visit(String concept) {
+			int bit = bit(concept);
+			visited_[bit / Long.SIZE] |= 1L << (bit % Long.SIZE);
+		}
+
+		public boolean visited(String concept) {
+			int bit = bit(concept);
+			return (visited_[bit / Long.SIZE] & (1L << (bit % Long.SIZE))) != 0;
+		}
+
+		private static int bit(String concept) {
+			int x = concept.hashCode() * 0x9E3779B9;
+			x ^= x >>> 16;
+			return (x & Integer.MAX_VALUE) % VISITED_BITS;
+		}
+	}
 }
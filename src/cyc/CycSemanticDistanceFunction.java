@@ -6,19 +6,76 @@ package cyc;
 import graph.inference.CommonQuery;
 import io.ontology.OntologySocket;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Iterator;
 
 import util.DistanceFunction;
+import util.collection.CacheMap;
 
 /**
  * 
  * @author Sam Sarjant
  */
 public class CycSemanticDistanceFunction extends DistanceFunction {
+	/** The number of ancestor closures to keep. */
+	public static final int CLOSURE_CACHE_SIZE = 10000;
+
+	/** The closure size above which MinHash sketches are used. */
+	public static final int MINHASH_THRESHOLD = 4096;
+
+	/** The number of hashes in a MinHash sketch. */
+	public static final int SKETCH_SIZE = 128;
+
+	/** The ancestor closures of recently measured concepts. */
+	private static final CacheMap<String, Closure> closures_ = new CacheMap<>(
+			CLOSURE_CACHE_SIZE, false);
+
 	/** The normalising constant. */
 	private static float MAX_COLLECTION = -1;
 
+	/** If very wide closures are intersected approximately. */
+	public static boolean useMinHash_ = false;
+
+	/**
+	 * Gets the ancestors (all genls and all isa) of a concept, from the cache
+	 * if possible.
+	 *
+	 * @param concept
+	 *            The concept to get the ancestors of.
+	 * @param cyc
+	 *            The ontology access.
+	 * @return The ancestor closure of the concept.
+	 */
+	private Closure getClosure(OntologyConcept concept, OntologySocket cyc) {
+		String identifier = concept.getIdentifier();
+		synchronized (closures_) {
+			Closure closure = closures_.get(identifier);
+			if (closure != null)
+				return closure;
+		}
+
+		Collection<OntologyConcept> genls = cyc.quickQuery(
+				CommonQuery.ALLGENLS, identifier);
+		Collection<OntologyConcept> isa = cyc.quickQuery(CommonQuery.ALLISA,
+				identifier);
+		int[] ids = new int[((genls != null) ? genls.size() : 0)
+				+ ((isa != null) ? isa.size() : 0)];
+		int size = 0;
+		for (Collection<OntologyConcept> ancestors : Arrays.asList(genls, isa)) {
+			if (ancestors == null)
+				continue;
+			for (OntologyConcept ancestor : ancestors)
+				if (ancestor.getID() > 0)
+					ids[size++] = ancestor.getID();
+		}
+		Closure closure = new Closure(ids, size);
+		synchronized (closures_) {
+			closures_.put(identifier, closure);
+		}
+		return closure;
+	}
+
 	@Override
 	public float distance(OntologyConcept termA, OntologyConcept collectionB,
 			OntologySocket cyc) throws Exception {
@@ -31,19 +88,11 @@ public class CycSemanticDistanceFunction extends DistanceFunction {
 
 		// Use the Google distance measure to figure out how similar to concepts
 		// are.
-		Collection<OntologyConcept> broaderA = cyc.quickQuery(CommonQuery.ALLGENLS,
-				termA.getIdentifier());
-		broaderA.addAll(cyc.quickQuery(CommonQuery.ALLISA,
-				termA.getIdentifier()));
+		Closure broaderA = getClosure(termA, cyc);
 		int a = broaderA.size();
-		Collection<OntologyConcept> broaderB = cyc.quickQuery(CommonQuery.ALLGENLS,
-				collectionB.getIdentifier());
-		broaderB.addAll(cyc.quickQuery(CommonQuery.ALLISA,
-				collectionB.getIdentifier()));
+		Closure broaderB = getClosure(collectionB, cyc);
 		int b = broaderB.size();
-		Collection<OntologyConcept> intersect = new HashSet<>(broaderA);
-		intersect.retainAll(broaderB);
-		int aAndB = intersect.size();
+		int aAndB = broaderA.intersectionSize(broaderB);
 
 		float max = Math.max(a, b);
 		float min = Math.min(a, b);
@@ -55,4 +104,117 @@ public class CycSemanticDistanceFunction extends DistanceFunction {
 		return 1;
 	}
 
+	/**
+	 * Clears the cached closures (e.g. after the taxonomy has changed).
+	 */
+	public static void clearCache() {
+		synchronized (closures_) {
+			closures_.clear();
+		}
+	}
+
+	/**
+	 * Drops the cached closures that a change to the isa/genls edges of a
+	 * concept may have invalidated: the concept's own closure and every
+	 * closure the concept is an ancestor in.
+	 *
+	 * @param id
+	 *            The ID of the changed concept, or -1 if it is unknown.
+	 * @param identifier
+	 *            The identifier (or name) of the changed concept.
+	 */
+	public static void forget(int id, String identifier) {
+		synchronized (closures_) {
+			if (identifier != null)
+				closures_.remove(identifier);
+			if (id <= 0)
+				return;
+			closures_.remove(id + "");
+			for (Iterator<Closure> iter = closures_.values().iterator(); iter
+					.hasNext();)
+				if (iter.next().contains(id))
+					iter.remove();
+		}
+	}
+
+	/**
+	 * The ancestors of a concept, as sorted IDs, with a MinHash sketch if the
+	 * closure is very wide.
+	 */
+	private static class Closure {
+		private int[] ids_;
+		private int[] sketch_;
+
+		public Closure(int[] ids, int size) {
+			int[] sorted = Arrays.copyOf(ids, size);
+			Arrays.sort(sorted);
+			// Remove duplicates
+			int unique = 0;
+			for (int i = 0; i < sorted.length; i++)
+				if (unique == 0 || sorted[i] != sorted[unique - 1])
+					sorted[unique++] = sorted[i];
+			ids_ = Arrays.copyOf(sorted, unique);
+
+			if (unique > MINHASH_THRESHOLD) {
+				sketch_ = new int[SKETCH_SIZE];
+				Arrays.fill(sketch_, Integer.MAX_VALUE);
+				for (int id : ids_)
+					for (int h = 0; h < SKETCH_SIZE; h++)
+						sketch_[h] = Math.min(sketch_[h], hash(id, h));
+			}
+		}
+
+		/**
+		 * Gets the (possibly estimated) number of ancestors shared with
+		 * another closure.
+		 */
+		public int intersectionSize(Closure other) {
+			if (useMinHash_ && sketch_ != null && other.sketch_ != null) {
+				int matches = 0;
+				for (int h = 0; h < SKETCH_SIZE; h++)
+					if (sketch_[h] == other.sketch_[h])
+						matches++;
+				// |A n B| = J(|A| + |B|) / (1 + J)
+				double jaccard = 1.0 * matches / SKETCH_SIZE;
+				return (int) Math.round(jaccard * (size() + other.size())
+						/ (1 + jaccard));
+			}
+
+			int shared = 0;
+			int i = 0, j = 0;
+			while (i < ids_.length && j < other.ids_.length) {
+				if (ids_[i] < other.ids_[j])
+					i++;
+				else if (ids_[i] > other.ids_[j])
+					j++;
+				else {
+					shared++;
+					i++;
+					j++;
+				}
+			}
+			return shared;
+		}
+
+		public int size() {
+			return ids_.length;
+		}
+
+		public boolean contains(int id) {
+			return Arrays.binarySearch(ids_, id) >= 0;
+		}
+
+		/**
+		 * The hth hash of an ID (a seeded integer mix).
+		 */
+		private static int hash(int id, int h) {
+			int x = id * 0x9E3779B9 + h * 0x85EBCA6B;
+			x ^= x >>> 16;
+			x *= 0x7FEB352D;
+			x ^= x >>> 15;
+			x *= 0x846CA68B;
+			x ^= x >>> 16;
+			return x;
+		}
+	}
 }
@@ -5,6 +5,7 @@ package cyc;
 
 import graph.core.PrimitiveNode;
 import io.ResourceAccess;
+import io.ontology.ConceptDictionary;
 import io.ontology.OntologySocket;
 
 import java.io.Serializable;
@@ -71,8 +72,11 @@ public class OntologyConcept extends AssertionArgument implements Serializable,
 		if (constant_ == null && funcArgs_ == null) {
 			if (id_ == 0)
 				return null;
-			parseConstantName(ResourceAccess.requestOntologySocket()
-					.findConceptByID(id_));
+			String name = ConceptDictionary.getInstance().getConceptName(id_);
+			if (name == null)
+				name = ResourceAccess.requestOntologySocket().findConceptByID(
+						id_);
+			parseConstantName(name);
 		}
 		if (funcArgs_ != null)
 			return "(" + StringUtils.join(funcArgs_, ' ') + ")";
@@ -86,17 +90,21 @@ public class OntologyConcept extends AssertionArgument implements Serializable,
 	}
 
 	/**
-	 * Rereads the ID from the constant/function args.
+	 * Rereads the ID from the constant/function args, using the local
+	 * dictionary before asking the ontology.
 	 */
 	private void refreshID() {
 		if (id_ == 0) {
+			String name = null;
 			if (constant_ != null)
-				id_ = ResourceAccess.requestOntologySocket().getConceptID(
-						constant_);
-			else if (funcArgs_ != null) {
-				id_ = ResourceAccess.requestOntologySocket().getConceptID(
-						"(" + StringUtils.join(funcArgs_, ' ') + ")");
-			}
+				name = constant_;
+			else if (funcArgs_ != null)
+				name = "(" + StringUtils.join(funcArgs_, ' ') + ")";
+			if (name == null)
+				return;
+			id_ = ConceptDictionary.getInstance().getConceptID(name);
+			if (id_ == 0)
+				id_ = ResourceAccess.requestOntologySocket().getConceptID(name);
 		}
 	}
 
@@ -116,6 +124,11 @@ public class OntologyConcept extends AssertionArgument implements Serializable,
 		if (getClass() != obj.getClass())
 			return false;
 		OntologyConcept other = (OntologyConcept) obj;
+		// Ontology concepts are identified by ID alone
+		int id = getID();
+		int otherID = other.getID();
+		if (id > 0 || otherID > 0)
+			return id == otherID;
 		if (getIdentifier() == null) {
 			if (other.getIdentifier() != null)
 				return false;
@@ -128,6 +141,9 @@ public class OntologyConcept extends AssertionArgument implements Serializable,
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
+		int id = getID();
+		if (id > 0)
+			return prime * result + id;
 		result = prime * result
 				+ ((getIdentifier() == null) ? 0 : getIdentifier().hashCode());
 		return result;
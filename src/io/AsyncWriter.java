@@ -0,0 +1,369 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An asynchronous writer for line-based output files. Writing threads claim
+ * slots in a ring buffer (without locking) and a single background thread
+ * writes the records in order, flushing a group of records at a time (when
+ * the buffer runs dry or {@link #groupCommitSize_} records have been
+ * written). {@link #sync()} provides a durability point: every record written
+ * before it is flushed and forced to disk when it returns.
+ *
+ * Records are written as lines of text, or optionally as length-prefixed
+ * UTF-8 records. Non-file streams (e.g. standard out) can be kept as text.
+ *
+ * @author Sam Sarjant
+ */
+public class AsyncWriter {
+	/** The time (ns) the writer thread waits when there is nothing to write. */
+	private static final long IDLE_WAIT = 1000000;
+
+	/** The time (ns) a writing thread waits when the buffer is full. */
+	private static final long FULL_WAIT = 10000;
+
+	/** The number of records the buffer holds (a power of 2). */
+	public static int bufferSize_ = 1 << 16;
+
+	/** The maximum number of records written between flushes. */
+	public static int groupCommitSize_ = 4096;
+
+	/** If records are written as length-prefixed UTF-8 by default. */
+	private boolean binary_;
+
+	/** If the records of each stream are written as length-prefixed UTF-8. */
+	private List<Boolean> binaryStreams_;
+
+	/** The next sequence number to claim. */
+	private AtomicLong claimed_;
+
+	/** The number of records written by the writer thread. */
+	private volatile long consumed_;
+
+	/** The number of records flushed. */
+	private volatile long flushed_;
+
+	private volatile boolean idle_;
+
+	private Logger logger_ = LoggerFactory.getLogger(AsyncWriter.class);
+
+	private int mask_;
+
+	/** The sequence number (+1) of the record published in each slot. */
+	private AtomicLongArray published_;
+
+	/** The records of each slot. */
+	private String[] records_;
+
+	/** The stream of the record in each slot. */
+	private int[] recordStreams_;
+
+	private volatile boolean running_;
+
+	/** The output streams and whether each should be closed. */
+	private List<OutputStream> streams_;
+	private List<Boolean> closeStreams_;
+
+	/** The file streams, forced to disk on a sync. */
+	private List<FileOutputStream> files_;
+
+	/** The monitor for threads waiting on a flush. */
+	private Object syncLock_;
+
+	private Thread writer_;
+
+	/**
+	 * Creates a new writer.
+	 *
+	 * @param binary
+	 *            If records are written as length-prefixed UTF-8 rather than
+	 *            lines of text.
+	 */
+	public AsyncWriter(boolean binary) {
+		binary_ = binary;
+		int capacity = Integer.highestOneBit(Math.max(2, bufferSize_));
+		mask_ = capacity - 1;
+		claimed_ = new AtomicLong();
+		published_ = new AtomicLongArray(capacity);
+		records_ = new String[capacity];
+		recordStreams_ = new int[capacity];
+		streams_ = new ArrayList<>();
+		closeStreams_ = new ArrayList<>();
+		binaryStreams_ = new ArrayList<>();
+		files_ = new ArrayList<>();
+		syncLock_ = new Object();
+	}
+
+	/**
+	 * Flushes every stream.
+	 */
+	private void flushStreams() {
+		for (OutputStream stream : streams_) {
+			try {
+				stream.flush();
+			} catch (IOException | RuntimeException e) {
+				logger_.error("Error flushing output: {}", e.toString());
+			}
+		}
+	}
+
+	/**
+	 * Forces the flushed contents of every file to disk.
+	 */
+	private void forceFiles() {
+		for (FileOutputStream file : files_) {
+			try {
+				file.getFD().sync();
+			} catch (IOException e) {
+				logger_.error("Error syncing output: {}", e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * The writer thread loop: writes records in sequence, flushing each group.
+	 */
+	private void runWriter() {
+		long next = 0;
+		int unflushed = 0;
+		while (true) {
+			int index = (int) (next & mask_);
+			if (published_.get(index) == next + 1) {
+				writeRecord(recordStreams_[index], records_[index]);
+				records_[index] = null;
+				next++;
+				consumed_ = next;
+				if (++unflushed >= groupCommitSize_) {
+					flushStreams();
+					unflushed = 0;
+					setFlushed(next);
+				}
+				continue;
+			}
+
+			// Nothing to write: commit the group
+			if (unflushed > 0) {
+				flushStreams();
+				unflushed = 0;
+			}
+			if (flushed_ != next)
+				setFlushed(next);
+			if (!running_ && next == claimed_.get())
+				break;
+
+			idle_ = true;
+			if (published_.get(index) != next + 1)
+				LockSupport.parkNanos(this, IDLE_WAIT);
+			idle_ = false;
+		}
+
+		flushStreams();
+		forceFiles();
+		for (int i = 0; i < streams_.size(); i++) {
+			try {
+				if (closeStreams_.get(i))
+					streams_.get(i).close();
+				else
+					streams_.get(i).flush();
+			} catch (IOException e) {
+				logger_.error("Error closing output: {}", e.getMessage());
+			}
+		}
+	}
+
+	private void setFlushed(long flushed) {
+		flushed_ = flushed;
+		synchronized (syncLock_) {
+			syncLock_.notifyAll();
+		}
+	}
+
+	private void writeRecord(int stream, String record) {
+		try {
+			byte[] bytes = record.getBytes(StandardCharsets.UTF_8);
+			OutputStream out = streams_.get(stream);
+			if (binaryStreams_.get(stream)) {
+				((DataOutputStream) out).writeInt(bytes.length);
+				out.write(bytes);
+			} else {
+				out.write(bytes);
+				out.write('\n');
+			}
+		} catch (IOException | RuntimeException e) {
+			// A bad record must not stop the writer thread
+			logger_.error("Error writing output: {}", e.toString());
+		}
+	}
+
+	/**
+	 * Adds a file to write to (before the writer is started).
+	 *
+	 * @param file
+	 *            The file to write to (it is overwritten).
+	 * @return The index of the stream to write records to.
+	 * @throws IOException
+	 *             If the file cannot be opened.
+	 */
+	public int addStream(File file) throws IOException {
+		return addStream(file, false);
+	}
+
+	/**
+	 * Adds a file to write to (before the writer is started).
+	 *
+	 * @param file
+	 *            The file to write to.
+	 * @param append
+	 *            If records are appended to the file rather than overwriting
+	 *            it.
+	 * @return The index of the stream to write records to.
+	 * @throws IOException
+	 *             If the file cannot be opened.
+	 */
+	public int addStream(File file, boolean append) throws IOException {
+		file.createNewFile();
+		FileOutputStream out = new FileOutputStream(file, append);
+		files_.add(out);
+		return addStream(out, true);
+	}
+
+	/**
+	 * Adds an output stream to write to (before the writer is started).
+	 *
+	 * @param out
+	 *            The output stream.
+	 * @param close
+	 *            If the stream should be closed when the writer is closed.
+	 * @return The index of the stream to write records to.
+	 */
+	public int addStream(OutputStream out, boolean close) {
+		return addStream(out, close, binary_);
+	}
+
+	/**
+	 * Adds an output stream to write to (before the writer is started).
+	 *
+	 * @param out
+	 *            The output stream.
+	 * @param close
+	 *            If the stream should be closed when the writer is closed.
+	 * @param binary
+	 *            If the records of this stream are written as length-prefixed
+	 *            UTF-8 rather than lines of text.
+	 * @return The index of the stream to write records to.
+	 */
+	public int addStream(OutputStream out, boolean close, boolean binary) {
+		OutputStream buffered = new BufferedOutputStream(out, 1 << 16);
+		if (binary)
+			buffered = new DataOutputStream(buffered);
+		streams_.add(buffered);
+		closeStreams_.add(close);
+		binaryStreams_.add(binary);
+		return streams_.size() - 1;
+	}
+
+	/**
+	 * Writes every outstanding record, then closes the streams. Records
+	 * written afterwards are discarded.
+	 */
+	public void close() {
+		if (!running_)
+			return;
+		running_ = false;
+		LockSupport.unpark(writer_);
+		try {
+			writer_.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Starts the writer thread.
+	 */
+	public void start() {
+		running_ = true;
+		writer_ = new Thread("AsyncWriter") {
+			@Override
+			public void run() {
+				runWriter();
+			}
+		};
+		writer_.setDaemon(true);
+		writer_.start();
+	}
+
+	/**
+	 * Waits until every record written before this call has been flushed, then
+	 * forces the files to disk.
+	 */
+	public void sync() {
+		long target = claimed_.get();
+		synchronized (syncLock_) {
+			while (flushed_ < target && writer_ != null && writer_.isAlive()) {
+				LockSupport.unpark(writer_);
+				try {
+					syncLock_.wait(100);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+		// Closed files were forced by the writer thread
+		if (running_)
+			forceFiles();
+	}
+
+	@Override
+	public String toString() {
+		return "Output: " + claimed_.get() + " records, "
+				+ (claimed_.get() - consumed_) + " queued";
+	}
+
+	/**
+	 * Queues a record to be written. This only waits if the buffer is full.
+	 *
+	 * @param stream
+	 *            The index of the stream to write to.
+	 * @param record
+	 *            The record (a line, without the newline).
+	 * @throws IllegalStateException
+	 *             If the buffer is full and the writer thread has died.
+	 */
+	public void write(int stream, String record) {
+		if (!running_)
+			return;
+		long sequence = claimed_.getAndIncrement();
+		while (sequence - consumed_ > mask_) {
+			if (!writer_.isAlive())
+				throw new IllegalStateException(
+						"The output writer thread has died");
+			LockSupport.unpark(writer_);
+			LockSupport.parkNanos(FULL_WAIT);
+		}
+		int index = (int) (sequence & mask_);
+		records_[index] = record;
+		recordStreams_[index] = stream;
+		published_.set(index, sequence + 1);
+		if (idle_)
+			LockSupport.unpark(writer_);
+	}
+}
@@ -0,0 +1,264 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package io;
+
+import java.text.DecimalFormat;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records per-command statistics for all {@link KMSocket}s: the number of
+ * times each command verb is sent, the characters sent and received, a latency
+ * histogram, and error/restart counts. Commands that take longer than the slow
+ * threshold are logged individually.
+ *
+ * @author Sam Sarjant
+ */
+public class CommandStatistics {
+	/** The number of latency buckets (powers of two milliseconds). */
+	private static final int NUM_BUCKETS = 16;
+
+	/** The maximum number of characters of a slow command to log. */
+	private static final int SLOW_COMMAND_PREVIEW = 200;
+
+	private static final Logger slowLogger_ = LoggerFactory
+			.getLogger("SLOW_COMMAND");
+
+	private static final Logger statsLogger_ = LoggerFactory
+			.getLogger("SOCKET_STATS");
+
+	/** The records, indexed by socket class and command verb. */
+	private static final ConcurrentHashMap<String, CommandRecord> records_ = new ConcurrentHashMap<>();
+
+	/** The last time the statistics were dumped. */
+	private static final AtomicLong lastDump_ = new AtomicLong(
+			System.currentTimeMillis());
+
+	/** If statistics are being recorded at all. */
+	public static boolean enabled_ = true;
+
+	/** Commands taking at least this many milliseconds are logged. */
+	public static long slowThreshold_ = 1000;
+
+	/**
+	 * The interval (in milliseconds) at which statistics are dumped to the
+	 * log. Non-positive values disable the periodic dump.
+	 */
+	public static long dumpInterval_ = 10 * 60 * 1000;
+
+	private CommandStatistics() {
+	}
+
+	/**
+	 * Gets (or creates) the record for a given socket class and command verb.
+	 *
+	 * @param socketClass
+	 *            The class of socket the command was sent through.
+	 * @param verb
+	 *            The command verb.
+	 * @return The record for the command.
+	 */
+	private static CommandRecord getRecord(Class<?> socketClass, String verb) {
+		String key = socketClass.getSimpleName() + ":" + verb;
+		CommandRecord record = records_.get(key);
+		if (record == null) {
+			record = new CommandRecord();
+			CommandRecord existing = records_.putIfAbsent(key, record);
+			if (existing != null)
+				record = existing;
+		}
+		return record;
+	}
+
+	/**
+	 * Dumps the statistics to the log if the dump interval has passed.
+	 */
+	private static void checkDump() {
+		if (dumpInterval_ <= 0)
+			return;
+		long now = System.currentTimeMillis();
+		long last = lastDump_.get();
+		if (now - last >= dumpInterval_ && lastDump_.compareAndSet(last, now))
+			statsLogger_.info(printStatistics());
+	}
+
+	/**
+	 * Extracts the command verb from a command string. Batch commands include
+	 * the batched command in the verb.
+	 *
+	 * @param command
+	 *            The full command string.
+	 * @return The verb of the command.
+	 */
+	public static String getVerb(String command) {
+		if (command == null)
+			return "null";
+		int end = 0;
+		while (end < command.length()
+				&& !Character.isWhitespace(command.charAt(end)))
+			end++;
+		String verb = command.substring(0, end);
+		if (verb.equals("batch") && end < command.length()) {
+			int subEnd = end + 1;
+			while (subEnd < command.length()
+					&& !Character.isWhitespace(command.charAt(subEnd)))
+				subEnd++;
+			verb = command.substring(0, subEnd);
+		}
+		return verb;
+	}
+
+	/**
+	 * Records a single command round trip.
+	 *
+	 * @param socketClass
+	 *            The class of socket the command was sent through.
+	 * @param command
+	 *            The command that was sent.
+	 * @param verb
+	 *            The verb of the command.
+	 * @param nanos
+	 *            The round trip time in nanoseconds.
+	 * @param sent
+	 *            The number of characters sent.
+	 * @param received
+	 *            The number of characters received.
+	 * @param error
+	 *            If the command failed.
+	 */
+	public static void recordCommand(Class<?> socketClass, String command,
+			String verb, long nanos, int sent, int received, boolean error) {
+		if (!enabled_)
+			return;
+		CommandRecord record = getRecord(socketClass, verb);
+		record.count_.incrementAndGet();
+		record.sent_.addAndGet(sent);
+		record.received_.addAndGet(received);
+		record.totalNanos_.addAndGet(nanos);
+		if (error)
+			record.errors_.incrementAndGet();
+
+		long millis = nanos / 1000000;
+		int bucket = (millis <= 0) ? 0 : Math.min(NUM_BUCKETS - 1,
+				64 - Long.numberOfLeadingZeros(millis));
+		record.histogram_.incrementAndGet(bucket);
+
+		if (slowThreshold_ > 0 && millis >= slowThreshold_) {
+			String preview = (command.length() > SLOW_COMMAND_PREVIEW) ? command
+					.substring(0, SLOW_COMMAND_PREVIEW) + "..."
+					: command;
+			slowLogger_.warn("{}ms\t{}\t{}", millis,
+					socketClass.getSimpleName(),
+					preview.replaceAll("\n", "\\\\n"));
+		}
+
+		checkDump();
+	}
+
+	/**
+	 * Records additional characters received for a command (e.g. the
+	 * remaining lines of a multi-line response).
+	 *
+	 * @param socketClass
+	 *            The class of socket the command was sent through.
+	 * @param verb
+	 *            The verb of the command.
+	 * @param received
+	 *            The number of additional characters received.
+	 */
+	public static void recordReceived(Class<?> socketClass, String verb,
+			int received) {
+		if (!enabled_ || verb == null)
+			return;
+		getRecord(socketClass, verb).received_.addAndGet(received);
+	}
+
+	/**
+	 * Records an error for a command.
+	 *
+	 * @param socketClass
+	 *            The class of socket the command was sent through.
+	 * @param verb
+	 *            The verb of the command.
+	 * @param restarted
+	 *            If the socket was restarted as a result of the error.
+	 */
+	public static void recordError(Class<?> socketClass, String verb,
+			boolean restarted) {
+		if (!enabled_ || verb == null)
+			return;
+		CommandRecord record = getRecord(socketClass, verb);
+		record.errors_.incrementAndGet();
+		if (restarted)
+			record.restarts_.incrementAndGet();
+	}
+
+	/**
+	 * Clears all recorded statistics.
+	 */
+	public static void reset() {
+		records_.clear();
+	}
+
+	/**
+	 * Formats the current statistics, one line per command, in descending
+	 * order of total time spent on the command.
+	 *
+	 * @return A String representation of the statistics.
+	 */
+	public static String printStatistics() {
+		SortedMap<Long, String> ordered = new TreeMap<>();
+		DecimalFormat format = new DecimalFormat("#0.000");
+		for (Map.Entry<String, CommandRecord> entry : records_.entrySet()) {
+			CommandRecord record = entry.getValue();
+			long count = record.count_.get();
+			long total = record.totalNanos_.get();
+			double meanMillis = (count == 0) ? 0 : total / (count * 1000000d);
+			StringBuilder builder = new StringBuilder(entry.getKey() + ": #"
+					+ count + ", " + format.format(total / 1000000000d)
+					+ "s total, " + format.format(meanMillis) + "ms mean, "
+					+ record.sent_.get() + " sent, " + record.received_.get()
+					+ " received, " + record.errors_.get() + " errors, "
+					+ record.restarts_.get() + " restarts. Latency ms [");
+			for (int i = 0; i < NUM_BUCKETS; i++) {
+				if (i > 0)
+					builder.append(", ");
+				builder.append("<" + (1 << i) + ":"
+						+ record.histogram_.get(i));
+			}
+			builder.append("]\n");
+			// Order by descending total time (ties broken arbitrarily)
+			long key = -total;
+			while (ordered.containsKey(key))
+				key--;
+			ordered.put(key, builder.toString());
+		}
+
+		StringBuilder result = new StringBuilder();
+		for (String line : ordered.values())
+			result.append(line);
+		return result.toString();
+	}
+
+	/**
+	 * The statistics for a single command verb.
+	 */
+	private static class CommandRecord {
+		private final AtomicLong count_ = new AtomicLong();
+		private final AtomicLong errors_ = new AtomicLong();
+		private final AtomicLongArray histogram_ = new AtomicLongArray(
+				NUM_BUCKETS);
+		private final AtomicLong received_ = new AtomicLong();
+		private final AtomicLong restarts_ = new AtomicLong();
+		private final AtomicLong sent_ = new AtomicLong();
+		private final AtomicLong totalNanos_ = new AtomicLong();
+	}
+}
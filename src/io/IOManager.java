@@ -3,12 +3,8 @@
  ******************************************************************************/
 package io;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Set;
 
 import knowledgeMiner.ConceptModule;
 import knowledgeMiner.InteractiveMode;
@@ -19,7 +15,8 @@ import knowledgeMiner.mining.wikipedia.InfoboxTypeMiner;
 import cyc.OntologyConcept;
 
 /**
- * The class to handle all of the IO stuff.
+ * The class to handle all of the IO stuff. Output is queued to an
+ * {@link AsyncWriter}, so writing threads do not wait on the files.
  * 
  * @author Sam Sarjant
  */
@@ -35,27 +32,43 @@ public class IOManager {
 	public static final String REMOVED_FILE = "removedConstants.txt";
 	public static final String CYC_OPERATIONS = "cycOperations.txt";
 
+	/** If output records are written in binary (length-prefixed) form. */
+	public static boolean binaryOutput_ = false;
+
+	/** The article IDs the seen first sentences set holds as bits. */
+	public static int maxArticleID_ = 1 << 26;
+
 	/** The removed constants. */
-	private BufferedWriter assertions_;
+	private int assertions_;
 
 	/** The output writer for assertions blocked by Cyc. */
-	private BufferedWriter blocked_;
+	private int blocked_;
 
 	/** The output writer for sentences that couldn't be regexp matched. */
-	private BufferedWriter firstSentenceOut_;
+	private int firstSentenceOut_;
 	/** The mappings file. */
-	private BufferedWriter mappings_;
+	private int mappings_;
 
 	/** The removed constants. */
-	private BufferedWriter removed_;
+	private int removed_;
 
 	/** The mapping chain file. */
-	private BufferedWriter mappingChain_;
+	private int mappingChain_;
+
+	/** Standard output, for the mapping messages. */
+	private int stdout_;
+
+	/** The articles with written first sentences. */
+	private SeenSet writtenSentences_;
 
-	private Set<Integer> writtenSentences_;
+	/** The file the written first sentences are saved to. */
+	private File writtenSentencesFile_;
 
 	/** The file for Cyc operations. */
-	private BufferedWriter cycOperations_;
+	private int cycOperations_;
+
+	/** The writer of the output files, or null if idle. */
+	private AsyncWriter output_;
 
 	/**
 	 * Placeholder constructor for an idle IOManager.
@@ -87,34 +100,24 @@ public class IOManager {
 			String firstSentenceOut, String infoboxTypes,
 			String infoboxRelations, String mappings, String removed,
 			String cycOperations, String mappingChain) throws IOException {
-		File f = new File(assertions);
-		f.createNewFile();
-		assertions_ = new BufferedWriter(new FileWriter(f));
-
-		f = new File(blocked);
-		f.createNewFile();
-		blocked_ = new BufferedWriter(new FileWriter(f));
-
-		f = new File(firstSentenceOut);
-		f.createNewFile();
-		firstSentenceOut_ = new BufferedWriter(new FileWriter(f));
-		writtenSentences_ = new HashSet<>(10000000);
-
-		f = new File(mappings);
-		f.createNewFile();
-		mappings_ = new BufferedWriter(new FileWriter(f));
-
-		f = new File(removed);
-		f.createNewFile();
-		removed_ = new BufferedWriter(new FileWriter(f));
-
-		f = new File(cycOperations);
-		f.createNewFile();
-		cycOperations_ = new BufferedWriter(new FileWriter(f));
-
-		f = new File(mappingChain);
-		f.createNewFile();
-		mappingChain_ = new BufferedWriter(new FileWriter(f));
+		output_ = new AsyncWriter(binaryOutput_);
+		assertions_ = output_.addStream(new File(assertions));
+		blocked_ = output_.addStream(new File(blocked));
+		// Continue the first sentences of an earlier run
+		writtenSentences_ = new SeenSet(maxArticleID_);
+		writtenSentencesFile_ = new File(firstSentenceOut + ".seen");
+		boolean resume = writtenSentencesFile_.exists();
+		if (resume)
+			writtenSentences_.load(writtenSentencesFile_);
+		firstSentenceOut_ = output_.addStream(new File(firstSentenceOut),
+				resume);
+		mappings_ = output_.addStream(new File(mappings));
+		removed_ = output_.addStream(new File(removed));
+		cycOperations_ = output_.addStream(new File(cycOperations));
+		mappingChain_ = output_.addStream(new File(mappingChain));
+		// Standard out is always text
+		stdout_ = output_.addStream(System.out, false, false);
+		output_.start();
 	}
 
 	/**
@@ -124,63 +127,50 @@ public class IOManager {
 	 *             Should something go awry...
 	 */
 	public void close() throws IOException {
-		if (assertions_ == null)
+		if (output_ == null)
 			return;
-		assertions_.close();
-		blocked_.close();
-		firstSentenceOut_.close();
-		mappings_.close();
-		removed_.close();
+		output_.close();
+		writtenSentences_.save(writtenSentencesFile_);
 	}
 
 	/**
-	 * Flushes all buffers.
+	 * Flushes all buffers: every record written so far is on disk when this
+	 * returns.
 	 * 
 	 * @throws IOException
 	 *             Should something go awry...
 	 */
 	public void flush() throws IOException {
-		if (assertions_ != null)
-			assertions_.flush();
-		if (blocked_ != null)
-			blocked_.flush();
-		if (firstSentenceOut_ != null)
-			firstSentenceOut_.flush();
-		if (mappings_ != null)
-			mappings_.flush();
-		if (removed_ != null)
-			removed_.flush();
-		if (mappingChain_ != null)
-			mappingChain_.flush();
+		if (output_ != null) {
+			output_.sync();
+			writtenSentences_.save(writtenSentencesFile_);
+		}
 
 		// Flush the interface
 		if (InteractiveMode.interactiveMode_)
 			InteractiveMode.getInstance().saveEvaluations();
 	}
 
-	public synchronized void writeAssertion(OntologyConcept concept,
+	public void writeAssertion(OntologyConcept concept,
 			DefiniteAssertion assertion) throws IOException {
-		if (assertions_ != null)
-			assertions_.write(concept.getConceptName() + "\t"
+		if (output_ != null)
+			output_.write(assertions_, concept.getConceptName() + "\t"
 					+ assertion.getRelation() + "\t"
 					+ assertion.toPrettyString() + "\t"
-					+ assertion.getProvenance() + "\t" + assertion.getStatus()
-					+ "\n");
+					+ assertion.getProvenance() + "\t" + assertion.getStatus());
 	}
 
-	public synchronized void writeBlockedAssertion(MinedAssertion blockedAssertion)
+	public void writeBlockedAssertion(MinedAssertion blockedAssertion)
 			throws IOException {
-		if (blocked_ != null)
-			blocked_.write(blockedAssertion.toString() + "\n");
+		if (output_ != null)
+			output_.write(blocked_, blockedAssertion.toString());
 	}
 
-	public synchronized void writeFirstSentence(int article, String firstSentence)
+	public void writeFirstSentence(int article, String firstSentence)
 			throws IOException {
-		if (writtenSentences_ == null || writtenSentences_.contains(article))
+		if (writtenSentences_ == null || !writtenSentences_.add(article))
 			return;
-		if (firstSentenceOut_ != null)
-			firstSentenceOut_.write(article + "\t" + firstSentence + "\n");
-		writtenSentences_.add(article);
+		output_.write(firstSentenceOut_, article + "\t" + firstSentence);
 	}
 
 	/**
@@ -190,9 +180,9 @@ public class IOManager {
 	 *            The operation that altered Cyc in some way.
 	 * @throws IOException
 	 */
-	public synchronized void writeCycOperation(String operation) throws IOException {
-		if (cycOperations_ != null)
-			cycOperations_.write(operation + "\n");
+	public void writeCycOperation(String operation) throws IOException {
+		if (output_ != null)
+			output_.write(cycOperations_, operation);
 	}
 
 	/**
@@ -208,31 +198,35 @@ public class IOManager {
 	 * @throws Exception
 	 *             Should something go awry...
 	 */
-	public synchronized void writeMapping(ConceptModule concept, String articleTitle)
+	public void writeMapping(ConceptModule concept, String articleTitle)
 			throws Exception {
 		OntologyConcept cycTerm = concept.getConcept();
-		System.out.println(concept.toPrettyString(false) + " ("
-				+ concept.getConcreteAssertions().size() + " assertions).");
-		if (mappings_ != null) {
-			StringBuilder buffer = new StringBuilder();
-			if (!concept.isCreatedConcept())
-				buffer.append(cycTerm.getIdentifier());
-			else
-				buffer.append("NEW");
-			buffer.append("\t" + cycTerm + "\t" + articleTitle + "\t");
-			buffer.append("\t" + concept.getModuleWeight());
-			mappings_.write(buffer.toString() + "\n");
+		String message = concept.toPrettyString(false) + " ("
+				+ concept.getConcreteAssertions().size() + " assertions).";
+		if (output_ == null) {
+			System.out.println(message);
+			return;
 		}
+
+		output_.write(stdout_, message);
+		StringBuilder buffer = new StringBuilder();
+		if (!concept.isCreatedConcept())
+			buffer.append(cycTerm.getIdentifier());
+		else
+			buffer.append("NEW");
+		buffer.append("\t" + cycTerm + "\t" + articleTitle + "\t");
+		buffer.append("\t" + concept.getModuleWeight());
+		output_.write(mappings_, buffer.toString());
 	}
 
-	public synchronized void writeMappingChain(String chain) throws IOException {
-		if (mappingChain_ != null)
-			mappingChain_.write(chain + "\n");
+	public void writeMappingChain(String chain) throws IOException {
+		if (output_ != null)
+			output_.write(mappingChain_, chain);
 	}
 
-	public synchronized void writeRemovedAssertion(DefiniteAssertion removedAssertion) throws IOException {
-		if (removed_ != null)
-			removed_.write(removedAssertion + "\n");
+	public void writeRemovedAssertion(DefiniteAssertion removedAssertion) throws IOException {
+		if (output_ != null)
+			output_.write(removed_, removedAssertion.toString());
 	}
 
 	/**
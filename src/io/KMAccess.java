@@ -17,6 +17,19 @@ import util.collection.CacheMap;
  * @author Sam Sarjant
  */
 public abstract class KMAccess<S extends KMSocket> {
+	/** The maximum estimated size (bytes) of the prefetched results. */
+	private static final long PREFETCH_MAX_SIZE = 256 * 1024 * 1024;
+
+	/** The time (ms) prefetched results are kept for. */
+	private static final long PREFETCH_TTL = 10 * 60 * 1000;
+
+	/** If the current thread is fetching results speculatively. */
+	private static final ThreadLocal<Boolean> prefetchThread_ = new ThreadLocal<Boolean>() {
+		@Override
+		protected Boolean initialValue() {
+			return false;
+		}
+	};
 
 	/** If results are cached at all. */
 	protected boolean cacheMapActive_ = false;
@@ -24,6 +37,9 @@ public abstract class KMAccess<S extends KMSocket> {
 	/** The local cache for object-based commands. Will gradually move to WMI. */
 	protected Map<String, CacheMap<String, Object>> resultCache_;
 
+	/** The speculatively fetched results, when results are not cached. */
+	protected PrefetchCache prefetchCache_;
+
 	/** Thread-specific socket. */
 	protected final ThreadLocal<S> threadSocket_;
 
@@ -36,6 +52,7 @@ public abstract class KMAccess<S extends KMSocket> {
 	public KMAccess(int port) throws UnknownHostException, IOException {
 		port_ = port;
 		resultCache_ = new HashMap<>();
+		prefetchCache_ = new PrefetchCache(PREFETCH_TTL, PREFETCH_MAX_SIZE);
 		threadSocket_ = new ThreadLocal<S>() {
 			@Override
 			protected S initialValue() {
@@ -73,7 +90,9 @@ public abstract class KMAccess<S extends KMSocket> {
 	protected abstract S createSocket(KMAccess<S> kmAccess) throws Exception;
 
 	/**
-	 * Caches a command result into the map.
+	 * Caches a command result into the map. If results are not cached, results
+	 * fetched by prefetch threads are still held (briefly) so the thread that
+	 * needs them does not fetch them again.
 	 * 
 	 * @param command
 	 *            The command being cached.
@@ -84,8 +103,11 @@ public abstract class KMAccess<S extends KMSocket> {
 	 */
 	public synchronized void cacheCommand(String command, String argument,
 			Object value) {
-		if (!cacheMapActive_)
+		if (!cacheMapActive_) {
+			if (prefetchThread_.get())
+				prefetchCache_.put(command, argument, value);
 			return;
+		}
 
 		if (!resultCache_.containsKey(command))
 			resultCache_.put(command, new CacheMap<String, Object>(true));
@@ -94,6 +116,7 @@ public abstract class KMAccess<S extends KMSocket> {
 
 	public synchronized void clearCache() {
 		resultCache_.clear();
+		prefetchCache_.clear();
 	}
 
 	/**
@@ -107,7 +130,7 @@ public abstract class KMAccess<S extends KMSocket> {
 	 */
 	public synchronized Object getCachedCommand(String command, String argument) {
 		if (!cacheMapActive_)
-			return null;
+			return prefetchCache_.get(command, argument);
 
 		if (!resultCache_.containsKey(command)) {
 			resultCache_.put(command, new CacheMap<String, Object>(true));
@@ -145,4 +168,15 @@ public abstract class KMAccess<S extends KMSocket> {
 		}
 		return false;
 	}
+
+	/**
+	 * Marks the current thread as a prefetch thread, so the results it fetches
+	 * are held even when results are not cached.
+	 * 
+	 * @param prefetching
+	 *            If the thread is fetching results speculatively.
+	 */
+	public static void setPrefetchThread(boolean prefetching) {
+		prefetchThread_.set(prefetching);
+	}
 }
@@ -20,12 +20,24 @@ public abstract class KMSocket {
 	/** Socket timeout. */
 	public static final int SOCKET_TIMEOUT = -1;
 
+	/** The timeout (ms) used when draining unread output from the socket. */
+	public static final int DRAIN_TIMEOUT = 2000;
+
+	/** The initial size of the reusable frame buffer. */
+	private static final int INITIAL_FRAME_SIZE = 1 << 16;
+
 	/** The localhost name for SSH tunnelling connections. */
 	public static final String LOCALHOST = "localhost";
 
 	/** A counter for command accesses. */
 	private long commandCount_ = 0;
 
+	/** The verb of the last command sent through this socket. */
+	private String lastVerb_;
+
+	/** The reusable buffer for reading framed responses. */
+	private char[] frameBuffer_;
+
 	/** The input stream (output from WMI). */
 	private BufferedReader in_;
 
@@ -56,9 +68,12 @@ public abstract class KMSocket {
 	 *         reopening. False otherwise, or if there is an exception.
 	 */
 	protected boolean restartConnection() {
-		if (!canRestart_)
+		if (!canRestart_) {
+			CommandStatistics.recordError(getClass(), lastVerb_, false);
 			return false;
+		}
 
+		CommandStatistics.recordError(getClass(), lastVerb_, true);
 		try {
 			disconnect();
 			connect();
@@ -165,13 +180,21 @@ public abstract class KMSocket {
 	 */
 	public String querySocket(String input) {
 		String output = null;
+		String verb = CommandStatistics.getVerb(input);
+		lastVerb_ = verb;
+		boolean error = false;
+		long start = System.nanoTime();
 		try {
 			out_.println(input);
 			commandCount_++;
 			output = in_.readLine().trim();
 		} catch (Exception e) {
 			e.printStackTrace();
+			error = true;
 		}
+		CommandStatistics.recordCommand(getClass(), input, verb,
+				System.nanoTime() - start, input.length() + 1,
+				(output == null) ? 0 : output.length() + 1, error);
 		canRestart_ = true;
 		return output;
 	}
@@ -184,20 +207,93 @@ public abstract class KMSocket {
 	 *             Should something go awry...
 	 */
 	public String readLine() throws IOException {
-		return in_.readLine();
+		String line = in_.readLine();
+		if (line != null)
+			CommandStatistics.recordReceived(getClass(), lastVerb_,
+					line.length() + 1);
+		return line;
+	}
+
+	/**
+	 * Reads a length-prefixed frame from the input socket into a reusable
+	 * buffer. The frame is followed by a line terminator, which is consumed.
+	 * 
+	 * @param length
+	 *            The number of UTF-8 encoded bytes in the frame.
+	 * @return The frame contents.
+	 * @throws IOException
+	 *             If the stream ends before the frame is complete.
+	 */
+	protected String readFrame(int length) throws IOException {
+		// A frame never has more characters than bytes
+		if (frameBuffer_ == null || frameBuffer_.length < length)
+			frameBuffer_ = new char[Math.max(length, INITIAL_FRAME_SIZE)];
+		int offset = 0;
+		int bytes = 0;
+		while (bytes < length) {
+			// No character is more than three bytes, so this cannot overshoot
+			int read = in_.read(frameBuffer_, offset,
+					Math.max(1, (length - bytes) / 3));
+			if (read == -1)
+				throw new IOException("Stream ended after " + bytes + " of "
+						+ length + " framed bytes.");
+			for (int i = offset; i < offset + read; i++)
+				bytes += encodedLength(frameBuffer_[i]);
+			offset += read;
+		}
+		if (bytes != length)
+			throw new IOException("Frame of " + length
+					+ " bytes ended mid-character.");
+		// Consume the trailing line terminator
+		in_.readLine();
+		CommandStatistics.recordReceived(getClass(), lastVerb_, length + 1);
+		return new String(frameBuffer_, 0, offset);
+	}
+
+	/**
+	 * The number of bytes a character occupies in UTF-8. Each half of a
+	 * surrogate pair counts for half of the pair's four bytes.
+	 * 
+	 * @param c
+	 *            The character.
+	 * @return The UTF-8 length of the character.
+	 */
+	private static int encodedLength(char c) {
+		if (c < 0x80)
+			return 1;
+		if (c < 0x800 || Character.isSurrogate(c))
+			return 2;
+		return 3;
 	}
 
 	/**
 	 * Reads in remaining text from socket, using timeout exception to break.
+	 * As the socket may not otherwise have a timeout, a temporary one is used
+	 * while draining.
 	 */
 	protected void readRemaining() {
+		int timeout = SOCKET_TIMEOUT;
+		try {
+			timeout = socket_.getSoTimeout();
+			socket_.setSoTimeout(DRAIN_TIMEOUT);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
 		while (true) {
 			try {
-				System.err.println("READING REMAINING: " + in_.readLine());
+				String line = in_.readLine();
+				if (line == null)
+					break;
+				System.err.println("READING REMAINING: " + line);
 			} catch (Exception e) {
-				return;
+				break;
 			}
 		}
+		try {
+			socket_.setSoTimeout(Math.max(timeout, 0));
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
 	}
 
 	/**
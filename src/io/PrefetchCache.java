@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package io;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A short-lived store of speculatively fetched command results. Each result
+ * expires a fixed time after it was stored, and the oldest results are
+ * evicted once the (estimated) size of the stored results exceeds the cap.
+ *
+ * @author Sam Sarjant
+ */
+public class PrefetchCache {
+	/** The estimated size of a result of unknown size. */
+	private static final int DEFAULT_SIZE = 64;
+
+	/** The stored results, oldest first. */
+	private LinkedHashMap<String, Entry> entries_;
+
+	/** The maximum estimated size (bytes) of the stored results. */
+	private long maxSize_;
+
+	/** The estimated size (bytes) of the stored results. */
+	private long size_;
+
+	/** The time (ms) a result is kept for. */
+	private long ttl_;
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param ttl
+	 *            The time (ms) a result is kept for.
+	 * @param maxSize
+	 *            The maximum estimated size (bytes) of the stored results.
+	 */
+	public PrefetchCache(long ttl, long maxSize) {
+		entries_ = new LinkedHashMap<>();
+		ttl_ = ttl;
+		maxSize_ = maxSize;
+	}
+
+	/**
+	 * Removes expired results and, if over the cap, the oldest results.
+	 */
+	private void evict(long now) {
+		Iterator<Entry> iter = entries_.values().iterator();
+		while (iter.hasNext()) {
+			Entry entry = iter.next();
+			if (entry.expiry_ > now && size_ <= maxSize_)
+				break;
+			size_ -= entry.size_;
+			iter.remove();
+		}
+	}
+
+	private String key(String command, String argument) {
+		return command + " " + argument;
+	}
+
+	/**
+	 * Gets a stored result.
+	 *
+	 * @param command
+	 *            The command that was run.
+	 * @param argument
+	 *            The argument of the command.
+	 * @return The result or null if not stored (or expired).
+	 */
+	public synchronized Object get(String command, String argument) {
+		Entry entry = entries_.get(key(command, argument));
+		if (entry == null)
+			return null;
+		if (entry.expiry_ <= System.currentTimeMillis()) {
+			evict(System.currentTimeMillis());
+			return null;
+		}
+		return entry.value_;
+	}
+
+	/**
+	 * Stores a result, replacing any existing result for the command.
+	 *
+	 * @param command
+	 *            The command that was run.
+	 * @param argument
+	 *            The argument of the command.
+	 * @param value
+	 *            The result of the command. Null results are not stored.
+	 */
+	public synchronized void put(String command, String argument, Object value) {
+		if (value == null)
+			return;
+		long now = System.currentTimeMillis();
+		Entry entry = new Entry(value, now + ttl_, estimateSize(value));
+		Entry old = entries_.remove(key(command, argument));
+		if (old != null)
+			size_ -= old.size_;
+		entries_.put(key(command, argument), entry);
+		size_ += entry.size_;
+		evict(now);
+	}
+
+	public synchronized void clear() {
+		entries_.clear();
+		size_ = 0;
+	}
+
+	public synchronized int size() {
+		return entries_.size();
+	}
+
+	/**
+	 * Estimates the memory used by a result.
+	 *
+	 * @param value
+	 *            The result.
+	 * @return The estimated size (bytes).
+	 */
+	public static long estimateSize(Object value) {
+		if (value instanceof CharSequence)
+			return DEFAULT_SIZE + 2L * ((CharSequence) value).length();
+		if (value instanceof Collection)
+			return DEFAULT_SIZE + DEFAULT_SIZE
+					* ((Collection<?>) value).size();
+		if (value instanceof Map)
+			return DEFAULT_SIZE + 2 * DEFAULT_SIZE * ((Map<?, ?>) value).size();
+		return DEFAULT_SIZE;
+	}
+
+	/**
+	 * A stored result.
+	 */
+	private static class Entry {
+		private long expiry_;
+		private long size_;
+		private Object value_;
+
+		public Entry(Object value, long expiry, long size) {
+			value_ = value;
+			expiry_ = expiry;
+			size_ = size;
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-memory set of non-negative integers (e.g. article IDs), held as bits
+ * that are set without locking. Values beyond the capacity are held exactly
+ * in a (synchronized) overflow set. The set can be saved to and loaded from a
+ * file, so it persists across runs.
+ *
+ * @author Sam Sarjant
+ */
+public class SeenSet {
+	/** The bits of the set. */
+	private AtomicLongArray bits_;
+
+	/** The values too large for the bits. */
+	private Set<Integer> overflow_;
+
+	/**
+	 * Creates a new set.
+	 *
+	 * @param capacity
+	 *            The number of values held as bits (0 to capacity - 1).
+	 */
+	public SeenSet(int capacity) {
+		bits_ = new AtomicLongArray((capacity + 63) / 64);
+		overflow_ = new HashSet<>();
+	}
+
+	/**
+	 * Adds a value to the set.
+	 *
+	 * @param value
+	 *            The value to add.
+	 * @return True if the value was not already in the set.
+	 */
+	public boolean add(int value) {
+		int word = value >>> 6;
+		if (value < 0 || word >= bits_.length()) {
+			synchronized (overflow_) {
+				return overflow_.add(value);
+			}
+		}
+		long mask = 1L << (value & 63);
+		while (true) {
+			long current = bits_.get(word);
+			if ((current & mask) != 0)
+				return false;
+			if (bits_.compareAndSet(word, current, current | mask))
+				return true;
+		}
+	}
+
+	public boolean contains(int value) {
+		int word = value >>> 6;
+		if (value < 0 || word >= bits_.length()) {
+			synchronized (overflow_) {
+				return overflow_.contains(value);
+			}
+		}
+		return (bits_.get(word) & (1L << (value & 63))) != 0;
+	}
+
+	/**
+	 * Loads the values of a saved set into this set.
+	 *
+	 * @param file
+	 *            The saved set.
+	 * @throws IOException
+	 *             If the file cannot be read.
+	 */
+	public void load(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)))) {
+			int numWords = in.readInt();
+			for (int w = 0; w < numWords; w++) {
+				long word = in.readLong();
+				for (int b = 0; word != 0 && b < 64; b++, word >>>= 1)
+					if ((word & 1) != 0)
+						add(w * 64 + b);
+			}
+			int numOverflow = in.readInt();
+			for (int i = 0; i < numOverflow; i++)
+				add(in.readInt());
+		}
+	}
+
+	/**
+	 * Saves the set to file.
+	 *
+	 * @param file
+	 *            The file to save to.
+	 * @throws IOException
+	 *             If the file cannot be written.
+	 */
+	public void save(File file) throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(temp)))) {
+			// Trailing empty words are not saved
+			int numWords = bits_.length();
+			while (numWords > 0 && bits_.get(numWords - 1) == 0)
+				numWords--;
+			out.writeInt(numWords);
+			for (int w = 0; w < numWords; w++)
+				out.writeLong(bits_.get(w));
+			synchronized (overflow_) {
+				out.writeInt(overflow_.size());
+				for (Integer value : overflow_)
+					out.writeInt(value);
+			}
+		}
+		file.delete();
+		if (!temp.renameTo(file))
+			throw new IOException("Could not replace " + file);
+	}
+}
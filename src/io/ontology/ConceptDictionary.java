@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package io.ontology;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-process dictionary of ontology concept names and IDs, so concepts can
+ * be resolved without a socket round trip. It is filled as concepts are looked
+ * up, created and removed through the {@link DAGSocket}, and can be bulk-loaded
+ * at start up. It is safe for concurrent reads and writes.
+ *
+ * @author Sam Sarjant
+ */
+public class ConceptDictionary {
+	/** The number of node IDs to request per batch when bulk-loading. */
+	private static final int BULK_BLOCK_SIZE = 10000;
+
+	/** The number of consecutive empty blocks before bulk-loading stops. */
+	private static final int MAX_EMPTY_BLOCKS = 10;
+
+	private static ConceptDictionary instance_;
+
+	/** If the dictionary is used at all. */
+	public static boolean enabled_ = true;
+
+	/** The canonical name of each concept, indexed by ID. */
+	private ConcurrentHashMap<Integer, String> idToName_;
+
+	private Logger logger_ = LoggerFactory.getLogger(ConceptDictionary.class);
+
+	/** The ID of each known name (including function forms) of a concept. */
+	private ConcurrentHashMap<String, Integer> nameToID_;
+
+	/** The IDs of concepts removed from the ontology. */
+	private Set<Integer> removedIDs_;
+
+	private ConceptDictionary() {
+		idToName_ = new ConcurrentHashMap<>();
+		nameToID_ = new ConcurrentHashMap<>();
+		removedIDs_ = Collections
+				.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+	}
+
+	/**
+	 * Parses a single 'node' response and records it.
+	 *
+	 * @param response
+	 *            The response of the form id|name|...
+	 * @return True if a concept was recorded.
+	 */
+	private boolean recordNodeResponse(String response) {
+		response = response.trim();
+		int index = response.indexOf('|');
+		if (index <= 0)
+			return false;
+		try {
+			int id = Integer.parseInt(response.substring(0, index));
+			if (id <= 0)
+				return false;
+			int end = response.indexOf('|', index + 1);
+			String name = (end == -1) ? response.substring(index + 1)
+					: response.substring(index + 1, end);
+			if (name.isEmpty())
+				return false;
+			recordConcept(id, name);
+			return true;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Loads every concept in the ontology into the dictionary, requesting the
+	 * nodes in batches of IDs.
+	 *
+	 * @param ontology
+	 *            The ontology access.
+	 * @return The number of concepts loaded.
+	 */
+	public int bulkLoad(DAGSocket ontology) {
+		if (!enabled_)
+			return 0;
+		long start = System.currentTimeMillis();
+		int numConstants = ontology.getNumConstants();
+		int loaded = 0;
+		int emptyBlocks = 0;
+		String[] ids = new String[BULK_BLOCK_SIZE];
+		for (int base = 1; loaded < numConstants
+				&& emptyBlocks < MAX_EMPTY_BLOCKS; base += BULK_BLOCK_SIZE) {
+			for (int i = 0; i < BULK_BLOCK_SIZE; i++)
+				ids[i] = (base + i) + "";
+			int blockLoaded = 0;
+			for (String response : ontology.batchCommand("node", ids))
+				if (recordNodeResponse(response))
+					blockLoaded++;
+			loaded += blockLoaded;
+			emptyBlocks = (blockLoaded == 0) ? emptyBlocks + 1 : 0;
+		}
+		logger_.info("Loaded {} of {} concepts in {}ms", loaded, numConstants,
+				System.currentTimeMillis() - start);
+		return loaded;
+	}
+
+	public void clear() {
+		idToName_.clear();
+		nameToID_.clear();
+		removedIDs_.clear();
+	}
+
+	/**
+	 * Gets the ID of a concept by name (or function form), if known.
+	 *
+	 * @param name
+	 *            The name of the concept.
+	 * @return The ID of the concept, or 0 if it is not in the dictionary.
+	 */
+	public int getConceptID(String name) {
+		if (!enabled_ || name == null)
+			return 0;
+		Integer id = nameToID_.get(name);
+		if (id == null)
+			return 0;
+		if (removedIDs_.contains(id)) {
+			nameToID_.remove(name, id);
+			return 0;
+		}
+		return id;
+	}
+
+	/**
+	 * Gets the canonical name of a concept by ID, if known.
+	 *
+	 * @param id
+	 *            The ID of the concept.
+	 * @return The name of the concept, or null if it is not in the
+	 *         dictionary.
+	 */
+	public String getConceptName(int id) {
+		if (!enabled_ || id <= 0)
+			return null;
+		return idToName_.get(id);
+	}
+
+	/**
+	 * Records a (possibly alternative) name of a concept.
+	 *
+	 * @param name
+	 *            The name of the concept.
+	 * @param id
+	 *            The ID of the concept.
+	 */
+	public void recordAlias(String name, int id) {
+		if (!enabled_ || id <= 0 || name == null)
+			return;
+		nameToID_.put(name, id);
+	}
+
+	/**
+	 * Records the canonical name of a concept.
+	 *
+	 * @param id
+	 *            The ID of the concept.
+	 * @param name
+	 *            The canonical name of the concept.
+	 */
+	public void recordConcept(int id, String name) {
+		if (!enabled_ || id <= 0 || name == null)
+			return;
+		removedIDs_.remove(id);
+		idToName_.put(id, name);
+		nameToID_.put(name, id);
+	}
+
+	/**
+	 * Notes that a concept has been removed from the ontology.
+	 *
+	 * @param nameOrID
+	 *            The name or ID of the removed concept.
+	 */
+	public void removeConcept(String nameOrID) {
+		if (!enabled_ || nameOrID == null)
+			return;
+		int id = getConceptID(nameOrID);
+		if (id == 0 && nameOrID.matches("\\d+"))
+			id = Integer.parseInt(nameOrID);
+		nameToID_.remove(nameOrID);
+		if (id > 0) {
+			removedIDs_.add(id);
+			String name = idToName_.remove(id);
+			if (name != null)
+				nameToID_.remove(name);
+		}
+	}
+
+	public int size() {
+		return idToName_.size();
+	}
+
+	public static synchronized ConceptDictionary getInstance() {
+		if (instance_ == null)
+			instance_ = new ConceptDictionary();
+		return instance_;
+	}
+}
@@ -0,0 +1,340 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package io.ontology;
+
+import graph.core.CommonConcepts;
+import graph.inference.CommonQuery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cyc.OntologyConcept;
+
+/**
+ * An in-process record of which of a few fundamental types (Collection,
+ * Predicate, etc.) each concept is an instance of, so the common isa checks
+ * on these types can be answered without a socket round trip. The types of
+ * each concept are held as bits of a single byte, indexed by concept ID. The
+ * record is loaded at start up; concepts created (or given new isa
+ * assertions) afterwards are unknown and are checked against the ontology as
+ * normal. A genls change may change the types of every instance of a
+ * collection, so the types it could affect are no longer answered from the
+ * record at all.
+ *
+ * @author Sam Sarjant
+ */
+public class ConceptTypes {
+	/** The bit marking a concept's types as known. */
+	private static final byte KNOWN = (byte) 0x80;
+
+	/** The types recorded (at most 7). */
+	public static final String[] TYPES = { "Collection", "Individual",
+			"Relation", "Predicate", "BinaryPredicate", "TimeInterval", "Date" };
+
+	private static ConceptTypes instance_;
+
+	/** If concept types are used at all. */
+	public static boolean enabled_ = true;
+
+	private Logger logger_ = LoggerFactory.getLogger(ConceptTypes.class);
+
+	/** The ID of each type, or 0 if the type is not recorded. */
+	private int[] typeIDs_;
+
+	/** The type bits of each concept, indexed by ID. */
+	private volatile byte[] types_;
+
+	/** The bits of the types no longer answered from the record. */
+	private volatile int stale_;
+
+	private ConceptTypes() {
+		typeIDs_ = new int[TYPES.length];
+		types_ = new byte[0];
+	}
+
+	/**
+	 * Grows the type array to hold an ID.
+	 */
+	private void ensureCapacity(int id) {
+		if (id < types_.length)
+			return;
+		types_ = Arrays.copyOf(types_,
+				Math.max(id + 1, types_.length + types_.length / 2));
+	}
+
+	/**
+	 * Gets the ID of a concept argument.
+	 *
+	 * @return The ID of the concept or -1 if it cannot be resolved locally.
+	 */
+	static int resolveID(Object concept) {
+		if (concept instanceof Integer)
+			return (Integer) concept;
+		if (concept instanceof OntologyConcept)
+			return ((OntologyConcept) concept).getID();
+		if (concept == null)
+			return -1;
+		String str = concept.toString();
+		if (str.matches("\\d+"))
+			return Integer.parseInt(str);
+		int id = ConceptDictionary.getInstance().getConceptID(str);
+		return (id > 0) ? id : -1;
+	}
+
+	/**
+	 * Gets the index of a type argument.
+	 *
+	 * @return The index of the type, or -1 if not a recorded type.
+	 */
+	private int resolveType(Object collection) {
+		if (collection == null)
+			return -1;
+		String str = collection.toString();
+		for (int t = 0; t < TYPES.length; t++) {
+			if (typeIDs_[t] <= 0)
+				continue;
+			if (str.equals(TYPES[t]) || str.equals(typeIDs_[t] + ""))
+				return t;
+		}
+		return -1;
+	}
+
+	public synchronized void clear() {
+		Arrays.fill(typeIDs_, 0);
+		types_ = new byte[0];
+		stale_ = 0;
+	}
+
+	/**
+	 * Notes that an assertion was made. An isa assertion may change the types
+	 * of its instance, so the instance's types become unknown. A genls
+	 * assertion may change the types of every instance of its child, so the
+	 * types of the parent are no longer answered.
+	 *
+	 * @param predicate
+	 *            The predicate of the assertion.
+	 * @param child
+	 *            The first argument of the assertion.
+	 * @param parent
+	 *            The second argument of the assertion, or null.
+	 * @param ontology
+	 *            The ontology to find the types of the parent with, or null
+	 *            to stop answering every type.
+	 */
+	public void edgeAsserted(Object predicate, Object child, Object parent,
+			OntologySocket ontology) {
+		if (predicate == null)
+			return;
+		if (predicate.toString().equals("isa")
+				|| resolveID(predicate) == CommonConcepts.ISA.getID())
+			forget(resolveID(child));
+		else if (isTaxonomic(predicate))
+			genlsChanged(parent, ontology);
+	}
+
+	/**
+	 * Notes the removal of an edge. If the edge was an isa edge, the types of
+	 * its first argument are forgotten. If it was a genls edge, the instances
+	 * of its first argument may have lost the types of its second, so these
+	 * are no longer answered.
+	 *
+	 * @param edge
+	 *            The removed edge (predicate first), or null if unknown.
+	 * @param ontology
+	 *            The ontology to find the types of the parent with, or null
+	 *            to stop answering every type.
+	 */
+	public void edgeRemoved(String[] edge, OntologySocket ontology) {
+		if (edge == null || edge.length < 2)
+			return;
+		if (isTaxonomic(edge[0])) {
+			forget(resolveID(edge[1]));
+			if (!edge[0].equals("isa")
+					&& resolveID(edge[0]) != CommonConcepts.ISA.getID())
+				genlsChanged((edge.length > 2) ? edge[2] : null, ontology);
+		}
+	}
+
+	/**
+	 * Stops answering the recorded types a collection falls under, as a genls
+	 * edge below it may have changed which concepts are instances of them.
+	 *
+	 * @param parent
+	 *            The parent of the changed genls edge, or null if unknown.
+	 * @param ontology
+	 *            The ontology to find the genls of the parent with, or null.
+	 */
+	private void genlsChanged(Object parent, OntologySocket ontology) {
+		int stale = 0;
+		Collection<OntologyConcept> genls = null;
+		if (parent != null && ontology != null)
+			genls = ontology.quickQuery(CommonQuery.ALLGENLS, parent);
+		if (genls == null)
+			stale = (1 << TYPES.length) - 1;
+		else {
+			int type = resolveType(parent);
+			if (type != -1)
+				stale |= 1 << type;
+			for (OntologyConcept genl : genls) {
+				type = resolveType(genl.getID());
+				if (type != -1)
+					stale |= 1 << type;
+			}
+		}
+
+		int added;
+		synchronized (this) {
+			added = stale & ~stale_;
+			stale_ |= added;
+		}
+		for (int t = 0; t < TYPES.length; t++)
+			if ((added & (1 << t)) != 0 && typeIDs_[t] > 0)
+				logger_.info("{} instances changed by a genls edge; "
+						+ "checking them against the ontology", TYPES[t]);
+	}
+
+	/**
+	 * Checks if a predicate is isa or genls.
+	 *
+	 * @param predicate
+	 *            The predicate (ID, name or concept).
+	 * @return True if the predicate is isa or genls.
+	 */
+	static boolean isTaxonomic(Object predicate) {
+		if (predicate == null)
+			return false;
+		String str = predicate.toString();
+		if (str.equals("isa") || str.equals("genls"))
+			return true;
+		int id = resolveID(predicate);
+		return id == CommonConcepts.ISA.getID()
+				|| id == CommonConcepts.GENLS.getID();
+	}
+
+	/**
+	 * Forgets the types of a concept (e.g. a newly created concept), so they
+	 * are checked against the ontology.
+	 *
+	 * @param id
+	 *            The ID of the concept.
+	 */
+	public synchronized void forget(int id) {
+		if (id > 0 && id < types_.length)
+			types_[id] = 0;
+	}
+
+	/**
+	 * Checks if a concept is an instance of a recorded type.
+	 *
+	 * @param instance
+	 *            The concept (ID, name or concept).
+	 * @param collection
+	 *            The type (ID or name).
+	 * @return True or false if known, or null if the concept or type is not
+	 *         recorded.
+	 */
+	public Boolean isa(Object instance, Object collection) {
+		if (!enabled_)
+			return null;
+		int type = resolveType(collection);
+		if (type == -1 || (stale_ & (1 << type)) != 0)
+			return null;
+		int id = resolveID(instance);
+		byte[] types = types_;
+		if (id <= 0 || id >= types.length || (types[id] & KNOWN) == 0)
+			return null;
+		return (types[id] & (1 << type)) != 0;
+	}
+
+	/**
+	 * Loads the instances of each type from the ontology.
+	 *
+	 * @param ontology
+	 *            The ontology access.
+	 */
+	public void load(OntologySocket ontology) {
+		if (!enabled_)
+			return;
+		long start = System.currentTimeMillis();
+		int maxID = 0;
+		for (String type : TYPES) {
+			int typeID = ontology.getConceptID(type);
+			if (typeID <= 0)
+				continue;
+			Collection<OntologyConcept> instances = ontology.quickQuery(
+					CommonQuery.INSTANCES, typeID);
+			if (instances == null)
+				continue;
+			Collection<Integer> ids = new ArrayList<>(instances.size());
+			for (OntologyConcept concept : instances) {
+				if (concept.getID() > 0) {
+					ids.add(concept.getID());
+					maxID = Math.max(maxID, concept.getID());
+				}
+			}
+			recordType(type, typeID, ids);
+		}
+		markKnown(maxID);
+		logger_.info("Loaded types of {} concepts in {}ms", maxID,
+				System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Marks the types of every concept up to an ID as known (i.e. loaded).
+	 *
+	 * @param maxID
+	 *            The highest ID to mark.
+	 */
+	public synchronized void markKnown(int maxID) {
+		ensureCapacity(maxID);
+		for (int id = 1; id <= maxID; id++)
+			types_[id] |= KNOWN;
+	}
+
+	/**
+	 * Records the instances of a type.
+	 *
+	 * @param type
+	 *            The type name (one of {@link #TYPES}).
+	 * @param typeID
+	 *            The ID of the type.
+	 * @param instances
+	 *            The IDs of the instances of the type.
+	 */
+	public synchronized void recordType(String type, int typeID,
+			Collection<Integer> instances) {
+		int t = Arrays.asList(TYPES).indexOf(type);
+		if (t == -1)
+			return;
+		typeIDs_[t] = typeID;
+		for (Integer id : instances) {
+			ensureCapacity(id);
+			types_[id] |= 1 << t;
+		}
+	}
+
+	/**
+	 * Notes that a concept has been removed: it is an instance of nothing.
+	 *
+	 * @param concept
+	 *            The removed concept (ID or name).
+	 */
+	public synchronized void removeConcept(Object concept) {
+		int id = resolveID(concept);
+		if (id <= 0)
+			return;
+		ensureCapacity(id);
+		types_[id] = KNOWN;
+	}
+
+	public static synchronized ConceptTypes getInstance() {
+		if (instance_ == null)
+			instance_ = new ConceptTypes();
+		return instance_;
+	}
+}
@@ -23,7 +23,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import util.UtilityMethods;
+import cyc.ConceptDistanceFunction;
 import cyc.CycConstants;
+import cyc.CycSemanticDistanceFunction;
 import cyc.OntologyConcept;
 
 public class DAGSocket extends OntologySocket {
@@ -73,6 +75,43 @@ public class DAGSocket extends OntologySocket {
 		}
 	}
 
+	/**
+	 * Drops the locally cached knowledge that an asserted or removed isa/genls
+	 * edge may have invalidated.
+	 *
+	 * @param edge
+	 *            The edge arguments (predicate, child, parent).
+	 */
+	private void taxonomyChanged(String[] edge) {
+		int childID = resolveID(edge[1]);
+		CycSemanticDistanceFunction.forget(childID, edge[1]);
+		if (edge.length > 2)
+			ConceptDistanceFunction.forget(identifiers(edge[1], childID),
+					identifiers(edge[2], resolveID(edge[2])));
+		else
+			ConceptDistanceFunction.clearCache();
+	}
+
+	/**
+	 * Resolves an edge argument to its ID, asking the ontology if it is not
+	 * in the dictionary.
+	 */
+	private int resolveID(String argument) {
+		int id = ConceptTypes.resolveID(argument);
+		return (id > 0) ? id : getConceptID(argument);
+	}
+
+	/**
+	 * The forms a concept may be cached under: its name and its ID.
+	 */
+	private Collection<String> identifiers(String argument, int id) {
+		Collection<String> identifiers = new ArrayList<>(2);
+		identifiers.add(argument);
+		if (id > 0)
+			identifiers.add(id + "");
+		return identifiers;
+	}
+
 	@Override
 	protected void connect() throws UnknownHostException, IOException {
 		super.connect();
@@ -126,6 +165,22 @@ public class DAGSocket extends OntologySocket {
 			int id = Integer.parseInt(result.split("\\|")[0]);
 			if (id < 0)
 				System.err.println("addedge " + args + " = " + result);
+			else {
+				String[] edgeArgs = edge.substring(1, edge.length() - 1).split(
+						" ", 3);
+				if (edgeArgs.length > 1) {
+					ConceptTypes.getInstance().edgeAsserted(edgeArgs[0],
+							edgeArgs[1],
+							(edgeArgs.length > 2) ? edgeArgs[2] : null, this);
+					ValidArgOracle.getInstance().edgeChanged(edgeArgs[0],
+							edgeArgs[1]);
+					if (ConceptTypes.isTaxonomic(edgeArgs[0]))
+						taxonomyChanged(edgeArgs);
+				}
+				if (edgeArgs.length > 2)
+					TaxonomyReplica.getInstance().edgeAsserted(edgeArgs[0],
+							edgeArgs[1], edgeArgs[2]);
+			}
 			clearCachedArticles();
 			return id;
 		} catch (Exception e) {
@@ -208,7 +263,11 @@ public class DAGSocket extends OntologySocket {
 			if (pipeIndex == -1)
 				return -1;
 			clearCachedArticles();
-			return Integer.parseInt(output.substring(0, pipeIndex));
+			int id = Integer.parseInt(output.substring(0, pipeIndex));
+			ConceptDictionary.getInstance().recordConcept(id, name);
+			ConceptTypes.getInstance().forget(id);
+			TaxonomyReplica.getInstance().conceptCreated(id);
+			return id;
 		} catch (Exception e) {
 			logger_.error("createConcept: {}, {}", name,
 					Arrays.toString(e.getStackTrace()));
@@ -256,12 +315,15 @@ public class DAGSocket extends OntologySocket {
 
 	@Override
 	public String findConceptByID(int id) {
-		String result;
+		String result = ConceptDictionary.getInstance().getConceptName(id);
+		if (result != null)
+			return result;
 		try {
 			result = command("node", id + "", false);
 			String[] split = result.split("\\|");
 			if (split[0].equals("-1"))
 				return null;
+			ConceptDictionary.getInstance().recordConcept(id, split[1]);
 			return split[1];
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -476,15 +538,23 @@ public class DAGSocket extends OntologySocket {
 
 	@Override
 	public int getConceptID(String term) {
+		ConceptDictionary dictionary = ConceptDictionary.getInstance();
+		int id = dictionary.getConceptID(term);
+		if (id > 0)
+			return id;
 		String result;
 		try {
 			result = command("node", noNewLine(term), false);
 			int index = result.indexOf('|');
 			if (index == -1)
 				return -13;
-			if (result.lastIndexOf('|') == index)
+			int end = result.indexOf('|', index + 1);
+			if (end == -1)
 				return NON_EXISTENT_ID;
-			return Integer.parseInt(result.substring(0, index));
+			id = Integer.parseInt(result.substring(0, index));
+			dictionary.recordConcept(id, result.substring(index + 1, end));
+			dictionary.recordAlias(term, id);
+			return id;
 		} catch (Exception e) {
 			logger_.error("getConceptID: {}, {}", term,
 					Arrays.toString(e.getStackTrace()));
@@ -547,6 +617,26 @@ public class DAGSocket extends OntologySocket {
 		return -1;
 	}
 
+	/**
+	 * Gets the number of edges in the ontology.
+	 *
+	 * @return The number of edges, or -1 if the count could not be read.
+	 */
+	public int getNumEdges() {
+		try {
+			return Integer.parseInt(command("numedges", "", false));
+		} catch (Exception e) {
+			logger_.error("getNumEdges: {}",
+					Arrays.toString(e.getStackTrace()));
+			if (restartConnection()) {
+				int result = getNumEdges();
+				canRestart_ = true;
+				return result;
+			}
+		}
+		return -1;
+	}
+
 	@Override
 	public int getPrevEdge(int id) {
 		try {
@@ -619,13 +709,21 @@ public class DAGSocket extends OntologySocket {
 
 	@Override
 	public boolean isValidArg(Object predicate, Object concept, int argNum) {
-		if (!super.isValidArg(predicate, concept, argNum))
+		ValidArgOracle oracle = ValidArgOracle.getInstance();
+		Boolean known = oracle.get(predicate, argNum, concept);
+		if (known != null)
+			return known;
+		if (!super.isValidArg(predicate, concept, argNum)) {
+			oracle.record(predicate, argNum, concept, false);
 			return false;
+		}
 
 		try {
-			return command("validarg",
+			boolean valid = command("validarg",
 					predicate + " " + argNum + " " + concept, true).startsWith(
 					"1");
+			oracle.record(predicate, argNum, concept, valid);
+			return valid;
 		} catch (Exception e) {
 			logger_.error("validArg: {}:{}:{}, {}", predicate, concept, argNum,
 					Arrays.toString(e.getStackTrace()));
@@ -638,6 +736,66 @@ public class DAGSocket extends OntologySocket {
 		return false;
 	}
 
+	/**
+	 * Checks the validity of a set of arguments in a single batch exchange,
+	 * answering previously checked arguments from the {@link ValidArgOracle}.
+	 */
+	@Override
+	public boolean[] isValidArgs(Object predicate, Object[] concepts,
+			int argNum) {
+		boolean[] valid = new boolean[concepts.length];
+		ValidArgOracle oracle = ValidArgOracle.getInstance();
+		List<Integer> unknown = new ArrayList<>();
+		for (int i = 0; i < concepts.length; i++) {
+			Boolean known = oracle.get(predicate, argNum, concepts[i]);
+			if (known != null)
+				valid[i] = known;
+			else
+				unknown.add(i);
+		}
+		if (unknown.isEmpty())
+			return valid;
+
+		// The relation check only depends on the predicate, so check it once
+		boolean isaGenls = predicate.equals(CycConstants.ISA_GENLS
+				.getConcept().getIdentifier());
+		boolean relation = isaGenls || isa(predicate, "Relation");
+		List<Integer> batched = new ArrayList<>(unknown.size());
+		for (Integer i : unknown) {
+			if (relation
+					&& (!isaGenls || super.isValidArg(predicate, concepts[i],
+							argNum)))
+				batched.add(i);
+			else
+				oracle.record(predicate, argNum, concepts[i], false);
+		}
+		if (batched.isEmpty())
+			return valid;
+
+		String[] arguments = new String[batched.size()];
+		for (int j = 0; j < arguments.length; j++)
+			arguments[j] = noNewLine(predicate + " " + argNum + " "
+					+ concepts[batched.get(j)]);
+		String[] results = null;
+		try {
+			results = batchCommand("validarg", arguments);
+		} catch (Exception e) {
+			logger_.error("validArgs: {}:{}, {}", predicate, argNum,
+					Arrays.toString(e.getStackTrace()));
+		}
+		for (int j = 0; j < arguments.length; j++) {
+			int i = batched.get(j);
+			if (results == null || results.length != arguments.length)
+				// Fall back to individual checks
+				valid[i] = isValidArg(predicate, concepts[i], argNum);
+			else {
+				valid[i] = results[j].trim().startsWith("1");
+				oracle.record(predicate, argNum, concepts[i], valid[i]);
+			}
+		}
+		return valid;
+	}
+
 	@Override
 	public List<String> justify(Object... assertionArgs) {
 		List<String> justification = new ArrayList<>();
@@ -695,6 +853,10 @@ public class DAGSocket extends OntologySocket {
 	@Override
 	public Collection<OntologyConcept> quickQuery(CommonQuery cq,
 			Object... args) {
+		Collection<OntologyConcept> local = TaxonomyReplica.getInstance()
+				.quickQuery(cq, args);
+		if (local != null)
+			return local;
 		String query = cq.toString() + " "
 				+ noNewLine(StringUtils.join(args, " "));
 		try {
@@ -730,7 +892,14 @@ public class DAGSocket extends OntologySocket {
 			clearCachedArticles();
 			String args = noNewLine(name.toString());
 			IOManager.getInstance().writeCycOperation("removenode " + args);
-			return command("removenode", args, false).startsWith("1");
+			boolean removed = command("removenode", args, false)
+					.startsWith("1");
+			if (removed) {
+				ConceptTypes.getInstance().removeConcept(args);
+				TaxonomyReplica.getInstance().removeConcept(args);
+				ConceptDictionary.getInstance().removeConcept(args);
+			}
+			return removed;
 		} catch (Exception e) {
 			logger_.error("removeConcept: {}, {}", name,
 					Arrays.toString(e.getStackTrace()));
@@ -812,8 +981,21 @@ public class DAGSocket extends OntologySocket {
 			clearCachedArticles();
 			String args = assertionID + " ";
 			args += (forceRemove) ? "T" : "F";
+			// The local caches need the edge arguments to update
+			String[] edge = findEdgeByID(assertionID);
 			IOManager.getInstance().writeCycOperation("removeedge " + args);
-			return command("removeedge", args, false).startsWith("1");
+			boolean removed = command("removeedge", args, false).startsWith(
+					"1");
+			if (removed) {
+				ConceptTypes.getInstance().edgeRemoved(edge, this);
+				TaxonomyReplica.getInstance().edgeRemoved(edge);
+				if (edge != null && edge.length > 1)
+					ValidArgOracle.getInstance().edgeChanged(edge[0], edge[1]);
+				if (edge != null && edge.length > 1
+						&& ConceptTypes.isTaxonomic(edge[0]))
+					taxonomyChanged(edge);
+			}
+			return removed;
 		} catch (Exception e) {
 			logger_.error("unassert: {}, {}", assertionID,
 					Arrays.toString(e.getStackTrace()));
@@ -59,6 +59,9 @@ public abstract class OntologySocket extends KMSocket {
 			boolean markup);
 
 	public boolean evaluate(String microtheory, Object... queryArgs) {
+		Boolean known = TaxonomyReplica.getInstance().evaluate(queryArgs);
+		if (known != null)
+			return known;
 		String result = query(false, queryArgs);
 		return parseProofResult(result);
 	}
@@ -120,6 +123,9 @@ public abstract class OntologySocket extends KMSocket {
 	}
 
 	public boolean isa(Object instance, Object collection) {
+		Boolean known = ConceptTypes.getInstance().isa(instance, collection);
+		if (known != null)
+			return known;
 		return evaluate(null, CommonConcepts.ISA.getID(), instance, collection);
 	}
 
@@ -219,6 +225,26 @@ public abstract class OntologySocket extends KMSocket {
 		return true;
 	}
 
+	/**
+	 * Checks if each of a set of concepts is a valid argument of a relation.
+	 * Defaults to checking each concept individually.
+	 * 
+	 * @param predicate
+	 *            The relation.
+	 * @param concepts
+	 *            The concepts to check.
+	 * @param argNum
+	 *            The argument position (1-indexed).
+	 * @return The validity of each concept, in order.
+	 */
+	public boolean[] isValidArgs(Object predicate, Object[] concepts,
+			int argNum) {
+		boolean[] valid = new boolean[concepts.length];
+		for (int i = 0; i < concepts.length; i++)
+			valid[i] = isValidArg(predicate, concepts[i], argNum);
+		return valid;
+	}
+
 	public abstract List<String> justify(Object... assertionArgs);
 
 	public abstract String query(boolean proveFail, Object... queryArgs);
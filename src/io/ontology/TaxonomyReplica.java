@@ -0,0 +1,743 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package io.ontology;
+
+import graph.core.CommonConcepts;
+import graph.inference.CommonQuery;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cyc.OntologyConcept;
+
+/**
+ * An optional in-process replica of the taxonomic core of the ontology (the
+ * isa, genls, genlPreds and disjointWith edges), so the common taxonomic
+ * queries can be answered without a socket round trip. Edges are held as
+ * arrays of parent IDs indexed by concept ID, and the transitive closure of
+ * each concept's genls (and genlPreds) is computed once and kept up to date as
+ * edges are asserted.
+ *
+ * The replica only answers when it can do so reliably: concepts without
+ * recorded edges (e.g. functions, whose types are inferred) and negative
+ * disjointness (which the DAG also infers from other edges) are left to the
+ * ontology.
+ *
+ * @author Sam Sarjant
+ */
+public class TaxonomyReplica {
+	private static final int GENLS = 0;
+	private static final int GENLPREDS = 1;
+	private static final int ISA = 2;
+	private static final int DISJOINT = 3;
+
+	private static TaxonomyReplica instance_;
+
+	/** The number of edges to request in a batch when loading. */
+	public static final int LOAD_BLOCK_SIZE = 1000;
+
+	/** If the replica is used at all. */
+	public static boolean enabled_ = false;
+
+	/** The transitive closures of the genls and genlPreds relations. */
+	private Map<Integer, int[]>[] closures_;
+
+	/** The parents of each concept, per relation and indexed by ID. */
+	private int[][][] edges_;
+
+	/** The number of queries answered locally. */
+	private AtomicInteger hits_;
+
+	/** The concepts the replica holds edges for. */
+	private BitSet known_;
+
+	private volatile boolean loaded_;
+
+	private ReadWriteLock lock_;
+
+	private Logger logger_ = LoggerFactory.getLogger(TaxonomyReplica.class);
+
+	/** The number of queries passed to the ontology. */
+	private AtomicInteger misses_;
+
+	/** The number of edges skipped by the current load (unknown arguments). */
+	private int unresolved_;
+
+	@SuppressWarnings("unchecked")
+	private TaxonomyReplica() {
+		closures_ = new Map[] { new ConcurrentHashMap<Integer, int[]>(),
+				new ConcurrentHashMap<Integer, int[]>() };
+		edges_ = new int[4][0][];
+		known_ = new BitSet();
+		hits_ = new AtomicInteger();
+		misses_ = new AtomicInteger();
+		lock_ = new ReentrantReadWriteLock();
+	}
+
+	/**
+	 * Adds an edge without updating the closures.
+	 */
+	private boolean addEdge(int relation, int child, int parent) {
+		ensureCapacity(Math.max(child, parent));
+		known_.set(child);
+		if (contains(edges_[relation][child], parent))
+			return false;
+		edges_[relation][child] = insert(edges_[relation][child], parent);
+		if (relation == DISJOINT) {
+			known_.set(parent);
+			edges_[relation][parent] = insert(edges_[relation][parent], child);
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the transitive closure of a concept over the genls or genlPreds
+	 * relation (including the concept itself), computing it if necessary. Must
+	 * be called within the lock.
+	 */
+	private int[] closure(int relation, int id) {
+		int[] closure = closures_[relation].get(id);
+		if (closure != null)
+			return closure;
+
+		Collection<Integer> visited = new HashSet<>();
+		ArrayList<Integer> stack = new ArrayList<>();
+		stack.add(id);
+		visited.add(id);
+		while (!stack.isEmpty()) {
+			int current = stack.remove(stack.size() - 1);
+			int[] cached = closures_[relation].get(current);
+			if (cached != null && current != id) {
+				for (int c : cached)
+					visited.add(c);
+				continue;
+			}
+			for (int parent : parents(relation, current))
+				if (visited.add(parent))
+					stack.add(parent);
+		}
+		closure = toSortedArray(visited);
+		closures_[relation].put(id, closure);
+		return closure;
+	}
+
+	/**
+	 * Creates concepts for a set of IDs, using the dictionary for names.
+	 *
+	 * @return The concepts, or null if any name is not known locally.
+	 */
+	private Collection<OntologyConcept> concepts(int[] ids) {
+		ConceptDictionary dictionary = ConceptDictionary.getInstance();
+		Collection<OntologyConcept> concepts = new ArrayList<>(ids.length);
+		for (int id : ids) {
+			String name = dictionary.getConceptName(id);
+			if (name == null)
+				return null;
+			concepts.add(new OntologyConcept(name, id));
+		}
+		return concepts;
+	}
+
+	private void ensureCapacity(int id) {
+		if (id < edges_[0].length)
+			return;
+		int size = Math.max(id + 1, edges_[0].length + edges_[0].length / 2);
+		for (int r = 0; r < edges_.length; r++)
+			edges_[r] = Arrays.copyOf(edges_[r], size);
+	}
+
+	/**
+	 * Gets the IDs of the replicated predicates, in relation order.
+	 */
+	private int[] predicateIDs() {
+		return new int[] { CommonConcepts.GENLS.getID(),
+				CommonConcepts.GENLPREDS.getID(), CommonConcepts.ISA.getID(),
+				CommonConcepts.DISJOINTWITH.getID() };
+	}
+
+	/**
+	 * Gets the index of a predicate, or -1 if it is not replicated.
+	 */
+	private int relationIndex(Object predicate) {
+		if (predicate == null)
+			return -1;
+		String str = predicate.toString();
+		int[] predicateIDs = predicateIDs();
+		for (int r = 0; r < predicateIDs.length; r++)
+			if (str.equals(predicateIDs[r] + ""))
+				return r;
+		if (str.equals("genls"))
+			return GENLS;
+		if (str.equals("genlPreds"))
+			return GENLPREDS;
+		if (str.equals("isa"))
+			return ISA;
+		if (str.equals("disjointWith"))
+			return DISJOINT;
+		return -1;
+	}
+
+	/**
+	 * Gets the direct parents of a concept, as recorded.
+	 */
+	private int[] parents(int relation, int id) {
+		int[][] edges = edges_[relation];
+		if (id <= 0 || id >= edges.length || edges[id] == null)
+			return new int[0];
+		return edges[id];
+	}
+
+	/**
+	 * Records the edges of a batch of edge responses.
+	 *
+	 * @return The number of edges recorded.
+	 */
+	private int recordEdgeResponses(String[] responses, DAGSocket ontology) {
+		int recorded = 0;
+		for (String response : responses) {
+			String[] split = response.trim().split("\\|");
+			if (split.length < 2 || !split[1].startsWith("(")
+					|| !split[1].endsWith(")"))
+				continue;
+			String[] args = split[1].substring(1, split[1].length() - 1)
+					.split(" ");
+			if (args.length == 3
+					&& recordEdge(args[0], args[1], args[2], ontology))
+				recorded++;
+		}
+		return recorded;
+	}
+
+	/**
+	 * Resolves the ID of an edge argument, asking the ontology (if given) for
+	 * names the {@link ConceptDictionary} does not hold.
+	 */
+	private int resolveID(Object concept, DAGSocket ontology) {
+		int id = ConceptTypes.resolveID(concept);
+		if (id <= 0 && ontology != null && concept != null) {
+			String name = concept.toString();
+			id = ontology.getConceptID(name);
+			if (id > 0)
+				ConceptDictionary.getInstance().recordConcept(id, name);
+		}
+		return id;
+	}
+
+	/**
+	 * Records an edge (within the write lock), keeping the closures current.
+	 *
+	 * @param ontology
+	 *            The ontology to resolve unknown names with, or null.
+	 */
+	private boolean recordEdge(Object predicate, Object child, Object parent,
+			DAGSocket ontology) {
+		int relation = relationIndex(predicate);
+		if (relation == -1)
+			return false;
+		int childID = resolveID(child, ontology);
+		int parentID = resolveID(parent, ontology);
+		if (childID <= 0 || parentID <= 0) {
+			unresolved_++;
+			return false;
+		}
+		if (!addEdge(relation, childID, parentID))
+			return false;
+
+		// Everything below the child now reaches the parent's closure
+		if (relation == GENLS || relation == GENLPREDS) {
+			Map<Integer, int[]> closures = closures_[relation];
+			if (!closures.isEmpty()) {
+				int[] parentClosure = closure(relation, parentID);
+				for (Map.Entry<Integer, int[]> entry : closures.entrySet())
+					if (contains(entry.getValue(), childID))
+						entry.setValue(union(entry.getValue(), parentClosure));
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if a concept has direct parents in a relation, and so can be
+	 * answered for.
+	 */
+	private boolean reliable(int relation, int id) {
+		return id > 0 && known_.get(id) && parents(relation, id).length > 0;
+	}
+
+	public void clear() {
+		lock_.writeLock().lock();
+		try {
+			edges_ = new int[4][0][];
+			known_.clear();
+			closures_[GENLS].clear();
+			closures_[GENLPREDS].clear();
+			loaded_ = false;
+		} finally {
+			lock_.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Checks if two collections are disjoint, through the disjointWith edges
+	 * of their genls.
+	 *
+	 * @return True if disjoint, or null if not known.
+	 */
+	public Boolean disjointWith(Object collectionA, Object collectionB) {
+		lock_.readLock().lock();
+		try {
+			int a = ConceptTypes.resolveID(collectionA);
+			int b = ConceptTypes.resolveID(collectionB);
+			if (a <= 0 || b <= 0 || !known_.get(a) || !known_.get(b))
+				return null;
+			int[] closureB = closure(GENLS, b);
+			for (int genl : closure(GENLS, a))
+				for (int disjoint : parents(DISJOINT, genl))
+					if (contains(closureB, disjoint))
+						return true;
+			return null;
+		} finally {
+			lock_.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Notes that an edge was asserted to the ontology.
+	 *
+	 * @param predicate
+	 *            The predicate of the edge.
+	 * @param argA
+	 *            The first argument.
+	 * @param argB
+	 *            The second argument.
+	 */
+	public void edgeAsserted(Object predicate, Object argA, Object argB) {
+		if (!loaded_ || relationIndex(predicate) == -1)
+			return;
+		lock_.writeLock().lock();
+		try {
+			recordEdge(predicate, argA, argB, null);
+		} finally {
+			lock_.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Notes that an edge was removed from the ontology. The closures may have
+	 * shrunk, so they are recomputed as needed.
+	 *
+	 * @param edge
+	 *            The removed edge (predicate and arguments).
+	 */
+	public void edgeRemoved(String[] edge) {
+		if (!loaded_ || edge == null || edge.length != 3)
+			return;
+		int relation = relationIndex(edge[0]);
+		if (relation == -1)
+			return;
+		lock_.writeLock().lock();
+		try {
+			int child = ConceptTypes.resolveID(edge[1]);
+			int parent = ConceptTypes.resolveID(edge[2]);
+			if (child <= 0 || parent <= 0)
+				return;
+			int[][] edges = edges_[relation];
+			if (child < edges.length && edges[child] != null)
+				edges[child] = remove(edges[child], parent);
+			if (relation == DISJOINT && parent < edges.length
+					&& edges[parent] != null)
+				edges[parent] = remove(edges[parent], child);
+			if (relation == GENLS || relation == GENLPREDS)
+				closures_[relation].clear();
+		} finally {
+			lock_.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Answers a replicated query ((isa X Y), (genls X Y), (genlPreds X Y) or
+	 * (disjointWith X Y)).
+	 *
+	 * @param queryArgs
+	 *            The predicate and arguments of the query.
+	 * @return The answer, or null if it is not known locally.
+	 */
+	public Boolean evaluate(Object... queryArgs) {
+		if (!enabled_ || !loaded_ || queryArgs.length != 3)
+			return null;
+		Boolean result = null;
+		switch (relationIndex(queryArgs[0])) {
+		case GENLS:
+			result = genls(GENLS, queryArgs[1], queryArgs[2]);
+			break;
+		case GENLPREDS:
+			result = genls(GENLPREDS, queryArgs[1], queryArgs[2]);
+			break;
+		case ISA:
+			result = isa(queryArgs[1], queryArgs[2]);
+			break;
+		case DISJOINT:
+			result = disjointWith(queryArgs[1], queryArgs[2]);
+			break;
+		default:
+			return null;
+		}
+		if (result != null)
+			hits_.incrementAndGet();
+		else
+			misses_.incrementAndGet();
+		return result;
+	}
+
+	/**
+	 * Checks if a concept is a specialisation of another over genls or
+	 * genlPreds.
+	 *
+	 * @return The answer, or null if not known.
+	 */
+	public Boolean genls(int relation, Object spec, Object genl) {
+		lock_.readLock().lock();
+		try {
+			int specID = ConceptTypes.resolveID(spec);
+			int genlID = ConceptTypes.resolveID(genl);
+			if (genlID <= 0 || !reliable(relation, specID))
+				return null;
+			return contains(closure(relation, specID), genlID);
+		} finally {
+			lock_.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets all genls (including itself) of a concept.
+	 *
+	 * @return The genls, or null if not known.
+	 */
+	public Collection<OntologyConcept> getAllGenls(Object concept) {
+		lock_.readLock().lock();
+		try {
+			int id = ConceptTypes.resolveID(concept);
+			if (!reliable(GENLS, id))
+				return null;
+			return concepts(closure(GENLS, id));
+		} finally {
+			lock_.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets all collections a concept is an instance of.
+	 *
+	 * @return The collections, or null if not known.
+	 */
+	public Collection<OntologyConcept> getAllIsa(Object concept) {
+		lock_.readLock().lock();
+		try {
+			int id = ConceptTypes.resolveID(concept);
+			if (!reliable(ISA, id))
+				return null;
+			int[] all = new int[0];
+			for (int parent : parents(ISA, id))
+				all = union(all, closure(GENLS, parent));
+			return concepts(all);
+		} finally {
+			lock_.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Checks if a concept is an instance of a collection.
+	 *
+	 * @return The answer, or null if not known.
+	 */
+	public Boolean isa(Object instance, Object collection) {
+		lock_.readLock().lock();
+		try {
+			int id = ConceptTypes.resolveID(instance);
+			int collectionID = ConceptTypes.resolveID(collection);
+			if (collectionID <= 0 || !reliable(ISA, id))
+				return null;
+			for (int parent : parents(ISA, id))
+				if (contains(closure(GENLS, parent), collectionID))
+					return true;
+			return false;
+		} finally {
+			lock_.readLock().unlock();
+		}
+	}
+
+	public boolean isLoaded() {
+		return loaded_;
+	}
+
+	/**
+	 * Completes a load (within the write lock). An empty load is refused, as
+	 * the replica would answer every query as false.
+	 *
+	 * @param loaded
+	 *            The number of edges loaded.
+	 * @param source
+	 *            The source of the edges.
+	 */
+	private void finishLoad(int loaded, Object source) {
+		if (unresolved_ > 0)
+			logger_.error("Skipped {} taxonomic edges from {} with "
+					+ "unresolvable arguments (is the ConceptDictionary "
+					+ "loaded?)", unresolved_, source);
+		if (loaded == 0) {
+			logger_.error("No taxonomic edges were loaded from {}; "
+					+ "the taxonomy replica will not be used", source);
+			return;
+		}
+		loaded_ = true;
+	}
+
+	/**
+	 * Loads the replicated edges from the DAG, requesting the edges of each
+	 * predicate in batches.
+	 *
+	 * @param ontology
+	 *            The ontology access.
+	 * @return The number of edges loaded.
+	 */
+	public int load(DAGSocket ontology) {
+		if (!enabled_)
+			return 0;
+		long start = System.currentTimeMillis();
+		int loaded = 0;
+		lock_.writeLock().lock();
+		try {
+			unresolved_ = 0;
+			for (int predicateID : predicateIDs()) {
+				Collection<Integer> edgeIDs = ontology.findEdgeIDs(new String[] {
+						predicateID + "", "1" });
+				String[] ids = new String[LOAD_BLOCK_SIZE];
+				int i = 0;
+				for (Integer edgeID : edgeIDs) {
+					ids[i++] = edgeID + "";
+					if (i == LOAD_BLOCK_SIZE) {
+						loaded += recordEdgeResponses(
+								ontology.batchCommand("edge", ids), ontology);
+						i = 0;
+					}
+				}
+				if (i > 0)
+					loaded += recordEdgeResponses(ontology.batchCommand("edge",
+							Arrays.copyOf(ids, i)), ontology);
+			}
+			finishLoad(loaded, "the ontology");
+		} finally {
+			lock_.writeLock().unlock();
+		}
+		logger_.info("Loaded {} taxonomic edges in {}ms", loaded,
+				System.currentTimeMillis() - start);
+		return loaded;
+	}
+
+	/**
+	 * Loads the replicated edges from an {@link Extractor} dump. Concept names
+	 * are resolved through the {@link ConceptDictionary}, so it must be loaded
+	 * first.
+	 *
+	 * @param dump
+	 *            The dump file.
+	 * @return The number of edges loaded.
+	 * @throws IOException
+	 *             If the file cannot be read.
+	 */
+	public int load(File dump) throws IOException {
+		if (!enabled_)
+			return 0;
+		long start = System.currentTimeMillis();
+		int loaded = 0;
+		lock_.writeLock().lock();
+		try (BufferedReader in = new BufferedReader(new FileReader(dump))) {
+			unresolved_ = 0;
+			String input = null;
+			while ((input = in.readLine()) != null) {
+				if (!input.startsWith("$0$=addedge ("))
+					continue;
+				int end = input.indexOf(')');
+				String[] args = input.substring("$0$=addedge (".length(), end)
+						.split(" ");
+				if (args.length == 3
+						&& recordEdge(args[0], args[1], args[2], null))
+					loaded++;
+			}
+			finishLoad(loaded, dump);
+		} finally {
+			lock_.writeLock().unlock();
+		}
+		logger_.info("Loaded {} taxonomic edges from {} in {}ms", loaded,
+				dump, System.currentTimeMillis() - start);
+		return loaded;
+	}
+
+	/**
+	 * Notes that a concept was created: it is known, with no edges yet.
+	 *
+	 * @param id
+	 *            The ID of the concept.
+	 */
+	public void conceptCreated(int id) {
+		if (!loaded_ || id <= 0)
+			return;
+		lock_.writeLock().lock();
+		try {
+			ensureCapacity(id);
+			known_.set(id);
+		} finally {
+			lock_.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Answers the replicated quick queries (all genls and all isa).
+	 *
+	 * @param cq
+	 *            The query.
+	 * @param args
+	 *            The query arguments.
+	 * @return The results, or null if not known locally.
+	 */
+	public Collection<OntologyConcept> quickQuery(CommonQuery cq,
+			Object... args) {
+		if (!enabled_ || !loaded_ || args.length != 1)
+			return null;
+		Collection<OntologyConcept> result = null;
+		if (cq == CommonQuery.ALLGENLS)
+			result = getAllGenls(args[0]);
+		else if (cq == CommonQuery.ALLISA)
+			result = getAllIsa(args[0]);
+		else
+			return null;
+		if (result != null)
+			hits_.incrementAndGet();
+		else
+			misses_.incrementAndGet();
+		return result;
+	}
+
+	/**
+	 * Notes that a concept was removed: it no longer has (or is a parent in)
+	 * any edges.
+	 *
+	 * @param concept
+	 *            The removed concept (ID or name).
+	 */
+	public void removeConcept(Object concept) {
+		if (!loaded_)
+			return;
+		lock_.writeLock().lock();
+		try {
+			int id = ConceptTypes.resolveID(concept);
+			if (id <= 0 || id >= edges_[0].length)
+				return;
+			for (int[][] edges : edges_) {
+				edges[id] = null;
+				for (int i = 0; i < edges.length; i++)
+					if (edges[i] != null && contains(edges[i], id))
+						edges[i] = remove(edges[i], id);
+			}
+			known_.clear(id);
+			closures_[GENLS].clear();
+			closures_[GENLPREDS].clear();
+		} finally {
+			lock_.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Taxonomy replica: " + known_.cardinality() + " concepts, "
+				+ hits_ + " hits, " + misses_ + " misses";
+	}
+
+	/**
+	 * Checks if a sorted array contains a value.
+	 */
+	private static boolean contains(int[] sorted, int value) {
+		return sorted != null && Arrays.binarySearch(sorted, value) >= 0;
+	}
+
+	/**
+	 * Inserts a value into a sorted array (which may be null).
+	 */
+	private static int[] insert(int[] sorted, int value) {
+		if (sorted == null)
+			return new int[] { value };
+		int index = -Arrays.binarySearch(sorted, value) - 1;
+		int[] inserted = new int[sorted.length + 1];
+		System.arraycopy(sorted, 0, inserted, 0, index);
+		inserted[index] = value;
+		System.arraycopy(sorted, index, inserted, index + 1, sorted.length
+				- index);
+		return inserted;
+	}
+
+	/**
+	 * Removes a value from a sorted array.
+	 */
+	private static int[] remove(int[] sorted, int value) {
+		int index = Arrays.binarySearch(sorted, value);
+		if (index < 0)
+			return sorted;
+		int[] removed = new int[sorted.length - 1];
+		System.arraycopy(sorted, 0, removed, 0, index);
+		System.arraycopy(sorted, index + 1, removed, index, sorted.length
+				- index - 1);
+		return removed;
+	}
+
+	private static int[] toSortedArray(Collection<Integer> values) {
+		int[] array = new int[values.size()];
+		int i = 0;
+		for (Integer value : values)
+			array[i++] = value;
+		Arrays.sort(array);
+		return array;
+	}
+
+	/**
+	 * Merges two sorted arrays.
+	 */
+	private static int[] union(int[] a, int[] b) {
+		int[] merged = new int[a.length + b.length];
+		int i = 0, j = 0, k = 0;
+		while (i < a.length || j < b.length) {
+			int next;
+			if (j >= b.length || (i < a.length && a[i] < b[j]))
+				next = a[i++];
+			else if (i >= a.length || b[j] < a[i])
+				next = b[j++];
+			else {
+				next = a[i++];
+				j++;
+			}
+			merged[k++] = next;
+		}
+		return Arrays.copyOf(merged, k);
+	}
+
+	public static synchronized TaxonomyReplica getInstance() {
+		if (instance_ == null)
+			instance_ = new TaxonomyReplica();
+		return instance_;
+	}
+}
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package io.ontology;
+
+import graph.core.CommonConcepts;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * A run-wide memory of argument validity checks (whether a concept is a valid
+ * argument of a relation at a given position), shared by all ontology sockets
+ * so each relation/argument pair is only checked once per run.
+ *
+ * @author Sam Sarjant
+ */
+public class ValidArgOracle {
+	private static ValidArgOracle instance_;
+
+	/** The predicates that constrain relation arguments. */
+	private static final Pattern ARG_CONSTRAINT = Pattern
+			.compile("arg(\\d+|s)?(Isa|Genl)");
+
+	/** If validity checks are remembered at all. */
+	public static boolean enabled_ = true;
+
+	/** The number of checks answered from memory. */
+	private AtomicInteger hits_;
+
+	/** The number of checks sent to the ontology. */
+	private AtomicInteger misses_;
+
+	/** The validity of each checked relation/argument pair, by argument. */
+	private ConcurrentHashMap<Object, ConcurrentHashMap<String, Boolean>> validity_;
+
+	private ValidArgOracle() {
+		hits_ = new AtomicInteger();
+		misses_ = new AtomicInteger();
+		validity_ = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Gets the key of an argument, such that the ID, name and concept forms of
+	 * a concept share a key.
+	 */
+	private Object conceptKey(Object concept) {
+		int id = ConceptTypes.resolveID(concept);
+		return (id > 0) ? id : String.valueOf(concept);
+	}
+
+	private String key(Object predicate, int argNum) {
+		return predicate + " " + argNum;
+	}
+
+	public void clear() {
+		validity_.clear();
+	}
+
+	/**
+	 * Forgets the remembered validities of a concept (e.g. its types have
+	 * changed).
+	 *
+	 * @param concept
+	 *            The concept (ID, name or concept).
+	 */
+	public void forget(Object concept) {
+		validity_.remove(conceptKey(concept));
+	}
+
+	/**
+	 * Forgets the remembered validities an asserted or removed edge may have
+	 * changed. An isa edge only changes the types of its first argument, but
+	 * a genls edge changes the types of every instance and spec of its first
+	 * argument, and a genlPreds or argument constraint edge changes the
+	 * constraints of every spec of its relation, none of which can be found
+	 * from the remembered concepts, so these clear everything.
+	 *
+	 * @param predicate
+	 *            The edge predicate (ID, name or concept).
+	 * @param arg1
+	 *            The first argument of the edge.
+	 */
+	public void edgeChanged(Object predicate, Object arg1) {
+		int id = ConceptTypes.resolveID(predicate);
+		String name = String.valueOf(predicate);
+		if (id > 0) {
+			String known = ConceptDictionary.getInstance().getConceptName(id);
+			if (known != null)
+				name = known;
+		}
+
+		if (id == CommonConcepts.ISA.getID() || name.equals("isa"))
+			forget(arg1);
+		else if (id == CommonConcepts.GENLS.getID()
+				|| id == CommonConcepts.GENLPREDS.getID()
+				|| id == CommonConcepts.ARG1ISA.getID()
+				|| id == CommonConcepts.ARG2ISA.getID()
+				|| name.equals("genls") || name.equals("genlPreds")
+				|| ARG_CONSTRAINT.matcher(name).matches())
+			clear();
+	}
+
+	/**
+	 * Gets the remembered validity of an argument.
+	 *
+	 * @param predicate
+	 *            The relation.
+	 * @param argNum
+	 *            The argument position (1-indexed).
+	 * @param concept
+	 *            The argument.
+	 * @return The validity of the argument, or null if not known.
+	 */
+	public Boolean get(Object predicate, int argNum, Object concept) {
+		if (!enabled_)
+			return null;
+		Map<String, Boolean> known = validity_.get(conceptKey(concept));
+		Boolean valid = (known == null) ? null : known.get(key(predicate,
+				argNum));
+		if (valid != null)
+			hits_.incrementAndGet();
+		else
+			misses_.incrementAndGet();
+		return valid;
+	}
+
+	/**
+	 * Remembers the validity of an argument.
+	 *
+	 * @param predicate
+	 *            The relation.
+	 * @param argNum
+	 *            The argument position (1-indexed).
+	 * @param concept
+	 *            The argument.
+	 * @param valid
+	 *            If the argument is valid.
+	 */
+	public void record(Object predicate, int argNum, Object concept,
+			boolean valid) {
+		if (!enabled_)
+			return;
+		Object conceptKey = conceptKey(concept);
+		ConcurrentHashMap<String, Boolean> known = validity_.get(conceptKey);
+		if (known == null) {
+			known = new ConcurrentHashMap<>();
+			ConcurrentHashMap<String, Boolean> existing = validity_
+					.putIfAbsent(conceptKey, known);
+			if (existing != null)
+				known = existing;
+		}
+		known.put(key(predicate, argNum), valid);
+	}
+
+	@Override
+	public String toString() {
+		int size = 0;
+		for (Map<String, Boolean> known : validity_.values())
+			size += known.size();
+		return "Valid args: " + size + " known, " + hits_
+				+ " hits, " + misses_ + " misses";
+	}
+
+	public static synchronized ValidArgOracle getInstance() {
+		if (instance_ == null)
+			instance_ = new ValidArgOracle();
+		return instance_;
+	}
+}
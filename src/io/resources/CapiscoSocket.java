@@ -12,6 +12,7 @@ import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 
+import util.IntWeightedSet;
 import util.collection.WeightedSet;
 import util.wikipedia.WikiParser;
 
@@ -358,11 +359,12 @@ public class CapiscoSocket extends WikipediaSocket {
 
 	@SuppressWarnings("unchecked")
 	@Override
-	public WeightedSet<Integer> getTopics(String text,
-			Collection<Integer> context) throws IOException {
+	public IntWeightedSet getTopics(String text, Collection<Integer> context)
+			throws IOException {
 		String noBrackets = WikiParser.cleanAllMarkup(text);
+		WeightedSet<Integer> topics = null;
 		if (context == null) {
-			return (WeightedSet<Integer>) command("topics", DELIMITER + "\n"
+			topics = (WeightedSet<Integer>) command("topics", DELIMITER + "\n"
 					+ noBrackets + "\n" + DELIMITER,
 					getParsingMethod(PARSER_TOPICS));
 		} else {
@@ -372,17 +374,23 @@ public class CapiscoSocket extends WikipediaSocket {
 			if (context != null)
 				sb.append(StringUtils.join(context, '|'));
 			sb.append("\n" + noBrackets + "\n" + DELIMITER);
-			return (WeightedSet<Integer>) command("dc", sb.toString(),
+			topics = (WeightedSet<Integer>) command("dc", sb.toString(),
 					getParsingMethod(PARSER_TOPICS));
 		}
+		return (topics == null) ? null : IntWeightedSet.valueOf(topics);
 	}
 
 	@SuppressWarnings("unchecked")
 	@Override
-	public List<WeightedSet<Integer>> getWeightedArticles(String... terms)
+	public List<IntWeightedSet> getWeightedArticles(String... terms)
 			throws IOException {
-		return (List<WeightedSet<Integer>>) batchCommand("senCounts", terms,
-				getParsingMethod(PARSER_SENSES));
+		List<WeightedSet<Integer>> weightedArts = (List<WeightedSet<Integer>>) batchCommand(
+				"senCounts", terms, getParsingMethod(PARSER_SENSES));
+		List<IntWeightedSet> articleIDs = new ArrayList<>(weightedArts.size());
+		for (WeightedSet<Integer> weighted : weightedArts)
+			articleIDs.add((weighted == null) ? null : IntWeightedSet
+					.valueOf(weighted));
+		return articleIDs;
 	}
 
 	/**
@@ -418,6 +426,11 @@ public class CapiscoSocket extends WikipediaSocket {
 	 */
 	private final class SensesCountsParser extends
 			WikipediaMethod<WeightedSet<Integer>> {
+		@Override
+		public WeightedSet<Integer> cloneResult(WeightedSet<Integer> result) {
+			return new WeightedSet<>(result);
+		}
+
 		@Override
 		public WeightedSet<Integer> parseResult(String result, String source) {
 			// Returns a variably sized list of elements, where each
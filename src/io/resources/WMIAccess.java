@@ -31,6 +31,9 @@ public class WMIAccess extends WikipediaAccess {
 
 	@Override
 	protected WikipediaSocket createSocket(KMAccess<WikipediaSocket> kmAccess) {
-		return new WMISocket((WMIAccess) kmAccess);
+		if (port_ == -1)
+			return new WMISocket((WMIAccess) kmAccess);
+		else
+			return new WMISocket((WMIAccess) kmAccess, port_);
 	}
 }
@@ -3,7 +3,10 @@
  ******************************************************************************/
 package io.resources;
 
+import io.CommandStatistics;
+
 import java.io.IOException;
+import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -13,8 +16,10 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.LoggerFactory;
 
 import util.IllegalDelimiterException;
+import util.IntWeightedSet;
 import util.Pair;
 import util.collection.WeightedSet;
 import util.wikipedia.InfoboxData;
@@ -71,16 +76,30 @@ public class WMISocket extends WikipediaSocket {
 	/** The port number to connect to for WMI. */
 	public static final int WMI_PORT = 2424;
 
+	/** The header line preceding a framed multi-line response. */
+	private static final Pattern FRAME_HEADER = Pattern.compile("#(\\d+)");
+
+	/** If multi-line responses should be requested as length-prefixed frames. */
+	public static boolean requestFramedResponses_ = true;
+
+	/**
+	 * The number of consecutive unframed responses after which framing is
+	 * disabled for the connection.
+	 */
+	public static int maxFrameMismatches_ = 3;
+
+	/** If this socket is currently receiving framed multi-line responses. */
+	private boolean framed_;
+
+	/** The number of consecutive unframed responses on this connection. */
+	private int frameMismatches_;
+
 	public WMISocket(WMIAccess access) {
-		super(access);
-		try {
-			command("set /env/singleline true", true);
-			command("set /env/endmessage ", true);
-			command("set /env/prompt ", true);
-			command("set /env/time false", true);
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
+		this(access, -1);
+	}
+
+	public WMISocket(WMIAccess access, int port) {
+		super(access, port);
 
 		// Register the parsing methods
 		registerParsingMethod(PARSER_ANNOTATE, new AnnotateParser());
@@ -120,14 +139,13 @@ public class WMISocket extends WikipediaSocket {
 			}
 		}
 		if (result == null) {
-			boolean singleline = true;
-			if (command.equals("markup") || command.equals("topics")) {
-				singleline = false;
-				command("set /env/endmessage " + MESSAGE_END, true);
-				command("set /env/singleline false", false);
-			}
-
-			String commandResult = command(command + " " + argument, singleline);
+			String commandResult = null;
+			boolean multiline = command.equals("markup")
+					|| command.equals("topics");
+			if (multiline)
+				commandResult = multilineCommand(command + " " + argument);
+			else
+				commandResult = command(command + " " + argument, true);
 			boolean retry = false;
 			do {
 				retry = false;
@@ -136,16 +154,15 @@ public class WMISocket extends WikipediaSocket {
 							parsingMethod, null);
 				} catch (Exception e) {
 					e.printStackTrace();
-					// Pipe through the rest
-					readRemaining();
-					retry = true;
+					CommandStatistics.recordError(getClass(), command, false);
+					// Pipe through the rest (framed responses are always read
+					// in full)
+					if (!framed_) {
+						readRemaining();
+						retry = true;
+					}
 				}
 			} while (retry);
-
-			if (command.equals("markup") || command.equals("topics")) {
-				command("set /env/singleline true", true);
-				command("set /env/endmessage ", true);
-			}
 		}
 		return result;
 	}
@@ -178,30 +195,102 @@ public class WMISocket extends WikipediaSocket {
 			WikipediaMethod<T> parsingMethod, String subCommand, Class<A> clazz)
 			throws IOException {
 		A result = (A) access_.getCachedCommand(subCommand, argument);
-		if (result == null) {
-			boolean singleline = true;
-			if (command.equals("markup")) {
-				singleline = false;
-				command("set /env/endmessage " + MESSAGE_END, true);
-				command("set /env/singleline false", false);
+		if (result != null) {
+			try {
+				result = (A) parsingMethod.cloneSubResult(subCommand, result);
+			} catch (Exception e) {
+				result = null;
 			}
-
-			String commandResult = command(command + " " + argument, singleline);
+		}
+		if (result == null) {
+			String commandResult = null;
+			if (command.equals("markup"))
+				commandResult = multilineCommand(command + " " + argument);
+			else
+				commandResult = command(command + " " + argument, true);
 			result = (A) cacheResult(command, argument, commandResult,
 					parsingMethod, subCommand);
+		}
+		return result;
+	}
 
-			if (command.equals("markup")) {
-				command("set /env/singleline true", true);
-				command("set /env/endmessage ", true);
+	/**
+	 * Sends a command with a multi-line result to WMI. If the socket is in
+	 * framed mode, the result is read as a single length-prefixed frame.
+	 * Otherwise (or if WMI does not frame the response), WMI is switched into
+	 * multi-line mode for the command and the result is read until the end
+	 * message. Framing is only disabled for the connection after
+	 * {@link #maxFrameMismatches_} consecutive unframed responses.
+	 * 
+	 * @param commandString
+	 *            The command to send.
+	 * @return The full multi-line result of the command.
+	 * @throws IOException
+	 *             Should something go awry...
+	 */
+	private String multilineCommand(String commandString) throws IOException {
+		boolean reframe = false;
+		if (framed_) {
+			String header = querySocket(commandString);
+			if (header != null) {
+				Matcher m = FRAME_HEADER.matcher(header);
+				if (m.matches()) {
+					frameMismatches_ = 0;
+					return readFrame(Integer.parseInt(m.group(1)));
+				}
+			}
+
+			// Fall back to toggling modes for this command
+			command("set /env/framed false", true);
+			reframe = ++frameMismatches_ < maxFrameMismatches_;
+			if (!reframe) {
+				LoggerFactory.getLogger(getClass()).warn(
+						"{} framed responses not received (last '{}'), "
+								+ "disabling framed mode.", frameMismatches_,
+						commandString);
+				framed_ = false;
 			}
 		}
-		// TODO Not cloning the sub-result.
+
+		command("set /env/endmessage " + MESSAGE_END, true);
+		command("set /env/singleline false", false);
+		String result = command(commandString, false);
+		command("set /env/singleline true", true);
+		command("set /env/endmessage ", true);
+		if (reframe)
+			command("set /env/framed true", true);
 		return result;
 	}
 
+	/**
+	 * Connects to WMI and sets up the environment. This is also called on
+	 * every reconnection, so the new connection is framed too.
+	 */
+	@Override
+	protected void connect() throws UnknownHostException, IOException {
+		super.connect();
+		framed_ = false;
+		frameMismatches_ = 0;
+		try {
+			command("set /env/singleline true", true);
+			command("set /env/endmessage ", true);
+			command("set /env/prompt ", true);
+			command("set /env/time false", true);
+			if (requestFramedResponses_) {
+				command("set /env/framed true", true);
+				framed_ = true;
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
 	@Override
 	protected int getPort() {
-		return WMI_PORT;
+		int port = super.getPort();
+		if (port == -1)
+			return WMI_PORT;
+		return port;
 	}
 
 	/**
@@ -259,6 +348,8 @@ public class WMISocket extends WikipediaSocket {
 
 		// Check for command mangling
 		if (output.startsWith("Unknown command")) {
+			CommandStatistics.recordError(getClass(),
+					CommandStatistics.getVerb(commandString), false);
 			throw new IOException("Invalid command: '" + commandString + "'");
 		}
 
@@ -667,17 +758,16 @@ public class WMISocket extends WikipediaSocket {
 	 * @param term
 	 *            The text for which topics are found.
 	 * 
-	 * @return A {@link WeightedSet} of topics, where each topic is represented
-	 *         by a pair (text, article).
+	 * @return An {@link IntWeightedSet} of topics, where each topic is an
+	 *         article.
 	 * @throws IOException
 	 *             Should something go awry...
 	 */
-	@SuppressWarnings("unchecked")
 	@Override
-	public WeightedSet<Integer> getTopics(String text,
-			Collection<Integer> context) throws IOException {
+	public IntWeightedSet getTopics(String text, Collection<Integer> context)
+			throws IOException {
 		String noBrackets = WikiParser.cleanAllMarkup(text);
-		return (WeightedSet<Integer>) command("topics", DELIMITER + "\n"
+		return (IntWeightedSet) command("topics", DELIMITER + "\n"
 				+ noBrackets + "\n" + DELIMITER, getParsingMethod(PARSER_TOPIC));
 	}
 
@@ -693,9 +783,9 @@ public class WMISocket extends WikipediaSocket {
 	 */
 	@SuppressWarnings("unchecked")
 	@Override
-	public List<WeightedSet<Integer>> getWeightedArticles(String... terms)
+	public List<IntWeightedSet> getWeightedArticles(String... terms)
 			throws IOException {
-		return (List<WeightedSet<Integer>>) batchCommand("senses", terms,
+		return (List<IntWeightedSet>) batchCommand("senses", terms,
 				getParsingMethod(PARSER_SENSES));
 	}
 
@@ -744,6 +834,11 @@ public class WMISocket extends WikipediaSocket {
 	 */
 	private final class LabelsParser extends
 			WikipediaMethod<WeightedSet<String>> {
+		@Override
+		public WeightedSet<String> cloneResult(WeightedSet<String> result) {
+			return new WeightedSet<>(result);
+		}
+
 		@Override
 		public WeightedSet<String> parseResult(String result, String source) {
 			// Returns a variably sized list of elements, where each
@@ -772,6 +867,17 @@ public class WMISocket extends WikipediaSocket {
 	 * @author Sam Sarjant
 	 */
 	private final class MarkupParser extends WikipediaMethod<String> {
+		@Override
+		@SuppressWarnings("unchecked")
+		public Object cloneSubResult(String subCommand, Object subResult) {
+			if (!subCommand.equals("infoboxdata"))
+				return subResult;
+			List<InfoboxData> infoboxes = (List<InfoboxData>) subResult;
+			List<InfoboxData> clone = new ArrayList<>(infoboxes.size());
+			for (InfoboxData data : infoboxes)
+				clone.add(new InfoboxData(data));
+			return clone;
+		}
 
 		/**
 		 * Records an infobox relation.
@@ -1109,24 +1215,21 @@ public class WMISocket extends WikipediaSocket {
 	 * 
 	 * @author Sam Sarjant
 	 */
-	private final class SensesParser extends
-			WikipediaMethod<WeightedSet<Integer>> {
+	private final class SensesParser extends WikipediaMethod<IntWeightedSet> {
 		@Override
-		public WeightedSet<Integer> cloneResult(WeightedSet<Integer> result) {
-			WeightedSet<Integer> clonedSenses = new WeightedSet<>();
-			clonedSenses.addAll(result);
-			return clonedSenses;
+		public IntWeightedSet cloneResult(IntWeightedSet result) {
+			return new IntWeightedSet(result);
 		}
 
 		@Override
-		public WeightedSet<Integer> parseResult(String result, String source) {
+		public IntWeightedSet parseResult(String result, String source) {
 			// Returns a variably sized list of elements, where each
 			// element includes an integer id, a weight, and a title
 			String[] split = result.split("\\|");
-			WeightedSet<Integer> articles = new WeightedSet<Integer>();
 			if (split.length == 1)
-				return articles;
+				return new IntWeightedSet();
 			int numResults = Math.max(0, Integer.parseInt(split[0]));
+			IntWeightedSet articles = new IntWeightedSet(numResults);
 			for (int i = 1; i <= numResults; i++) {
 				Matcher m = SENSES_PATTERN.matcher(split[i]);
 				if (m.find()) {
@@ -1145,16 +1248,15 @@ public class WMISocket extends WikipediaSocket {
 	 *
 	 * @author Sam Sarjant
 	 */
-	private final class TopicParser extends
-			WikipediaMethod<WeightedSet<Integer>> {
+	private final class TopicParser extends WikipediaMethod<IntWeightedSet> {
 		@Override
-		public WeightedSet<Integer> cloneResult(WeightedSet<Integer> result) {
-			return new WeightedSet<>(result);
+		public IntWeightedSet cloneResult(IntWeightedSet result) {
+			return new IntWeightedSet(result);
 		}
 
 		@Override
-		public WeightedSet<Integer> parseResult(String result, String source) {
-			WeightedSet<Integer> topics = new WeightedSet<>();
+		public IntWeightedSet parseResult(String result, String source) {
+			IntWeightedSet topics = new IntWeightedSet();
 
 			String[] topicSplit = result.split("\n");
 			for (String topic : topicSplit) {
@@ -27,6 +27,7 @@ import knowledgeMiner.mining.wikipedia.InfoboxTypeMiner;
 
 import org.slf4j.LoggerFactory;
 
+import util.IntWeightedSet;
 import util.collection.WeightedSet;
 import util.wikipedia.InfoboxData;
 
@@ -74,7 +75,11 @@ public abstract class WikipediaSocket extends KMSocket {
 	private TMap<String, WikipediaMethod<?>> parsers_;
 
 	public WikipediaSocket(WikipediaAccess access) {
-		super(access);
+		this(access, -1);
+	}
+
+	public WikipediaSocket(WikipediaAccess access, int port) {
+		super(access, port);
 		parsers_ = new THashMap<>();
 		registerParsingMethod(PARSER_STRING, new StringParser());
 		registerParsingMethod(PARSER_INTEGER, new IntegerParser());
@@ -100,7 +105,7 @@ public abstract class WikipediaSocket extends KMSocket {
 	@SuppressWarnings("unchecked")
 	private <T> String compileBatchCommand(String command, String subCommand,
 			Object[] arguments, List<T> results,
-			WikipediaMethod<T> parsingMethod) {
+			WikipediaMethod<?> parsingMethod) {
 		StringBuilder batchCommand = new StringBuilder("batch " + command + " "
 				+ DELIMITER + "\n");
 
@@ -109,16 +114,16 @@ public abstract class WikipediaSocket extends KMSocket {
 		boolean allCached = true;
 		for (int i = 0; i < arguments.length; i++) {
 			T cachedResult = null;
-			if (parsingMethod != null) {
-				try {
-					cachedResult = (T) access_.getCachedCommand(cacheCommand,
-							arguments[i].toString());
-					cachedResult = parsingMethod.cloneResult(cachedResult);
-				} catch (Exception e) {
-					cachedResult = null;
-				}
+			try {
+				cachedResult = (T) access_.getCachedCommand(cacheCommand,
+						arguments[i].toString());
+				if (cachedResult != null && parsingMethod != null)
+					cachedResult = (T) parsingMethod.cloneCachedResult(
+							cachedResult, subCommand);
+			} catch (Exception e) {
+				cachedResult = null;
 			}
-			if (cachedResult != null && parsingMethod != null) {
+			if (cachedResult != null) {
 				results.add(cachedResult);
 			} else {
 				batchCommand.append(arguments[i] + "\n");
@@ -239,7 +244,7 @@ public abstract class WikipediaSocket extends KMSocket {
 
 		// Compile the batch command, only using uncached arguments
 		String batchCommand = compileBatchCommand(command, subCommand,
-				arguments, results, null);
+				arguments, results, parsingMethod);
 
 		// Run the command
 		if (batchCommand != null) {
@@ -323,9 +328,6 @@ public abstract class WikipediaSocket extends KMSocket {
 		return parsers_.get(name);
 	}
 
-	@Override
-	protected abstract int getPort();
-
 	/**
 	 * Registers a parsing method under a given name.
 	 *
@@ -827,11 +829,12 @@ public abstract class WikipediaSocket extends KMSocket {
 	 *            use of.
 	 * @param term
 	 *            The text for which topics are found.
-	 * @return A {@link WeightedSet} of topics, where each topic is an article.
+	 * @return An {@link IntWeightedSet} of topics, where each topic is an
+	 *         article.
 	 * @throws IOException
 	 *             Should something go awry...
 	 */
-	public abstract WeightedSet<Integer> getTopics(String text,
+	public abstract IntWeightedSet getTopics(String text,
 			Collection<Integer> context) throws IOException;
 
 	/**
@@ -852,17 +855,20 @@ public abstract class WikipediaSocket extends KMSocket {
 	 * @throws IOException
 	 *             Should something go awry...
 	 */
-	public final List<WeightedSet<Integer>> getWeightedArticles(
+	public final List<IntWeightedSet> getWeightedArticles(
 			Collection<Integer> relatedArticles, double cutoffThreshold,
 			String... terms) throws IOException {
-		List<WeightedSet<Integer>> contextWeightedArts = new ArrayList<>();
-		List<WeightedSet<Integer>> weightedArts = getWeightedArticles(terms);
+		List<IntWeightedSet> contextWeightedArts = new ArrayList<>();
+		List<IntWeightedSet> weightedArts = new ArrayList<>(terms.length);
 
 		// Compile the input array
 		SortedSet<Integer> articles = new TreeSet<>();
-		for (WeightedSet<Integer> weighted : weightedArts) {
+		for (IntWeightedSet weighted : getWeightedArticles(terms)) {
+			weighted = new IntWeightedSet(weighted);
 			weighted.normaliseWeightTo1(cutoffThreshold);
-			articles.addAll(weighted);
+			weightedArts.add(weighted);
+			for (int artID : weighted.keys())
+				articles.add(artID);
 		}
 		Integer[] inputArray = articles.toArray(new Integer[articles.size()]);
 		Integer[] comparisonArray = relatedArticles
@@ -873,16 +879,16 @@ public abstract class WikipediaSocket extends KMSocket {
 				comparisonArray);
 
 		// Update the weighted set list
-		for (WeightedSet<Integer> weightedSet : weightedArts) {
+		for (IntWeightedSet weightedSet : weightedArts) {
 			if (weightedSet.size() <= 1) {
 				contextWeightedArts.add(weightedSet);
 				continue;
 			}
 
 			// Create and fill the updated weights
-			WeightedSet<Integer> contextWeighted = new WeightedSet<>(
+			IntWeightedSet contextWeighted = new IntWeightedSet(
 					weightedSet.size());
-			for (Integer artID : weightedSet) {
+			for (int artID : weightedSet.keys()) {
 				double relatedness = 0;
 				double obviousness = weightedSet.getWeight(artID);
 
@@ -910,7 +916,7 @@ public abstract class WikipediaSocket extends KMSocket {
 	 * @throws IOException
 	 *             Should something go awry...
 	 */
-	public final WeightedSet<Integer> getWeightedArticles(String term)
+	public final IntWeightedSet getWeightedArticles(String term)
 			throws IOException {
 		return singular(getWeightedArticles(new String[] { term }));
 	}
@@ -925,10 +931,10 @@ public abstract class WikipediaSocket extends KMSocket {
 	 * @throws IOException
 	 *             Should something go awry...
 	 */
-	public abstract List<WeightedSet<Integer>> getWeightedArticles(
+	public abstract List<IntWeightedSet> getWeightedArticles(
 			String... terms) throws IOException;
 
-	public final WeightedSet<Integer> getWeightedArticles(String term,
+	public final IntWeightedSet getWeightedArticles(String term,
 			double cutoffThreshold, Collection<Integer> relatedArticles)
 			throws IOException {
 		return singular(getWeightedArticles(relatedArticles, cutoffThreshold,
@@ -1104,6 +1110,38 @@ public abstract class WikipediaSocket extends KMSocket {
 			return result;
 		}
 
+		/**
+		 * Clones a sub-result. Used when the sub-result has been cached and a
+		 * new version is required. Defaults to returning the sub-result.
+		 * Should be overridden when a sub-result is non-primitive.
+		 * 
+		 * @param subCommand
+		 *            The sub command the sub-result was cached under.
+		 * @param subResult
+		 *            The sub-result to clone.
+		 * @return A cloned version of the sub-result.
+		 */
+		public Object cloneSubResult(String subCommand, Object subResult) {
+			return subResult;
+		}
+
+		/**
+		 * Clones a cached result or sub-result.
+		 * 
+		 * @param cached
+		 *            The cached result.
+		 * @param subCommand
+		 *            The sub command the result was cached under, or null if
+		 *            it is a primary result.
+		 * @return A cloned version of the result.
+		 */
+		@SuppressWarnings("unchecked")
+		public Object cloneCachedResult(Object cached, String subCommand) {
+			if (subCommand != null)
+				return cloneSubResult(subCommand, cached);
+			return cloneResult((T) cached);
+		}
+
 		/**
 		 * Parses the result String of a command.
 		 * 
@@ -12,6 +12,7 @@ package knowledgeMiner;
 
 import graph.core.CommonConcepts;
 import graph.inference.CommonQuery;
+import io.ResourceAccess;
 import io.ontology.OntologySocket;
 import io.resources.WikipediaSocket;
 
@@ -20,12 +21,18 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import knowledgeMiner.mapping.CycMapper;
 import knowledgeMiner.mining.AssertionQueue;
@@ -33,6 +40,7 @@ import knowledgeMiner.mining.DefiniteAssertion;
 import knowledgeMiner.mining.MinedAssertion;
 import knowledgeMiner.mining.PartialAssertion;
 import knowledgeMiner.mining.WeightedStanding;
+
 import util.Pair;
 import cyc.CycConstants;
 import cyc.MappableConcept;
@@ -45,6 +53,26 @@ import cyc.OntologyConcept;
  * @author Sam Sarjant
  */
 public class AssertionGrid {
+	/** The multiplier used when combining the grid signature. */
+	private static final long SIGNATURE_PRIME = 1099511628211L;
+
+	/** The shared pool for speculatively evaluating upcoming case rows. */
+	private static ExecutorService speculationPool_;
+
+	/** The number of threads used for speculative row evaluation. */
+	public static int speculationThreads_ = 3;
+
+	/**
+	 * The number of speculative rows that may wait for a thread. When full,
+	 * the oldest waiting row is dropped.
+	 */
+	public static int speculationQueueSize_ = 64;
+
+	/**
+	 * The number of queued cases (after the case being processed) to
+	 * speculatively evaluate. 0 disables speculation.
+	 */
+	public static int speculationWidth_ = 3;
 
 	/** The assertions in a grid format for quick access. */
 	private MinedAssertion[][] assertionGrid_;
@@ -65,20 +93,35 @@ public class AssertionGrid {
 	/** The concept for which this assertion grid is built around. */
 	private MappableConcept coreConcept_;
 
+	/** Cached argument constraint queries, shared between cases. */
+	private Map<String, Collection<OntologyConcept>> constraintQueries_;
+
 	private DisjointCase[] disjointCases_;
 
 	private Map<Pair<String, String>, Boolean> disjointQueries_;
 
+	/** Cached genlPreds queries, shared between cases. */
+	private Map<String, Boolean> genlPredsQueries_;
+
 	/** The proportions of every assertion queue, based on hierarchy. */
 	// private Float[] proportionVector_;
 	private float weightSum_;
 
+	/** If the case to resume from is a collection case. */
+	private boolean resumeCollection_;
+
+	/** The seed of a previous search's chosen case, seeded first. */
+	private Pair<Integer, Integer> resumeSeed_;
+
 	/** The current row to seed. */
 	private int row_;
 
 	/** A stack of starting seeds, from highest weighted to least. */
 	private ArrayList<Pair<Integer, Integer>> seedStack_;
 
+	/** The outstanding speculative rows submitted by this grid. */
+	private ArrayList<Future<?>> speculations_;
+
 	/** The standing of the concept. */
 	private WeightedStanding standing_;
 
@@ -365,8 +408,9 @@ public class AssertionGrid {
 				disjCase = new Pair<String, String>(testID, truthID);
 			else
 				disjCase = new Pair<String, String>(truthID, testID);
-			if (disjointQueries_.containsKey(disjCase)) {
-				if (disjointQueries_.get(disjCase))
+			Boolean cached = disjointQueries_.get(disjCase);
+			if (cached != null) {
+				if (cached)
 					return true;
 			} else {
 				boolean result = ontology.evaluate(null,
@@ -379,6 +423,101 @@ public class AssertionGrid {
 		return false;
 	}
 
+	/**
+	 * Checks if a relation is (or specialises) a given predicate, caching the
+	 * result for all cases.
+	 * 
+	 * @param relation
+	 *            The relation to check.
+	 * @param predicateID
+	 *            The ID of the more general predicate.
+	 * @param ontology
+	 *            The ontology access.
+	 * @return True if the relation has the predicate as a genlPreds.
+	 */
+	private boolean isGenlPreds(OntologyConcept relation, int predicateID,
+			OntologySocket ontology) {
+		String key = relation.getIdentifier() + " " + predicateID;
+		Boolean cached = genlPredsQueries_.get(key);
+		if (cached != null)
+			return cached;
+		boolean result = ontology.evaluate(null,
+				CommonConcepts.GENLPREDS.getID(), relation.getIdentifier(),
+				predicateID);
+		genlPredsQueries_.put(key, result);
+		return result;
+	}
+
+	/**
+	 * Gets the argument constraints of a relation, caching the result for all
+	 * cases.
+	 * 
+	 * @param query
+	 *            The constraint query (MINARGNISA or MINARGNGENL).
+	 * @param relation
+	 *            The relation to get constraints for.
+	 * @param argIndex
+	 *            The argument index.
+	 * @param ontology
+	 *            The ontology access.
+	 * @return The constraints on the argument (not to be modified).
+	 */
+	private Collection<OntologyConcept> getArgConstraints(CommonQuery query,
+			OntologyConcept relation, int argIndex, OntologySocket ontology) {
+		String key = query + " " + relation.getIdentifier() + " '" + argIndex;
+		Collection<OntologyConcept> cached = constraintQueries_.get(key);
+		if (cached != null)
+			return cached;
+		Collection<OntologyConcept> result = ontology.quickQuery(query,
+				relation.getIdentifier() + " '" + argIndex);
+		if (result != null)
+			constraintQueries_.put(key, result);
+		return result;
+	}
+
+	/**
+	 * Submits the next row of the top queued cases (not including the case
+	 * about to be processed) for speculative evaluation on the worker pool.
+	 * The workers only warm the shared disjointness, genlPreds and constraint
+	 * caches, so the serial search order (and thus its result) is unchanged.
+	 */
+	private void speculate() {
+		if (speculationWidth_ <= 0 || cases_.size() == 0)
+			return;
+
+		// Take the top cases without changing the queue
+		ArrayList<DisjointCase> topCases = new ArrayList<>(speculationWidth_);
+		while (topCases.size() < speculationWidth_ && !cases_.isEmpty())
+			topCases.add(cases_.remove());
+		cases_.addAll(topCases);
+
+		if (speculations_ == null)
+			speculations_ = new ArrayList<>();
+		for (Iterator<Future<?>> iter = speculations_.iterator(); iter
+				.hasNext();)
+			if (iter.next().isDone())
+				iter.remove();
+		for (DisjointCase dc : topCases) {
+			if (dc.speculatedRow_ == dc.caseRow_ || dc.isCompleted())
+				continue;
+			dc.speculatedRow_ = dc.caseRow_;
+			speculations_.add(getSpeculationPool().submit(
+					dc.new RowSpeculation()));
+		}
+	}
+
+	/**
+	 * Cancels any speculative rows this grid still has waiting or running, as
+	 * their results are no longer needed.
+	 */
+	public void cancelSpeculation() {
+		if (speculations_ == null)
+			return;
+		for (Future<?> future : speculations_)
+			future.cancel(true);
+		speculations_.clear();
+	}
+
 	/**
 	 * Recursively build the grid
 	 * 
@@ -427,10 +566,26 @@ public class AssertionGrid {
 		}
 	}
 
-	private DisjointCase requestDisjointCase(OntologySocket ontology) {
+	/**
+	 * Gets the standing weight a case of the given type starts with.
+	 * 
+	 * @param isaCollection
+	 *            If the case treats the concept as a collection.
+	 * @return The standing weight of the case (relative to the best standing).
+	 */
+	private float getStandingWeight(boolean isaCollection) {
 		float bestStanding = Math.max(
 				standing_.getNormalisedWeight(TermStanding.COLLECTION),
 				standing_.getNormalisedWeight(TermStanding.INDIVIDUAL));
+		// Always slight bias against Collection.
+		if (isaCollection)
+			return Math.min(standing_.getNormalisedWeight(TermStanding.COLLECTION)
+					/ bestStanding, 1) - 0.0001f;
+		return Math.min(standing_.getNormalisedWeight(TermStanding.INDIVIDUAL)
+				/ bestStanding, 1);
+	}
+
+	private DisjointCase requestDisjointCase(OntologySocket ontology) {
 		do {
 			// Seed a new case
 			float seedWeight = findAvailableSeed();
@@ -441,36 +596,67 @@ public class AssertionGrid {
 			// ambiguity), with standing weights
 			if (cases_.isEmpty()
 					|| seedWeight > cases_.peek().getPotentialWeight()) {
-				// Always slight bias against Collection.
-				float collWeight = Math.min(
-						standing_.getNormalisedWeight(TermStanding.COLLECTION)
-								/ bestStanding, 1) - 0.0001f;
-				float indvWeight = Math.min(
-						standing_.getNormalisedWeight(TermStanding.INDIVIDUAL)
-								/ bestStanding, 1);
-				// System.out.println(concept_ + ":" + collWeight + " " +
-				// indvWeight);
-				DisjointCase dc = new DisjointCase(row_, column_, true,
-						collWeight, ontology);
-				if (dc.getPotentialWeight() > 0)
-					cases_.add(dc);
-
-				dc = new DisjointCase(row_, column_, false, indvWeight,
-						ontology);
-				if (dc.getPotentialWeight() > 0)
-					cases_.add(dc);
-				usedSeeds_[column_][row_] = true;
+				for (DisjointCase dc : seed(row_, column_, ontology))
+					if (dc.getPotentialWeight() > 0)
+						cases_.add(dc);
 			}
 		} while (cases_.isEmpty());
 		return cases_.remove();
 	}
 
+	/**
+	 * Seeds a case for both individual and collection (if there is
+	 * ambiguity), with standing weights, and marks the seed as used.
+	 * 
+	 * @param row
+	 *            The row of the seed.
+	 * @param column
+	 *            The column of the seed.
+	 * @param ontology
+	 *            The ontology access.
+	 * @return The collection and individual cases.
+	 */
+	private DisjointCase[] seed(int row, int column, OntologySocket ontology) {
+		float collWeight = getStandingWeight(true);
+		float indvWeight = getStandingWeight(false);
+		DisjointCase[] cases = {
+				new DisjointCase(row, column, true, collWeight, ontology),
+				new DisjointCase(row, column, false, indvWeight, ontology) };
+		usedSeeds_[column][row] = true;
+		return cases;
+	}
+
+	/**
+	 * Seeds the resumed seed, running the previously chosen case to
+	 * completion before queueing it.
+	 * 
+	 * @param ontology
+	 *            The ontology access.
+	 */
+	private void seedResumed(OntologySocket ontology) {
+		int column = resumeSeed_.objA_;
+		int row = resumeSeed_.objB_;
+		resumeSeed_ = null;
+		if (getAssertion(column, row) == null || usedSeeds_[column][row])
+			return;
+		for (DisjointCase dc : seed(row, column, ontology)) {
+			if (dc.getPotentialWeight() <= 0)
+				continue;
+			if (dc.isaCollection_ == resumeCollection_)
+				while (!dc.isCompleted())
+					dc.processRow(ontology);
+			cases_.add(dc);
+		}
+	}
+
 	private void resetMetrics() {
 		row_ = 0;
 		column_ = 0;
 		cases_ = new PriorityQueue<>();
 		disjointCases_ = null;
-		disjointQueries_ = new HashMap<>();
+		disjointQueries_ = new ConcurrentHashMap<>();
+		genlPredsQueries_ = new ConcurrentHashMap<>();
+		constraintQueries_ = new ConcurrentHashMap<>();
 	}
 
 	@SuppressWarnings("unchecked")
@@ -506,24 +692,52 @@ public class AssertionGrid {
 
 		// Iterate through the assertions in a priority queue until completed
 		resetMetrics();
+		if (resumeSeed_ != null)
+			seedResumed(ontology);
 		disjointCases_ = new DisjointCase[numDisambiguated];
 		int caseNum = 0;
-		do {
-			DisjointCase dc = requestDisjointCase(ontology);
-			// No assertions left!
-			if (dc == null) {
-				disjointCases_ = Arrays.copyOf(disjointCases_, caseNum);
-				return;
-			}
-			// DC not yet completed.
-			if (!dc.isCompleted()) {
-				dc.processRow(ontology);
+		try {
+			do {
+				DisjointCase dc = requestDisjointCase(ontology);
+				// No assertions left!
+				if (dc == null) {
+					disjointCases_ = Arrays.copyOf(disjointCases_, caseNum);
+					return;
+				}
+				// A resumed case is already completed
 				if (dc.isCompleted())
 					disjointCases_[caseNum++] = dc;
-				else
-					cases_.add(dc);
-			}
-		} while (caseNum < numDisambiguated);
+				else {
+					speculate();
+					dc.processRow(ontology);
+					if (dc.isCompleted())
+						disjointCases_[caseNum++] = dc;
+					else
+						cases_.add(dc);
+				}
+			} while (caseNum < numDisambiguated);
+		} finally {
+			cancelSpeculation();
+		}
+	}
+
+	/**
+	 * Prepares this grid to resume from the case chosen by a previous search
+	 * over identical inputs (see {@link #getSignature(int)}). The chosen seed
+	 * is seeded first and its case is run to completion, marking the seeds it
+	 * covers. Its weight then bounds the best-first search: seeds and cases
+	 * that cannot beat it are never expanded. As the previous search found no
+	 * better case over the same inputs, the result is that of a full search.
+	 * This must not be used if anything the search depends on has changed.
+	 * 
+	 * @param seed
+	 *            The (column, row) seed of the previously chosen case.
+	 * @param isaCollection
+	 *            If the previously chosen case was a collection case.
+	 */
+	public void resumeFrom(Pair<Integer, Integer> seed, boolean isaCollection) {
+		resumeSeed_ = seed;
+		resumeCollection_ = isaCollection;
 	}
 
 	public Collection<DefiniteAssertion> getAssertions(int caseNum) {
@@ -536,6 +750,54 @@ public class AssertionGrid {
 		return Math.min(disjointCases_[caseNum].getPotentialWeight(), 1);
 	}
 
+	/**
+	 * Gets the seed a found case was started from.
+	 * 
+	 * @param caseNum
+	 *            The case number.
+	 * @return The (column, row) seed of the case.
+	 */
+	public Pair<Integer, Integer> getCaseSeed(int caseNum) {
+		return disjointCases_[caseNum].getSeed();
+	}
+
+	/**
+	 * Gets a compact signature of every input of the search: the grid's
+	 * concept, assertions and weights, the concept's standing and the state of
+	 * the ontology (which the disjointness and constraint checks query). Any
+	 * change to these (including appended rows) changes the signature.
+	 * 
+	 * @param ontologyStamp
+	 *            The state of the ontology (e.g. its number of edges).
+	 * @return The signature of the search inputs.
+	 */
+	public long getSignature(int ontologyStamp) {
+		long signature = concept_.getID();
+		signature = signature * SIGNATURE_PRIME + ontologyStamp;
+		if (standing_ != null) {
+			signature = signature
+					* SIGNATURE_PRIME
+					+ Float.floatToIntBits(standing_
+							.getNormalisedWeight(TermStanding.COLLECTION));
+			signature = signature
+					* SIGNATURE_PRIME
+					+ Float.floatToIntBits(standing_
+							.getNormalisedWeight(TermStanding.INDIVIDUAL));
+		}
+		for (int x = 0; x < assertionGrid_.length; x++) {
+			signature = signature * SIGNATURE_PRIME + assertionGrid_[x].length;
+			for (int y = 0; y < assertionGrid_[x].length; y++) {
+				MinedAssertion assertion = assertionGrid_[x][y];
+				signature = signature * SIGNATURE_PRIME
+						+ ((assertion == null) ? 0 : assertion.toString()
+								.hashCode());
+				signature = signature * SIGNATURE_PRIME
+						+ Float.floatToIntBits(getWeight(x, y));
+			}
+		}
+		return signature;
+	}
+
 	public int getNumCases() {
 		return disjointCases_.length;
 	}
@@ -590,6 +852,10 @@ public class AssertionGrid {
 		private boolean isaCollection_;
 		private Collection<OntologyConcept> isaTruth_;
 		private DefiniteAssertion seedAssertion_;
+		private int seedColumn_;
+		private int seedRow_;
+		/** The last row submitted for speculative evaluation. */
+		private int speculatedRow_ = -1;
 		private float standingWeight_;
 
 		/**
@@ -609,6 +875,9 @@ public class AssertionGrid {
 		 */
 		public DisjointCase(int row, int column, boolean isaCollection,
 				float standingWeight, OntologySocket ontology) {
+			seedRow_ = row;
+			seedColumn_ = column;
+			isaCollection_ = isaCollection;
 			if (standingWeight <= 0) {
 				completedWeight_ = -1;
 				return;
@@ -626,7 +895,6 @@ public class AssertionGrid {
 			allAssertions_ = new ArrayList<>();
 			assertionWeights_ = new ArrayList<>();
 			completedWeight_ = 0;
-			isaCollection_ = isaCollection;
 			if (isaCollection
 					&& isDisjoint(CycConstants.COLLECTION.getConcept(),
 							isaTruth_, ontology)) {
@@ -668,16 +936,16 @@ public class AssertionGrid {
 				return false;
 
 			// Check arg constraints
-			Collection<OntologyConcept> isaConstraints = ontology.quickQuery(
-					CommonQuery.MINARGNISA, assertion.getRelation()
-							.getIdentifier() + " '" + conceptIndex);
+			Collection<OntologyConcept> isaConstraints = getArgConstraints(
+					CommonQuery.MINARGNISA, assertion.getRelation(),
+					conceptIndex, ontology);
 			for (OntologyConcept constraint : isaConstraints)
 				if (isDisjoint(constraint, isaTruth_, ontology))
 					return false;
 
-			Collection<OntologyConcept> genlsConstraints = ontology.quickQuery(
-					CommonQuery.MINARGNGENL, assertion.getRelation()
-							.getIdentifier() + " '" + conceptIndex);
+			Collection<OntologyConcept> genlsConstraints = getArgConstraints(
+					CommonQuery.MINARGNGENL, assertion.getRelation(),
+					conceptIndex, ontology);
 			for (OntologyConcept constraint : genlsConstraints)
 				if (isDisjoint(constraint, genlsTruth_, ontology))
 					return false;
@@ -727,11 +995,9 @@ public class AssertionGrid {
 				OntologyConcept relation = assertion.getRelation();
 				if (isaCollection_
 						&& (relation
-								.equals(CycConstants.ISA_GENLS.getConcept()) || ontology
-								.evaluate(null,
-										CommonConcepts.GENLPREDS.getID(),
-										relation.getIdentifier(),
-										CommonConcepts.GENLS.getID()))
+								.equals(CycConstants.ISA_GENLS.getConcept()) || isGenlPreds(
+								relation, CommonConcepts.GENLS.getID(),
+								ontology))
 						&& !isDisjoint(assertion.getArgs()[1], genlsTruth_,
 								ontology)) {
 					assertion = assertion.clone();
@@ -747,9 +1013,8 @@ public class AssertionGrid {
 				// isa
 				// TODO Do not allow isaGenls SecondOrderCollections
 				if (((!isaCollection_ && relation.equals(CycConstants.ISA_GENLS
-						.getConcept())) || ontology.evaluate(null,
-						CommonConcepts.GENLPREDS.getID(),
-						relation.getIdentifier(), CommonConcepts.ISA.getID()))
+						.getConcept())) || isGenlPreds(relation,
+						CommonConcepts.ISA.getID(), ontology))
 						&& !isDisjoint(assertion.getArgs()[1], isaTruth_,
 								ontology)) {
 					assertion = assertion.clone();
@@ -901,6 +1166,10 @@ public class AssertionGrid {
 			return value / weightSum_ * standingWeight_;
 		}
 
+		public Pair<Integer, Integer> getSeed() {
+			return new Pair<Integer, Integer>(seedColumn_, seedRow_);
+		}
+
 		public DefiniteAssertion getSeedAssertion() {
 			return seedAssertion_;
 		}
@@ -948,6 +1217,82 @@ public class AssertionGrid {
 			caseRow_++;
 		}
 
+		/**
+		 * Evaluates the ontology queries the next row of a case will need,
+		 * using a snapshot of the case taken when it was submitted.
+		 */
+		private class RowSpeculation implements Runnable {
+			private final boolean[] completed_;
+			private final Collection<OntologyConcept> genlsTruth_;
+			private final Collection<OntologyConcept> isaTruth_;
+			private final int row_;
+
+			public RowSpeculation() {
+				completed_ = DisjointCase.this.completed_.clone();
+				genlsTruth_ = new HashSet<>(DisjointCase.this.genlsTruth_);
+				isaTruth_ = new HashSet<>(DisjointCase.this.isaTruth_);
+				row_ = caseRow_;
+			}
+
+			@Override
+			public void run() {
+				try {
+					OntologySocket ontology = ResourceAccess
+							.requestOntologySocket();
+					if (ontology == null)
+						return;
+					for (int x = 0; x < completed_.length; x++) {
+						if (Thread.currentThread().isInterrupted())
+							return;
+						if (completed_[x])
+							continue;
+						DefiniteAssertion assertion = getAssertion(x, row_);
+						if (assertion == null)
+							continue;
+						if (assertion.isHierarchical()) {
+							OntologyConcept relation = assertion.getRelation();
+							OntologyConcept parent = assertion.getArgs()[1];
+							if (isaCollection_
+									|| !relation.equals(CycConstants.ISA_GENLS
+											.getConcept())) {
+								isGenlPreds(relation,
+										CommonConcepts.GENLS.getID(), ontology);
+								isGenlPreds(relation,
+										CommonConcepts.ISA.getID(), ontology);
+							}
+							if (isaCollection_)
+								isDisjoint(parent, genlsTruth_, ontology);
+							isDisjoint(parent, isaTruth_, ontology);
+						} else {
+							int conceptIndex = assertion.getArgIndex(concept_) + 1;
+							if (conceptIndex == 0)
+								continue;
+							Collection<OntologyConcept> constraints = getArgConstraints(
+									CommonQuery.MINARGNISA,
+									assertion.getRelation(), conceptIndex,
+									ontology);
+							if (constraints != null)
+								for (OntologyConcept constraint : constraints)
+									isDisjoint(constraint, isaTruth_, ontology);
+							constraints = getArgConstraints(
+									CommonQuery.MINARGNGENL,
+									assertion.getRelation(), conceptIndex,
+									ontology);
+							if (constraints != null)
+								for (OntologyConcept constraint : constraints)
+									isDisjoint(constraint, genlsTruth_,
+											ontology);
+						}
+					}
+				} catch (Exception e) {
+					// Speculation is best effort; the serial search will
+					// perform any queries that failed here.
+					DisjointnessDisambiguator.logger_.debug(
+							"Speculative evaluation failed: {}", e.toString());
+				}
+			}
+		}
+
 		@Override
 		public String toString() {
 			if (completedWeight_ == -1)
@@ -959,6 +1304,35 @@ public class AssertionGrid {
 		}
 	}
 
+	/**
+	 * Gets (or creates) the shared speculation pool. The threads are daemon
+	 * threads, each with its own ontology socket. The queue is bounded: as
+	 * speculation is best effort, the oldest waiting row (the most likely to
+	 * be stale) is dropped when it is full.
+	 * 
+	 * @return The speculation pool.
+	 */
+	private static synchronized ExecutorService getSpeculationPool() {
+		if (speculationPool_ == null) {
+			int threads = Math.max(1, speculationThreads_);
+			speculationPool_ = new ThreadPoolExecutor(threads, threads, 0,
+					TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+							Math.max(1, speculationQueueSize_)),
+					new ThreadFactory() {
+						private int count_ = 0;
+
+						@Override
+						public synchronized Thread newThread(Runnable r) {
+							Thread thread = new Thread(r,
+									"AssertionGridSpeculation-" + count_++);
+							thread.setDaemon(true);
+							return thread;
+						}
+					}, new ThreadPoolExecutor.DiscardOldestPolicy());
+		}
+		return speculationPool_;
+	}
+
 	private class SeedComparator implements Comparator<Pair<Integer, Integer>> {
 		@Override
 		public int compare(Pair<Integer, Integer> arg0,
@@ -195,8 +195,39 @@ public class ConceptMiningTask implements Runnable {
 		}
 
 		processables_.addAll(added);
-		if (!onlyKeepReversed)
+		if (!onlyKeepReversed) {
 			processables_.addAll(mappedMappings.values());
+			ResourcePrefetcher.getInstance().prefetch(mappedMappings.values());
+		}
+	}
+
+	/**
+	 * Claims the article and concept of a module for this task, so other
+	 * tasks do not process them at the same time. If another task holds the
+	 * claim, either waits for it to finish (reusing its result if it completed
+	 * the module) or skips the module, as configured.
+	 *
+	 * @param cm
+	 *            The module to claim.
+	 * @return True if this task should process the module.
+	 */
+	private boolean claimModule(ConceptModule cm) {
+		InFlightRegistry registry = InFlightRegistry.getInstance();
+		if (registry.claim(cm, this))
+			return true;
+		if (!InFlightRegistry.waitForClaims_) {
+			registry.recordAvoided();
+			return false;
+		}
+		if (registry.awaitRelease(cm, this) && containsCompleted(cm)) {
+			registry.recordAvoided();
+			return false;
+		}
+		// Not completed by the other task, so process it if it is free
+		if (registry.claim(cm, this))
+			return true;
+		registry.recordAvoided();
+		return false;
 	}
 
 	private boolean containsCompleted(ConceptModule concept) {
@@ -638,6 +669,10 @@ public class ConceptMiningTask implements Runnable {
 		cm.buildDisambiguationGrid(ontology_, wmi_);
 	}
 
+	public Collection<ConceptModule> getProcessables() {
+		return processables_;
+	}
+
 	public Collection<ConceptModule> getAssertedConcepts() {
 		if (assertedConcepts_ == null)
 			return CollectionUtils.EMPTY_COLLECTION;
@@ -690,45 +725,63 @@ public class ConceptMiningTask implements Runnable {
 		}
 
 		ConceptModule original = cm;
-		do {
-			boolean tempSingleMapping = (allResults.isEmpty()) ? true
-					: singleMapping;
-
-			// Find next concept module
-			boolean completed = false;
+		try {
 			do {
-				if (processables_.isEmpty()) {
-					completed = true;
-					break;
-				}
-				cm = processables_.first();
-				// Stop if the weight gets too low.
-				if (cm.getModuleWeight() <= 0) {
-					completed = true;
+				boolean tempSingleMapping = (allResults.isEmpty()) ? true
+						: singleMapping;
+
+				// Find next concept module
+				boolean completed = false;
+				boolean skip = false;
+				do {
+					if (processables_.isEmpty()) {
+						completed = true;
+						break;
+					}
+					cm = processables_.first();
+					// Stop if the weight gets too low.
+					if (cm.getModuleWeight() <= 0) {
+						completed = true;
+						break;
+					}
+					processables_.remove(cm);
+
+					skip = shouldSkipConceptModule(cm, !tempSingleMapping,
+							original) || !claimModule(cm);
+					if (skip)
+						ResourcePrefetcher.getInstance().cancel(
+								cm.getArticle());
+				} while (skip);
+				if (completed)
 					break;
-				}
-				processables_.remove(cm);
-
-			} while (shouldSkipConceptModule(cm, !tempSingleMapping, original));
-			if (completed)
-				break;
 
-			// If about to assert when we already have an answer, skip it
-			if (cm.getState() != MiningState.CONSISTENT || allResults.isEmpty()) {
-				// Selects a particular process to run, advancing the state.
-				runInternal(cm, tempSingleMapping);
-
-				// If the original concept, add it to the results.
-				if (cm.getState().equals(MiningState.ASSERTED)
-						&& originalConcept(cm, original))
+				// If about to assert when we already have an answer, skip it
+				if (cm.getState() != MiningState.CONSISTENT
+						|| allResults.isEmpty()) {
+					// Selects a particular process to run, advancing the state.
+					runInternal(cm, tempSingleMapping);
+
+					// If the original concept, add it to the results.
+					if (cm.getState().equals(MiningState.ASSERTED)
+							&& originalConcept(cm, original))
+						allResults.add(cm);
+				} else
 					allResults.add(cm);
-			} else
-				allResults.add(cm);
-			// Continue until either there are no processables left, or the
-			// original concept has been mapped (and we only want the one
-			// mapping).
-		} while (!processables_.isEmpty()
-				&& !(singleMapping && !allResults.isEmpty()));
+				// Hold the claims until the module is asserted or dropped, so
+				// waiting tasks reuse the result rather than repeat it
+				if (cm.getState() == MiningState.ASSERTED)
+					InFlightRegistry.getInstance().release(cm, this);
+				else
+					InFlightRegistry.getInstance().release(cm, this,
+							processables_);
+				// Continue until either there are no processables left, or the
+				// original concept has been mapped (and we only want the one
+				// mapping).
+			} while (!processables_.isEmpty()
+					&& !(singleMapping && !allResults.isEmpty()));
+		} finally {
+			InFlightRegistry.getInstance().releaseAll(this);
+		}
 
 		// Mark the input as completed.
 		if (concept != null) {
@@ -953,7 +1006,11 @@ public class ConceptMiningTask implements Runnable {
 					CycConstants.IMPLEMENTATION_MICROTHEORY.getConceptName(),
 					null, concept, CycConstants.WIKI_VERSION,
 					new StringConcept(article + ""));
-			return assertion.makeAssertion(-1, concept, ontology);
+			int id = assertion.makeAssertion(-1, concept, ontology);
+			if (id != -1)
+				MappingIndex.getInstance().recordMapping(article,
+						concept.getID());
+			return id;
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -298,6 +298,9 @@ public class ConceptModule extends MinedInformation implements
 		unassertOldWikiAssertions(newSynConcept, ontology,
 				CycConstants.SYNONYMOUS_EXTERNAL_CONCEPT.getID(),
 				concept_.getID(), CycConstants.WIKI_VERSION.getID());
+		if (newSynConcept != -1)
+			MappingIndex.getInstance().recordMapping(articleID_,
+					concept_.getID());
 	}
 
 	/**
@@ -15,19 +15,32 @@ import io.ontology.DAGSocket;
 import io.ontology.OntologySocket;
 import io.resources.WikipediaSocket;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import knowledgeMiner.mining.DefiniteAssertion;
 import knowledgeMiner.mining.PartialAssertion;
 import knowledgeMiner.mining.WeightedStanding;
+import knowledgeMiner.preprocessing.KnowledgeMinerPreprocessor;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import util.Pair;
 import util.UtilityMethods;
 import cyc.CycConstants;
 import cyc.MappableConcept;
@@ -46,6 +59,19 @@ public class DisjointnessDisambiguator {
 
 	private static final boolean ASSERTION_REMOVAL = false;
 
+	/** The file the chosen cases are saved to between runs. */
+	public static final File SOLVED_CASES_FILE = new File(
+			KnowledgeMinerPreprocessor.DIR_PATH, "solvedCases.dat");
+
+	/** The case chosen for each concept ID's last solved grid. */
+	private static final Map<Integer, SolvedCase> solvedCases_ = new ConcurrentHashMap<>();
+
+	/**
+	 * If disambiguation resumes from the case chosen by a previous search (in
+	 * this or an earlier run) over identical inputs.
+	 */
+	public static boolean incremental_ = true;
+
 	private Collection<DefiniteAssertion> consistentAssertions_;
 
 	/** The assertion grid composed of the extracted assertions. */
@@ -61,6 +87,9 @@ public class DisjointnessDisambiguator {
 
 	private float disambiguatedWeight_ = 0;
 
+	/** If the last search resumed from a previously chosen case. */
+	private boolean resumed_;
+
 	public DisjointnessDisambiguator(Collection<PartialAssertion> assertions,
 			MappableConcept coreConcept, OntologySocket ontology, WikipediaSocket wmi) {
 		coreAssertionGrid_ = new AssertionGrid(assertions, coreConcept,
@@ -212,9 +241,33 @@ public class DisjointnessDisambiguator {
 				conceptModule, ontology);
 		currentAssertionGrid_ = integrateGroundTruths(conceptModule,
 				existingAssertions, assertionRemoval, ontology);
+		boolean incremental = incremental_
+				&& !conceptModule.isCreatedConcept();
+		int conceptID = conceptModule.getConcept().getID();
+		long signature = 0;
+		resumed_ = false;
+		if (incremental) {
+			// Only resume if the inputs are identical, ontology included
+			int stamp = ((DAGSocket) ontology).getNumEdges();
+			incremental = stamp >= 0;
+			signature = currentAssertionGrid_.getSignature(stamp);
+			SolvedCase previous = solvedCases_.get(conceptID);
+			if (incremental && previous != null
+					&& previous.signature_ == signature) {
+				currentAssertionGrid_.resumeFrom(new Pair<Integer, Integer>(
+						previous.column_, previous.row_),
+						previous.isaCollection_);
+				resumed_ = true;
+			}
+		}
 		consistentAssertions_ = currentAssertionGrid_
 				.findMaximalConjoint(ontology);
 		disambiguatedWeight_ = currentAssertionGrid_.getCaseWeight(0);
+		if (incremental && currentAssertionGrid_.getNumCases() > 0) {
+			Pair<Integer, Integer> seed = currentAssertionGrid_.getCaseSeed(0);
+			solvedCases_.put(conceptID, new SolvedCase(signature, seed.objA_,
+					seed.objB_, currentAssertionGrid_.isCollection(0)));
+		}
 
 		// Note the removed assertions
 		logger_.trace("Added " + consistentAssertions_.size());
@@ -230,6 +283,15 @@ public class DisjointnessDisambiguator {
 		return disambiguatedWeight_;
 	}
 
+	/**
+	 * If the last search resumed from the case chosen by a previous search.
+	 *
+	 * @return True if the search was resumed.
+	 */
+	public boolean isResumed() {
+		return resumed_;
+	}
+
 	public boolean isCollection() {
 		if (currentAssertionGrid_ == null)
 			return false;
@@ -279,4 +341,73 @@ public class DisjointnessDisambiguator {
 			return Collections.EMPTY_LIST;
 		return currentAssertionGrid_.getAllAssertions();
 	}
+
+	/**
+	 * Loads the cases chosen by an earlier run, if they were saved.
+	 */
+	public static void loadSolvedCases() {
+		if (!incremental_ || !SOLVED_CASES_FILE.exists())
+			return;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(SOLVED_CASES_FILE)))) {
+			int size = in.readInt();
+			for (int i = 0; i < size; i++) {
+				int conceptID = in.readInt();
+				solvedCases_.put(conceptID, new SolvedCase(in.readLong(),
+						in.readInt(), in.readInt(), in.readBoolean()));
+			}
+			logger_.info("Loaded {} solved cases.", size);
+		} catch (IOException e) {
+			logger_.error("Could not load solved cases: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Saves the chosen cases, so a later run can resume from them.
+	 */
+	public static void saveSolvedCases() {
+		if (!incremental_ || solvedCases_.isEmpty())
+			return;
+		SOLVED_CASES_FILE.getParentFile().mkdirs();
+		File temp = new File(SOLVED_CASES_FILE.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(temp)))) {
+			// Snapshot, as tasks may still be solving
+			Map<Integer, SolvedCase> snapshot = new HashMap<>(solvedCases_);
+			out.writeInt(snapshot.size());
+			for (Map.Entry<Integer, SolvedCase> entry : snapshot.entrySet()) {
+				SolvedCase solved = entry.getValue();
+				out.writeInt(entry.getKey());
+				out.writeLong(solved.signature_);
+				out.writeInt(solved.column_);
+				out.writeInt(solved.row_);
+				out.writeBoolean(solved.isaCollection_);
+			}
+		} catch (IOException e) {
+			logger_.error("Could not save solved cases: {}", e.getMessage());
+			return;
+		}
+		SOLVED_CASES_FILE.delete();
+		if (!temp.renameTo(SOLVED_CASES_FILE))
+			logger_.error("Could not replace {}", SOLVED_CASES_FILE);
+	}
+
+	/**
+	 * The case chosen for a solved grid: the grid's signature and the seed
+	 * (and type) the chosen case started from.
+	 */
+	private static class SolvedCase {
+		private final long signature_;
+		private final int column_;
+		private final int row_;
+		private final boolean isaCollection_;
+
+		public SolvedCase(long signature, int column, int row,
+				boolean isaCollection) {
+			signature_ = signature;
+			column_ = column;
+			row_ = row;
+			isaCollection_ = isaCollection;
+		}
+	}
 }
@@ -0,0 +1,260 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package knowledgeMiner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cyc.OntologyConcept;
+
+/**
+ * A global registry of the articles and concepts currently being processed by
+ * concept mining tasks. A task claims the article and concept of a module
+ * before processing it and releases the claims once the module has been
+ * asserted or dropped, so other tasks reaching the same article or concept
+ * (through child lists, category traversal, etc.) can wait for the result
+ * instead of repeating the work.
+ *
+ * @author Sam Sarjant
+ */
+public class InFlightRegistry {
+	private static InFlightRegistry instance_;
+
+	/** If claims are made at all. */
+	public static boolean enabled_ = true;
+
+	/**
+	 * The maximum time (ms) to wait for a claim to be released. Waits are
+	 * bounded so tasks waiting on each other's claims cannot deadlock.
+	 */
+	public static long maxWait_ = 60000;
+
+	/**
+	 * If a task should wait for a claimed module (and reuse the result)
+	 * rather than skip it.
+	 */
+	public static boolean waitForClaims_ = true;
+
+	/** The current claims, keyed by article or concept. */
+	private ConcurrentHashMap<Long, Claim> claims_;
+
+	/** The number of modules not reprocessed due to a claim. */
+	private AtomicInteger duplicatesAvoided_;
+
+	/** The current claims of each owner. */
+	private ConcurrentHashMap<Object, Collection<Long>> ownerClaims_;
+
+	/** The number of waits that timed out. */
+	private AtomicInteger timeouts_;
+
+	/** The number of waits for claims. */
+	private AtomicInteger waits_;
+
+	private InFlightRegistry() {
+		claims_ = new ConcurrentHashMap<>();
+		ownerClaims_ = new ConcurrentHashMap<>();
+		duplicatesAvoided_ = new AtomicInteger();
+		timeouts_ = new AtomicInteger();
+		waits_ = new AtomicInteger();
+	}
+
+	/**
+	 * Gets the keys of the article and concept of a module.
+	 */
+	private long[] keys(ConceptModule cm) {
+		long article = (cm.getArticle() == null || cm.getArticle() < 0) ? -1
+				: cm.getArticle();
+		OntologyConcept concept = cm.getConcept();
+		long conceptID = (concept == null || concept.getID() < 0) ? -1
+				: (1L << 32) | concept.getID();
+		return new long[] { article, conceptID };
+	}
+
+	/**
+	 * Releases a claim.
+	 */
+	private void release(Long key, Object owner) {
+		Claim claim = claims_.get(key);
+		if (claim != null && claim.owner_ == owner
+				&& claims_.remove(key, claim))
+			claim.released_.countDown();
+	}
+
+	/**
+	 * Waits until the claims of other owners on the article and concept of a
+	 * module are released.
+	 *
+	 * @param cm
+	 *            The module to wait for.
+	 * @param owner
+	 *            The waiting owner.
+	 * @return True if the claims were released, false if the wait timed out
+	 *         (or was interrupted).
+	 */
+	public boolean awaitRelease(ConceptModule cm, Object owner) {
+		waits_.incrementAndGet();
+		long deadline = System.currentTimeMillis() + maxWait_;
+		try {
+			for (long key : keys(cm)) {
+				Claim claim = claims_.get(key);
+				if (key == -1 || claim == null || claim.owner_ == owner)
+					continue;
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0
+						|| !claim.released_.await(remaining,
+								TimeUnit.MILLISECONDS)) {
+					timeouts_.incrementAndGet();
+					return false;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Claims the article and concept of a module. Either both are claimed or
+	 * neither is.
+	 *
+	 * @param cm
+	 *            The module to claim.
+	 * @param owner
+	 *            The owner of the claim (the processing task).
+	 * @return True if the owner now holds the claims (or claims are disabled),
+	 *         false if another owner holds either.
+	 */
+	public boolean claim(ConceptModule cm, Object owner) {
+		if (!enabled_)
+			return true;
+		Collection<Long> owned = ownerClaims_.get(owner);
+		if (owned == null) {
+			owned = new ArrayList<>();
+			ownerClaims_.put(owner, owned);
+		}
+
+		Collection<Long> claimed = new ArrayList<>(2);
+		for (long key : keys(cm)) {
+			if (key == -1)
+				continue;
+			Claim existing = claims_.putIfAbsent(key, new Claim(owner));
+			if (existing == null)
+				claimed.add(key);
+			else if (existing.owner_ != owner) {
+				// Roll back
+				for (Long k : claimed)
+					release(k, owner);
+				return false;
+			}
+		}
+		owned.addAll(claimed);
+		return true;
+	}
+
+	/**
+	 * Notes a module that was not reprocessed because another owner claimed
+	 * it.
+	 */
+	public void recordAvoided() {
+		duplicatesAvoided_.incrementAndGet();
+	}
+
+	/**
+	 * Releases the claims of an owner on the article and concept of a module,
+	 * waking any waiting owners.
+	 *
+	 * @param cm
+	 *            The processed module.
+	 * @param owner
+	 *            The owner of the claims.
+	 */
+	public void release(ConceptModule cm, Object owner) {
+		if (!enabled_)
+			return;
+		Collection<Long> owned = ownerClaims_.get(owner);
+		for (long key : keys(cm)) {
+			if (key == -1)
+				continue;
+			release(key, owner);
+			if (owned != null)
+				owned.remove(key);
+		}
+	}
+
+	/**
+	 * Releases the claims of an owner on the article and concept of a module,
+	 * except for those still needed by queued modules (e.g. the module itself,
+	 * if it was requeued for its next step).
+	 *
+	 * @param cm
+	 *            The processed module.
+	 * @param owner
+	 *            The owner of the claims.
+	 * @param queued
+	 *            The modules still queued by the owner.
+	 */
+	public void release(ConceptModule cm, Object owner,
+			Collection<ConceptModule> queued) {
+		if (!enabled_)
+			return;
+		Collection<Long> retained = new HashSet<>();
+		for (ConceptModule other : queued)
+			for (long key : keys(other))
+				retained.add(key);
+		Collection<Long> owned = ownerClaims_.get(owner);
+		for (long key : keys(cm)) {
+			if (key == -1 || retained.contains(key))
+				continue;
+			release(key, owner);
+			if (owned != null)
+				owned.remove(key);
+		}
+	}
+
+	/**
+	 * Releases every claim of an owner, waking any waiting owners.
+	 *
+	 * @param owner
+	 *            The owner to release the claims of.
+	 */
+	public void releaseAll(Object owner) {
+		Collection<Long> owned = ownerClaims_.remove(owner);
+		if (owned == null)
+			return;
+		for (Long key : owned)
+			release(key, owner);
+	}
+
+	@Override
+	public String toString() {
+		return "In-flight: " + claims_.size() + " claimed, "
+				+ duplicatesAvoided_ + " duplicates avoided, " + waits_
+				+ " waits (" + timeouts_ + " timed out)";
+	}
+
+	public static synchronized InFlightRegistry getInstance() {
+		if (instance_ == null)
+			instance_ = new InFlightRegistry();
+		return instance_;
+	}
+
+	/**
+	 * A claim on an article or concept.
+	 */
+	private static class Claim {
+		private Object owner_;
+		private CountDownLatch released_;
+
+		public Claim(Object owner) {
+			owner_ = owner;
+			released_ = new CountDownLatch(1);
+		}
+	}
+}
@@ -4,10 +4,15 @@
 package knowledgeMiner;
 
 import graph.core.CommonConcepts;
+import io.CommandStatistics;
 import io.IOManager;
 import io.ResourceAccess;
+import io.ontology.ConceptDictionary;
+import io.ontology.ConceptTypes;
 import io.ontology.DAGSocket;
 import io.ontology.OntologySocket;
+import io.ontology.TaxonomyReplica;
+import io.ontology.ValidArgOracle;
 import io.resources.WikipediaSocket;
 
 import java.io.BufferedReader;
@@ -30,6 +35,7 @@ import knowledgeMiner.debugInterface.ConceptThreadInterface;
 import knowledgeMiner.debugInterface.MappingChainInterface;
 import knowledgeMiner.mapping.CycMapper;
 import knowledgeMiner.mining.CycMiner;
+import knowledgeMiner.mining.ParseScheduler;
 import knowledgeMiner.mining.wikipedia.FirstSentenceMiner;
 import knowledgeMiner.preprocessing.CycPreprocessor;
 import knowledgeMiner.preprocessing.KnowledgeMinerPreprocessor;
@@ -67,7 +73,7 @@ public class KnowledgeMiner {
 	private static final String RESOURCE_WIKIPEDIA = "Wikipedia";
 	private static final String RESOURCE_ONTOLOGY = "Ontology";
 	private static final int REFINE_EVIDENCE = 100;
-	private static final Pattern XY_SUB_PATTERN = Pattern
+	static final Pattern XY_SUB_PATTERN = Pattern
 			.compile("\\?X/(\\d+),\\?Y/\"(\\d+)\"");
 
 	/** If new concepts are being created. */
@@ -350,6 +356,8 @@ public class KnowledgeMiner {
 		else {
 			ProcessConceptTask<Integer> futureTask = new ProcessConceptTask<Integer>(
 					task, 0);
+			// Prefetch before the task can start modifying its processables
+			ResourcePrefetcher.getInstance().prefetch(task.getProcessables());
 			executor_.execute(futureTask);
 		}
 	}
@@ -374,10 +382,17 @@ public class KnowledgeMiner {
 
 		// Concept Mining Task Times
 		String runTimes = ConceptMiningTask.printRuntimes();
+		String commandStats = CommandStatistics.printStatistics();
+		String parseStats = ParseScheduler.getInstance() + "\n"
+				+ ResourcePrefetcher.getInstance() + "\n"
+				+ InFlightRegistry.getInstance() + "\n"
+				+ ValidArgOracle.getInstance() + "\n"
+				+ TaxonomyReplica.getInstance() + "\n";
 		System.out.println("\n\n\n\n" + builder + "\n" + executor_ + "\n"
-				+ runTimes);
+				+ runTimes + commandStats + parseStats);
 		LoggerFactory.getLogger("STATUS").info(
-				builder.toString() + "\n" + runTimes);
+				builder.toString() + "\n" + runTimes + commandStats
+						+ parseStats);
 		System.out.println("\n\n\n\n");
 		((FSTSerialisationMechanism) SerialisationMechanism.FST.getSerialiser())
 				.reset();
@@ -439,6 +454,19 @@ public class KnowledgeMiner {
 	 */
 	public static OntologyConcept getConceptMapping(int article,
 			OntologySocket ontology) {
+		// Check the index first
+		MappingIndex index = MappingIndex.getInstance();
+		int conceptID = index.getConcept(article);
+		if (conceptID != MappingIndex.NO_MAPPING) {
+			OntologyConcept concept = new OntologyConcept(conceptID);
+			if (concept.getConceptName() != null)
+				return concept;
+			index.removeConcept(conceptID);
+			return null;
+		}
+		if (index.isComplete())
+			return null;
+
 		// Query the ontology and find the mapping (if any)
 		int edgeID = ontology.findEdgeIDByArgs(
 				CycConstants.SYNONYMOUS_EXTERNAL_CONCEPT.getID(), null,
@@ -450,6 +478,7 @@ public class KnowledgeMiner {
 		// Parse the concept out
 		String[] edgeArgs = ontology.findEdgeByID(edgeID);
 		OntologyConcept concept = OntologyConcept.parseArgument(edgeArgs[1]);
+		index.recordMapping(article, concept.getID());
 		return concept;
 	}
 
@@ -464,6 +493,15 @@ public class KnowledgeMiner {
 	 */
 	public static int getArtMapping(OntologyConcept concept,
 			OntologySocket ontology) {
+		// Check the index first
+		MappingIndex index = MappingIndex.getInstance();
+		int conceptID = concept.getID();
+		int article = index.getArticle(conceptID);
+		if (article != MappingIndex.NO_MAPPING)
+			return article;
+		if (index.isComplete() || conceptID <= 0)
+			return -1;
+
 		// Query the ontology and find the mapping (if any)
 		int edgeID = ontology.findEdgeIDByArgs(
 				CycConstants.SYNONYMOUS_EXTERNAL_CONCEPT.getID(),
@@ -475,7 +513,9 @@ public class KnowledgeMiner {
 
 		// Parse the concept out
 		String[] edgeArgs = ontology.findEdgeByID(edgeID);
-		return Integer.parseInt(UtilityMethods.shrinkString(edgeArgs[3], 1));
+		article = Integer.parseInt(UtilityMethods.shrinkString(edgeArgs[3], 1));
+		index.recordMapping(article, conceptID);
+		return article;
 	}
 
 	/**
@@ -506,6 +546,8 @@ public class KnowledgeMiner {
 		int end = -1;
 		String filename = null;
 		boolean mappingCyc = false;
+		boolean loadDictionary = false;
+		File taxonomyDump = null;
 		int runID = -1;
 		for (int i = 0; i < args.length; i++) {
 			if (args[i].equals("preprocess"))
@@ -522,6 +564,20 @@ public class KnowledgeMiner {
 			} else if (args[i].equals("-i")) {
 				i++;
 				runID = Integer.parseInt(args[i]);
+			} else if (args[i].equals("-t")) {
+				i++;
+				CommandStatistics.slowThreshold_ = Long.parseLong(args[i]);
+			} else if (args[i].equals("-D")) {
+				loadDictionary = true;
+			} else if (args[i].equals("-T")) {
+				// The replica resolves edge arguments through the dictionary
+				TaxonomyReplica.enabled_ = true;
+				loadDictionary = true;
+			} else if (args[i].equals("-Tf")) {
+				i++;
+				TaxonomyReplica.enabled_ = true;
+				loadDictionary = true;
+				taxonomyDump = new File(args[i]);
 			} else if (args[i].equals("-m")) {
 				mappingRun_ = true;
 			} else if (args[i].equals("-c")) {
@@ -534,6 +590,16 @@ public class KnowledgeMiner {
 			}
 		}
 
+		if (loadDictionary)
+			ConceptDictionary.getInstance().bulkLoad(km.ontology_);
+		MappingIndex.getInstance().load(km.ontology_);
+		DisjointnessDisambiguator.loadSolvedCases();
+		ConceptTypes.getInstance().load(km.ontology_);
+		if (taxonomyDump != null)
+			TaxonomyReplica.getInstance().load(taxonomyDump);
+		else
+			TaxonomyReplica.getInstance().load(km.ontology_);
+
 		if (preprocess)
 			km.preprocess();
 
@@ -547,6 +613,8 @@ public class KnowledgeMiner {
 		if (mappingCyc)
 			resourceName = RESOURCE_ONTOLOGY;
 		km.mapAllResource(resourceName, start, end, filename);
+		MappingIndex.getInstance().saveSnapshot(km.ontology_);
+		DisjointnessDisambiguator.saveSolvedCases();
 
 		System.exit(0);
 	}
@@ -0,0 +1,296 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package knowledgeMiner;
+
+import gnu.trove.map.hash.TIntIntHashMap;
+import graph.core.CommonConcepts;
+import io.ontology.DAGSocket;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+
+import knowledgeMiner.preprocessing.KnowledgeMinerPreprocessor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cyc.CycConstants;
+
+/**
+ * An in-memory index of the article <-> concept mappings asserted in the
+ * ontology (synonymousExternalConcept edges to the Wikipedia version). Once
+ * loaded, the index is authoritative and mapping lookups need not touch the
+ * ontology at all. Otherwise it only records mappings as they are found or
+ * made.
+ *
+ * @author Sam Sarjant
+ */
+public class MappingIndex {
+	/** The value returned for an unmapped article/concept. */
+	public static final int NO_MAPPING = -1;
+
+	/** The file the index is snapshot to between runs. */
+	public static final File SNAPSHOT_FILE = new File(
+			KnowledgeMinerPreprocessor.DIR_PATH, "mappingIndex.dat");
+
+	private static MappingIndex instance_;
+
+	/** If the index is used at all. */
+	public static boolean enabled_ = true;
+
+	/** The concept ID each article is mapped to. */
+	private TIntIntHashMap articleToConcept_;
+
+	/** The article ID each concept is mapped to. */
+	private TIntIntHashMap conceptToArticle_;
+
+	/** If the index holds every mapping in the ontology. */
+	private volatile boolean complete_;
+
+	private final ReentrantReadWriteLock lock_;
+
+	private Logger logger_ = LoggerFactory.getLogger(MappingIndex.class);
+
+	private MappingIndex() {
+		articleToConcept_ = new TIntIntHashMap(1024, 0.5f, 0, NO_MAPPING);
+		conceptToArticle_ = new TIntIntHashMap(1024, 0.5f, 0, NO_MAPPING);
+		lock_ = new ReentrantReadWriteLock();
+	}
+
+	/**
+	 * Reads the mappings out of the ontology using a single query.
+	 *
+	 * @param ontology
+	 *            The ontology access.
+	 * @return The number of mappings read.
+	 */
+	private int loadFromOntology(DAGSocket ontology) throws Exception {
+		String query = "F (" + CommonConcepts.ASSERTED_SENTENCE.getID() + " ("
+				+ CycConstants.SYNONYMOUS_EXTERNAL_CONCEPT.getID() + " ?X "
+				+ CycConstants.WIKI_VERSION.getID() + " ?Y))";
+		String result = ontology.command("query", query, false);
+		Matcher m = KnowledgeMiner.XY_SUB_PATTERN.matcher(result);
+		int count = 0;
+		while (m.find()) {
+			recordMapping(Integer.parseInt(m.group(2)),
+					Integer.parseInt(m.group(1)));
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Reads a previously written snapshot, if it was written against the
+	 * current state of the ontology.
+	 *
+	 * @param stamp
+	 *            The current ontology stamp (the number of edges).
+	 * @return The number of mappings read, or -1 if the snapshot could not be
+	 *         used.
+	 */
+	private int loadSnapshot(int stamp) {
+		if (stamp < 0 || !SNAPSHOT_FILE.exists())
+			return -1;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(SNAPSHOT_FILE)))) {
+			if (in.readInt() != stamp)
+				return -1;
+			int size = in.readInt();
+			for (int i = 0; i < size; i++) {
+				int concept = in.readInt();
+				recordMapping(in.readInt(), concept);
+			}
+			return size;
+		} catch (IOException e) {
+			logger_.error("Could not read mapping snapshot: {}", e.toString());
+			clear();
+			return -1;
+		}
+	}
+
+	public void clear() {
+		lock_.writeLock().lock();
+		try {
+			articleToConcept_.clear();
+			conceptToArticle_.clear();
+			complete_ = false;
+		} finally {
+			lock_.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the concept an article is mapped to.
+	 *
+	 * @param article
+	 *            The article ID.
+	 * @return The concept ID or {@link #NO_MAPPING}.
+	 */
+	public int getConcept(int article) {
+		lock_.readLock().lock();
+		try {
+			return articleToConcept_.get(article);
+		} finally {
+			lock_.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the article a concept is mapped to.
+	 *
+	 * @param concept
+	 *            The concept ID.
+	 * @return The article ID or {@link #NO_MAPPING}.
+	 */
+	public int getArticle(int concept) {
+		lock_.readLock().lock();
+		try {
+			return conceptToArticle_.get(concept);
+		} finally {
+			lock_.readLock().unlock();
+		}
+	}
+
+	/**
+	 * If the index holds every mapping, such that a missing mapping means
+	 * there is no mapping.
+	 *
+	 * @return True if the index is complete.
+	 */
+	public boolean isComplete() {
+		return enabled_ && complete_;
+	}
+
+	/**
+	 * Loads the index, using the snapshot if it is current and otherwise the
+	 * ontology.
+	 *
+	 * @param ontology
+	 *            The ontology access.
+	 */
+	public void load(DAGSocket ontology) {
+		if (!enabled_)
+			return;
+		long start = System.currentTimeMillis();
+		clear();
+		int count = loadSnapshot(ontology.getNumEdges());
+		String source = "snapshot";
+		if (count < 0) {
+			clear();
+			source = "ontology";
+			try {
+				count = loadFromOntology(ontology);
+			} catch (Exception e) {
+				e.printStackTrace();
+				clear();
+				return;
+			}
+		}
+		complete_ = true;
+		logger_.info("Loaded {} mappings from {} in {}ms", count, source,
+				System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Records a mapping between an article and a concept. A concept has only
+	 * a single mapped article and vice versa, so any previous article for the
+	 * concept and any previous concept for the article are released.
+	 *
+	 * @param article
+	 *            The article ID.
+	 * @param concept
+	 *            The concept ID.
+	 */
+	public void recordMapping(int article, int concept) {
+		if (!enabled_ || article < 0 || concept <= 0)
+			return;
+		lock_.writeLock().lock();
+		try {
+			int oldArticle = conceptToArticle_.put(concept, article);
+			if (oldArticle != NO_MAPPING && oldArticle != article
+					&& articleToConcept_.get(oldArticle) == concept)
+				articleToConcept_.remove(oldArticle);
+			int oldConcept = articleToConcept_.put(article, concept);
+			if (oldConcept != NO_MAPPING && oldConcept != concept
+					&& conceptToArticle_.get(oldConcept) == article)
+				conceptToArticle_.remove(oldConcept);
+		} finally {
+			lock_.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes any mapping involving a concept (i.e. the concept no longer
+	 * exists).
+	 *
+	 * @param concept
+	 *            The concept ID.
+	 */
+	public void removeConcept(int concept) {
+		lock_.writeLock().lock();
+		try {
+			int article = conceptToArticle_.remove(concept);
+			if (article != NO_MAPPING
+					&& articleToConcept_.get(article) == concept)
+				articleToConcept_.remove(article);
+		} finally {
+			lock_.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Writes the index to the snapshot file, stamped with the number of edges
+	 * in the ontology so stale snapshots are ignored.
+	 *
+	 * @param ontology
+	 *            The ontology access.
+	 */
+	public void saveSnapshot(DAGSocket ontology) {
+		if (!enabled_ || !complete_)
+			return;
+		int stamp = ontology.getNumEdges();
+		if (stamp < 0)
+			return;
+		SNAPSHOT_FILE.getParentFile().mkdirs();
+		lock_.readLock().lock();
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(SNAPSHOT_FILE)))) {
+			out.writeInt(stamp);
+			int[] concepts = conceptToArticle_.keys();
+			out.writeInt(concepts.length);
+			for (int concept : concepts) {
+				out.writeInt(concept);
+				out.writeInt(conceptToArticle_.get(concept));
+			}
+		} catch (IOException e) {
+			logger_.error("Could not write mapping snapshot: {}", e.toString());
+			SNAPSHOT_FILE.delete();
+		} finally {
+			lock_.readLock().unlock();
+		}
+	}
+
+	public int size() {
+		lock_.readLock().lock();
+		try {
+			return conceptToArticle_.size();
+		} finally {
+			lock_.readLock().unlock();
+		}
+	}
+
+	public static synchronized MappingIndex getInstance() {
+		if (instance_ == null)
+			instance_ = new MappingIndex();
+		return instance_;
+	}
+}
@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package knowledgeMiner;
+
+import io.KMAccess;
+import io.ResourceAccess;
+import io.resources.WikipediaSocket;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Speculatively fetches the Wikipedia resources of queued concept modules
+ * (titles, page types, markup and the information parsed from it, labels and
+ * categories) so that fetching overlaps with the processing of earlier
+ * modules. Titles and page types are fetched in a single batch per queued
+ * group; the per-article resources are fetched by a small pool of prefetch
+ * threads. Prefetched results are held by the access point for a limited
+ * time (see {@link KMAccess#cacheCommand(String, String, Object)}).
+ *
+ * @author Sam Sarjant
+ */
+public class ResourcePrefetcher {
+	private static ResourcePrefetcher instance_;
+
+	/** If resources are prefetched at all. */
+	public static boolean enabled_ = true;
+
+	/**
+	 * The maximum number of queued prefetches. Beyond this, prefetches would
+	 * likely expire before they were used, so are not queued. Larger groups
+	 * are clamped to the space remaining.
+	 */
+	public static int maxQueued_ = 200;
+
+	/** The number of prefetch threads. */
+	public static int numThreads_ = 2;
+
+	/** The number of article prefetches cancelled before running. */
+	private AtomicInteger cancelled_;
+
+	/** The number of article prefetches completed. */
+	private AtomicInteger completed_;
+
+	private ThreadPoolExecutor executor_;
+
+	private Logger logger_ = LoggerFactory.getLogger(ResourcePrefetcher.class);
+
+	/** The queued or running prefetch of each article. */
+	private ConcurrentHashMap<Integer, Future<?>> pending_;
+
+	/** The number of article prefetches not queued due to a full queue. */
+	private AtomicInteger rejected_;
+
+	/** The number of article prefetches requested. */
+	private AtomicInteger requested_;
+
+	private ResourcePrefetcher() {
+		cancelled_ = new AtomicInteger();
+		completed_ = new AtomicInteger();
+		rejected_ = new AtomicInteger();
+		requested_ = new AtomicInteger();
+		pending_ = new ConcurrentHashMap<>();
+		executor_ = new ThreadPoolExecutor(numThreads_, numThreads_, 0L,
+				TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					private int count_ = 0;
+
+					@Override
+					public synchronized Thread newThread(final Runnable r) {
+						Thread thread = new Thread(new Runnable() {
+							@Override
+							public void run() {
+								KMAccess.setPrefetchThread(true);
+								r.run();
+							}
+						}, "ResourcePrefetcher-" + count_++);
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+	}
+
+	/**
+	 * Fetches the per-article resources of an article.
+	 *
+	 * @param article
+	 *            The article to fetch resources for.
+	 */
+	private void fetchArticle(int article) {
+		try {
+			WikipediaSocket wmi = ResourceAccess.requestWikipediaSocket();
+			if (wmi == null)
+				return;
+			// Markup, and the first sentence, paragraph and infobox parsed
+			// from it
+			wmi.getInfoboxData(article);
+			wmi.getLabels(article);
+			wmi.getArticleCategories(article);
+			completed_.incrementAndGet();
+		} catch (IOException e) {
+			logger_.debug("Could not prefetch article {}: {}", article,
+					e.toString());
+		} finally {
+			pending_.remove(article);
+		}
+	}
+
+	/**
+	 * Fetches the titles and page types of a group of articles in one batch.
+	 *
+	 * @param articles
+	 *            The articles to fetch titles and types for.
+	 */
+	private void fetchTitles(Integer[] articles) {
+		try {
+			WikipediaSocket wmi = ResourceAccess.requestWikipediaSocket();
+			if (wmi == null)
+				return;
+			// The page details hold the titles and page type
+			wmi.getArtTitle(true, articles);
+		} catch (IOException e) {
+			logger_.debug("Could not prefetch titles: {}", e.toString());
+		}
+	}
+
+	/**
+	 * Cancels the prefetch of an article (if it has not started). A running
+	 * prefetch is allowed to complete, as interrupting it could leave the
+	 * socket mid-response.
+	 *
+	 * @param article
+	 *            The article that will not be processed.
+	 */
+	public void cancel(int article) {
+		Future<?> future = pending_.remove(article);
+		if (future != null && future.cancel(false))
+			cancelled_.incrementAndGet();
+	}
+
+	/**
+	 * Queues the prefetch of the resources of the articles of some concept
+	 * modules. Articles already being prefetched are skipped, and only as many
+	 * articles as fit in the queue are prefetched (earliest first).
+	 *
+	 * @param modules
+	 *            The queued concept modules.
+	 */
+	public void prefetch(Collection<ConceptModule> modules) {
+		if (!enabled_ || modules.isEmpty())
+			return;
+		List<Integer> articles = new ArrayList<>(modules.size());
+		for (ConceptModule cm : modules) {
+			int article = cm.getArticle();
+			if (article != -1 && !pending_.containsKey(article))
+				articles.add(article);
+		}
+		if (articles.isEmpty())
+			return;
+		requested_.addAndGet(articles.size());
+		// Leave room for the titles batch
+		int room = maxQueued_ - executor_.getQueue().size() - 1;
+		if (articles.size() > room) {
+			rejected_.addAndGet(articles.size() - Math.max(room, 0));
+			if (room <= 0)
+				return;
+			articles = articles.subList(0, room);
+		}
+
+		final Integer[] titleArticles = articles.toArray(new Integer[articles
+				.size()]);
+		executor_.execute(new Runnable() {
+			@Override
+			public void run() {
+				fetchTitles(titleArticles);
+			}
+		});
+		for (final Integer article : articles) {
+			FutureTask<Object> task = new FutureTask<>(new Runnable() {
+				@Override
+				public void run() {
+					fetchArticle(article);
+				}
+			}, null);
+			if (pending_.putIfAbsent(article, task) == null)
+				executor_.execute(task);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Prefetch: " + requested_ + " requested, " + completed_
+				+ " completed, " + cancelled_ + " cancelled, " + rejected_
+				+ " rejected, " + pending_.size() + " pending";
+	}
+
+	public static synchronized ResourcePrefetcher getInstance() {
+		if (instance_ == null)
+			instance_ = new ResourcePrefetcher();
+		return instance_;
+	}
+}
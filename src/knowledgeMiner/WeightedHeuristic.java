@@ -5,6 +5,7 @@ package knowledgeMiner;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
 
 import knowledgeMiner.mapping.CycMapper;
 
@@ -43,12 +44,12 @@ public abstract class WeightedHeuristic implements Heuristic, Weighted {
 	/** If this heuristic should be precomputed. */
 	protected final boolean usingPrecomputed_;
 
-	/** The weight of the heuristic. */
-	protected double weight_;
+	/** The weight of the heuristic (as double bits). */
+	private final AtomicLong weight_;
 
 	public WeightedHeuristic(boolean usePrecomputed, CycMapper mapper) {
 		usingPrecomputed_ = usePrecomputed;
-		weight_ = INITIAL_WEIGHT;
+		weight_ = new AtomicLong(Double.doubleToLongBits(INITIAL_WEIGHT));
 		mapper_ = mapper;
 		alpha_ = DEFAULT_ALPHA;
 
@@ -99,7 +100,7 @@ public abstract class WeightedHeuristic implements Heuristic, Weighted {
 
 	@Override
 	public final double getWeight() {
-		return weight_;
+		return Double.longBitsToDouble(weight_.get());
 	}
 
 	@Override
@@ -133,7 +134,7 @@ public abstract class WeightedHeuristic implements Heuristic, Weighted {
 
 	@Override
 	public final void setWeight(double weight) {
-		weight_ = weight;
+		weight_.set(Double.doubleToLongBits(weight));
 	}
 
 	@Override
@@ -148,7 +149,13 @@ public abstract class WeightedHeuristic implements Heuristic, Weighted {
 	 *            The update value.
 	 */
 	public void updateWeight(double updateValue) {
-		weight_ = updateWeight(weight_, updateValue, alpha_);
+		long current;
+		long updated;
+		do {
+			current = weight_.get();
+			updated = Double.doubleToLongBits(updateWeight(
+					Double.longBitsToDouble(current), updateValue, alpha_));
+		} while (!weight_.compareAndSet(current, updated));
 	}
 
 	public static String generateHeuristicName(Class<? extends Object> clazz) {
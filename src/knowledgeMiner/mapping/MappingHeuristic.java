@@ -70,7 +70,7 @@ public abstract class MappingHeuristic<Source, Target> extends
 							.getWeight(mappedTarget.getOrdered().first()) > 1) {
 				mappedTarget
 						.normaliseWeightTo1(KnowledgeMiner.CUTOFF_THRESHOLD);
-				mappedTarget.scaleAll(weight_);
+				mappedTarget.scaleAll(getWeight());
 			}
 			return mappedTarget;
 		} catch (Exception e) {
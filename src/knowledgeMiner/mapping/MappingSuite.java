@@ -11,6 +11,7 @@ import java.util.Collection;
 import java.util.List;
 
 import knowledgeMiner.KnowledgeMiner;
+import util.IntWeightedSet;
 import util.collection.HierarchicalWeightedSet;
 import util.collection.WeightedSet;
 
@@ -240,4 +241,27 @@ public class MappingSuite<Source, Target> {
 	public ArrayList<MappingHeuristic<Source, Target>> getHeuristics() {
 		return mappingHeuristics_;
 	}
+
+	/**
+	 * Aggregates a primitive set of (article) mappings into another, using the
+	 * same aggregation as a suite does for its heuristics' results.
+	 * 
+	 * @param mappings
+	 *            The mappings to aggregate into.
+	 * @param result
+	 *            The result to aggregate (may be null).
+	 * @param weight
+	 *            The weight of the result (only used for ADDITIVE).
+	 * @param aggregationType
+	 *            ADDITIVE or MAXIMUM.
+	 */
+	public static void aggregate(IntWeightedSet mappings,
+			IntWeightedSet result, double weight, int aggregationType) {
+		if (result == null || result.isEmpty())
+			return;
+		if (aggregationType == ADDITIVE)
+			mappings.addAll(result, weight);
+		else if (aggregationType == MAXIMUM)
+			mappings.maxAll(result);
+	}
 }
@@ -6,11 +6,12 @@ package knowledgeMiner.mapping.cycToWiki;
 import io.ontology.OntologySocket;
 import io.resources.WikipediaSocket;
 
+import java.io.IOException;
 import java.util.regex.Matcher;
 
 import knowledgeMiner.mapping.MappingPostProcessor;
-import util.collection.MultiMap;
 import util.collection.WeightedSet;
+import util.wikipedia.BulletHandler;
 import util.wikipedia.BulletListParser;
 import util.wikipedia.WikiParser;
 
@@ -24,12 +25,12 @@ public class CycToWikiDisambiguationPostProcessor extends
 		MappingPostProcessor<Integer> {
 	@Override
 	public WeightedSet<Integer> process(WeightedSet<Integer> collection,
-			WikipediaSocket wmi, OntologySocket cyc) {
+			final WikipediaSocket wmi, OntologySocket cyc) {
 		if (collection.isEmpty())
 			return collection;
 
 		// Explode the disambiguation page (via bullet points)
-		WeightedSet<Integer> newSet = new WeightedSet<>();
+		final WeightedSet<Integer> newSet = new WeightedSet<>();
 		try {
 			Integer[] pages = collection
 					.toArray(new Integer[collection.size()]);
@@ -39,26 +40,32 @@ public class CycToWikiDisambiguationPostProcessor extends
 				if (pageType == null)
 					continue;
 				int artID = pages[index];
-				double weight = collection.getWeight(artID);
+				final double weight = collection.getWeight(artID);
 				// If a disambiguation article
 				if (pageType.equals(WikipediaSocket.TYPE_DISAMBIGUATION)) {
-					// Use first links in bullet points.
-					MultiMap<String, String> bullets = BulletListParser
-							.parseBulletList(wmi.getMarkup(artID));
-					// Parse every bullet point.
-					for (String bullet : bullets.values()) {
-						Matcher m = WikiParser.ANCHOR_PARSER.matcher(bullet);
-						if (m.find()) {
-							int disamArt = wmi.getArticleByTitle(m.group(1));
-							if (disamArt == -1)
-								continue;
-							double thisWeight = weight;
-							if (newSet.contains(disamArt))
-								thisWeight = Math.max(
-										newSet.getWeight(disamArt), thisWeight);
-							newSet.set(disamArt, thisWeight);
-						}
-					}
+					// Use first links in bullet points, parsing every point.
+					BulletListParser.parseBulletList(wmi.getMarkup(artID),
+							new BulletHandler() {
+								@Override
+								public boolean point(String contextTitle,
+										String bullet) throws IOException {
+									Matcher m = WikiParser.ANCHOR_PARSER
+											.matcher(bullet);
+									if (m.find()) {
+										int disamArt = wmi.getArticleByTitle(m
+												.group(1));
+										if (disamArt == -1)
+											return true;
+										double thisWeight = weight;
+										if (newSet.contains(disamArt))
+											thisWeight = Math.max(newSet
+													.getWeight(disamArt),
+													thisWeight);
+										newSet.set(disamArt, thisWeight);
+									}
+									return true;
+								}
+							});
 				} else {
 					// Otherwise, just keep the article
 					double thisWeight = weight;
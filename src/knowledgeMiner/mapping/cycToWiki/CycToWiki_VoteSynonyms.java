@@ -10,14 +10,15 @@ import io.resources.WikipediaSocket;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.List;
 
 import knowledgeMiner.KnowledgeMiner;
 import knowledgeMiner.mapping.CycMapper;
 import knowledgeMiner.mapping.MappingHeuristic;
+import knowledgeMiner.mapping.MappingSuite;
 
 import org.slf4j.LoggerFactory;
 
+import util.IntWeightedSet;
 import util.UtilityMethods;
 import util.collection.WeightedSet;
 import cyc.OntologyConcept;
@@ -52,7 +53,6 @@ public class CycToWiki_VoteSynonyms extends
 	@Override
 	protected WeightedSet<Integer> mapSourceInternal(OntologyConcept cycTerm,
 			WikipediaSocket wmi, OntologySocket cyc) throws IOException {
-		WeightedSet<Integer> mappings = new WeightedSet<>();
 		// Compile the synonyms
 		Collection<String> synonyms = new HashSet<>(cyc.getSynonyms(cycTerm
 				.getIdentifier()));
@@ -76,10 +76,13 @@ public class CycToWiki_VoteSynonyms extends
 
 		String[] synonymArray = synonyms.toArray(new String[synonyms.size()]);
 
-		List<WeightedSet<Integer>> synonymMappings = wmi
-				.getWeightedArticles(synonymArray);
-		for (WeightedSet<Integer> synonymMapping : synonymMappings)
-			mappings.addAll(synonymMapping);
+		// Sum the votes without boxing
+		IntWeightedSet votes = new IntWeightedSet();
+		for (IntWeightedSet synonymMapping : wmi
+				.getWeightedArticles(synonymArray))
+			MappingSuite.aggregate(votes, synonymMapping, 1,
+					MappingSuite.ADDITIVE);
+		WeightedSet<Integer> mappings = votes.toWeightedSet();
 		mappings.normaliseWeightTo1(KnowledgeMiner.CUTOFF_THRESHOLD);
 
 		// Check the mappings for the most frequently occurring term.
@@ -10,6 +10,7 @@ import java.util.regex.Matcher;
 
 import knowledgeMiner.mapping.CycMapper;
 import knowledgeMiner.mapping.MappingHeuristic;
+import knowledgeMiner.mining.wikipedia.AnchorResolver;
 import knowledgeMiner.mining.wikipedia.WikipediaMappedConcept;
 
 import org.slf4j.LoggerFactory;
@@ -46,7 +47,10 @@ public class TextToCyc_AnchorMap extends
 			String anchorText = m.group(1);
 			// Replace newlines
 			anchorText = anchorText.replaceAll(" ?\\n ?", " ");
-			int articleID = wmi.getArticleByTitle(anchorText);
+			// Use the sentence's batch-resolved anchors, if any
+			AnchorResolver resolver = AnchorResolver.getSentenceResolver();
+			int articleID = (resolver != null) ? resolver.getArticle(
+					anchorText, wmi) : wmi.getArticleByTitle(anchorText);
 			if (articleID != -1) {
 				WikipediaMappedConcept wikiMapped = new WikipediaMappedConcept(
 						articleID);
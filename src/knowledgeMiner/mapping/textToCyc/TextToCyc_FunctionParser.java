@@ -135,14 +135,22 @@ public class TextToCyc_FunctionParser extends
 			HierarchicalWeightedSet<OntologyConcept> functionTarget,
 			OntologySocket ontology) {
 		HierarchicalWeightedSet<OntologyConcept> results = new HierarchicalWeightedSet<>();
+		OntologyConcept[] args = new OntologyConcept[functionTarget.size()];
+		String[] argIdentifiers = new String[args.length];
+		int a = 0;
+		for (OntologyConcept arg : functionTarget) {
+			args[a] = arg;
+			argIdentifiers[a++] = arg.getIdentifier();
+		}
 		for (OntologyConcept func : functionConcepts) {
 			// Combine the two and accept ontology's arg checking
-			for (OntologyConcept arg : functionTarget) {
-				if (ontology.isValidArg(func.getIdentifier(),
-						arg.getIdentifier(), 1)) {
+			boolean[] valid = ontology.isValidArgs(func.getIdentifier(),
+					argIdentifiers, 1);
+			for (a = 0; a < args.length; a++) {
+				if (valid[a]) {
 					OntologyConcept combined = new OntologyConcept(
-							func.getIdentifier(), arg.getIdentifier());
-					results.add(combined, functionTarget.getWeight(arg));
+							func.getIdentifier(), argIdentifiers[a]);
+					results.add(combined, functionTarget.getWeight(args[a]));
 				}
 			}
 			// If lower, recurse in
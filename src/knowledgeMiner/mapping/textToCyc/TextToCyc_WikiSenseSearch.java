@@ -18,6 +18,7 @@ import knowledgeMiner.mining.wikipedia.WikipediaMappedConcept;
 
 import org.slf4j.LoggerFactory;
 
+import util.IntWeightedSet;
 import util.collection.WeightedSet;
 import util.wikipedia.WikiParser;
 import cyc.OntologyConcept;
@@ -40,9 +41,9 @@ public class TextToCyc_WikiSenseSearch extends
 		term = WikiParser.cleanAllMarkup(term);
 		term = term.replaceAll(" ?\\n ?", " ").trim();
 		LoggerFactory.getLogger(getClass()).trace(term);
-		WeightedSet<Integer> arts = wmi.getWeightedArticles(term);
+		IntWeightedSet arts = wmi.getWeightedArticles(term);
 		WeightedSet<OntologyConcept> concepts = new WeightedSet<>();
-		for (Integer art : arts) {
+		for (int art : arts.keys()) {
 			WikipediaMappedConcept wikiMapped = new WikipediaMappedConcept(art);
 			concepts.addAll(wikiMapped.mapThing(mapper_, wmi, ontology));
 		}
@@ -18,6 +18,7 @@ import java.util.Collection;
 import knowledgeMiner.ConceptModule;
 import knowledgeMiner.KnowledgeMiner;
 import knowledgeMiner.mapping.CycMapper;
+import knowledgeMiner.mining.wikipedia.AnchorResolver;
 import knowledgeMiner.mining.wikipedia.InfoboxClusterer;
 import knowledgeMiner.mining.wikipedia.WikipediaMappedConcept;
 
@@ -136,6 +137,8 @@ public class CycMiner {
 	public void mineSentence(String sentence, boolean wikifyText,
 			MinedInformation info, MiningHeuristic heuristic, OntologySocket cyc, WikipediaSocket wmi) {
 		logger_.trace("mineSentence: " + info.getArticle());
+		// Resolve the anchors together before they are mapped individually
+		AnchorResolver.beginSentence(sentence, wmi);
 		try {
 			WikipediaMappedConcept focusConcept = new WikipediaMappedConcept(
 					info.getArticle());
@@ -146,6 +149,8 @@ public class CycMiner {
 				info.addAssertion(assertion);
 		} catch (Exception e) {
 			e.printStackTrace();
+		} finally {
+			AnchorResolver.endSentence();
 		}
 	}
 
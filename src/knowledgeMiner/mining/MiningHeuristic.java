@@ -6,6 +6,7 @@ package knowledgeMiner.mining;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import io.ontology.OntologySocket;
 import io.resources.WikipediaSocket;
@@ -25,12 +26,20 @@ import cyc.AssertionArgument;
  * @author Sam Sarjant
  */
 public abstract class MiningHeuristic extends WeightedHeuristic {
+	/** The number of locks articles are striped over when loading info. */
+	private static final int NUM_INFO_LOCKS = 64;
 
 	/** The information this heuristic produces. */
 	private final int informationProduced_;
 
-	/** The weights of each infoType held by this heuristic. */
-	private final double[] infoTypeWeights_;
+	/**
+	 * The weights of each infoType held by this heuristic (as double bits, so
+	 * they can be updated atomically).
+	 */
+	private final AtomicLongArray infoTypeWeights_;
+
+	/** The locks for loading the info of articles, striped by article. */
+	private final Object[] infoLocks_;
 
 	protected final HeuristicProvenance basicProvenance_;
 
@@ -53,17 +62,20 @@ public abstract class MiningHeuristic extends WeightedHeuristic {
 		basicProvenance_ = new HeuristicProvenance(this, null);
 
 		boolean[] infoTypes = new boolean[InformationType.values().length];
-		infoTypeWeights_ = new double[infoTypes.length];
+		infoTypeWeights_ = new AtomicLongArray(infoTypes.length);
 		setInformationTypes(infoTypes);
 		int bitwise = 0;
 		for (int i = 0; i < infoTypes.length; i++) {
 			if (infoTypes[i]) {
 				bitwise += 1 << i;
-				infoTypeWeights_[i] = INITIAL_WEIGHT;
+				infoTypeWeights_.set(i, Double.doubleToLongBits(INITIAL_WEIGHT));
 			}
 		}
 
 		informationProduced_ = bitwise;
+		infoLocks_ = new Object[NUM_INFO_LOCKS];
+		for (int i = 0; i < NUM_INFO_LOCKS; i++)
+			infoLocks_[i] = new Object();
 	}
 
 	/**
@@ -148,23 +160,28 @@ public abstract class MiningHeuristic extends WeightedHeuristic {
 //		info.getStanding()
 	}
 
-	protected synchronized MinedInformation getInfo(int article) {
-		// Load up the information, if it exists
-		MinedInformation info = null;
-		try {
-			info = (MinedInformation) KnowledgeMinerPreprocessor.getInstance()
-					.getLoadHeuristicResult(getHeuristicName(), article);
-		} catch (Exception e) {
-			System.err.println("Error while deserialising " + article);
-			e.printStackTrace();
-		}
-		if (info == null) {
-			info = new MinedInformation(article);
-			KnowledgeMinerPreprocessor.getInstance().recordData(
-					getHeuristicName(), article, info);
-		}
+	protected MinedInformation getInfo(int article) {
+		// Only loads of the same article (stripe) wait on each other
+		synchronized (infoLocks_[(article & Integer.MAX_VALUE)
+				% NUM_INFO_LOCKS]) {
+			// Load up the information, if it exists
+			MinedInformation info = null;
+			try {
+				info = (MinedInformation) KnowledgeMinerPreprocessor
+						.getInstance().getLoadHeuristicResult(
+								getHeuristicName(), article);
+			} catch (Exception e) {
+				System.err.println("Error while deserialising " + article);
+				e.printStackTrace();
+			}
+			if (info == null) {
+				info = new MinedInformation(article);
+				KnowledgeMinerPreprocessor.getInstance().recordData(
+						getHeuristicName(), article, info);
+			}
 
-		return info;
+			return info;
+		}
 	}
 
 	/**
@@ -256,7 +273,8 @@ public abstract class MiningHeuristic extends WeightedHeuristic {
 	 * @return The weight of this heuristic's specific information type.
 	 */
 	public final double getInfoTypeWeight(InformationType type) {
-		return weight_ * infoTypeWeights_[type.ordinal()];
+		return getWeight()
+				* Double.longBitsToDouble(infoTypeWeights_.get(type.ordinal()));
 	}
 
 	/**
@@ -371,9 +389,15 @@ public abstract class MiningHeuristic extends WeightedHeuristic {
 			WikipediaSocket wmi) {
 		// Perform online weight updating.
 		if (KnowledgeMiner.onlineWeightUpdating_) {
-			infoTypeWeights_[infoType.ordinal()] = WeightedHeuristic
-					.updateWeight(infoTypeWeights_[infoType.ordinal()], weight,
-							DEFAULT_ALPHA);
+			int index = infoType.ordinal();
+			long current;
+			long updated;
+			do {
+				current = infoTypeWeights_.get(index);
+				updated = Double.doubleToLongBits(WeightedHeuristic
+						.updateWeight(Double.longBitsToDouble(current), weight,
+								DEFAULT_ALPHA));
+			} while (!infoTypeWeights_.compareAndSet(index, current, updated));
 			updateWeight(weight);
 		}
 	}
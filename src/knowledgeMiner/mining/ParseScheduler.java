@@ -0,0 +1,327 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package knowledgeMiner.mining;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import knowledgeMiner.KnowledgeMiner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import util.text.OpenNLP;
+import util.text.StanfordNLP;
+
+/**
+ * Runs sentence parses within a wall-clock budget. The budget of a sentence
+ * is estimated from its token count (parsing is cubic in sentence length),
+ * with the cost per token adapting to the observed parse times. A parse that
+ * exceeds its budget is cancelled (by interrupting it, which the Stanford
+ * parser checks for) and the sentence falls back to the cheaper OpenNLP
+ * chunking parser and finally to a shallow chunk parse. The OpenNLP parser
+ * cannot be interrupted, so an abandoned OpenNLP parse runs on holding the
+ * parser; later OpenNLP parses only wait for it within their own budget, and
+ * the parse threads are bounded.
+ *
+ * @author Sam Sarjant
+ */
+public class ParseScheduler {
+	/** The initial estimated cost (ms) per cubed token. */
+	private static final double INITIAL_COST = 0.001;
+
+	/** The minimum token count used to adapt the cost estimate. */
+	private static final int MIN_ADAPT_TOKENS = 5;
+
+	/** The weight of each new observation in the cost estimate. */
+	private static final double ADAPT_RATE = 0.1;
+
+	/** The number of overruns between metric reports. */
+	private static final int REPORT_INTERVAL = 100;
+
+	private static ParseScheduler instance_;
+
+	/** The multiple of the estimated cost a sentence is given. */
+	public static double budgetMultiplier_ = 4;
+
+	/** If parses are run within a budget at all. */
+	public static boolean enabled_ = true;
+
+	/** The budget (ms) for the fallback parser. */
+	public static long fallbackBudget_ = 2000;
+
+	/** The maximum budget (ms) of a sentence. */
+	public static long maxBudget_ = 15000;
+
+	/** The minimum budget (ms) of a sentence. */
+	public static long minBudget_ = 2000;
+
+	/** The number of sentences that fell back to the chunk parse. */
+	private AtomicInteger chunkFallbacks_;
+
+	/** The estimated cost (ms) per cubed token. */
+	private volatile double costPerToken_;
+
+	private ExecutorService executor_;
+
+	private Logger logger_ = LoggerFactory.getLogger(ParseScheduler.class);
+
+	/** The longest primary parse (ms). */
+	private AtomicLong maxParseTime_;
+
+	/** The number of sentences that exceeded their budget. */
+	private AtomicInteger overruns_;
+
+	/** The number of sentences that fell back to the fallback parser. */
+	private AtomicInteger parserFallbacks_;
+
+	/** The number of completed primary parses. */
+	private AtomicInteger parses_;
+
+	/** The total time (ms) of the completed primary parses. */
+	private AtomicLong parseTime_;
+
+	/** The number of sentences too long for the primary parser. */
+	private AtomicInteger tooLong_;
+
+	private ParseScheduler() {
+		costPerToken_ = INITIAL_COST;
+		chunkFallbacks_ = new AtomicInteger();
+		maxParseTime_ = new AtomicLong();
+		overruns_ = new AtomicInteger();
+		parserFallbacks_ = new AtomicInteger();
+		parses_ = new AtomicInteger();
+		parseTime_ = new AtomicLong();
+		tooLong_ = new AtomicInteger();
+		// One thread per mining thread, plus one for an abandoned parse
+		int threads = KnowledgeMiner.getNumThreads() + 1;
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+				60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					private int count_ = 0;
+
+					@Override
+					public synchronized Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "ParseScheduler-"
+								+ count_++);
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		executor.allowCoreThreadTimeOut(true);
+		executor_ = executor;
+	}
+
+	/**
+	 * Adapts the cost estimate to an observed parse.
+	 *
+	 * @param tokens
+	 *            The number of tokens parsed.
+	 * @param time
+	 *            The time (ms) the parse took.
+	 */
+	private void observe(int tokens, long time) {
+		parses_.incrementAndGet();
+		parseTime_.addAndGet(time);
+		long max = maxParseTime_.get();
+		while (time > max && !maxParseTime_.compareAndSet(max, time))
+			max = maxParseTime_.get();
+		if (tokens >= MIN_ADAPT_TOKENS)
+			costPerToken_ = (1 - ADAPT_RATE) * costPerToken_ + ADAPT_RATE
+					* time / Math.pow(tokens, 3);
+	}
+
+	/**
+	 * Notes a budget overrun, reporting the metrics periodically.
+	 */
+	private void recordOverrun(String sentence, long budget) {
+		int overruns = overruns_.incrementAndGet();
+		logger_.debug("Parse exceeded {}ms budget: {}", budget, sentence);
+		if (overruns % REPORT_INTERVAL == 0)
+			logger_.info(toString());
+	}
+
+	/**
+	 * Gets the budget of a sentence, from the estimated cost of parsing it.
+	 *
+	 * @param tokens
+	 *            The number of tokens in the sentence.
+	 * @return The budget (ms).
+	 */
+	public long getBudget(int tokens) {
+		long budget = (long) (budgetMultiplier_ * estimateCost(tokens));
+		return Math.min(maxBudget_, Math.max(minBudget_, budget));
+	}
+
+	/**
+	 * Estimates the time taken to parse a sentence.
+	 *
+	 * @param tokens
+	 *            The number of tokens in the sentence.
+	 * @return The estimated time (ms).
+	 */
+	public double estimateCost(int tokens) {
+		return costPerToken_ * Math.pow(tokens, 3);
+	}
+
+	/**
+	 * Parses a sentence with the fallback parsers: the OpenNLP chunking
+	 * parser (if not already the primary parser), then a shallow chunk parse.
+	 *
+	 * @param sentence
+	 *            The sentence to parse.
+	 * @return The fallback parse.
+	 */
+	public Object fallbackParse(final String sentence) {
+		if (SentenceParserHeuristic.parser_ != SentenceParserHeuristic.OPEN_NLP) {
+			Object parse = runWithinBudget(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					// Only wait for the parser within the budget
+					return OpenNLP.parseLine(sentence, fallbackBudget_);
+				}
+			}, fallbackBudget_);
+			if (parse != null) {
+				parserFallbacks_.incrementAndGet();
+				return parse;
+			}
+		}
+		chunkFallbacks_.incrementAndGet();
+		return OpenNLP.chunkLine(sentence);
+	}
+
+	/**
+	 * Parses a sentence with the primary parser, within the remaining budget
+	 * of the sentence.
+	 *
+	 * @param sentence
+	 *            The sentence to parse.
+	 * @param deadline
+	 *            The time by which the sentence must be parsed.
+	 * @return The parse, or null if the primary parser could not parse the
+	 *         sentence in time (and the fallback parsers should be used).
+	 */
+	public Object parse(final String sentence, long deadline) {
+		final int tokens = countTokens(sentence);
+		if (SentenceParserHeuristic.parser_ == SentenceParserHeuristic.STANFORD_NLP
+				&& tokens > StanfordNLP.MAX_LENGTH) {
+			tooLong_.incrementAndGet();
+			return null;
+		}
+
+		if (!enabled_) {
+			if (SentenceParserHeuristic.parser_ == SentenceParserHeuristic.STANFORD_NLP)
+				return StanfordNLP.getInstance().apply(sentence);
+			return OpenNLP.parseLine(sentence);
+		}
+
+		final long budget = deadline - System.currentTimeMillis();
+		Callable<Object> task = new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				long start = System.currentTimeMillis();
+				Object parse = (SentenceParserHeuristic.parser_ == SentenceParserHeuristic.STANFORD_NLP) ? StanfordNLP
+						.getInstance().apply(sentence) : OpenNLP.parseLine(
+						sentence, budget);
+				if (parse != null)
+					observe(tokens, System.currentTimeMillis() - start);
+				return parse;
+			}
+		};
+		Object parse = (budget > 0) ? runWithinBudget(task, budget) : null;
+		if (parse == null)
+			recordOverrun(sentence, budget);
+		return parse;
+	}
+
+	/**
+	 * Runs a task, cancelling it if it exceeds its budget.
+	 *
+	 * @param task
+	 *            The task to run.
+	 * @param budget
+	 *            The time (ms) the task has.
+	 * @return The result of the task, or null if it did not complete in time.
+	 */
+	public <T> T runWithinBudget(Callable<T> task, long budget) {
+		Future<T> future = executor_.submit(task);
+		try {
+			return future.get(budget, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			future.cancel(true);
+			return null;
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			logger_.error("Parse failed: {}", e.getCause().toString());
+			return null;
+		}
+	}
+
+	/**
+	 * Starts the budget of a sentence.
+	 *
+	 * @param sentence
+	 *            The sentence to be parsed.
+	 * @return The time by which the sentence must be parsed.
+	 */
+	public long startSentence(String sentence) {
+		return System.currentTimeMillis() + getBudget(countTokens(sentence));
+	}
+
+	@Override
+	public String toString() {
+		int parses = parses_.get();
+		return "Parses: " + parses + ", mean "
+				+ ((parses == 0) ? 0 : parseTime_.get() / parses) + "ms, max "
+				+ maxParseTime_.get() + "ms; overruns: " + overruns_.get()
+				+ "; too long: " + tooLong_.get() + "; fallback parses: "
+				+ parserFallbacks_.get() + "; chunk parses: "
+				+ chunkFallbacks_.get();
+	}
+
+	/**
+	 * Approximately counts the tokens of a sentence as a parser would: each
+	 * run of letters or digits is a token, as is each other non-space
+	 * character.
+	 *
+	 * @param sentence
+	 *            The sentence to count tokens in.
+	 * @return The approximate number of tokens.
+	 */
+	public static int countTokens(String sentence) {
+		int tokens = 0;
+		boolean inWord = false;
+		for (int i = 0; i < sentence.length(); i++) {
+			char c = sentence.charAt(i);
+			if (Character.isLetterOrDigit(c)) {
+				if (!inWord)
+					tokens++;
+				inWord = true;
+			} else {
+				if (!Character.isWhitespace(c))
+					tokens++;
+				inWord = false;
+			}
+		}
+		return tokens;
+	}
+
+	public static synchronized ParseScheduler getInstance() {
+		if (instance_ == null)
+			instance_ = new ParseScheduler();
+		return instance_;
+	}
+}
@@ -7,8 +7,11 @@ import io.resources.WikipediaSocket;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.regex.Pattern;
 
 import knowledgeMiner.mapping.CycMapper;
@@ -30,6 +33,12 @@ public class PartialAssertion extends MinedAssertion {
 
 	public static final double NO_CONSTRAINT_REWEIGHT = 0.001;
 
+	/**
+	 * The maximum number of assertions created per expanded level (the best
+	 * weighted are created first).
+	 */
+	public static int maxExpansions_ = 200;
+
 	/** Optional sub-assertions for hierarchically structured mined information. */
 	private Collection<PartialAssertion> subAssertions_;
 
@@ -139,13 +148,7 @@ public class PartialAssertion extends MinedAssertion {
 			WeightedSet<OntologyConcept>[] expandedArgs, OntologySocket ontology) {
 		// Work through relations
 		AssertionQueue aq = new AssertionQueue(getProvenance());
-		for (OntologyConcept relation : expandedRelation) {
-			double weight = expandedRelation.getWeight(relation);
-			weight *= constraintFactor(relation, expandedArgs, ontology);
-			AssertionArgument[] args = new AssertionArgument[expandedArgs.length];
-			buildArguments(relation, args, 0, weight, expandedArgs, aq,
-					ontology);
-		}
+		expandBestFirst(expandedRelation, expandedArgs, aq, ontology);
 
 		// Add lower relations
 		if (expandedRelation instanceof HierarchicalWeightedSet
@@ -196,51 +199,141 @@ public class PartialAssertion extends MinedAssertion {
 	}
 
 	/**
-	 * Builds the combinatorial arguments from an array of arguments.
+	 * Adds the combinations of the relations and their valid arguments to an
+	 * assertion queue in best-first order (see
+	 * {@link #bestCombinations(double[], double[][][], int)}), stopping once
+	 * {@link #maxExpansions_} assertions have been added.
 	 *
-	 * @param args
-	 *            The args to recursively build.
-	 * @param i
-	 *            The current index to fill.
-	 * @param relationWeight
-	 *            The weight of the relation.
+	 * @param expandedRelation
+	 *            The relations to combine.
 	 * @param expandedArgs
-	 *            The arguments to combine.
+	 *            The arguments to combine. Null arguments use args_.
 	 * @param aq
 	 *            The AssertionQueue to add to.
 	 * @param ontology
 	 *            The ontology access.
 	 */
-	private void buildArguments(OntologyConcept relation,
-			AssertionArgument[] args, int i, double weight,
+	private void expandBestFirst(WeightedSet<OntologyConcept> expandedRelation,
 			WeightedSet<OntologyConcept>[] expandedArgs, AssertionQueue aq,
 			OntologySocket ontology) {
-		if (i >= expandedArgs.length) {
-			aq.add(new PartialAssertion(relation, microtheory_,
-					getProvenance(), args), weight);
-			return;
+		List<Candidates> relations = new ArrayList<>();
+		for (OntologyConcept relation : expandedRelation) {
+			double weight = expandedRelation.getWeight(relation);
+			weight *= constraintFactor(relation, expandedArgs, ontology);
+			Candidates candidates = new Candidates(relation, weight, args_,
+					expandedArgs, validArguments(relation, expandedArgs,
+							ontology));
+			if (candidates.isViable())
+				relations.add(candidates);
 		}
 
-		// If null expansion, use args value.
-		if (expandedArgs[i] == null) {
-			args[i] = args_[i];
-			// TODO Reweight based on argument constraint
-			buildArguments(relation, args, i + 1, weight, expandedArgs, aq,
-					ontology);
-		} else {
-			// Iterate through every weighted element.
-			for (OntologyConcept concept : expandedArgs[i]) {
-				if (ontology.isValidArg(relation.getIdentifier(), concept,
-						i + 1)) {
-					AssertionArgument[] argsClone = Arrays.copyOf(args,
-							args.length);
-					argsClone[i] = concept;
-					buildArguments(relation, argsClone, i + 1,
-							expandedArgs[i].getWeight(concept) * weight,
-							expandedArgs, aq, ontology);
-				}
+		double[] weights = new double[relations.size()];
+		double[][][] argWeights = new double[relations.size()][][];
+		for (int r = 0; r < weights.length; r++) {
+			weights[r] = relations.get(r).weight_;
+			argWeights[r] = relations.get(r).weights_;
+		}
+		for (Combination combination : bestCombinations(weights, argWeights,
+				maxExpansions_)) {
+			Candidates candidates = relations.get(combination.group_);
+			AssertionArgument[] args = new AssertionArgument[combination.indices_.length];
+			for (int i = 0; i < args.length; i++)
+				args[i] = candidates.arguments_[i][combination.indices_[i]];
+			aq.add(new PartialAssertion(candidates.relation_, microtheory_,
+					getProvenance(), args), combination.weight_);
+		}
+	}
+
+	/**
+	 * Finds the best weighted combinations of grouped candidates: one group
+	 * (e.g. a relation) and one candidate at each of the group's positions,
+	 * weighted by the product of the group and candidate weights. Combinations
+	 * are drawn from a frontier seeded with the best combination of each
+	 * group; drawing a combination adds its successors (the next best
+	 * candidate at one position) to the frontier, so lower weighted
+	 * combinations are only created if needed.
+	 *
+	 * @param weights
+	 *            The weight of each group.
+	 * @param candidateWeights
+	 *            The candidate weights at each position of each group, sorted
+	 *            by descending weight. Groups with an empty position are
+	 *            skipped.
+	 * @param limit
+	 *            The maximum number of combinations to find.
+	 * @return The best combinations, in descending weight order.
+	 */
+	public static List<Combination> bestCombinations(double[] weights,
+			double[][][] candidateWeights, int limit) {
+		PriorityQueue<Combination> frontier = new PriorityQueue<>();
+		for (int g = 0; g < weights.length; g++) {
+			boolean viable = true;
+			for (double[] position : candidateWeights[g])
+				viable &= position.length > 0;
+			if (viable)
+				frontier.add(new Combination(g, weights[g],
+						candidateWeights[g],
+						new int[candidateWeights[g].length], 0));
+		}
+
+		List<Combination> combinations = new ArrayList<>();
+		while (!frontier.isEmpty() && combinations.size() < limit) {
+			Combination combination = frontier.poll();
+			combinations.add(combination);
+
+			// Only advance positions at or after the last advanced position,
+			// so each combination is reached once
+			for (int i = combination.lastIndex_; i < combination.indices_.length; i++) {
+				Combination next = combination.advance(i);
+				if (next != null)
+					frontier.add(next);
 			}
 		}
+		return combinations;
+	}
+
+	/**
+	 * Finds the valid arguments of a relation for each expanded argument
+	 * position, checking each position's arguments in a single exchange.
+	 *
+	 * @param relation
+	 *            The relation to check arguments against.
+	 * @param expandedArgs
+	 *            The expanded arguments (null positions are not expanded).
+	 * @param ontology
+	 *            The ontology access.
+	 * @return The valid arguments of each expanded position (in expansion
+	 *         order), or null for non-expanded positions.
+	 */
+	private OntologyConcept[][] validArguments(OntologyConcept relation,
+			WeightedSet<OntologyConcept>[] expandedArgs, OntologySocket ontology) {
+		OntologyConcept[][] validArgs = new OntologyConcept[expandedArgs.length][];
+		boolean noAssertions = false;
+		for (int i = 0; i < expandedArgs.length; i++) {
+			if (expandedArgs[i] == null)
+				continue;
+			// No need to check if an earlier position has no valid arguments
+			if (noAssertions) {
+				validArgs[i] = new OntologyConcept[0];
+				continue;
+			}
+			OntologyConcept[] candidates = new OntologyConcept[expandedArgs[i]
+					.size()];
+			int c = 0;
+			for (OntologyConcept concept : expandedArgs[i])
+				candidates[c++] = concept;
+			boolean[] valid = ontology.isValidArgs(relation.getIdentifier(),
+					candidates, i + 1);
+
+			Collection<OntologyConcept> validCandidates = new ArrayList<>();
+			for (c = 0; c < candidates.length; c++)
+				if (valid[c])
+					validCandidates.add(candidates[c]);
+			validArgs[i] = validCandidates
+					.toArray(new OntologyConcept[validCandidates.size()]);
+			noAssertions = validCandidates.isEmpty();
+		}
+		return validArgs;
 	}
 
 	/**
@@ -510,4 +603,118 @@ public class PartialAssertion extends MinedAssertion {
 			flattened.addAll(flattenHierarchy(subPartial));
 		return flattened;
 	}
+
+	/**
+	 * The candidate arguments of a relation, each position sorted by
+	 * descending weight.
+	 */
+	private static class Candidates {
+		private AssertionArgument[][] arguments_;
+		private OntologyConcept relation_;
+		private double weight_;
+		private double[][] weights_;
+
+		public Candidates(OntologyConcept relation, double weight,
+				AssertionArgument[] args,
+				final WeightedSet<OntologyConcept>[] expandedArgs,
+				OntologyConcept[][] validArgs) {
+			relation_ = relation;
+			weight_ = weight;
+			arguments_ = new AssertionArgument[expandedArgs.length][];
+			weights_ = new double[expandedArgs.length][];
+			for (int i = 0; i < expandedArgs.length; i++) {
+				// If null expansion, use args value.
+				if (expandedArgs[i] == null) {
+					// TODO Reweight based on argument constraint
+					arguments_[i] = new AssertionArgument[] { args[i] };
+					weights_[i] = new double[] { 1 };
+					continue;
+				}
+
+				final WeightedSet<OntologyConcept> expanded = expandedArgs[i];
+				OntologyConcept[] sorted = Arrays.copyOf(validArgs[i],
+						validArgs[i].length);
+				Arrays.sort(sorted, new Comparator<OntologyConcept>() {
+					@Override
+					public int compare(OntologyConcept o1, OntologyConcept o2) {
+						return Double.compare(expanded.getWeight(o2),
+								expanded.getWeight(o1));
+					}
+				});
+				arguments_[i] = sorted;
+				weights_[i] = new double[sorted.length];
+				for (int j = 0; j < sorted.length; j++)
+					weights_[i][j] = expanded.getWeight(sorted[j]);
+			}
+		}
+
+		/**
+		 * If every argument position has at least one candidate.
+		 */
+		public boolean isViable() {
+			for (AssertionArgument[] position : arguments_)
+				if (position.length == 0)
+					return false;
+			return true;
+		}
+	}
+
+	/**
+	 * A combination of a group and a candidate at each of its positions,
+	 * indexed per position.
+	 */
+	public static class Combination implements Comparable<Combination> {
+		private double[][] candidateWeights_;
+		private int group_;
+		private double groupWeight_;
+		private int[] indices_;
+		private int lastIndex_;
+		private double weight_;
+
+		private Combination(int group, double groupWeight,
+				double[][] candidateWeights, int[] indices, int lastIndex) {
+			group_ = group;
+			groupWeight_ = groupWeight;
+			candidateWeights_ = candidateWeights;
+			indices_ = indices;
+			lastIndex_ = lastIndex;
+			weight_ = groupWeight;
+			for (int i = 0; i < indices.length; i++)
+				weight_ *= candidateWeights[i][indices[i]];
+		}
+
+		/**
+		 * Creates the combination using the next best candidate at a position.
+		 *
+		 * @param i
+		 *            The position to advance.
+		 * @return The advanced combination, or null if there are no more
+		 *         candidates at the position.
+		 */
+		private Combination advance(int i) {
+			if (indices_[i] + 1 >= candidateWeights_[i].length)
+				return null;
+			int[] indices = Arrays.copyOf(indices_, indices_.length);
+			indices[i]++;
+			return new Combination(group_, groupWeight_, candidateWeights_,
+					indices, i);
+		}
+
+		@Override
+		public int compareTo(Combination o) {
+			return Double.compare(o.weight_, weight_);
+		}
+
+		public int getGroup() {
+			return group_;
+		}
+
+		public int[] getIndices() {
+			return indices_;
+		}
+
+		public double getWeight() {
+			return weight_;
+		}
+	}
 }
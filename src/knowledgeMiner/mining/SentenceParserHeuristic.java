@@ -38,11 +38,16 @@ import org.slf4j.LoggerFactory;
 
 import util.Tree;
 import util.text.OpenNLP;
+import util.text.ParseCache;
 import util.text.StanfordNLP;
 import util.wikipedia.WikiParser;
 import cyc.AssertionArgument;
 import cyc.CycConstants;
 import cyc.MappableConcept;
+import edu.stanford.nlp.ling.StringLabelFactory;
+import edu.stanford.nlp.trees.LabeledScoredTreeReaderFactory;
+import edu.stanford.nlp.trees.TreeNormalizer;
+import edu.stanford.nlp.trees.TreeReaderFactory;
 
 public class SentenceParserHeuristic extends MiningHeuristic {
 	private static final String[] COPULAS = { "is", "are", "was", "were", "be",
@@ -53,6 +58,9 @@ public class SentenceParserHeuristic extends MiningHeuristic {
 			Pattern.compile("^In [^,.]+, "),
 			Pattern.compile("(?<=[^,.]+), [^,.]+,(?= (is|was|are|were))") };
 	public static final String SENTENCE_PREFIX = "TOPICS is a ";
+	/** Reads cached Stanford parses without altering the labels. */
+	private static final TreeReaderFactory PARSE_READER_FACTORY = new LabeledScoredTreeReaderFactory(
+			new StringLabelFactory(), new TreeNormalizer());
 	public static final int STANFORD_NLP = 1;
 	public static final int OPEN_NLP = 0;
 	/** The type of parser currently being used. */
@@ -497,22 +505,77 @@ public class SentenceParserHeuristic extends MiningHeuristic {
 		}
 	}
 
+	/**
+	 * Gets the parse cache for the current parser.
+	 *
+	 * @return The parse cache, or null if parses are not cached.
+	 */
+	private static ParseCache getParseCache() {
+		if (!ParseCache.enabled_)
+			return null;
+		if (parser_ == STANFORD_NLP)
+			return ParseCache.getInstance(StanfordNLP.getVersion());
+		else
+			return ParseCache.getInstance(OpenNLP.getParserVersion());
+	}
+
+	/**
+	 * Converts a parse into its bracketed string form.
+	 *
+	 * @param parse
+	 *            The parse to convert.
+	 * @return The parse as a string.
+	 */
+	private static String serialiseParse(Object parse) {
+		if (parse instanceof edu.stanford.nlp.trees.Tree)
+			return parse.toString();
+		StringBuffer buffer = new StringBuffer();
+		((Parse) parse).show(buffer);
+		return buffer.toString();
+	}
+
+	/**
+	 * Reads a parse from its bracketed string form.
+	 *
+	 * @param parseStr
+	 *            The parse as a string.
+	 * @return The parse.
+	 */
+	private static Object deserialiseParse(String parseStr) {
+		if (parser_ == STANFORD_NLP)
+			return edu.stanford.nlp.trees.Tree.valueOf(parseStr,
+					PARSE_READER_FACTORY);
+		return Parse.parseParse(parseStr);
+	}
+
 	/**
 	 * Parses a sentence with the parser, cleaning the sentence further if
-	 * needed.
+	 * needed. Parses are cached, so a sentence is only ever parsed once. Each
+	 * sentence (including its simplifications) is parsed within a budget, and
+	 * falls back to cheaper parsers if the budget is exceeded.
 	 *
 	 * @param cleanSentence
 	 *            The sentence to parse.
 	 * @return The parsed sentence, either as OpenNLP parse, or StanfordNLP
 	 *         Tree.
 	 */
-	public static synchronized Object parseLine(String cleanSentence) {
+	public static Object parseLine(String cleanSentence) {
+		ParseCache cache = getParseCache();
+		ParseScheduler scheduler = ParseScheduler.getInstance();
+		long deadline = scheduler.startSentence(cleanSentence);
 		Object parse = null;
 		while (parse == null) {
-			if (parser_ == STANFORD_NLP)
-				parse = StanfordNLP.getInstance().apply(cleanSentence);
-			else if (parser_ == OPEN_NLP)
-				parse = OpenNLP.parseLine(cleanSentence);
+			String cached = (cache != null) ? cache.get(cleanSentence) : null;
+			if (cached != null)
+				parse = deserialiseParse(cached);
+			if (parse == null) {
+				parse = scheduler.parse(cleanSentence, deadline);
+				// Out of time: fall back (and do not cache)
+				if (parse == null)
+					return scheduler.fallbackParse(cleanSentence);
+				if (cache != null)
+					cache.put(cleanSentence, serialiseParse(parse));
+			}
 			// Could not parse
 			if (getType(parse).equals("INC")) {
 				try {
@@ -548,7 +611,7 @@ public class SentenceParserHeuristic extends MiningHeuristic {
 	 * @return The type information as a string.
 	 */
 	public static String getType(Object parse) {
-		if (parser_ == STANFORD_NLP)
+		if (parse instanceof edu.stanford.nlp.trees.Tree)
 			return ((edu.stanford.nlp.trees.Tree) parse).value();
 		else
 			return ((Parse) parse).getType();
@@ -563,7 +626,7 @@ public class SentenceParserHeuristic extends MiningHeuristic {
 	 * @return The covered text of the parse.
 	 */
 	public static String getCoveredText(Object parse) {
-		if (parser_ == STANFORD_NLP)
+		if (parse instanceof edu.stanford.nlp.trees.Tree)
 			return StringUtils.join(
 					((edu.stanford.nlp.trees.Tree) parse).yieldWords(), ' ');
 		else
@@ -579,7 +642,7 @@ public class SentenceParserHeuristic extends MiningHeuristic {
 	 * @return The children of the parse.
 	 */
 	public static Object[] getChildren(Object parse) {
-		if (parser_ == STANFORD_NLP)
+		if (parse instanceof edu.stanford.nlp.trees.Tree)
 			return ((edu.stanford.nlp.trees.Tree) parse).children();
 		else
 			return ((Parse) parse).getChildren();
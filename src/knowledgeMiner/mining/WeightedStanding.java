@@ -12,7 +12,10 @@ import knowledgeMiner.TermStanding;
 import util.Mergeable;
 
 /**
- * A class representing the evidence of standing gathered.
+ * A class representing the evidence of standing gathered. Standings shared
+ * between threads are not modified once shared: updates are made to a copy
+ * (see {@link #WeightedStanding(WeightedStanding)}), which replaces the
+ * original.
  * 
  * @author Sam Sarjant
  */
@@ -40,11 +43,20 @@ public class WeightedStanding implements Mergeable<WeightedStanding>,
 		totalWeight_ = 1;
 	}
 
+	/**
+	 * Creates an independent copy of a standing (modifying the copy does not
+	 * modify the original).
+	 * 
+	 * @param other
+	 *            The standing to copy.
+	 */
 	public WeightedStanding(WeightedStanding other) {
 		weights_ = Arrays.copyOf(other.weights_, weights_.length);
 		totalWeight_ = other.totalWeight_;
-		heuristicProvenance_ = Arrays.copyOf(other.heuristicProvenance_,
-				heuristicProvenance_.length);
+		for (int i = 0; i < heuristicProvenance_.length; i++)
+			if (other.heuristicProvenance_[i] != null)
+				heuristicProvenance_[i] = new HashSet<>(
+						other.heuristicProvenance_[i]);
 	}
 
 	@Override
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package knowledgeMiner.mining.wikipedia;
+
+import io.ontology.OntologySocket;
+import io.resources.WikipediaSocket;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import knowledgeMiner.KnowledgeMiner;
+import util.wikipedia.WikiParser;
+import cyc.OntologyConcept;
+
+/**
+ * Resolves the [[anchors]] of a unit of text (a paragraph, a list, a whole
+ * article) to articles and mapped concepts. Anchors are collected first, then
+ * resolved together in a single batched title lookup rather than one lookup
+ * per anchor.
+ *
+ * @author Sam Sarjant
+ */
+public class AnchorResolver {
+	/** The resolver of the sentence each thread is currently mining. */
+	private static final ThreadLocal<AnchorResolver> sentenceResolver_ = new ThreadLocal<>();
+
+	/** The article ID of each resolved title. */
+	private Map<String, Integer> articles_;
+
+	/** The mapped concept (or null) of each resolved article. */
+	private Map<Integer, OntologyConcept> concepts_;
+
+	/** The titles yet to be resolved. */
+	private Set<String> pending_;
+
+	public AnchorResolver() {
+		articles_ = new HashMap<>();
+		concepts_ = new HashMap<>();
+		pending_ = new LinkedHashSet<>();
+	}
+
+	/**
+	 * Collects the anchor titles (group 1) found in some text.
+	 *
+	 * @param text
+	 *            The text to find anchors in.
+	 * @param anchorPattern
+	 *            The anchor pattern to use.
+	 */
+	public void addAnchors(String text, Pattern anchorPattern) {
+		if (text == null)
+			return;
+		Matcher m = anchorPattern.matcher(text);
+		while (m.find())
+			addTitle(m.group(1));
+	}
+
+	/**
+	 * Collects a title to resolve.
+	 *
+	 * @param title
+	 *            The title to resolve.
+	 */
+	public void addTitle(String title) {
+		if (title != null && !articles_.containsKey(title))
+			pending_.add(title);
+	}
+
+	/**
+	 * Gets the article for a title, resolving it (and any other collected
+	 * titles) if necessary.
+	 *
+	 * @param title
+	 *            The title to get the article for.
+	 * @param wmi
+	 *            The WMI access.
+	 * @return The article ID or -1.
+	 * @throws IOException
+	 *             Should something go awry...
+	 */
+	public int getArticle(String title, WikipediaSocket wmi)
+			throws IOException {
+		Integer article = articles_.get(title);
+		if (article == null) {
+			addTitle(title);
+			resolve(wmi);
+			article = articles_.get(title);
+		}
+		return (article == null) ? -1 : article;
+	}
+
+	/**
+	 * Gets the concept mapped to the article for a title.
+	 *
+	 * @param title
+	 *            The title to get the concept for.
+	 * @param wmi
+	 *            The WMI access.
+	 * @param ontology
+	 *            The ontology access.
+	 * @return The mapped concept or null.
+	 * @throws IOException
+	 *             Should something go awry...
+	 */
+	public OntologyConcept getConcept(String title, WikipediaSocket wmi,
+			OntologySocket ontology) throws IOException {
+		int article = getArticle(title, wmi);
+		if (article == -1)
+			return null;
+		if (!concepts_.containsKey(article))
+			concepts_.put(article,
+					KnowledgeMiner.getConceptMapping(article, ontology));
+		return concepts_.get(article);
+	}
+
+	/**
+	 * Resolves all collected titles. Titles spanning multiple lines cannot be
+	 * batched, so are resolved individually.
+	 *
+	 * @param wmi
+	 *            The WMI access.
+	 * @throws IOException
+	 *             Should something go awry...
+	 */
+	public void resolve(WikipediaSocket wmi) throws IOException {
+		if (pending_.isEmpty())
+			return;
+		List<String> batch = new ArrayList<>(pending_.size());
+		for (String title : pending_) {
+			if (title.indexOf('\n') == -1)
+				batch.add(title);
+			else
+				articles_.put(title, wmi.getArticleByTitle(title));
+		}
+		pending_.clear();
+		if (batch.isEmpty())
+			return;
+
+		List<Integer> results = wmi.getArticleByTitle(batch
+				.toArray(new String[batch.size()]));
+		for (int i = 0; i < batch.size(); i++) {
+			Integer article = results.get(i);
+			articles_.put(batch.get(i), (article == null) ? -1 : article);
+		}
+	}
+
+	/**
+	 * Resolves every anchor in a sentence in a single batch and makes the
+	 * resolver available to the anchor mapping of this thread until
+	 * {@link #endSentence()} is called.
+	 *
+	 * @param sentence
+	 *            The sentence containing anchors.
+	 * @param wmi
+	 *            The WMI access.
+	 */
+	public static void beginSentence(String sentence, WikipediaSocket wmi) {
+		AnchorResolver resolver = new AnchorResolver();
+		Matcher m = WikiParser.ANCHOR_PARSER.matcher(sentence);
+		while (m.find())
+			resolver.addTitle(m.group(1).replaceAll(" ?\\n ?", " "));
+		try {
+			resolver.resolve(wmi);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		sentenceResolver_.set(resolver);
+	}
+
+	/**
+	 * Stops providing the resolver of the sentence being mined by this thread.
+	 */
+	public static void endSentence() {
+		sentenceResolver_.remove();
+	}
+
+	/**
+	 * Gets the resolver of the sentence this thread is mining.
+	 *
+	 * @return The sentence resolver, or null if no sentence is being mined.
+	 */
+	public static AnchorResolver getSentenceResolver() {
+		return sentenceResolver_.get();
+	}
+}
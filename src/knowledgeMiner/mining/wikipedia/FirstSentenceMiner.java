@@ -12,7 +12,6 @@ import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import knowledgeMiner.KnowledgeMiner;
 import knowledgeMiner.TermStanding;
 import knowledgeMiner.mapping.CycMapper;
 import knowledgeMiner.mining.CycMiner;
@@ -35,7 +34,7 @@ import cyc.StringConcept;
 public class FirstSentenceMiner extends WikipediaArticleMiningHeuristic {
 
 	/** The number of words that can be skipped when extracting collections. */
-	private static final int REGEXP_LEEWAY = 2;
+	static final int REGEXP_LEEWAY = 2;
 
 	/**
 	 * A tricky pattern for parsing synonyms from strings. Groups are (1+3+5?),
@@ -50,6 +49,12 @@ public class FirstSentenceMiner extends WikipediaArticleMiningHeuristic {
 	/** If the text should be wikified first. */
 	public static boolean wikifyText_ = false;
 
+	/**
+	 * If the first sentence patterns are matched in a single pass rather than
+	 * by running each regular expression.
+	 */
+	public static boolean singlePassMatching_ = true;
+
 	/**
 	 * Constructor for a new FirstSentenceMiner.java
 	 * 
@@ -142,7 +147,7 @@ public class FirstSentenceMiner extends WikipediaArticleMiningHeuristic {
 	/**
 	 * Initialises the first sentence parsing regular expressions.
 	 */
-	private void initialiseRegExps() {
+	private static synchronized void initialiseRegExps() {
 		if (sentenceRegExps_ != null)
 			return;
 
@@ -282,7 +287,8 @@ public class FirstSentenceMiner extends WikipediaArticleMiningHeuristic {
 	}
 
 	/**
-	 * Replaces the anchors with dynamic links to concepts.
+	 * Replaces the anchors with dynamic links to concepts. All anchors are
+	 * resolved together before replacement.
 	 *
 	 * @param paragraph
 	 *            The text to replace anchors in.
@@ -296,6 +302,14 @@ public class FirstSentenceMiner extends WikipediaArticleMiningHeuristic {
 	private String replaceAnchorsWithOntolinks(String paragraph, WikipediaSocket wmi,
 			OntologySocket ontology) {
 		// Find anchors
+		AnchorResolver resolver = new AnchorResolver();
+		resolver.addAnchors(paragraph, WikiParser.ANCHOR_PARSER);
+		try {
+			resolver.resolve(wmi);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+
 		int start = 0;
 		StringBuilder builder = new StringBuilder();
 		Matcher m = WikiParser.ANCHOR_PARSER.matcher(paragraph);
@@ -303,12 +317,12 @@ public class FirstSentenceMiner extends WikipediaArticleMiningHeuristic {
 			try {
 				builder.append(paragraph.substring(start, m.start()));
 
-				int article = wmi.getArticleByTitle(m.group(1));
+				int article = resolver.getArticle(m.group(1), wmi);
 				// Replace anchors with ontolinks
 				boolean knownConcept = false;
 				if (article != -1) {
-					OntologyConcept concept = KnowledgeMiner.getConceptMapping(
-							article, ontology);
+					OntologyConcept concept = resolver.getConcept(m.group(1),
+							wmi, ontology);
 					if (concept != null) {
 						builder.append("[[" + concept.getConceptName() + "|");
 						knownConcept = true;
@@ -399,7 +413,35 @@ public class FirstSentenceMiner extends WikipediaArticleMiningHeuristic {
 	 */
 	public String regExpMatch(String title, String firstSentence,
 			MinedInformation info, WikipediaSocket wmi) throws Exception {
-		String collectionFragment = null;
+		FirstSentencePatternMatcher.Result result = null;
+		if (singlePassMatching_)
+			result = FirstSentencePatternMatcher.match(firstSentence);
+		if (result == null)
+			result = matchRegExps(firstSentence);
+
+		for (TermStanding matcherStanding : result.getStandings()) {
+			if (matcherStanding != TermStanding.UNKNOWN) {
+				// Record the standing, resolving clashes.
+				info.addStandingInformation(matcherStanding, getWeight(),
+						basicProvenance_);
+			}
+		}
+//		return NLPToSyntaxModule.convertToAscii(collectionFragment);
+		return result.getFragment();
+	}
+
+	/**
+	 * Runs every first sentence regular expression over a sentence in turn.
+	 * 
+	 * @param firstSentence
+	 *            The sentence to match.
+	 * @return The collection fragment of the earliest match and the standings
+	 *         of all matching expressions.
+	 */
+	public static FirstSentencePatternMatcher.Result matchRegExps(
+			String firstSentence) {
+		initialiseRegExps();
+		FirstSentencePatternMatcher.Result result = new FirstSentencePatternMatcher.Result();
 		// Check every pattern
 		int firstMatch = Integer.MAX_VALUE;
 		for (Map.Entry<Pattern, TermStanding> entry : sentenceRegExps_.entrySet()) {
@@ -408,21 +450,11 @@ public class FirstSentenceMiner extends WikipediaArticleMiningHeuristic {
 				// Note the collection fragment and standing
 				if (matcher.start(1) < firstMatch) {
 					firstMatch = matcher.start(1);
-					collectionFragment = matcher.group(1);
-				}
-				TermStanding matcherStanding = entry.getValue();
-				if (matcherStanding != TermStanding.UNKNOWN) {
-					// Record the standing, resolving clashes.
-					info.addStandingInformation(matcherStanding, getWeight(),
-							basicProvenance_);
+					result.setFragment(matcher.group(1));
 				}
+				result.addStanding(entry.getValue());
 			}
 		}
-
-		if (collectionFragment == null) {
-			return null;
-		}
-//		return NLPToSyntaxModule.convertToAscii(collectionFragment);
-		return collectionFragment;
+		return result;
 	}
 }
@@ -0,0 +1,465 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package knowledgeMiner.mining.wikipedia;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import knowledgeMiner.TermStanding;
+
+/**
+ * Evaluates every first sentence pattern of the {@link FirstSentenceMiner} in
+ * a single pass. The sentence is scanned once for bold markup and for the
+ * copula forms ('is a', 'were an', 'are the', ...) using a shared prefix trie,
+ * and each pattern is then resolved directly against those positions. The
+ * results are identical to running each regular expression in turn, but
+ * without the backtracking cost on long sentences.
+ *
+ * @author Sam Sarjant
+ */
+public class FirstSentencePatternMatcher {
+	private static final String BOLD = "'''";
+
+	/** The copula forms the patterns are anchored on. */
+	private static final String[] COPULAS = { " is a ", " is an ", " is the ",
+			" was a ", " was an ", " were a ", " were an ", " are a ",
+			" are an ", " are the ", " are ", " is one of the ",
+			" was one of the " };
+
+	private static final int IS_A = 0, IS_AN = 1, IS_THE = 2, WAS_A = 3,
+			WAS_AN = 4, WERE_A = 5, WERE_AN = 6, ARE_A = 7, ARE_AN = 8,
+			ARE_THE = 9, ARE = 10, IS_ONE_OF = 11, WAS_ONE_OF = 12;
+
+	/** Marks a pattern as not matching. */
+	private static final int NO_MATCH = Integer.MIN_VALUE;
+
+	/**
+	 * The patterns, in the same form as the regular expressions in
+	 * {@link FirstSentenceMiner}.
+	 */
+	private static final Rule[] RULES = {
+			new Rule(Prefix.LEEWAY, Title.PLAIN, Tail.HEAD_NOT_OF,
+					TermStanding.UNKNOWN, IS_A, IS_AN, IS_THE),
+			new Rule(Prefix.ARTICLE, Title.PLAIN, Tail.ANY,
+					TermStanding.INDIVIDUAL, IS_A, IS_AN),
+			new Rule(Prefix.LEEWAY, Title.PLAIN, Tail.ANY,
+					TermStanding.UNKNOWN, WAS_A, WAS_AN),
+			new Rule(Prefix.LEEWAY, Title.PLAIN, Tail.ANY,
+					TermStanding.INDIVIDUAL, WERE_A, WERE_AN),
+			new Rule(Prefix.NONE, Title.PLAIN, Tail.ANY,
+					TermStanding.INDIVIDUAL, ARE_A, ARE_AN),
+			new Rule(Prefix.LEEWAY, Title.PLAIN, Tail.ANY,
+					TermStanding.INDIVIDUAL, IS_ONE_OF, WAS_ONE_OF),
+			new Rule(Prefix.LEEWAY, Title.PLAIN, Tail.WORD_OR_LINK_OF,
+					TermStanding.UNKNOWN, WAS_A, WAS_AN, IS_A, IS_AN),
+			new Rule(Prefix.LEEWAY, Title.PLAIN, Tail.ANY,
+					TermStanding.UNKNOWN, IS_A, IS_AN, IS_THE),
+			new Rule(Prefix.ARTICLE, Title.PLAIN, Tail.ANY,
+					TermStanding.COLLECTION, IS_A, IS_AN),
+			new Rule(Prefix.LEEWAY, Title.PLAIN, Tail.ANY,
+					TermStanding.COLLECTION, ARE_THE),
+			new Rule(Prefix.LEEWAY, Title.PLURAL, Tail.ANY,
+					TermStanding.COLLECTION, ARE_A),
+			new Rule(Prefix.LEEWAY, Title.PLURAL, Tail.ANY,
+					TermStanding.COLLECTION, ARE),
+			new Rule(Prefix.LEEWAY, Title.PLAIN, Tail.ANY,
+					TermStanding.COLLECTION, WERE_A, WERE_AN),
+			new Rule(Prefix.LEEWAY, Title.PLAIN, Tail.ANY,
+					TermStanding.COLLECTION, IS_ONE_OF) };
+
+	/** The trie of copula forms. */
+	private static final TrieNode COPULA_TRIE = new TrieNode();
+
+	static {
+		for (int i = 0; i < COPULAS.length; i++) {
+			TrieNode node = COPULA_TRIE;
+			for (char c : COPULAS[i].toCharArray()) {
+				if (node.children_[c] == null)
+					node.children_[c] = new TrieNode();
+				node = node.children_[c];
+			}
+			node.copula_ = i;
+		}
+	}
+
+	/** The positions of every bold markup. */
+	private int[] bold_;
+
+	/** The number of copula positions per copula. */
+	private int[] copulaCounts_;
+
+	/** The positions of each copula (index of the leading space). */
+	private int[][] copulaPositions_;
+
+	/** The valid bold title positions for the leeway prefix, in match order. */
+	private int[] leewayOffsets_;
+
+	/** The bold markup positions immediately preceded by an 's'. */
+	private int[] pluralBold_;
+
+	private String sentence_;
+
+	private FirstSentencePatternMatcher(String sentence) {
+		sentence_ = sentence;
+		scanCopulas();
+		scanBold();
+		scanLeeway();
+	}
+
+	/**
+	 * Finds the first copula (in sentence order) at or after a position that
+	 * is followed by a valid tail.
+	 *
+	 * @param rule
+	 *            The rule being matched.
+	 * @param bound
+	 *            The earliest position of the copula.
+	 * @param plural
+	 *            If the copula must be preceded by an 's'.
+	 * @return The start of the collection fragment or {@link #NO_MATCH}.
+	 */
+	private int firstCopula(Rule rule, int bound, boolean plural) {
+		int bestPosition = Integer.MAX_VALUE;
+		int bestStart = NO_MATCH;
+		for (int copula : rule.copulas_) {
+			int[] positions = copulaPositions_[copula];
+			int count = copulaCounts_[copula];
+			for (int i = lowerBound(positions, count, bound); i < count
+					&& positions[i] < bestPosition; i++) {
+				int p = positions[i];
+				if (plural && sentence_.charAt(p - 1) != 's')
+					continue;
+				int start = matchTail(rule.tail_, p + COPULAS[copula].length());
+				if (start != NO_MATCH) {
+					bestPosition = p;
+					bestStart = start;
+					break;
+				}
+			}
+		}
+		return bestStart;
+	}
+
+	/**
+	 * Gets the end of a [[link]] starting at a position.
+	 *
+	 * @param start
+	 *            The position of the link.
+	 * @return The position after the link or -1 if there is no link.
+	 */
+	private int linkEnd(int start) {
+		if (!sentence_.startsWith("[[", start))
+			return -1;
+		int end = start + 2;
+		while (end < sentence_.length() && sentence_.charAt(end) != '['
+				&& sentence_.charAt(end) != ']')
+			end++;
+		if (end == start + 2 || !sentence_.startsWith("]]", end))
+			return -1;
+		return end + 2;
+	}
+
+	private Result match() {
+		Result result = new Result();
+		int firstMatch = Integer.MAX_VALUE;
+		for (Rule rule : RULES) {
+			int start = matchRule(rule);
+			if (start == NO_MATCH)
+				continue;
+			result.addStanding(rule.standing_);
+			// A non-participating group (-1) overrides any fragment
+			if (start < firstMatch) {
+				firstMatch = start;
+				result.setFragment((start < 0) ? null : sentence_
+						.substring(start));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Matches a bolded title beginning at a position, followed by one of the
+	 * rule's copulas.
+	 *
+	 * @param rule
+	 *            The rule being matched.
+	 * @param offset
+	 *            The position of the opening bold markup.
+	 * @return The start of the collection fragment or {@link #NO_MATCH}.
+	 */
+	private int matchFrom(Rule rule, int offset) {
+		if (rule.title_ == Title.PLAIN) {
+			// '''.+?'''.*?
+			int close = next(bold_, offset + 4);
+			if (close == -1)
+				return NO_MATCH;
+			return firstCopula(rule, close + 3, false);
+		}
+
+		// '''.+?(?:(?:s'''.*?)|(?:'''.*?s))
+		int pluralClose = next(pluralBold_, offset + 5);
+		int pluralStart = (pluralClose == -1) ? NO_MATCH : firstCopula(rule,
+				pluralClose + 3, false);
+		int close = next(bold_, offset + 4);
+		int trailingStart = (close == -1) ? NO_MATCH : firstCopula(rule,
+				close + 4, true);
+		if (pluralStart != NO_MATCH
+				&& (trailingStart == NO_MATCH || pluralClose - 1 < close))
+			return pluralStart;
+		return trailingStart;
+	}
+
+	private int matchRule(Rule rule) {
+		switch (rule.prefix_) {
+		case NONE:
+			return (sentence_.startsWith(BOLD)) ? matchFrom(rule, 0)
+					: NO_MATCH;
+		case ARTICLE:
+			if (sentence_.startsWith("An " + BOLD))
+				return matchFrom(rule, 3);
+			if (sentence_.startsWith("A " + BOLD))
+				return matchFrom(rule, 2);
+			return NO_MATCH;
+		default:
+			for (int offset : leewayOffsets_) {
+				int start = matchFrom(rule, offset);
+				if (start != NO_MATCH)
+					return start;
+			}
+			return NO_MATCH;
+		}
+	}
+
+	/**
+	 * Checks the collection fragment following a copula.
+	 *
+	 * @param tail
+	 *            The form the fragment must take.
+	 * @param start
+	 *            The start of the fragment.
+	 * @return The start of the captured fragment, -1 if matched but not
+	 *         captured, or {@link #NO_MATCH}.
+	 */
+	private int matchTail(Tail tail, int start) {
+		int length = sentence_.length();
+		if (start >= length)
+			return NO_MATCH;
+		switch (tail) {
+		case HEAD_NOT_OF:
+			// (?:[\w-'/:\.]+(?= )|\[\[[^\[\]]+\]\])(?! of ).+
+			int end = start;
+			if (isWordChar(sentence_.charAt(start))) {
+				while (end < length && isWordChar(sentence_.charAt(end)))
+					end++;
+				if (end == length || sentence_.charAt(end) != ' ')
+					return NO_MATCH;
+			} else {
+				end = linkEnd(start);
+				if (end == -1)
+					return NO_MATCH;
+			}
+			if (end == length || sentence_.startsWith(" of ", end))
+				return NO_MATCH;
+			return start;
+		case WORD_OR_LINK_OF:
+			// (?:[\w-'/:\.]+|\[\[[^\[\]]+\]\] of .+())
+			int i = start;
+			while (i < length && isWordChar(sentence_.charAt(i)))
+				i++;
+			if (i == length)
+				return -1;
+			int linkEnd = linkEnd(start);
+			if (linkEnd != -1 && sentence_.startsWith(" of ", linkEnd)
+					&& linkEnd + 4 < length)
+				return length;
+			return NO_MATCH;
+		default:
+			return start;
+		}
+	}
+
+	/**
+	 * Records the positions of all bold markup.
+	 */
+	private void scanBold() {
+		int[] bold = new int[8];
+		int[] plural = new int[8];
+		int numBold = 0;
+		int numPlural = 0;
+		for (int i = sentence_.indexOf(BOLD); i != -1; i = sentence_.indexOf(
+				BOLD, i + 1)) {
+			if (numBold == bold.length)
+				bold = Arrays.copyOf(bold, numBold * 2);
+			bold[numBold++] = i;
+			if (i > 0 && sentence_.charAt(i - 1) == 's') {
+				if (numPlural == plural.length)
+					plural = Arrays.copyOf(plural, numPlural * 2);
+				plural[numPlural++] = i;
+			}
+		}
+		bold_ = Arrays.copyOf(bold, numBold);
+		pluralBold_ = Arrays.copyOf(plural, numPlural);
+	}
+
+	/**
+	 * Walks the copula trie from every space in the sentence.
+	 */
+	private void scanCopulas() {
+		copulaPositions_ = new int[COPULAS.length][4];
+		copulaCounts_ = new int[COPULAS.length];
+		int length = sentence_.length();
+		for (int i = sentence_.indexOf(' '); i != -1; i = sentence_.indexOf(
+				' ', i + 1)) {
+			TrieNode node = COPULA_TRIE;
+			for (int j = i; j < length; j++) {
+				char c = sentence_.charAt(j);
+				node = (c < TrieNode.WIDTH) ? node.children_[c] : null;
+				if (node == null)
+					break;
+				if (node.copula_ != -1) {
+					int[] positions = copulaPositions_[node.copula_];
+					int count = copulaCounts_[node.copula_];
+					if (count == positions.length)
+						copulaPositions_[node.copula_] = positions = Arrays
+								.copyOf(positions, count * 2);
+					positions[count] = i;
+					copulaCounts_[node.copula_]++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the bold title positions allowed by the (?:[^' ]* ){0,N} prefix,
+	 * most words first.
+	 */
+	private void scanLeeway() {
+		int[] offsets = new int[FirstSentenceMiner.REGEXP_LEEWAY + 2];
+		int numOffsets = 0;
+		int pos = 0;
+		offsets[numOffsets++] = 0;
+		for (int word = 0; word <= FirstSentenceMiner.REGEXP_LEEWAY; word++) {
+			int end = pos;
+			while (end < sentence_.length() && sentence_.charAt(end) != ' '
+					&& sentence_.charAt(end) != '\'')
+				end++;
+			if (end == sentence_.length() || sentence_.charAt(end) != ' ')
+				break;
+			pos = end + 1;
+			offsets[numOffsets++] = pos;
+		}
+
+		leewayOffsets_ = new int[numOffsets];
+		int count = 0;
+		for (int i = numOffsets - 1; i >= 0; i--)
+			if (sentence_.startsWith(BOLD, offsets[i]))
+				leewayOffsets_[count++] = offsets[i];
+		leewayOffsets_ = Arrays.copyOf(leewayOffsets_, count);
+	}
+
+	/**
+	 * Checks if a character is within [\w-'/:\.].
+	 */
+	private static boolean isWordChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+				|| (c >= '0' && c <= '9') || c == '_' || c == '-' || c == '\''
+				|| c == '/' || c == ':' || c == '.';
+	}
+
+	private static int lowerBound(int[] values, int count, int bound) {
+		int index = Arrays.binarySearch(values, 0, count, bound);
+		return (index >= 0) ? index : -index - 1;
+	}
+
+	private static int next(int[] values, int bound) {
+		int index = lowerBound(values, values.length, bound);
+		return (index < values.length) ? values[index] : -1;
+	}
+
+	/**
+	 * Matches a first sentence against every pattern.
+	 *
+	 * @param firstSentence
+	 *            The sentence to match.
+	 * @return The result of the match, or null if the sentence cannot be
+	 *         matched in a single pass (contains line terminators).
+	 */
+	public static Result match(String firstSentence) {
+		// '.' does not cross line terminators, so leave those to the regexps
+		for (int i = 0; i < firstSentence.length(); i++) {
+			char c = firstSentence.charAt(i);
+			if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028'
+					|| c == '\u2029')
+				return null;
+		}
+		return new FirstSentencePatternMatcher(firstSentence).match();
+	}
+
+	/**
+	 * The result of matching a first sentence: the collection fragment and the
+	 * standing of every matching pattern.
+	 */
+	public static class Result {
+		private String fragment_;
+
+		private List<TermStanding> standings_ = new ArrayList<>();
+
+		public String getFragment() {
+			return fragment_;
+		}
+
+		public List<TermStanding> getStandings() {
+			return standings_;
+		}
+
+		void addStanding(TermStanding standing) {
+			standings_.add(standing);
+		}
+
+		void setFragment(String fragment) {
+			fragment_ = fragment;
+		}
+
+		@Override
+		public String toString() {
+			return fragment_ + " " + standings_;
+		}
+	}
+
+	private enum Prefix {
+		ARTICLE, LEEWAY, NONE;
+	}
+
+	private static class Rule {
+		private int[] copulas_;
+		private Prefix prefix_;
+		private TermStanding standing_;
+		private Tail tail_;
+		private Title title_;
+
+		public Rule(Prefix prefix, Title title, Tail tail,
+				TermStanding standing, int... copulas) {
+			prefix_ = prefix;
+			title_ = title;
+			tail_ = tail;
+			standing_ = standing;
+			copulas_ = copulas;
+		}
+	}
+
+	private enum Tail {
+		ANY, HEAD_NOT_OF, WORD_OR_LINK_OF;
+	}
+
+	private enum Title {
+		PLAIN, PLURAL;
+	}
+
+	private static class TrieNode {
+		private static final int WIDTH = 128;
+		private TrieNode[] children_ = new TrieNode[WIDTH];
+		private int copula_ = -1;
+	}
+}
@@ -6,9 +6,12 @@ package knowledgeMiner.mining.wikipedia;
 import io.ontology.OntologySocket;
 import io.resources.WikipediaSocket;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.SortedSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import knowledgeMiner.ConceptMiningTask;
 import knowledgeMiner.ConceptModule;
@@ -36,7 +39,11 @@ public class InfoboxClusterer extends MiningHeuristic {
 	 */
 	public static final int MIN_CLUSTER_COUNT = 30;
 
-	private CacheMap<Integer, InfoboxCounter> counter_;
+	/** The number of independently locked stripes of counters. */
+	private static final int NUM_STRIPES = 16;
+
+	/** The counters of each parent article, striped by article. */
+	private CacheMap<Integer, InfoboxCounter>[] counter_;
 
 	/**
 	 * Constructor for a new InfoboxClusterer
@@ -44,9 +51,32 @@ public class InfoboxClusterer extends MiningHeuristic {
 	 * @param mapper
 	 * @param miner
 	 */
+	@SuppressWarnings("unchecked")
 	public InfoboxClusterer(CycMapper mapper, CycMiner miner) {
 		super(false, mapper, miner);
-		counter_ = new CacheMap<>(false);
+		counter_ = new CacheMap[NUM_STRIPES];
+		for (int i = 0; i < NUM_STRIPES; i++)
+			counter_[i] = new CacheMap<>(false);
+	}
+
+	/**
+	 * Gets (or creates) the counter of a parent article. Only the stripe of
+	 * the article is locked.
+	 * 
+	 * @param parentArticle
+	 *            The parent article.
+	 * @return The counter for the article.
+	 */
+	private InfoboxCounter getCounter(int parentArticle) {
+		CacheMap<Integer, InfoboxCounter> stripe = counter_[(parentArticle & Integer.MAX_VALUE)
+				% NUM_STRIPES];
+		synchronized (stripe) {
+			InfoboxCounter counter = stripe.get(parentArticle);
+			if (counter == null)
+				counter = new InfoboxCounter();
+			stripe.put(parentArticle, counter);
+			return counter;
+		}
 	}
 
 	@Override
@@ -117,34 +147,42 @@ public class InfoboxClusterer extends MiningHeuristic {
 	 * @throws Exception
 	 *             Should something go awry...
 	 */
-	public synchronized boolean noteInfoboxChild(ConceptModule concept,
-			String infobox, int parentArticle, boolean isPositive)
-			throws Exception {
-		InfoboxCounter counter = counter_.get(parentArticle);
-		if (counter == null)
-			counter = new InfoboxCounter();
-		counter_.put(parentArticle, counter);
+	public boolean noteInfoboxChild(ConceptModule concept, String infobox,
+			int parentArticle, boolean isPositive) throws Exception {
+		InfoboxCounter counter = getCounter(parentArticle);
 
 		if (isPositive) {
-			counter.counts_.add(infobox);
+			counter.count(infobox);
 			// Fire any negative examples if threshold met.
 			String majorityStr = counter.getMajorityInfobox();
-			if (!counter.negativeExamples_.isKeysEmpty() && majorityStr != null) {
-				for (ConceptModule cm : counter.negativeExamples_
-						.get(majorityStr)) {
+			if (majorityStr == null)
+				return isPositive;
+			Collection<ConceptModule> fired = null;
+			synchronized (counter) {
+				if (!counter.negativeExamples_.isKeysEmpty()) {
+					Collection<ConceptModule> negatives = counter.negativeExamples_
+							.get(majorityStr);
+					if (negatives != null)
+						fired = new ArrayList<>(negatives);
+					counter.negativeExamples_.clear();
+				}
+			}
+			if (fired != null) {
+				for (ConceptModule cm : fired) {
 					// Fire each negative example
 					ConceptModule newChild = new ConceptModule(cm.getArticle());
 					newChild.mergeInformation(cm);
 					KnowledgeMiner.getInstance().processConcept(
 							new ConceptMiningTask(newChild, -1));
 				}
-				counter.negativeExamples_.clear();
 			}
 		} else {
 			String majorityStr = counter.getMajorityInfobox();
-			if (majorityStr == null)
-				counter.negativeExamples_.put(infobox, concept);
-			else if (majorityStr.equals(infobox))
+			if (majorityStr == null) {
+				synchronized (counter) {
+					counter.negativeExamples_.put(infobox, concept);
+				}
+			} else if (majorityStr.equals(infobox))
 				return true;
 		}
 		return isPositive;
@@ -152,10 +190,31 @@ public class InfoboxClusterer extends MiningHeuristic {
 
 	private class InfoboxCounter {
 		private static final double VOTING_CONFIDENCE = 0.95;
-		private WeightedSet<String> counts_ = new WeightedSet<>();
+		/** The count of each infobox, incremented without locking. */
+		private ConcurrentHashMap<String, LongAdder> counts_ = new ConcurrentHashMap<>();
+		private LongAdder sumCount_ = new LongAdder();
+		/** The negative examples (guarded by the counter). */
 		private MultiMap<String, ConceptModule> negativeExamples_ = MultiMap
 				.createListMultiMap();
 
+		/**
+		 * Counts an infobox.
+		 * 
+		 * @param infobox
+		 *            The infobox to count.
+		 */
+		public void count(String infobox) {
+			LongAdder count = counts_.get(infobox);
+			if (count == null) {
+				LongAdder newCount = new LongAdder();
+				count = counts_.putIfAbsent(infobox, newCount);
+				if (count == null)
+					count = newCount;
+			}
+			count.increment();
+			sumCount_.increment();
+		}
+
 		/**
 		 * Gets the majority infobox if there are enough examples and the
 		 * majority exceeds a threshold.
@@ -164,12 +223,19 @@ public class InfoboxClusterer extends MiningHeuristic {
 		 *         enough samples, otherwise null.
 		 */
 		public String getMajorityInfobox() {
-			double sumWeight = counts_.getSumWeight();
+			double sumWeight = sumCount_.sum();
 			if (sumWeight >= MIN_CLUSTER_COUNT) {
-				SortedSet<String> ordered = counts_.getOrdered();
-				if (counts_.getWeight(ordered.first()) >= sumWeight
-						* VOTING_CONFIDENCE)
-					return ordered.first();
+				String majority = null;
+				long majorityCount = 0;
+				for (Map.Entry<String, LongAdder> entry : counts_.entrySet()) {
+					long count = entry.getValue().sum();
+					if (count > majorityCount) {
+						majority = entry.getKey();
+						majorityCount = count;
+					}
+				}
+				if (majorityCount >= sumWeight * VOTING_CONFIDENCE)
+					return majority;
 			}
 			return null;
 		}
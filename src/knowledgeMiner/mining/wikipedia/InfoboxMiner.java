@@ -9,13 +9,17 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.InputMismatchException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import knowledgeMiner.TermStanding;
 import knowledgeMiner.mapping.CycMapper;
@@ -32,13 +36,31 @@ public abstract class InfoboxMiner extends WikipediaArticleMiningHeuristic {
 	/** The delimiter used for the mappings file. */
 	public static final String MAPPING_DELIMITER = "\t";
 
+	/**
+	 * The number of state prints between compactions (full rewrites of the
+	 * mappings file). In between, changed mappings are appended to a delta
+	 * log.
+	 */
+	public static int compactionInterval_ = 20;
+
+	/** The mappings changed since they were last written. */
+	private Set<String> changed_;
+
+	/** The log of mappings changed since the last compaction. */
+	private File deltaFile_;
+
 	/** The file to save/load mappings to/from. */
 	private File mappingsFile_;
 
-	/** The mapping between infobox Strings and TermStanding. */
-	private Map<String, WeightedStanding> standingMap_;
+	/** The number of state prints since the last compaction. */
+	private int printsSinceCompaction_;
 
-	private ReentrantLock mapLock_;
+	/**
+	 * The mapping between infobox Strings and TermStanding. Standings are
+	 * replaced (copy-on-write) rather than modified, so readers always see a
+	 * consistent standing without locking.
+	 */
+	private ConcurrentHashMap<String, WeightedStanding> standingMap_;
 
 	/**
 	 * Constructor for a new InfoboxMiner.
@@ -53,10 +75,15 @@ public abstract class InfoboxMiner extends WikipediaArticleMiningHeuristic {
 		super(usePrecomputed, mapper, miner);
 		try {
 			mappingsFile_ = mappingsFilename;
+			deltaFile_ = new File(mappingsFilename.getPath() + ".delta");
+			changed_ = Collections
+					.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 			if (!mappingsFilename.exists())
 				mappingsFilename.createNewFile();
 			standingMap_ = initialiseInfoboxMappings(mappingsFilename);
-			mapLock_ = new ReentrantLock();
+			// Later changes override the compacted mappings
+			if (deltaFile_.exists())
+				readMappings(deltaFile_, standingMap_);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -70,13 +97,28 @@ public abstract class InfoboxMiner extends WikipediaArticleMiningHeuristic {
 	 * @throws Exception
 	 *             Should something go awry...
 	 */
-	private Map<String, WeightedStanding> initialiseInfoboxMappings(
+	private ConcurrentHashMap<String, WeightedStanding> initialiseInfoboxMappings(
 			File mappingsFilename) throws Exception {
-		Map<String, WeightedStanding> mappings = new HashMap<>();
+		ConcurrentHashMap<String, WeightedStanding> mappings = new ConcurrentHashMap<>();
 		if (mappingsFilename != null && !mappingsFilename.exists())
 			throw new FileNotFoundException("Infobox mappings file '"
 					+ mappingsFilename + "' doesn't exist!");
+		readMappings(mappingsFilename, mappings);
+		return mappings;
+	}
 
+	/**
+	 * Reads mappings from a file (or delta log) into a map.
+	 * 
+	 * @param mappingsFilename
+	 *            The file to read.
+	 * @param mappings
+	 *            The mappings to read into.
+	 * @throws Exception
+	 *             Should something go awry...
+	 */
+	private void readMappings(File mappingsFilename,
+			Map<String, WeightedStanding> mappings) throws Exception {
 		FileReader reader = new FileReader(mappingsFilename);
 		BufferedReader in = new BufferedReader(reader);
 		String input = null;
@@ -107,8 +149,35 @@ public abstract class InfoboxMiner extends WikipediaArticleMiningHeuristic {
 
 		in.close();
 		reader.close();
+	}
 
-		return mappings;
+	/**
+	 * Writes the line of a mapping.
+	 */
+	private void writeMapping(BufferedWriter out, String mapping)
+			throws IOException {
+		WeightedStanding standing = standingMap_.get(mapping);
+		if (standing == null)
+			return;
+		out.write(mapping);
+		TermStanding[] ts = TermStanding.values();
+		for (int i = 0; i < ts.length; i++)
+			out.write("\t" + standing.getActualWeight(ts[i]));
+		String[] additional = writeAdditionalOutput(mapping);
+		for (String add : additional)
+			out.write("\t" + add);
+		out.write("\n");
+	}
+
+	/**
+	 * Notes that the output of a mapping has changed, so it is written with
+	 * the next state print.
+	 * 
+	 * @param key
+	 *            The changed mapping.
+	 */
+	protected final void markChanged(String key) {
+		changed_.add(key);
 	}
 
 	/**
@@ -128,18 +197,17 @@ public abstract class InfoboxMiner extends WikipediaArticleMiningHeuristic {
 	 *            The standing being recorded.
 	 */
 	protected final void recordStanding(String key, TermStanding actualStanding) {
-		try {
-			mapLock_.lock();
+		HeuristicProvenance provenance = new HeuristicProvenance(this, key);
+		while (true) {
 			WeightedStanding standing = standingMap_.get(key);
-			if (standing == null) {
-				standing = new WeightedStanding();
-				standingMap_.put(key, standing);
-			}
-			standing.addStanding(new HeuristicProvenance(this, key),
-					actualStanding, getWeight());
-		} finally {
-			mapLock_.unlock();
+			WeightedStanding updated = (standing == null) ? new WeightedStanding()
+					: new WeightedStanding(standing);
+			updated.addStanding(provenance, actualStanding, getWeight());
+			if ((standing == null) ? standingMap_.putIfAbsent(key, updated) == null
+					: standingMap_.replace(key, standing, updated))
+				break;
 		}
+		markChanged(key);
 	}
 
 	@Override
@@ -159,32 +227,46 @@ public abstract class InfoboxMiner extends WikipediaArticleMiningHeuristic {
 	@Override
 	public void printHeuristicState() throws Exception {
 		super.printHeuristicState();
-		mappingsFile_.createNewFile();
-		BufferedWriter out = new BufferedWriter(new FileWriter(mappingsFile_));
+		// Take the changes before writing, so later changes are kept
+		List<String> changed = new ArrayList<>();
+		for (Iterator<String> iter = changed_.iterator(); iter.hasNext();) {
+			changed.add(iter.next());
+			iter.remove();
+		}
+
+		// Append the changes to the delta log (also before compacting, so the
+		// log stays safe to replay over the compacted file until deleted)
+		if (!changed.isEmpty()) {
+			Collections.sort(changed);
+			BufferedWriter out = new BufferedWriter(new FileWriter(
+					deltaFile_, true));
+			for (String mapping : changed)
+				writeMapping(out, mapping);
+			out.close();
+		}
+		if (++printsSinceCompaction_ < compactionInterval_)
+			return;
 
-		List<String> ordered = null;
+		// Compact: rewrite every mapping to a temporary file, replace the
+		// mappings file with it and start a new delta log
+		printsSinceCompaction_ = 0;
+		File temp = new File(mappingsFile_.getPath() + ".tmp");
+		BufferedWriter out = new BufferedWriter(new FileWriter(temp));
 		try {
-			mapLock_.lock();
-			ordered = new ArrayList<>(standingMap_.keySet());
+			List<String> ordered = new ArrayList<>(standingMap_.keySet());
+			Collections.sort(ordered);
+			out.write("RELATION\t" + TermStanding.values()[0] + "\t"
+					+ TermStanding.values()[1] + "\t"
+					+ TermStanding.values()[2] + "\n");
+			for (String mapping : ordered)
+				writeMapping(out, mapping);
 		} finally {
-			mapLock_.unlock();
-		}
-		Collections.sort(ordered);
-		out.write("RELATION\t" + TermStanding.values()[0] + "\t"
-				+ TermStanding.values()[1] + "\t" + TermStanding.values()[2]
-				+ "\n");
-		for (String mapping : ordered) {
-			out.write(mapping);
-			TermStanding[] ts = TermStanding.values();
-			for (int i = 0; i < ts.length; i++)
-				out.write("\t"
-						+ standingMap_.get(mapping).getActualWeight(ts[i]));
-			String[] additional = writeAdditionalOutput(mapping);
-			for (String add : additional)
-				out.write("\t" + add);
-			out.write("\n");
+			out.close();
 		}
-		out.close();
+		Files.move(temp.toPath(), mappingsFile_.toPath(),
+				StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		deltaFile_.delete();
 	}
 
 	/**
@@ -7,9 +7,9 @@ import io.ontology.OntologySocket;
 import io.resources.WikipediaSocket;
 
 import java.io.File;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -66,7 +66,7 @@ public class InfoboxRelationMiner extends InfoboxMiner {
 			.createListMultiMap();
 
 	/** The infobox mappings to Cyc predicates. */
-	private Map<String, String> infoboxRelationMappings_ = new HashMap<>();
+	private Map<String, String> infoboxRelationMappings_ = new ConcurrentHashMap<>();
 
 	/**
 	 * Constructor for a new InfoboxRelationMiner.
@@ -176,7 +176,7 @@ public class InfoboxRelationMiner extends InfoboxMiner {
 	@Override
 	protected void readAdditionalInput(String[] split) {
 		if (infoboxRelationMappings_ == null)
-			infoboxRelationMappings_ = new HashMap<String, String>();
+			infoboxRelationMappings_ = new ConcurrentHashMap<String, String>();
 		// There should be one more element: the Cyc relation it maps to.
 		if (!split[2].isEmpty())
 			infoboxRelationMappings_.put(split[0], split[2]);
@@ -286,8 +286,10 @@ public class InfoboxRelationMiner extends InfoboxMiner {
 					if (article != -1
 							&& (!exampleArticles_.containsKey(relation) || (Math
 									.random() < EXAMPLE_CHANCE && exampleArticles_
-									.get(relation).size() < MAX_EXAMPLES)))
+									.get(relation).size() < MAX_EXAMPLES))) {
 						exampleArticles_.put(relation, info.getArticle());
+						markChanged(relation);
+					}
 				}
 			}
 		} catch (Exception e) {
@@ -307,6 +309,7 @@ public class InfoboxRelationMiner extends InfoboxMiner {
 			String relation = details.substring(index + 1);
 			infoboxRelationMappings_.put(relation, ((MinedAssertion) assertion)
 					.getRelation().toString());
+			markChanged(relation);
 		}
 	}
 }
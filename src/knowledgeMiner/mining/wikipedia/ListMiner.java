@@ -13,9 +13,10 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
 
@@ -34,10 +35,11 @@ import org.apache.commons.lang3.StringUtils;
 import util.UtilityMethods;
 import util.collection.MultiMap;
 import util.text.OpenNLP;
+import util.wikipedia.BulletHandler;
 import util.wikipedia.BulletListParser;
+import util.wikipedia.TableHandler;
 import util.wikipedia.TableMiner;
 import util.wikipedia.WikiParser;
-import util.wikipedia.WikiTable;
 import cyc.AssertionArgument;
 import cyc.CycConstants;
 
@@ -53,6 +55,10 @@ public class ListMiner extends WikipediaArticleMiningHeuristic {
 			"_LIST_ELEMENT_", false, false);
 	private static final String LIST_OF = "List of ";
 	private static final String LIST_OF_REGEX = "Lists? of ";
+	/** The number of list elements whose anchors are resolved together. */
+	private static final int ANCHOR_BATCH_SIZE = 500;
+	/** The number of table rows used to decide the focus column. */
+	private static final int FOCUS_SAMPLE_ROWS = 20;
 
 	/**
 	 * Constructor for a new ListMiner.java
@@ -65,14 +71,15 @@ public class ListMiner extends WikipediaArticleMiningHeuristic {
 
 	private void assignDataToAssertions(String focusString, String context,
 			String listTitle, Collection<PartialAssertion> listAssertions,
-			MinedInformation info, WikipediaSocket wmi) throws IOException {
+			MinedInformation info, AnchorResolver resolver, WikipediaSocket wmi)
+			throws IOException {
 		if (focusString.isEmpty())
 			return;
 		Matcher m = WikiParser.ANCHOR_PARSER_ROUGH.matcher(focusString);
 		// TODO Just parsing anchors at the moment - not plain text
 		if (m.find()) {
 			String artTitle = m.group(1);
-			int artID = wmi.getArticleByTitle(artTitle);
+			int artID = resolver.getArticle(artTitle, wmi);
 			if (artID == -1)
 				return;
 
@@ -88,6 +95,21 @@ public class ListMiner extends WikipediaArticleMiningHeuristic {
 		}
 	}
 
+	/**
+	 * Notes the anchor a focus string would be resolved with, so they can all
+	 * be resolved together.
+	 *
+	 * @param focusString
+	 *            The focus string.
+	 * @param resolver
+	 *            The resolver to add the anchor to.
+	 */
+	private void addFocusAnchor(String focusString, AnchorResolver resolver) {
+		Matcher m = WikiParser.ANCHOR_PARSER_ROUGH.matcher(focusString);
+		if (m.find())
+			resolver.addTitle(m.group(1));
+	}
+
 	/**
 	 * Creates a single assertion for a known article, using the List Element
 	 * constant as the subject and the article as the object.
@@ -216,17 +238,18 @@ public class ListMiner extends WikipediaArticleMiningHeuristic {
 	protected void extractBulletInformation(int listArticle, String listTitle,
 			String markup, Collection<PartialAssertion> listAssertions,
 			MinedInformation info, WikipediaSocket wmi) throws Exception {
-		MultiMap<String, String> listItems = BulletListParser
-				.parseBulletList(markup);
-		// Iterate through the points
-		for (Map.Entry<String, Collection<String>> entry : listItems.entrySet()) {
-			if (entry.getKey().equalsIgnoreCase("references"))
-				continue;
-			for (String point : entry.getValue()) {
-				assignDataToAssertions(point, entry.getKey(), listTitle,
-						listAssertions, info, wmi);
+		final FocusBatch batch = new FocusBatch(listTitle, listAssertions,
+				info, wmi);
+		BulletListParser.parseBulletList(markup, new BulletHandler() {
+			@Override
+			public boolean point(String contextTitle, String point)
+					throws IOException {
+				if (!contextTitle.equalsIgnoreCase("references"))
+					batch.add(point, contextTitle);
+				return true;
 			}
-		}
+		});
+		batch.flush();
 	}
 
 	/**
@@ -245,21 +268,74 @@ public class ListMiner extends WikipediaArticleMiningHeuristic {
 	 *            The WMI access.
 	 * @throws IOException
 	 */
-	protected void extractTableInformation(int listArticle, String title,
+	protected void extractTableInformation(int listArticle, final String title,
 			String markup, Collection<PartialAssertion> listAssertions,
 			MinedInformation info, WikipediaSocket wmi) throws IOException {
-		Collection<WikiTable> tables = TableMiner.parseTable(markup);
-		for (WikiTable table : tables) {
-			MultiMap<String, String> colData = table.getTableData();
-
-			// Identify which column is the focus column
-			String focusColumn = findFocusColumn(colData, title);
-			Collection<String> focusConcepts = colData.get(focusColumn);
-			for (String focusConcept : focusConcepts) {
-				assignDataToAssertions(focusConcept, focusColumn, title,
-						listAssertions, info, wmi);
+		final FocusBatch batch = new FocusBatch(title, listAssertions, info,
+				wmi);
+		TableMiner.parseTable(markup, new TableHandler() {
+			/** The focus column, once decided. */
+			private String focusColumn_;
+			/** The header of the sampled rows. */
+			private String[] header_;
+			/** The first rows of the table, to decide the focus column. */
+			private List<String[]> sample_;
+
+			/**
+			 * Decides the focus column from the sampled rows, and adds the
+			 * sampled focus elements.
+			 *
+			 * @return True if there is a focus column.
+			 */
+			private boolean decideFocus() throws IOException {
+				focusColumn_ = findFocusColumn(header_, sample_, title);
+				if (focusColumn_ != null) {
+					for (String[] row : sample_)
+						addRow(header_, row);
+				}
+				sample_ = null;
+				return focusColumn_ != null;
 			}
-		}
+
+			private void addRow(String[] header, String[] row)
+					throws IOException {
+				for (int i = 0; i < header.length; i++) {
+					if (header[i].equals(focusColumn_))
+						batch.add((i >= row.length || row[i] == null) ? ""
+								: row[i], focusColumn_);
+				}
+			}
+
+			@Override
+			public boolean startTable(String contextTitle) {
+				focusColumn_ = null;
+				sample_ = new ArrayList<>();
+				return true;
+			}
+
+			@Override
+			public boolean row(String[] header, String[] row)
+					throws IOException {
+				if (sample_ == null) {
+					addRow(header, row);
+					return true;
+				}
+				header_ = header;
+				sample_.add(row);
+				// Skip the rest of the table if there is no focus
+				if (sample_.size() >= FOCUS_SAMPLE_ROWS)
+					return decideFocus();
+				return true;
+			}
+
+			@Override
+			public boolean endTable() throws IOException {
+				if (sample_ != null && !sample_.isEmpty())
+					decideFocus();
+				return true;
+			}
+		});
+		batch.flush();
 	}
 
 	@Override
@@ -338,9 +414,6 @@ public class ListMiner extends WikipediaArticleMiningHeuristic {
 
 	/**
 	 * Finds the focus column (the column containing the data of the list).
-	 * 
-	 * TODO This could be more hypothesis driven (i.e. test the data before
-	 * committing).
 	 *
 	 * @param colData
 	 *            The column data.
@@ -348,6 +421,25 @@ public class ListMiner extends WikipediaArticleMiningHeuristic {
 	 */
 	public String findFocusColumn(MultiMap<String, String> colData,
 			String listTitle) {
+		return findFocusColumn(
+				colData.keySet().toArray(new String[colData.size()]), null,
+				listTitle);
+	}
+
+	/**
+	 * Finds the focus column (the column containing the data of the list)
+	 * from the header, or failing that, from the first rows of the table.
+	 *
+	 * @param header
+	 *            The column headers.
+	 * @param sampleRows
+	 *            The first rows of the table (may be null).
+	 * @param listTitle
+	 *            The title of the list.
+	 * @return The most likely focus column or null.
+	 */
+	public String findFocusColumn(String[] header, List<String[]> sampleRows,
+			String listTitle) {
 		String stem = OpenNLP.stem(listTitle.replaceAll(LIST_OF_REGEX, ""))
 				.toLowerCase();
 
@@ -358,7 +450,8 @@ public class ListMiner extends WikipediaArticleMiningHeuristic {
 		int singleContained = -1;
 		int bestDist = Integer.MAX_VALUE;
 		int distIndex = 0;
-		String[] keys = colData.keySet().toArray(new String[colData.size()]);
+		String[] keys = new LinkedHashSet<>(Arrays.asList(header))
+				.toArray(new String[0]);
 		for (int i = 0; i < keys.length; i++) {
 			String colTitle = WikiParser.cleanAllMarkup(keys[i]).toLowerCase();
 			if (keys[i].toLowerCase().contains("name")) {
@@ -381,12 +474,28 @@ public class ListMiner extends WikipediaArticleMiningHeuristic {
 			}
 		}
 
-		if (singleNamed > 0)
+		if (singleNamed >= 0)
 			return keys[singleNamed];
-		else if (singleContained > 0)
+		else if (singleContained >= 0)
 			return keys[singleContained];
-		else
+		else if (sampleRows == null || sampleRows.isEmpty())
 			return null;
+
+		// Otherwise, the column most of the sampled rows link from
+		int[] anchorCounts = new int[header.length];
+		for (String[] row : sampleRows) {
+			for (int i = 0; i < header.length && i < row.length; i++)
+				if (row[i] != null
+						&& WikiParser.ANCHOR_PARSER.matcher(row[i]).find())
+					anchorCounts[i]++;
+		}
+		int best = 0;
+		for (int i = 1; i < anchorCounts.length; i++)
+			if (anchorCounts[i] > anchorCounts[best])
+				best = i;
+		if (anchorCounts[best] * 2 > sampleRows.size())
+			return header[best];
+		return null;
 	}
 
 	public static void main(String[] args) throws IOException {
@@ -420,4 +529,57 @@ public class ListMiner extends WikipediaArticleMiningHeuristic {
 			}
 		}
 	}
+
+	/**
+	 * The focus strings of a list awaiting assignment. Their anchors are
+	 * resolved together, a batch at a time, so long lists are never held in
+	 * full.
+	 */
+	private class FocusBatch {
+		private MinedInformation info_;
+		private Collection<PartialAssertion> listAssertions_;
+		private String listTitle_;
+		/** The focus strings and their contexts. */
+		private List<String[]> pending_;
+		private AnchorResolver resolver_;
+		private WikipediaSocket wmi_;
+
+		public FocusBatch(String listTitle,
+				Collection<PartialAssertion> listAssertions,
+				MinedInformation info, WikipediaSocket wmi) {
+			listTitle_ = listTitle;
+			listAssertions_ = listAssertions;
+			info_ = info;
+			wmi_ = wmi;
+			pending_ = new ArrayList<>();
+			resolver_ = new AnchorResolver();
+		}
+
+		/**
+		 * Adds a focus string, assigning the batch if it is full.
+		 *
+		 * @param focusString
+		 *            The focus string.
+		 * @param context
+		 *            The context of the string.
+		 */
+		public void add(String focusString, String context) throws IOException {
+			pending_.add(new String[] { focusString, context });
+			addFocusAnchor(focusString, resolver_);
+			if (pending_.size() >= ANCHOR_BATCH_SIZE)
+				flush();
+		}
+
+		/**
+		 * Resolves and assigns the pending focus strings.
+		 */
+		public void flush() throws IOException {
+			resolver_.resolve(wmi_);
+			for (String[] focus : pending_)
+				assignDataToAssertions(focus[0], focus[1], listTitle_,
+						listAssertions_, info_, resolver_, wmi_);
+			pending_.clear();
+			resolver_ = new AnchorResolver();
+		}
+	}
 }
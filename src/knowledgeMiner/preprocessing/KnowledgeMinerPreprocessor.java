@@ -22,6 +22,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -59,7 +60,8 @@ import cyc.OntologyConcept;
  * @author Sam Sarjant
  */
 public class KnowledgeMinerPreprocessor {
-	private static final File DIR_PATH = new File("precomputedHeuristics");
+	/** The directory precomputed (and other persisted) run data is kept in. */
+	public static final File DIR_PATH = new File("precomputedHeuristics");
 
 	private static KnowledgeMinerPreprocessor instance_;
 
@@ -495,7 +497,7 @@ public class KnowledgeMinerPreprocessor {
 		/** The name of the heuristic this result set is for. */
 		private String heuristicName_;
 
-		/** HashMap results by ID. */
+		/** Results by ID (read without the write lock). */
 		private Map<Integer, Object> resultMap_;
 
 		private Lock writeLock_;
@@ -505,7 +507,7 @@ public class KnowledgeMinerPreprocessor {
 		 */
 		public HeuristicResult(String heuristicName) {
 			heuristicName_ = heuristicName;
-			resultMap_ = new HashMap<>();
+			resultMap_ = new ConcurrentHashMap<>();
 			writeLock_ = new ReentrantLock();
 			changed_ = new HashSet<>();
 		}
@@ -550,8 +552,9 @@ public class KnowledgeMinerPreprocessor {
 		 */
 		public Object getLoadHeuristicResults(int index) {
 			// First attempt to load it
-			if (resultMap_.containsKey(index))
-				return resultMap_.get(index);
+			Object result = resultMap_.get(index);
+			if (result != null)
+				return result;
 			return loadResult(index);
 		}
 
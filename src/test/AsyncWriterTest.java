@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import io.AsyncWriter;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Test;
+
+public class AsyncWriterTest {
+	@Test
+	public void testConcurrentWrites() throws Exception {
+		File fileA = File.createTempFile("asyncA", ".txt");
+		File fileB = File.createTempFile("asyncB", ".txt");
+		fileA.deleteOnExit();
+		fileB.deleteOnExit();
+		int bufferSize = AsyncWriter.bufferSize_;
+		// A small buffer, so writers wait on a full buffer
+		AsyncWriter.bufferSize_ = 64;
+		final AsyncWriter writer = new AsyncWriter(false);
+		AsyncWriter.bufferSize_ = bufferSize;
+		final int streamA = writer.addStream(fileA);
+		final int streamB = writer.addStream(fileB);
+		writer.start();
+
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int id = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 5000; i++)
+						writer.write((i % 2 == 0) ? streamA : streamB, id
+								+ "\t" + i);
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		writer.sync();
+
+		// Durable once synced
+		List<String> linesA = Files.readAllLines(fileA.toPath(),
+				StandardCharsets.UTF_8);
+		List<String> linesB = Files.readAllLines(fileB.toPath(),
+				StandardCharsets.UTF_8);
+		assertEquals(10000, linesA.size());
+		assertEquals(10000, linesB.size());
+
+		// Each thread's records are in order
+		int[] last = new int[threads.length];
+		for (String line : linesA) {
+			String[] split = line.split("\t");
+			int t = Integer.parseInt(split[0]);
+			int i = Integer.parseInt(split[1]);
+			assertTrue(i > last[t] || (i == 0 && last[t] == 0));
+			last[t] = i;
+		}
+		writer.close();
+	}
+
+	@Test
+	public void testBadRecord() throws Exception {
+		ByteArrayOutputStream text = new ByteArrayOutputStream();
+		AsyncWriter writer = new AsyncWriter(false);
+		int stream = writer.addStream(text, false);
+		writer.start();
+		writer.write(stream, "Before");
+		writer.write(stream, null);
+		writer.write(stream, "After");
+		writer.close();
+
+		// The bad record is skipped, not the records after it
+		assertEquals("Before\nAfter\n", text.toString("UTF-8"));
+	}
+
+	@Test(timeout = 10000)
+	public void testDeadWriter() throws Exception {
+		int bufferSize = AsyncWriter.bufferSize_;
+		AsyncWriter.bufferSize_ = 4;
+		AsyncWriter writer = new AsyncWriter(false);
+		AsyncWriter.bufferSize_ = bufferSize;
+		int stream = writer.addStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+				throw new Error("Dead stream");
+			}
+		}, false);
+		writer.start();
+
+		// Writes fail once the buffer fills, rather than waiting forever
+		try {
+			for (int i = 0; i < 1000; i++) {
+				writer.write(stream, "Record " + i);
+				Thread.sleep(1);
+			}
+			fail("Should have thrown IllegalStateException.");
+		} catch (IllegalStateException e) {
+		}
+	}
+
+	@Test
+	public void testBinary() throws Exception {
+		File file = File.createTempFile("async", ".bin");
+		file.deleteOnExit();
+		ByteArrayOutputStream text = new ByteArrayOutputStream();
+		AsyncWriter writer = new AsyncWriter(true);
+		int stream = writer.addStream(file);
+		int textStream = writer.addStream(text, false, false);
+		writer.start();
+		writer.write(stream, "First\trecord");
+		writer.write(stream, "Multi\nline");
+		writer.write(textStream, "Text");
+		writer.close();
+
+		// Text streams are unaffected by the binary format
+		assertEquals("Text\n", text.toString("UTF-8"));
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)))) {
+			for (String expected : new String[] { "First\trecord",
+					"Multi\nline" }) {
+				byte[] bytes = new byte[in.readInt()];
+				in.readFully(bytes);
+				assertEquals(expected, new String(bytes, StandardCharsets.UTF_8));
+			}
+			assertEquals(-1, in.read());
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import io.ontology.ConceptDictionary;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ConceptDictionaryTest {
+	@After
+	public void tearDown() {
+		ConceptDictionary.getInstance().clear();
+	}
+
+	@Test
+	public void testRecordAndResolve() {
+		ConceptDictionary dictionary = ConceptDictionary.getInstance();
+		assertEquals(0, dictionary.getConceptID("Dog"));
+		assertNull(dictionary.getConceptName(12));
+
+		dictionary.recordConcept(12, "Dog");
+		dictionary.recordAlias("(DomesticatedFn Canine)", 12);
+		assertEquals(12, dictionary.getConceptID("Dog"));
+		assertEquals(12, dictionary.getConceptID("(DomesticatedFn Canine)"));
+		assertEquals("Dog", dictionary.getConceptName(12));
+		// Non-concepts are never recorded
+		dictionary.recordConcept(-1, "\"Dog\"");
+		assertEquals(0, dictionary.getConceptID("\"Dog\""));
+		assertEquals(1, dictionary.size());
+	}
+
+	@Test
+	public void testRemove() {
+		ConceptDictionary dictionary = ConceptDictionary.getInstance();
+		dictionary.recordConcept(12, "Dog");
+		dictionary.recordAlias("Doggy", 12);
+		dictionary.recordConcept(13, "Cat");
+
+		dictionary.removeConcept("Dog");
+		assertEquals(0, dictionary.getConceptID("Dog"));
+		assertEquals(0, dictionary.getConceptID("Doggy"));
+		assertNull(dictionary.getConceptName(12));
+		assertEquals(13, dictionary.getConceptID("Cat"));
+
+		dictionary.removeConcept("13");
+		assertNull(dictionary.getConceptName(13));
+		assertEquals(0, dictionary.getConceptID("Cat"));
+
+		// Recreated concepts are known again
+		dictionary.recordConcept(12, "Dog");
+		assertEquals(12, dictionary.getConceptID("Dog"));
+	}
+}
@@ -5,7 +5,9 @@ package test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
+import graph.core.CommonConcepts;
 import io.ResourceAccess;
+import io.ontology.DAGSocket;
 import io.ontology.OntologySocket;
 
 import org.junit.BeforeClass;
@@ -118,6 +120,64 @@ public class ConceptDistanceFunctionTest extends DistanceFunctionTest {
 		}
 	}
 
+	@Test
+	public void testLocalSearch() throws Exception {
+		// A small graph: A -> B -> C -> D, E -> C
+		DAGSocket cyc = (DAGSocket) ResourceAccess.requestOntologySocket();
+		String[] names = { "KMDistanceTestA", "KMDistanceTestB",
+				"KMDistanceTestC", "KMDistanceTestD", "KMDistanceTestE" };
+		OntologyConcept[] concepts = new OntologyConcept[names.length];
+		int isa = CommonConcepts.ISA.getID();
+		int genls = CommonConcepts.GENLS.getID();
+		for (int i = 0; i < names.length; i++) {
+			cyc.createConcept(names[i]);
+			cyc.assertToOntology(null, isa, names[i],
+					CommonConcepts.COLLECTION.getID());
+			concepts[i] = new OntologyConcept(names[i]);
+		}
+		int maxDepth = ConceptDistanceFunction.maxDepth_;
+		try {
+			cyc.assertToOntology(null, genls, names[0], names[1]);
+			cyc.assertToOntology(null, genls, names[1], names[2]);
+			cyc.assertToOntology(null, genls, names[2], names[3]);
+			cyc.assertToOntology(null, genls, names[4], names[2]);
+
+			// The local search agrees with the justified distances
+			for (OntologyConcept termA : concepts)
+				for (OntologyConcept collectionB : concepts) {
+					ConceptDistanceFunction.localSearch_ = false;
+					float justified = sut_.distance(termA, collectionB, cyc);
+					ConceptDistanceFunction.localSearch_ = true;
+					assertEquals(termA + " " + collectionB, justified,
+							sut_.distance(termA, collectionB, cyc), 0);
+				}
+			assertEquals(3, sut_.distance(concepts[0], concepts[3], cyc), 0);
+			assertEquals(-1, sut_.distance(concepts[0], concepts[4], cyc), 0);
+
+			// Paths longer than the maximum depth are not found
+			ConceptDistanceFunction.clearCache();
+			ConceptDistanceFunction.maxDepth_ = 2;
+			assertEquals(-1, sut_.distance(concepts[0], concepts[3], cyc), 0);
+			assertEquals(2, sut_.distance(concepts[4], concepts[3], cyc), 0);
+			ConceptDistanceFunction.maxDepth_ = maxDepth;
+
+			// Cached distances follow taxonomy changes
+			assertEquals(2, sut_.distance(concepts[0], concepts[2], cyc), 0);
+			int shortcut = cyc.assertToOntology(null, genls, names[0],
+					names[2]);
+			assertEquals(1, sut_.distance(concepts[0], concepts[2], cyc), 0);
+			assertEquals(2, sut_.distance(concepts[0], concepts[3], cyc), 0);
+			cyc.unassert(null, shortcut, true);
+			assertEquals(2, sut_.distance(concepts[0], concepts[2], cyc), 0);
+			assertEquals(3, sut_.distance(concepts[0], concepts[3], cyc), 0);
+		} finally {
+			ConceptDistanceFunction.localSearch_ = true;
+			ConceptDistanceFunction.maxDepth_ = maxDepth;
+			for (String name : names)
+				cyc.removeConcept(name);
+		}
+	}
+
 	@Override
 	protected DistanceFunction getDistanceFunction() {
 		return new ConceptDistanceFunction();
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import io.ontology.ConceptTypes;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConceptTypesTest {
+	@Before
+	public void setUp() {
+		ConceptTypes.getInstance().clear();
+	}
+
+	@Test
+	public void testIsa() {
+		ConceptTypes types = ConceptTypes.getInstance();
+		// Nothing loaded
+		assertNull(types.isa(12, "Collection"));
+
+		types.recordType("Collection", 2, Arrays.asList(12, 13));
+		types.recordType("Predicate", 3, Arrays.asList(14, 15));
+		types.recordType("BinaryPredicate", 4, Arrays.asList(15));
+		types.markKnown(20);
+
+		assertEquals(true, types.isa(12, "Collection"));
+		assertEquals(true, types.isa("13", 2));
+		assertEquals(false, types.isa(14, "Collection"));
+		assertEquals(true, types.isa(14, 3));
+		assertEquals(false, types.isa(14, "BinaryPredicate"));
+		assertEquals(true, types.isa("15", "4"));
+		assertEquals(false, types.isa(16, "Predicate"));
+
+		// Unrecorded types and concepts
+		assertNull(types.isa(12, "Individual"));
+		assertNull(types.isa(12, "Dog"));
+		assertNull(types.isa(21, "Collection"));
+		assertNull(types.isa("(FruitFn AppleTree)", "Collection"));
+	}
+
+	@Test
+	public void testUpdates() {
+		ConceptTypes types = ConceptTypes.getInstance();
+		types.recordType("Collection", 2, Arrays.asList(12, 13));
+		types.markKnown(20);
+
+		// Forgotten concepts are checked against the ontology
+		types.forget(12);
+		assertNull(types.isa(12, "Collection"));
+		assertEquals(true, types.isa(13, "Collection"));
+
+		// Removed concepts are instances of nothing
+		types.removeConcept("13");
+		assertEquals(false, types.isa(13, "Collection"));
+		types.removeConcept(30);
+		assertEquals(false, types.isa(30, "Collection"));
+	}
+
+	@Test
+	public void testEdgeChanges() {
+		ConceptTypes types = ConceptTypes.getInstance();
+		types.recordType("Collection", 2, Arrays.asList(12, 13));
+		types.recordType("Predicate", 3, Arrays.asList(14));
+		types.markKnown(20);
+
+		// Isa edges only change the instance
+		types.edgeAsserted("isa", 12, 2, null);
+		assertNull(types.isa(12, "Collection"));
+		assertEquals(true, types.isa(13, "Collection"));
+		types.edgeRemoved(new String[] { "isa", "13", "2" }, null);
+		assertNull(types.isa(13, "Collection"));
+		assertEquals(true, types.isa(14, "Predicate"));
+
+		// Other edges change nothing
+		types.edgeAsserted("comment", 14, "\"A predicate\"", null);
+		assertEquals(true, types.isa(14, "Predicate"));
+
+		// Genls edges may change the types of any instance
+		types.edgeAsserted("genls", 16, 17, null);
+		assertNull(types.isa(14, "Predicate"));
+		assertNull(types.isa(15, "Collection"));
+
+		types.clear();
+		types.recordType("Predicate", 3, Arrays.asList(14));
+		types.markKnown(20);
+		types.edgeRemoved(new String[] { "genls", "16", "17" }, null);
+		assertNull(types.isa(14, "Predicate"));
+	}
+}
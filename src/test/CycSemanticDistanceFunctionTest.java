@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import graph.core.CommonConcepts;
+import io.ResourceAccess;
+import io.ontology.DAGSocket;
+
+import org.junit.Test;
+
+import util.DistanceFunction;
+import cyc.CycSemanticDistanceFunction;
+import cyc.OntologyConcept;
+
+/**
+ *
+ * @author Sam Sarjant
+ */
+public class CycSemanticDistanceFunctionTest extends DistanceFunctionTest {
+	@Test
+	public void testClosureInvalidation() throws Exception {
+		DAGSocket cyc = (DAGSocket) ResourceAccess.requestOntologySocket();
+		String parent = "KMClosureTestParent";
+		String child = "KMClosureTestChild";
+		cyc.createConcept(parent);
+		cyc.createConcept(child);
+		try {
+			int isa = CommonConcepts.ISA.getID();
+			int genls = CommonConcepts.GENLS.getID();
+			int collection = CommonConcepts.COLLECTION.getID();
+			cyc.assertToOntology(null, isa, parent, collection);
+			cyc.assertToOntology(null, isa, child, collection);
+			cyc.assertToOntology(null, genls, child, parent);
+			cyc.assertToOntology(null, genls, parent, "Dog");
+
+			// Caches the closures of the child and Plant
+			CycSemanticDistanceFunction sut = new CycSemanticDistanceFunction();
+			OntologyConcept childConcept = new OntologyConcept(child);
+			OntologyConcept plant = new OntologyConcept("Plant");
+			float before = sut.distance(childConcept, plant, cyc);
+			assertEquals(before, sut.distance(childConcept, plant, cyc), 0);
+
+			// The child's closure contains the parent, so must be dropped
+			int edge = cyc.assertToOntology(null, genls, parent, "Plant");
+			float after = sut.distance(childConcept, plant, cyc);
+			assertTrue(before + ", " + after, after < before);
+
+			cyc.unassert(null, edge, true);
+			assertEquals(before, sut.distance(childConcept, plant, cyc), 0);
+		} finally {
+			cyc.removeConcept(child);
+			cyc.removeConcept(parent);
+		}
+	}
+
+	@Override
+	protected DistanceFunction getDistanceFunction() {
+		return new CycSemanticDistanceFunction();
+	}
+}
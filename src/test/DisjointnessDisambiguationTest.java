@@ -6,9 +6,11 @@ import io.ontology.OntologySocket;
 import io.resources.WikipediaSocket;
 
 import java.io.IOException;
+import java.util.HashSet;
 
 import knowledgeMiner.ConceptMiningTask;
 import knowledgeMiner.ConceptModule;
+import knowledgeMiner.DisjointnessDisambiguator;
 import knowledgeMiner.KnowledgeMiner;
 import knowledgeMiner.TermStanding;
 import knowledgeMiner.mining.MinedInformation;
@@ -83,6 +85,47 @@ public class DisjointnessDisambiguationTest {
 		assertTrue(cm.getDeletedAssertions().isEmpty());
 	}
 
+	@Test
+	public void testResumedSearch() throws Exception {
+		int horrorArticle = wmi_.getArticleByTitle("Horror film");
+		boolean incremental = DisjointnessDisambiguator.incremental_;
+		try {
+			DisjointnessDisambiguator.incremental_ = false;
+			DisjointnessDisambiguator full = disambiguate(horrorArticle);
+			assertFalse(full.isResumed());
+
+			// Record the chosen case, then resume from it
+			DisjointnessDisambiguator.incremental_ = true;
+			disambiguate(horrorArticle);
+			DisjointnessDisambiguator resumed = disambiguate(horrorArticle);
+			assertTrue(resumed.isResumed());
+
+			// The resumed search finds the same case as the full search
+			assertEquals(full.getConjointWeight(),
+					resumed.getConjointWeight(), 0);
+			assertEquals(full.isCollection(), resumed.isCollection());
+			assertEquals(new HashSet<>(full.getConsistentAssertions()),
+					new HashSet<>(resumed.getConsistentAssertions()));
+		} finally {
+			DisjointnessDisambiguator.incremental_ = incremental;
+		}
+	}
+
+	/**
+	 * Disambiguates the test information of an article.
+	 */
+	private DisjointnessDisambiguator disambiguate(int article)
+			throws Exception {
+		ConceptModule cm = new ConceptModule(new OntologyConcept(
+				"HorrorMovie"), article, 1, true);
+		cm.mergeInformation(createMinedInfo(article));
+		cm.getStanding().addStanding(null, TermStanding.COLLECTION, 2048);
+		DisjointnessDisambiguator dd = new DisjointnessDisambiguator(
+				cm.getAssertions(), cm.getMappableSelfRef(), cyc_, wmi_);
+		dd.findMaximalConjoint(cm, cyc_);
+		return dd;
+	}
+
 	private void addArticleMappings() throws Exception {
 		// Movie
 		OntologyConcept concept = new OntologyConcept("Movie-CW");
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import knowledgeMiner.TermStanding;
+import knowledgeMiner.mining.wikipedia.FirstSentenceMiner;
+import knowledgeMiner.mining.wikipedia.FirstSentencePatternMatcher;
+
+import org.junit.Test;
+
+public class FirstSentencePatternMatcherTest {
+	private static final String[] WORDS = { "'''", "'''Dog'''", "Dogs'''",
+			"'''The", "is", "was", "were", "are", "a", "an", "the", "one",
+			"of", "A", "An", "s", "[[cat]]", "[[big", "dog]]", "animal",
+			"Rex", "s'''", "''", "(born", "1900)", ",", "-", "x.y" };
+
+	private void assertEquivalent(String sentence) {
+		FirstSentencePatternMatcher.Result expected = FirstSentenceMiner
+				.matchRegExps(sentence);
+		FirstSentencePatternMatcher.Result actual = FirstSentencePatternMatcher
+				.match(sentence);
+		assertEquals(sentence, expected.getFragment(), actual.getFragment());
+		List<TermStanding> expectedStandings = new ArrayList<>(
+				expected.getStandings());
+		List<TermStanding> actualStandings = new ArrayList<>(
+				actual.getStandings());
+		Collections.sort(expectedStandings);
+		Collections.sort(actualStandings);
+		assertEquals(sentence, expectedStandings, actualStandings);
+	}
+
+	@Test
+	public void testKnownSentences() {
+		String[] sentences = {
+				"'''Fido''' is a dog",
+				"'''Fido''' is a [[dog]] owned by [[Sam]]",
+				"The '''dog''' (''Canis lupus familiaris'') is a domesticated canid",
+				"A '''dog''' is an animal that barks",
+				"An '''apple''' is a fruit",
+				"'''Fleas''' are the order [[Siphonaptera]]",
+				"'''Flea'''s are small flightless insects",
+				"'''Flea''' beetles are a group of beetles",
+				"'''Rex''' was one of the first dogs in space",
+				"'''Rex''' was a [[dog]] of the [[Soviet Union]]",
+				"'''Rex''' is a type of dog",
+				"'''The Beatles''' were an English rock band",
+				"The '''Beatles''' are a band",
+				"In music, the '''Beatles''' were a band",
+				"'''Bob''' (born 1900) is the mayor of the town",
+				"Something without bold is a thing",
+				"'''Unfinished",
+				"'''''Emphasis''''' is an album",
+				"'''A''' is '''B''' is a C",
+				"'''X''' is [[a]] thing" };
+		for (String sentence : sentences)
+			assertEquivalent(sentence);
+
+		assertEquals("domesticated canid",
+				FirstSentencePatternMatcher.match(sentences[2]).getFragment());
+		// The 'is a * of' pattern does not capture single word collections
+		assertNull(FirstSentencePatternMatcher.match(sentences[0])
+				.getFragment());
+	}
+
+	@Test
+	public void testRandomSentences() {
+		Random random = new Random(1);
+		for (int i = 0; i < 20000; i++) {
+			int length = 1 + random.nextInt(12);
+			StringBuilder builder = new StringBuilder();
+			for (int j = 0; j < length; j++) {
+				if (j > 0)
+					builder.append(random.nextInt(10) == 0 ? "" : " ");
+				builder.append(WORDS[random.nextInt(WORDS.length)]);
+			}
+			assertEquivalent(builder.toString());
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import knowledgeMiner.ConceptModule;
+import knowledgeMiner.InFlightRegistry;
+
+import org.junit.Test;
+
+import cyc.OntologyConcept;
+
+public class InFlightRegistryTest {
+	@Test
+	public void testClaimRelease() {
+		InFlightRegistry registry = InFlightRegistry.getInstance();
+		Object taskA = new Object();
+		Object taskB = new Object();
+		ConceptModule cm = new ConceptModule(new OntologyConcept("Dog", 1001),
+				2001, 1, true);
+		assertTrue(registry.claim(cm, taskA));
+		// Reclaiming is fine
+		assertTrue(registry.claim(cm, taskA));
+		assertFalse(registry.claim(cm, taskB));
+
+		// Sharing either the article or the concept conflicts
+		assertFalse(registry.claim(new ConceptModule(2001), taskB));
+		assertFalse(registry.claim(new ConceptModule(new OntologyConcept(
+				"Dog", 1001)), taskB));
+		// A failed claim does not hold the other half
+		ConceptModule partial = new ConceptModule(new OntologyConcept("Cat",
+				1002), 2001, 1, true);
+		assertFalse(registry.claim(partial, taskB));
+		assertTrue(registry.claim(new ConceptModule(new OntologyConcept("Cat",
+				1002)), taskA));
+
+		registry.releaseAll(taskA);
+		assertTrue(registry.claim(cm, taskB));
+		assertTrue(registry.claim(partial, taskB));
+		registry.releaseAll(taskB);
+	}
+
+	@Test
+	public void testReleaseModule() {
+		InFlightRegistry registry = InFlightRegistry.getInstance();
+		Object taskA = new Object();
+		Object taskB = new Object();
+		ConceptModule cm = new ConceptModule(new OntologyConcept("Cow", 1004),
+				2004, 1, true);
+		ConceptModule other = new ConceptModule(new OntologyConcept("Pig",
+				1005), 2005, 1, true);
+		assertTrue(registry.claim(cm, taskA));
+		assertTrue(registry.claim(other, taskA));
+
+		// Only the processed module is released
+		registry.release(cm, taskA);
+		assertTrue(registry.claim(cm, taskB));
+		assertFalse(registry.claim(other, taskB));
+		// Another owner cannot release the claims
+		registry.release(cm, taskA);
+		assertFalse(registry.claim(cm, taskA));
+
+		registry.releaseAll(taskA);
+		registry.releaseAll(taskB);
+	}
+
+	@Test
+	public void testMultiStepModule() throws InterruptedException {
+		final InFlightRegistry registry = InFlightRegistry.getInstance();
+		final Object taskA = new Object();
+		Object taskB = new Object();
+		final ConceptModule cm = new ConceptModule(new OntologyConcept(
+				"Sheep", 1006), 2006, 1, true);
+		final Collection<ConceptModule> queued = new ArrayList<>();
+		assertTrue(registry.claim(cm, taskA));
+
+		// An intermediate step requeues the module, so the claims are kept
+		queued.add(cm);
+		registry.release(cm, taskA, queued);
+		assertFalse(registry.claim(cm, taskB));
+		long maxWait = InFlightRegistry.maxWait_;
+		InFlightRegistry.maxWait_ = 50;
+		assertFalse(registry.awaitRelease(cm, taskB));
+		InFlightRegistry.maxWait_ = maxWait;
+
+		// A continuation of the article keeps only the article claimed
+		final ConceptModule mapped = new ConceptModule(new OntologyConcept("Ewe",
+				1007), 2006, 1, true);
+		assertTrue(registry.claim(mapped, taskA));
+		queued.clear();
+		queued.add(mapped);
+		registry.release(cm, taskA, queued);
+		assertTrue(registry.claim(new ConceptModule(new OntologyConcept(
+				"Sheep", 1006)), taskB));
+		assertFalse(registry.claim(new ConceptModule(2006), taskB));
+		registry.releaseAll(taskB);
+
+		// The waiter is only woken once the module is finished
+		Thread finisher = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+				}
+				queued.clear();
+				registry.release(mapped, taskA, queued);
+			}
+		};
+		finisher.start();
+		assertTrue(registry.awaitRelease(mapped, taskB));
+		assertTrue(registry.claim(mapped, taskB));
+		finisher.join();
+		registry.releaseAll(taskA);
+		registry.releaseAll(taskB);
+	}
+
+	@Test
+	public void testAwaitRelease() throws InterruptedException {
+		final InFlightRegistry registry = InFlightRegistry.getInstance();
+		final Object taskA = new Object();
+		Object taskB = new Object();
+		ConceptModule cm = new ConceptModule(new OntologyConcept("Horse",
+				1003), 2003, 1, true);
+		assertTrue(registry.claim(cm, taskA));
+
+		Thread releaser = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+				}
+				registry.releaseAll(taskA);
+			}
+		};
+		releaser.start();
+		assertTrue(registry.awaitRelease(cm, taskB));
+		assertTrue(registry.claim(cm, taskB));
+
+		// Timed out waits
+		long maxWait = InFlightRegistry.maxWait_;
+		InFlightRegistry.maxWait_ = 50;
+		assertFalse(registry.awaitRelease(cm, taskA));
+		InFlightRegistry.maxWait_ = maxWait;
+		registry.releaseAll(taskB);
+	}
+}
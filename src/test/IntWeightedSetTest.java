@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import util.IntWeightedSet;
+
+public class IntWeightedSetTest {
+	@Test
+	public void testAddAndOrder() {
+		IntWeightedSet set = new IntWeightedSet();
+		set.add(5, 0.5);
+		set.add(3, 0.25);
+		set.add(5, 0.25);
+		set.add(9, 0.75);
+		assertEquals(3, set.size());
+		assertEquals(0.75, set.getWeight(5), 0);
+		assertEquals(0, set.getWeight(4), 0);
+		// Ties broken by lowest element
+		assertArrayEquals(new int[] { 5, 9, 3 }, set.getOrdered());
+
+		set.setMax(3, 0.1);
+		assertEquals(0.25, set.getWeight(3), 0);
+		set.setMax(3, 1);
+		assertArrayEquals(new int[] { 3, 5, 9 }, set.getOrdered());
+	}
+
+	@Test
+	public void testGrowAndRemove() {
+		IntWeightedSet set = new IntWeightedSet();
+		for (int i = 0; i < 1000; i++)
+			set.set(i * 31, i);
+		assertEquals(1000, set.size());
+		for (int i = 0; i < 1000; i += 2)
+			assertTrue(set.remove(i * 31));
+		assertFalse(set.remove(0));
+		assertEquals(500, set.size());
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i % 2 == 1, set.contains(i * 31));
+			if (i % 2 == 1)
+				assertEquals(i, set.getWeight(i * 31), 0);
+		}
+	}
+
+	@Test
+	public void testAggregation() {
+		IntWeightedSet a = new IntWeightedSet();
+		a.set(1, 1);
+		a.set(2, 2);
+		IntWeightedSet b = new IntWeightedSet();
+		b.set(2, 1);
+		b.set(3, 4);
+
+		IntWeightedSet additive = new IntWeightedSet(a);
+		additive.addAll(b, 0.5);
+		assertEquals(2.5, additive.getWeight(2), 0);
+		assertEquals(2, additive.getWeight(3), 0);
+		// The copy is independent
+		assertEquals(2, a.getWeight(2), 0);
+
+		IntWeightedSet maximum = new IntWeightedSet(a);
+		maximum.maxAll(b);
+		assertEquals(2, maximum.getWeight(2), 0);
+		assertEquals(4, maximum.getWeight(3), 0);
+
+		maximum.scaleAll(0.5);
+		assertEquals(3.5, maximum.getTotalWeight(), 0);
+	}
+
+	@Test
+	public void testNormalise() {
+		IntWeightedSet set = new IntWeightedSet();
+		set.set(1, 6);
+		set.set(2, 3.95);
+		set.set(3, 0.05);
+		set.normaliseWeightTo1(0.01);
+		assertEquals(0.6, set.getWeight(1), 1e-9);
+		assertFalse(set.contains(3));
+		assertEquals(2, set.size());
+		assertArrayEquals(new int[] { 1, 2 }, set.getOrdered());
+		assertEquals(set, new IntWeightedSet(set));
+	}
+}
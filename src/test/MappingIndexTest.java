@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import knowledgeMiner.MappingIndex;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class MappingIndexTest {
+	@After
+	public void tearDown() {
+		MappingIndex.getInstance().clear();
+	}
+
+	@Test
+	public void testRecordMapping() {
+		MappingIndex index = MappingIndex.getInstance();
+		assertFalse(index.isComplete());
+		assertEquals(MappingIndex.NO_MAPPING, index.getConcept(100));
+
+		index.recordMapping(100, 7);
+		assertEquals(7, index.getConcept(100));
+		assertEquals(100, index.getArticle(7));
+
+		// Remapping a concept releases its old article
+		index.recordMapping(200, 7);
+		assertEquals(200, index.getArticle(7));
+		assertEquals(7, index.getConcept(200));
+		assertEquals(MappingIndex.NO_MAPPING, index.getConcept(100));
+		assertEquals(1, index.size());
+
+		// Remapping an article releases its old concept
+		index.recordMapping(200, 9);
+		assertEquals(9, index.getConcept(200));
+		assertEquals(200, index.getArticle(9));
+		assertEquals(MappingIndex.NO_MAPPING, index.getArticle(7));
+		assertEquals(1, index.size());
+
+		index.recordMapping(200, 7);
+		index.removeConcept(7);
+		assertEquals(MappingIndex.NO_MAPPING, index.getArticle(7));
+		assertEquals(MappingIndex.NO_MAPPING, index.getConcept(200));
+	}
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import util.wikipedia.MarkupView;
+import util.wikipedia.WikiParser;
+
+public class MarkupViewTest {
+	@Test
+	public void testSlicing() {
+		String markup = "==Heading==\nSome [[text]] here.";
+		MarkupView view = new MarkupView(markup, 12, markup.length());
+		assertEquals(19, view.length());
+		assertEquals('S', view.charAt(0));
+		assertEquals("Some [[text]] here.", view.toString());
+
+		MarkupView slice = view.subSequence(5, 13);
+		assertEquals("[[text]]", slice.toString());
+		assertEquals("text", slice.substring(2, 6));
+		assertTrue(slice.startsWith("[[", 0));
+		assertFalse(slice.startsWith("]]", 7));
+		assertEquals(6, slice.indexOf(']', 0));
+		assertEquals(-1, slice.indexOf('S', 0));
+	}
+
+	@Test
+	public void testBrackets() {
+		MarkupView view = new MarkupView("a \\( (b (c) d) e)");
+		int open = view.findOpenBracket(0, '(');
+		assertEquals(5, open);
+		assertEquals(13, view.matchBracket(open, '(', ')'));
+		assertEquals(-1, view.matchBracket(view.findOpenBracket(6, '('), '(',
+				'['));
+		assertEquals(-1, view.findOpenBracket(0, '{'));
+	}
+
+	@Test
+	public void testDelimit() throws Exception {
+		MarkupView view = new MarkupView("a (b, c), d, e");
+		String[] comma = { ", " };
+		assertEquals(10, view.delimit(0, comma, null,
+				WikiParser.ALL_DELIMITERS));
+		assertEquals(13, view.delimit(10, comma, null,
+				WikiParser.ALL_DELIMITERS));
+		assertEquals(view.length(), view.delimit(13, comma, null,
+				WikiParser.ALL_DELIMITERS));
+		assertEquals(6, view.delimit(0, comma, null, new String[0][]));
+	}
+}
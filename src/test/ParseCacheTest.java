@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import util.text.ParseCache;
+
+public class ParseCacheTest {
+	private File cacheDir_;
+
+	@Before
+	public void setUp() throws Exception {
+		cacheDir_ = ParseCache.cacheDir_;
+		ParseCache.cacheDir_ = Files.createTempDirectory("parseCache")
+				.toFile();
+	}
+
+	@After
+	public void tearDown() {
+		delete(ParseCache.cacheDir_);
+		ParseCache.cacheDir_ = cacheDir_;
+	}
+
+	private void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null)
+			for (File child : children)
+				delete(child);
+		file.delete();
+	}
+
+	@Test
+	public void testNormalise() {
+		assertEquals("A dog is an animal.",
+				ParseCache.normalise("  A dog  is\tan\nanimal. "));
+	}
+
+	@Test
+	public void testPutGet() {
+		String version = "test:" + System.nanoTime();
+		ParseCache cache = ParseCache.getInstance(version);
+		assertEquals(0, cache.size());
+		assertNull(cache.get("A dog is an animal."));
+
+		String parse = "(ROOT (S (NP (DT A) (NN dog)) (VP (VBZ is) "
+				+ "(NP (DT an) (NN animal))) (. .)))";
+		cache.put("A dog is an animal.", parse);
+		assertEquals(parse, cache.get("A dog is an animal."));
+		assertEquals(parse, cache.get(" A dog  is an animal."));
+		assertNull(cache.get("A cat is an animal."));
+		assertEquals(1, cache.size());
+
+		// Re-putting the same sentence does not store it again
+		cache.put("A dog is  an animal.", parse);
+		assertEquals(1, cache.size());
+
+		// Other versions do not share parses
+		assertNull(ParseCache.getInstance(version + "b").get(
+				"A dog is an animal."));
+
+		cache.flush();
+		File dir = new File(ParseCache.cacheDir_,
+				Integer.toHexString(version.hashCode()));
+		assertTrue(new File(dir, "segment0.dat").length() > 0);
+	}
+}
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import io.PrefetchCache;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class PrefetchCacheTest {
+	@Test
+	public void testPutGet() {
+		PrefetchCache cache = new PrefetchCache(60000, 1024 * 1024);
+		assertNull(cache.get("markup", "12"));
+		cache.put("markup", "12", "Some markup");
+		cache.put("categories", "12", Arrays.asList(1, 2, 3));
+		assertEquals("Some markup", cache.get("markup", "12"));
+		assertEquals(Arrays.asList(1, 2, 3), cache.get("categories", "12"));
+		assertNull(cache.get("markup", "13"));
+
+		// Null results are not stored
+		cache.put("markup", "13", null);
+		assertEquals(2, cache.size());
+
+		cache.put("markup", "12", "Other markup");
+		assertEquals("Other markup", cache.get("markup", "12"));
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void testExpiry() throws InterruptedException {
+		PrefetchCache cache = new PrefetchCache(50, 1024 * 1024);
+		cache.put("markup", "12", "Some markup");
+		assertEquals("Some markup", cache.get("markup", "12"));
+		Thread.sleep(100);
+		assertNull(cache.get("markup", "12"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testMemoryCap() {
+		long entrySize = PrefetchCache.estimateSize("0123456789");
+		PrefetchCache cache = new PrefetchCache(60000, 3 * entrySize);
+		cache.put("markup", "1", "0123456789");
+		cache.put("markup", "2", "0123456789");
+		cache.put("markup", "3", "0123456789");
+		assertEquals(3, cache.size());
+
+		// The oldest result is evicted
+		cache.put("markup", "4", "0123456789");
+		assertEquals(3, cache.size());
+		assertNull(cache.get("markup", "1"));
+		assertEquals("0123456789", cache.get("markup", "4"));
+
+		// A larger result evicts as many as necessary
+		cache.put("markup", "5", "01234567890123456789");
+		assertEquals(2, cache.size());
+		assertNull(cache.get("markup", "3"));
+	}
+}
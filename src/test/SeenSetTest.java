@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import io.SeenSet;
+
+import java.io.File;
+
+import org.junit.Test;
+
+public class SeenSetTest {
+	@Test
+	public void testAdd() {
+		SeenSet set = new SeenSet(1000);
+		assertTrue(set.add(0));
+		assertTrue(set.add(63));
+		assertTrue(set.add(64));
+		assertFalse(set.add(63));
+		assertTrue(set.contains(64));
+		assertFalse(set.contains(65));
+
+		// Beyond the capacity
+		assertTrue(set.add(5000000));
+		assertFalse(set.add(5000000));
+		assertTrue(set.contains(5000000));
+	}
+
+	@Test
+	public void testSaveLoad() throws Exception {
+		File file = File.createTempFile("seen", ".seen");
+		file.deleteOnExit();
+		SeenSet set = new SeenSet(1000);
+		set.add(12);
+		set.add(999);
+		set.add(123456);
+		set.save(file);
+
+		SeenSet loaded = new SeenSet(100000);
+		loaded.load(file);
+		assertTrue(loaded.contains(12));
+		assertTrue(loaded.contains(999));
+		assertTrue(loaded.contains(123456));
+		assertFalse(loaded.contains(13));
+		assertFalse(loaded.add(999));
+	}
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import graph.inference.CommonQuery;
+import io.ontology.ConceptDictionary;
+import io.ontology.TaxonomyReplica;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TaxonomyReplicaTest {
+	private static final String[] NAMES = { "Thing", "Animal", "Dog",
+			"Plant", "Fido", "Collection", "Rock" };
+
+	private TaxonomyReplica replica_;
+
+	@Before
+	public void setUp() throws Exception {
+		ConceptDictionary dictionary = ConceptDictionary.getInstance();
+		for (int i = 0; i < NAMES.length; i++)
+			dictionary.recordConcept(100 + i, NAMES[i]);
+
+		File dump = File.createTempFile("taxonomy", ".txt");
+		dump.deleteOnExit();
+		BufferedWriter out = new BufferedWriter(new FileWriter(dump));
+		out.write("$0$=addnode Dog\n");
+		out.write("$0$=addedge (genls Animal Thing)\n");
+		out.write("$0$=addedge (genls Dog Animal)\n");
+		out.write("$0$=addedge (genls Plant Thing)\n");
+		out.write("$0$=addedge (isa Fido Dog)\n");
+		out.write("$0$=addedge (isa Dog Collection)\n");
+		out.write("$0$=addedge (disjointWith Animal Plant)\n");
+		out.write("$0$=addedge (comment Dog \"A dog\")\n");
+		out.close();
+
+		TaxonomyReplica.enabled_ = true;
+		replica_ = TaxonomyReplica.getInstance();
+		replica_.clear();
+		assertEquals(6, replica_.load(dump));
+	}
+
+	@After
+	public void tearDown() {
+		replica_.clear();
+		TaxonomyReplica.enabled_ = false;
+	}
+
+	@Test
+	public void testQueries() {
+		assertTrue(replica_.evaluate("genls", "Dog", "Thing"));
+		assertTrue(replica_.evaluate("genls", "Dog", "Dog"));
+		assertFalse(replica_.evaluate("genls", "Dog", "Plant"));
+		assertTrue(replica_.evaluate("isa", "Fido", "Animal"));
+		assertFalse(replica_.evaluate("isa", "Fido", "Plant"));
+		assertTrue(replica_.evaluate("disjointWith", "Dog", "Plant"));
+
+		// Unknown to the replica
+		assertNull(replica_.evaluate("genls", "Thing", "Dog"));
+		assertNull(replica_.evaluate("isa", "Rock", "Animal"));
+		assertNull(replica_.evaluate("disjointWith", "Dog", "Fido"));
+		assertNull(replica_.evaluate("comment", "Dog", "Dog"));
+
+		assertEquals(3, replica_.quickQuery(CommonQuery.ALLGENLS, "Dog")
+				.size());
+		assertEquals(3, replica_.quickQuery(CommonQuery.ALLISA, "Fido")
+				.size());
+	}
+
+	@Test
+	public void testUpdates() {
+		// Cache the closures, then extend them
+		assertFalse(replica_.evaluate("genls", "Dog", "Rock"));
+		replica_.edgeAsserted("genls", "Thing", "Rock");
+		assertTrue(replica_.evaluate("genls", "Dog", "Rock"));
+		assertTrue(replica_.evaluate("isa", "Fido", "Rock"));
+
+		replica_.edgeRemoved(new String[] { "genls", "Animal", "Thing" });
+		assertFalse(replica_.evaluate("genls", "Dog", "Rock"));
+		assertTrue(replica_.evaluate("genls", "Plant", "Rock"));
+
+		replica_.removeConcept("Animal");
+		assertNull(replica_.evaluate("genls", "Dog", "Animal"));
+	}
+
+	@Test
+	public void testUnresolvedLoad() throws Exception {
+		File dump = File.createTempFile("taxonomy", ".txt");
+		dump.deleteOnExit();
+		BufferedWriter out = new BufferedWriter(new FileWriter(dump));
+		out.write("$0$=addedge (genls UnknownA UnknownB)\n");
+		out.write("$0$=addedge (isa UnknownC UnknownA)\n");
+		out.close();
+
+		// Nothing resolves, so the replica must not claim to be loaded
+		replica_.clear();
+		assertEquals(0, replica_.load(dump));
+		assertFalse(replica_.isLoaded());
+		assertNull(replica_.evaluate("genls", "UnknownA", "UnknownB"));
+	}
+}
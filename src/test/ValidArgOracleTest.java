@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import io.ontology.ValidArgOracle;
+
+import org.junit.Test;
+
+public class ValidArgOracleTest {
+	@Test
+	public void testRecord() {
+		ValidArgOracle oracle = ValidArgOracle.getInstance();
+		oracle.clear();
+		assertNull(oracle.get("birthDate", 1, "BarackObama"));
+		oracle.record("birthDate", 1, "BarackObama", true);
+		oracle.record("birthDate", 2, "BarackObama", false);
+		assertEquals(true, oracle.get("birthDate", 1, "BarackObama"));
+		assertEquals(false, oracle.get("birthDate", 2, "BarackObama"));
+		assertNull(oracle.get("birthDate", 1, "Dog"));
+
+		// Forgetting a concept only forgets its validities
+		oracle.record("birthDate", 1, "Dog", false);
+		oracle.forget("Dog");
+		assertNull(oracle.get("birthDate", 1, "Dog"));
+		assertEquals(true, oracle.get("birthDate", 1, "BarackObama"));
+
+		oracle.clear();
+		assertNull(oracle.get("birthDate", 1, "BarackObama"));
+	}
+
+	@Test
+	public void testEdgeChanged() {
+		ValidArgOracle oracle = ValidArgOracle.getInstance();
+		oracle.clear();
+		oracle.record("birthDate", 1, "BarackObama", true);
+		oracle.record("birthDate", 1, "Dog", false);
+
+		// An isa edge only changes its first argument
+		oracle.edgeChanged("isa", "Dog");
+		assertNull(oracle.get("birthDate", 1, "Dog"));
+		assertEquals(true, oracle.get("birthDate", 1, "BarackObama"));
+
+		// Other edges do not affect validity
+		oracle.edgeChanged("comment", "BarackObama");
+		assertEquals(true, oracle.get("birthDate", 1, "BarackObama"));
+
+		// Genls edges change the types of instances and specs
+		oracle.edgeChanged("genls", "UnitedStatesPresident");
+		assertNull(oracle.get("birthDate", 1, "BarackObama"));
+
+		// Argument constraints change the validity of every argument
+		oracle.record("birthDate", 1, "BarackObama", true);
+		oracle.edgeChanged("arg1Isa", "birthDate");
+		assertNull(oracle.get("birthDate", 1, "BarackObama"));
+		oracle.record("birthDate", 1, "BarackObama", true);
+		oracle.edgeChanged("argGenl", "birthDate");
+		assertNull(oracle.get("birthDate", 1, "BarackObama"));
+	}
+}
@@ -14,17 +14,17 @@ import io.resources.WikipediaSocket;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.SortedSet;
 
 import knowledgeMiner.KnowledgeMiner;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
 
-import util.collection.WeightedSet;
+import util.IntWeightedSet;
 import util.wikipedia.InfoboxData;
 
 public class WMIAccessTest {
@@ -304,21 +304,21 @@ public class WMIAccessTest {
 
 	@Test
 	public void testGetWeightedArticles() throws IOException {
-		WeightedSet<Integer> weighted = wmi_.getWeightedArticles("Kiwi");
+		IntWeightedSet weighted = wmi_.getWeightedArticles("Kiwi");
 		assertEquals(weighted.size(), 14);
-		SortedSet<Integer> ordered = weighted.getOrdered();
-		assertTrue(ordered.first() == wmi_.getArticleByTitle("Kiwi"));
+		int[] ordered = weighted.getOrdered();
+		assertTrue(ordered[0] == wmi_.getArticleByTitle("Kiwi"));
 
 		// Context-weighted articles
 		// Country weighted
 		Collection<Integer> context = new ArrayList<>();
 		context.add(wmi_.getArticleByTitle("Country"));
 		context.add(wmi_.getArticleByTitle("People"));
-		WeightedSet<Integer> contextWeighted = wmi_.getWeightedArticles("Kiwi",
+		IntWeightedSet contextWeighted = wmi_.getWeightedArticles("Kiwi",
 				KnowledgeMiner.CUTOFF_THRESHOLD, context);
 		assertEquals(contextWeighted.size(), 14);
-		SortedSet<Integer> contextOrdered = contextWeighted.getOrdered();
-		assertTrue(!contextOrdered.equals(ordered));
+		int[] contextOrdered = contextWeighted.getOrdered();
+		assertTrue(!Arrays.equals(contextOrdered, ordered));
 		// assertTrue(contextOrdered.get(0) == wmi_
 		// .getArticleByTitle("New Zealanders"));
 
@@ -329,7 +329,7 @@ public class WMIAccessTest {
 				KnowledgeMiner.CUTOFF_THRESHOLD, context);
 		assertEquals(contextWeighted.size(), 14);
 		contextOrdered = contextWeighted.getOrdered();
-		assertTrue(!contextOrdered.equals(ordered));
+		assertTrue(!Arrays.equals(contextOrdered, ordered));
 		// assertTrue(contextOrdered.get(0) ==
 		// wmi_.getArticleByTitle("Kiwifruit"));
 
@@ -340,7 +340,7 @@ public class WMIAccessTest {
 				KnowledgeMiner.CUTOFF_THRESHOLD, context);
 		assertEquals(contextWeighted.size(), 14);
 		contextOrdered = contextWeighted.getOrdered();
-		assertTrue(!contextOrdered.equals(ordered));
+		assertTrue(!Arrays.equals(contextOrdered, ordered));
 		// assertTrue(contextOrdered.get(0) == wmi_
 		// .getArticleByTitle("New Zealand national rugby league team"));
 	}
@@ -365,7 +365,7 @@ public class WMIAccessTest {
 	@Test
 	public void testGetTopics() throws IOException {
 		// Single topic
-		WeightedSet<Integer> topics = wmi_.getTopics("cat", null);
+		IntWeightedSet topics = wmi_.getTopics("cat", null);
 		assertEquals(topics.size(), 1);
 		int art = wmi_.getArticleByTitle("Cat");
 		assertTrue(topics.contains(art));
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package test;
+
+import static org.junit.Assert.assertEquals;
+import io.resources.WMIAccess;
+import io.resources.WMISocket;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class WMIFramingTest {
+	private static final String MARKUP = "{{Infobox animal\n| name = Flea\n}}\n"
+			+ "'''Flea''' is the common name for the order "
+			+ "[[Siphonaptera]].\n\n== Morphology ==\nSmall and flightless.";
+
+	private static final String NON_ASCII_MARKUP = "'''Fl\u00F6h''' (\u8DF3\u86A4) \u2013 "
+			+ "an insect \uD83D\uDC1C.\n== Etymology ==\n\u00C6";
+
+	private WMIStandInServer server_;
+
+	@After
+	public void tearDown() throws Exception {
+		if (server_ != null)
+			server_.close();
+	}
+
+	private WMISocket connect(boolean supportsFraming) throws Exception {
+		server_ = new WMIStandInServer(supportsFraming);
+		server_.addMarkup(1, MARKUP);
+		server_.addMarkup(2, NON_ASCII_MARKUP);
+		server_.start();
+		WMIAccess access = new WMIAccess(server_.getPort());
+		return (WMISocket) access.requestSocket();
+	}
+
+	@Test
+	public void testFramedMarkup() throws Exception {
+		WMISocket wmi = connect(true);
+		int setupCommands = server_.getCommands().size();
+
+		assertEquals(MARKUP, wmi.getMarkup(1));
+		assertEquals(MARKUP, wmi.getMarkup(1));
+		// Only the markup commands themselves, no mode toggles
+		assertEquals(setupCommands + 2, server_.getCommands().size());
+	}
+
+	@Test
+	public void testFramedNonAscii() throws Exception {
+		WMISocket wmi = connect(true);
+
+		// Frames are measured in bytes
+		assertEquals(NON_ASCII_MARKUP, wmi.getMarkup(2));
+		assertEquals(MARKUP, wmi.getMarkup(1));
+	}
+
+	@Test
+	public void testUnframedFallback() throws Exception {
+		WMISocket wmi = connect(false);
+
+		// Framing is requested again until it repeatedly fails
+		for (int i = 1; i < WMISocket.maxFrameMismatches_; i++) {
+			assertEquals(MARKUP, wmi.getMarkup(1));
+			List<String> commands = server_.getCommands();
+			assertEquals("set /env/framed true",
+					commands.get(commands.size() - 1));
+		}
+		assertEquals(MARKUP, wmi.getMarkup(1));
+		int afterFallback = server_.getCommands().size();
+
+		// Subsequent calls use the mode toggles directly
+		assertEquals(MARKUP, wmi.getMarkup(1));
+		assertEquals(afterFallback + 5, server_.getCommands().size());
+	}
+}
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal local stand-in for the WMI console, serving fixed markup. It
+ * understands the environment variables KnowledgeMiner toggles (singleline,
+ * endmessage and framed) and records every command it receives so tests can
+ * count round trips.
+ *
+ * @author Sam Sarjant
+ */
+public class WMIStandInServer implements Runnable {
+	/** The commands received, in order. */
+	private List<String> commands_;
+
+	/** The markup to serve, indexed by article ID. */
+	private Map<Integer, String> markup_;
+
+	/** The server socket. */
+	private ServerSocket serverSocket_;
+
+	/** If the server supports framed responses. */
+	private boolean supportsFraming_;
+
+	/**
+	 * Constructor for a new stand-in server on an ephemeral port.
+	 *
+	 * @param supportsFraming
+	 *            If the server honours the /env/framed variable.
+	 */
+	public WMIStandInServer(boolean supportsFraming) throws IOException {
+		supportsFraming_ = supportsFraming;
+		serverSocket_ = new ServerSocket(0);
+		markup_ = new HashMap<>();
+		commands_ = Collections.synchronizedList(new ArrayList<String>());
+	}
+
+	/**
+	 * Handles a single client connection until it closes.
+	 *
+	 * @param client
+	 *            The client socket.
+	 */
+	private void handle(Socket client) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				client.getInputStream(), "UTF-8"));
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(
+				client.getOutputStream(), "UTF-8"), true);
+		boolean singleline = true;
+		boolean framed = false;
+		String endMessage = "";
+
+		String line = null;
+		while ((line = in.readLine()) != null) {
+			commands_.add(line);
+			String response = null;
+			if (line.startsWith("set ")) {
+				String[] split = line.split(" ", 3);
+				String value = (split.length > 2) ? split[2] : "";
+				if (split[1].equals("/env/singleline"))
+					singleline = Boolean.parseBoolean(value);
+				else if (split[1].equals("/env/endmessage"))
+					endMessage = value;
+				else if (split[1].equals("/env/framed") && supportsFraming_)
+					framed = Boolean.parseBoolean(value);
+				response = split[1] + " = " + value;
+			} else if (line.startsWith("markup ")) {
+				String markup = markup_.get(Integer.parseInt(line.substring(7)
+						.trim()));
+				response = (markup == null) ? "" : markup;
+			} else
+				response = "Unknown command: " + line;
+
+			if (framed && line.startsWith("markup "))
+				out.print("#" + response.getBytes("UTF-8").length + "\n"
+						+ response + "\n");
+			else if (singleline)
+				out.print(response.replaceAll("\n", " ") + "\n");
+			else
+				out.print(response + "\n" + endMessage + "\n");
+			out.flush();
+		}
+		client.close();
+	}
+
+	/**
+	 * Adds markup to be served for an article.
+	 *
+	 * @param article
+	 *            The article ID.
+	 * @param markup
+	 *            The markup of the article.
+	 */
+	public void addMarkup(int article, String markup) {
+		markup_.put(article, markup);
+	}
+
+	public void close() throws IOException {
+		serverSocket_.close();
+	}
+
+	public List<String> getCommands() {
+		return commands_;
+	}
+
+	public int getPort() {
+		return serverSocket_.getLocalPort();
+	}
+
+	@Override
+	public void run() {
+		while (!serverSocket_.isClosed()) {
+			try {
+				final Socket client = serverSocket_.accept();
+				Thread handler = new Thread(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							handle(client);
+						} catch (IOException e) {
+						}
+					}
+				});
+				handler.setDaemon(true);
+				handler.start();
+			} catch (IOException e) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Starts the server on a daemon thread.
+	 */
+	public void start() {
+		Thread thread = new Thread(this);
+		thread.setDaemon(true);
+		thread.start();
+	}
+}
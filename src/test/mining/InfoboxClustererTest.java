@@ -0,0 +1,56 @@
+package test.mining;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import knowledgeMiner.mining.wikipedia.InfoboxClusterer;
+
+import org.junit.Test;
+
+public class InfoboxClustererTest {
+	@Test
+	public void testConcurrentCounts() throws Exception {
+		final InfoboxClusterer sut = new InfoboxClusterer(null, null);
+
+		// 570 of 600 children share an infobox: exactly the voting threshold,
+		// so a single lost count loses the majority
+		Thread[] threads = new Thread[6];
+		for (int t = 0; t < threads.length; t++) {
+			final int id = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < 100; i++) {
+							String infobox = (i < 5) ? "Infobox place"
+									: "Infobox person";
+							sut.noteInfoboxChild(null, infobox, 1, true);
+							// Another parent in the same stripe
+							sut.noteInfoboxChild(null, "Infobox place", 17,
+									true);
+							// Parents in other stripes
+							sut.noteInfoboxChild(null, "Infobox place", 2 + id,
+									true);
+						}
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+
+		assertTrue(sut.noteInfoboxChild(null, "Infobox person", 1, false));
+		assertFalse(sut.noteInfoboxChild(null, "Infobox place", 1, false));
+
+		// Parents sharing a stripe do not share counts
+		assertTrue(sut.noteInfoboxChild(null, "Infobox place", 17, false));
+		assertFalse(sut.noteInfoboxChild(null, "Infobox person", 17, false));
+		assertTrue(sut.noteInfoboxChild(null, "Infobox place", 7, false));
+
+		// Too few examples to cluster
+		assertFalse(sut.noteInfoboxChild(null, "Infobox person", 100, false));
+	}
+}
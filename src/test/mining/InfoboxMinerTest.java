@@ -0,0 +1,112 @@
+package test.mining;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import io.ontology.OntologySocket;
+import io.resources.WikipediaSocket;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import knowledgeMiner.TermStanding;
+import knowledgeMiner.mining.MinedInformation;
+import knowledgeMiner.mining.WeightedStanding;
+import knowledgeMiner.mining.wikipedia.InfoboxMiner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InfoboxMinerTest {
+	private static final String[] INFOBOXES = { "Infobox person",
+			"Infobox taxon", "Infobox settlement" };
+
+	private int compactionInterval_;
+	private File dir_;
+	private File mappings_;
+
+	@Before
+	public void setUp() throws Exception {
+		compactionInterval_ = InfoboxMiner.compactionInterval_;
+		InfoboxMiner.compactionInterval_ = 3;
+		dir_ = Files.createTempDirectory("infobox").toFile();
+		mappings_ = new File(dir_, "mappings.txt");
+	}
+
+	@After
+	public void tearDown() {
+		InfoboxMiner.compactionInterval_ = compactionInterval_;
+		for (File file : dir_.listFiles())
+			file.delete();
+		dir_.delete();
+	}
+
+	@Test
+	public void testDeltaReplay() throws Exception {
+		TestInfoboxMiner sut = new TestInfoboxMiner(mappings_);
+		File delta = new File(mappings_.getPath() + ".delta");
+
+		// Changes are only appended to the delta log
+		sut.record(INFOBOXES[0], TermStanding.INDIVIDUAL);
+		sut.record(INFOBOXES[1], TermStanding.COLLECTION);
+		sut.printHeuristicState();
+		sut.record(INFOBOXES[0], TermStanding.COLLECTION);
+		sut.printHeuristicState();
+		assertTrue(delta.exists());
+		assertStandings(sut, new TestInfoboxMiner(mappings_));
+
+		// Compaction replaces the mappings file and starts a new log
+		sut.record(INFOBOXES[2], TermStanding.INDIVIDUAL);
+		sut.printHeuristicState();
+		assertFalse(delta.exists());
+		assertFalse(new File(mappings_.getPath() + ".tmp").exists());
+		assertStandings(sut, new TestInfoboxMiner(mappings_));
+
+		// The new log is replayed over the compacted file
+		sut.record(INFOBOXES[0], TermStanding.INDIVIDUAL);
+		sut.record(INFOBOXES[2], TermStanding.COLLECTION);
+		sut.printHeuristicState();
+		assertTrue(delta.exists());
+		assertStandings(sut, new TestInfoboxMiner(mappings_));
+	}
+
+	/**
+	 * Asserts that a reloaded miner has the same standings as the original.
+	 */
+	private void assertStandings(InfoboxMiner expected, InfoboxMiner actual) {
+		for (String infobox : INFOBOXES) {
+			WeightedStanding expectedStanding = expected.getStanding(infobox);
+			WeightedStanding actualStanding = actual.getStanding(infobox);
+			for (TermStanding ts : TermStanding.values())
+				assertEquals(infobox + " " + ts,
+						expectedStanding.getActualWeight(ts),
+						actualStanding.getActualWeight(ts), 0.0001);
+		}
+	}
+
+	private static class TestInfoboxMiner extends InfoboxMiner {
+		public TestInfoboxMiner(File mappings) {
+			super(false, null, null, "TestInfoboxMiner", mappings);
+		}
+
+		public void record(String infobox, TermStanding standing) {
+			recordStanding(infobox, standing);
+		}
+
+		@Override
+		protected void mineArticleInternal(MinedInformation info,
+				int informationRequested, WikipediaSocket wmi,
+				OntologySocket ontology) throws Exception {
+		}
+
+		@Override
+		protected void readAdditionalInput(String[] split) {
+		}
+
+		@Override
+		protected String[] writeAdditionalOutput(String infoboxTerm) {
+			return new String[0];
+		}
+	}
+}
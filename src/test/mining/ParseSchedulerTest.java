@@ -0,0 +1,60 @@
+package test.mining;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import knowledgeMiner.mining.ParseScheduler;
+
+import org.junit.Test;
+
+public class ParseSchedulerTest {
+	@Test
+	public void testCountTokens() {
+		assertEquals(0, ParseScheduler.countTokens(""));
+		assertEquals(6, ParseScheduler.countTokens("A dog is an animal."));
+		assertEquals(9,
+				ParseScheduler.countTokens("Fido (born 2001) is a dog ."));
+	}
+
+	@Test
+	public void testGetBudget() {
+		ParseScheduler sut = ParseScheduler.getInstance();
+		assertEquals(ParseScheduler.minBudget_, sut.getBudget(1));
+		assertEquals(ParseScheduler.maxBudget_, sut.getBudget(10000));
+		assertTrue(sut.getBudget(100) <= sut.getBudget(140));
+	}
+
+	@Test
+	public void testRunWithinBudget() {
+		ParseScheduler sut = ParseScheduler.getInstance();
+		assertEquals("done", sut.runWithinBudget(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				return "done";
+			}
+		}, 1000));
+
+		// Overrunning tasks are cancelled
+		final AtomicBoolean interrupted = new AtomicBoolean();
+		long start = System.currentTimeMillis();
+		assertNull(sut.runWithinBudget(new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				try {
+					Thread.sleep(10000);
+				} catch (InterruptedException e) {
+					interrupted.set(true);
+				}
+				return "late";
+			}
+		}, 100));
+		assertTrue(System.currentTimeMillis() - start < 5000);
+		try {
+			Thread.sleep(200);
+		} catch (InterruptedException e) {
+		}
+		assertTrue(interrupted.get());
+	}
+}
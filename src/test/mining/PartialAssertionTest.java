@@ -1,5 +1,6 @@
 package test.mining;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -10,7 +11,12 @@ import io.resources.DBPediaNamespace;
 import io.resources.WikipediaSocket;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
 
 import knowledgeMiner.KnowledgeMiner;
 import knowledgeMiner.mapping.CycMapper;
@@ -106,4 +112,102 @@ public class PartialAssertionTest {
 		aq = pa.expand(excluded, mapper_, ontology_, wmi_);
 	}
 
+	@Test
+	public void testBestCombinations() {
+		// Three relations: binary, ternary and one with no valid argument
+		Random random = new Random(1);
+		double[] weights = { 1, 0.6, 0.9 };
+		double[][][] candidateWeights = {
+				{ randomWeights(random, 4), randomWeights(random, 3) },
+				{ randomWeights(random, 2), randomWeights(random, 3),
+						randomWeights(random, 2) },
+				{ randomWeights(random, 3), new double[0] } };
+
+		// The old exhaustive expansion, sorted by weight
+		List<double[]> exhaustive = new ArrayList<>();
+		for (int g = 0; g < weights.length; g++)
+			enumerate(g, weights[g], candidateWeights[g], new int[0],
+					exhaustive);
+		Collections.sort(exhaustive, new Comparator<double[]>() {
+			@Override
+			public int compare(double[] o1, double[] o2) {
+				return Double.compare(o2[0], o1[0]);
+			}
+		});
+		assertEquals(4 * 3 + 2 * 3 * 2, exhaustive.size());
+
+		List<PartialAssertion.Combination> combinations = PartialAssertion
+				.bestCombinations(weights, candidateWeights, 1000);
+		assertEquals(exhaustive.size(), combinations.size());
+		double previous = Double.MAX_VALUE;
+		for (int c = 0; c < combinations.size(); c++) {
+			PartialAssertion.Combination combination = combinations.get(c);
+			assertTrue(combination.getWeight() <= previous);
+			previous = combination.getWeight();
+			assertCombination(exhaustive.get(c), combination);
+		}
+
+		// The cap keeps only the best combinations
+		combinations = PartialAssertion.bestCombinations(weights,
+				candidateWeights, 5);
+		assertEquals(5, combinations.size());
+		for (int c = 0; c < combinations.size(); c++)
+			assertCombination(exhaustive.get(c), combinations.get(c));
+		assertTrue(PartialAssertion.bestCombinations(weights,
+				candidateWeights, 0).isEmpty());
+	}
+
+	/**
+	 * Asserts a combination matches an exhaustively enumerated one (weight,
+	 * group, then indices).
+	 */
+	private void assertCombination(double[] expected,
+			PartialAssertion.Combination combination) {
+		assertEquals(expected[0], combination.getWeight(), 1e-12);
+		assertEquals((int) expected[1], combination.getGroup());
+		int[] indices = new int[expected.length - 2];
+		for (int i = 0; i < indices.length; i++)
+			indices[i] = (int) expected[i + 2];
+		assertArrayEquals(indices, combination.getIndices());
+	}
+
+	/**
+	 * Enumerates every combination of a group's candidates as (weight, group,
+	 * indices...).
+	 */
+	private void enumerate(int group, double weight,
+			double[][] candidateWeights, int[] indices, List<double[]> results) {
+		int position = indices.length;
+		if (position == candidateWeights.length) {
+			double[] result = new double[indices.length + 2];
+			result[0] = weight;
+			result[1] = group;
+			for (int i = 0; i < indices.length; i++)
+				result[i + 2] = indices[i];
+			results.add(result);
+			return;
+		}
+		for (int j = 0; j < candidateWeights[position].length; j++) {
+			int[] next = Arrays.copyOf(indices, position + 1);
+			next[position] = j;
+			enumerate(group, weight * candidateWeights[position][j],
+					candidateWeights, next, results);
+		}
+	}
+
+	/**
+	 * Creates distinct weights sorted by descending weight.
+	 */
+	private double[] randomWeights(Random random, int size) {
+		double[] weights = new double[size];
+		for (int i = 0; i < size; i++)
+			weights[i] = random.nextDouble();
+		Arrays.sort(weights);
+		for (int i = 0; i < size / 2; i++) {
+			double swap = weights[i];
+			weights[i] = weights[size - 1 - i];
+			weights[size - 1 - i] = swap;
+		}
+		return weights;
+	}
 }
@@ -9,6 +9,8 @@ import io.ontology.OntologySocket;
 import io.resources.WikipediaSocket;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -21,6 +23,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import util.collection.MultiMap;
+import util.wikipedia.TableHandler;
 import util.wikipedia.TableMiner;
 import util.wikipedia.WikiTable;
 import cyc.CycConstants;
@@ -127,4 +130,56 @@ public class TableMinerTest {
 			}
 		}
 	}
+
+	@Test
+	public void testStreamTable() throws IOException {
+		String markup = "==Heading==\n{| class=\"wikitable\"\n|-\n! Name\n! Year\n"
+				+ "|-\n| [[A]]\n| 2001\n|-\n| [[B]]\n| 2003\n|}\n"
+				+ "{|\n|+ Second\n|-\n! X\n|-\n| y\n|}\n";
+		final List<String> events = new ArrayList<>();
+		TableMiner.parseTable(markup, new TableHandler() {
+			@Override
+			public boolean startTable(String contextTitle) {
+				events.add("start " + contextTitle);
+				return true;
+			}
+
+			@Override
+			public boolean row(String[] header, String[] row) {
+				events.add(Arrays.toString(header) + Arrays.toString(row));
+				return true;
+			}
+
+			@Override
+			public boolean endTable() {
+				events.add("end");
+				return true;
+			}
+		});
+		assertEquals(Arrays.asList("start Heading",
+				"[Name, Year][[[A]], 2001]", "[Name, Year][[[B]], 2003]", "end",
+				"start Second", "[X][y]", "end"), events);
+
+		// Early termination
+		events.clear();
+		TableMiner.parseTable(markup, new TableHandler() {
+			@Override
+			public boolean startTable(String contextTitle) {
+				events.add("start " + contextTitle);
+				return true;
+			}
+
+			@Override
+			public boolean row(String[] header, String[] row) {
+				events.add(row[0]);
+				return false;
+			}
+
+			@Override
+			public boolean endTable() {
+				return false;
+			}
+		});
+		assertEquals(Arrays.asList("start Heading", "[[A]]"), events);
+	}
 }
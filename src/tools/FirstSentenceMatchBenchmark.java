@@ -0,0 +1,119 @@
+package tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import knowledgeMiner.mining.wikipedia.FirstSentenceMiner;
+import knowledgeMiner.mining.wikipedia.FirstSentencePatternMatcher;
+
+/**
+ * Times the single pass first sentence matcher against running each first
+ * sentence regular expression in turn. Sentences are read from a file (one
+ * per line) if given, otherwise a small built-in set is used, including
+ * long sentences that cause heavy backtracking.
+ *
+ * @author Sam Sarjant
+ */
+public class FirstSentenceMatchBenchmark {
+	private static final int WARMUP_ROUNDS = 200;
+	private static final int MEASURED_ROUNDS = 500;
+
+	private List<String> sentences_;
+
+	public FirstSentenceMatchBenchmark(List<String> sentences) {
+		sentences_ = sentences;
+	}
+
+	/**
+	 * Runs a single round over every sentence.
+	 *
+	 * @param singlePass
+	 *            If the single pass matcher is used.
+	 * @return A checksum of the results, so the work is not optimised away.
+	 */
+	private int round(boolean singlePass) {
+		int checksum = 0;
+		for (String sentence : sentences_) {
+			FirstSentencePatternMatcher.Result result = (singlePass) ? FirstSentencePatternMatcher
+					.match(sentence) : FirstSentenceMiner
+					.matchRegExps(sentence);
+			if (result == null)
+				result = FirstSentenceMiner.matchRegExps(sentence);
+			checksum += result.getStandings().size();
+			if (result.getFragment() != null)
+				checksum += result.getFragment().length();
+		}
+		return checksum;
+	}
+
+	/**
+	 * Times a number of rounds.
+	 *
+	 * @param singlePass
+	 *            If the single pass matcher is used.
+	 * @return The mean time per sentence in microseconds.
+	 */
+	public double time(boolean singlePass) {
+		int checksum = 0;
+		for (int i = 0; i < WARMUP_ROUNDS; i++)
+			checksum += round(singlePass);
+		long start = System.nanoTime();
+		for (int i = 0; i < MEASURED_ROUNDS; i++)
+			checksum += round(singlePass);
+		long elapsed = System.nanoTime() - start;
+		if (checksum == 42)
+			System.out.print("");
+		return elapsed / 1000.0 / MEASURED_ROUNDS / sentences_.size();
+	}
+
+	private static List<String> defaultSentences() {
+		List<String> sentences = new ArrayList<>();
+		sentences.add("The '''dog''' (''Canis lupus familiaris'') is a "
+				+ "domesticated [[canid]] which has been selectively bred");
+		sentences.add("A '''flea''' is a small flightless insect");
+		sentences.add("'''The Beatles''' were an English [[rock band]] "
+				+ "formed in [[Liverpool]] in 1960");
+		sentences.add("'''Fleas''' are the order [[Siphonaptera]]");
+		sentences.add("'''Rex''' was one of the first dogs in space");
+		// Long sentences that never reach a copula
+		StringBuilder longSentence = new StringBuilder("'''Long''' ");
+		for (int i = 0; i < 400; i++)
+			longSentence.append("[[word").append(i).append("]] and ");
+		sentences.add(longSentence.toString());
+		sentences.add(longSentence.toString().replace("'''Long'''",
+				"'''Long"));
+		return sentences;
+	}
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args
+	 *            An optional file of first sentences.
+	 */
+	public static void main(String[] args) throws IOException {
+		List<String> sentences = defaultSentences();
+		if (args.length > 0) {
+			sentences = new ArrayList<>();
+			BufferedReader in = new BufferedReader(new FileReader(new File(
+					args[0])));
+			String input = null;
+			while ((input = in.readLine()) != null)
+				if (!input.isEmpty())
+					sentences.add(input);
+			in.close();
+		}
+
+		FirstSentenceMatchBenchmark benchmark = new FirstSentenceMatchBenchmark(
+				sentences);
+		System.out.println(sentences.size() + " sentences");
+		System.out.printf("Regular expressions: %.2fus/sentence\n",
+				benchmark.time(false));
+		System.out.printf("Single pass:         %.2fus/sentence\n",
+				benchmark.time(true));
+	}
+}
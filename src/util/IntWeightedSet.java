@@ -0,0 +1,527 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package util;
+
+import java.util.Arrays;
+
+import util.collection.WeightedSet;
+
+/**
+ * A weighted set of int elements (typically article IDs) with double weights,
+ * stored in primitive open-addressing arrays so no element or weight is boxed.
+ * The elements ordered by weight are only computed when requested.
+ *
+ * @author Sam Sarjant
+ */
+public class IntWeightedSet {
+	/** The default initial capacity. */
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/** The elements of the set, indexed by hash. */
+	private int[] keys_;
+
+	/** The elements ordered by weight (null if not yet computed). */
+	private int[] ordered_;
+
+	/** The number of elements in the set. */
+	private int size_;
+
+	/** If each slot is occupied. */
+	private boolean[] used_;
+
+	/** The weights of the elements, parallel to keys_. */
+	private double[] weights_;
+
+	/**
+	 * Constructor for a new empty IntWeightedSet.
+	 */
+	public IntWeightedSet() {
+		this(DEFAULT_CAPACITY / 2);
+	}
+
+	/**
+	 * Constructor for a new IntWeightedSet with room for a number of elements.
+	 *
+	 * @param expectedSize
+	 *            The number of elements expected to be added.
+	 */
+	public IntWeightedSet(int expectedSize) {
+		allocate(capacityFor(expectedSize));
+	}
+
+	/**
+	 * Constructor for a copy of an existing IntWeightedSet.
+	 *
+	 * @param other
+	 *            The set to copy.
+	 */
+	public IntWeightedSet(IntWeightedSet other) {
+		keys_ = other.keys_.clone();
+		weights_ = other.weights_.clone();
+		used_ = other.used_.clone();
+		size_ = other.size_;
+		ordered_ = other.ordered_;
+	}
+
+	/**
+	 * Creates the arrays for a given capacity.
+	 *
+	 * @param capacity
+	 *            The capacity (a power of two).
+	 */
+	private void allocate(int capacity) {
+		keys_ = new int[capacity];
+		weights_ = new double[capacity];
+		used_ = new boolean[capacity];
+		size_ = 0;
+	}
+
+	/**
+	 * Finds the capacity needed to keep the load factor at or below 0.5.
+	 *
+	 * @param size
+	 *            The number of elements.
+	 * @return A power of two capacity.
+	 */
+	private int capacityFor(int size) {
+		int capacity = DEFAULT_CAPACITY;
+		while (capacity < size * 2)
+			capacity <<= 1;
+		return capacity;
+	}
+
+	/**
+	 * Gets the starting slot for an element.
+	 *
+	 * @param key
+	 *            The element.
+	 * @return The slot to start probing from.
+	 */
+	private int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & (keys_.length - 1);
+	}
+
+	/**
+	 * Finds the slot of an element.
+	 *
+	 * @param key
+	 *            The element to find.
+	 * @return The slot of the element, or -(free slot) - 1 if not present.
+	 */
+	private int indexOf(int key) {
+		int mask = keys_.length - 1;
+		int i = hash(key);
+		while (used_[i]) {
+			if (keys_[i] == key)
+				return i;
+			i = (i + 1) & mask;
+		}
+		return -i - 1;
+	}
+
+	/**
+	 * Places an element in a slot, growing the arrays if necessary.
+	 *
+	 * @param slot
+	 *            The (negative) slot returned by indexOf.
+	 * @param key
+	 *            The element.
+	 * @param weight
+	 *            The weight of the element.
+	 */
+	private void insert(int slot, int key, double weight) {
+		if ((size_ + 1) * 2 > keys_.length) {
+			rehash(keys_.length * 2);
+			slot = indexOf(key);
+		}
+		slot = -slot - 1;
+		keys_[slot] = key;
+		weights_[slot] = weight;
+		used_[slot] = true;
+		size_++;
+	}
+
+	/**
+	 * Rebuilds the arrays at a new capacity.
+	 *
+	 * @param capacity
+	 *            The new capacity.
+	 */
+	private void rehash(int capacity) {
+		int[] oldKeys = keys_;
+		double[] oldWeights = weights_;
+		boolean[] oldUsed = used_;
+		allocate(capacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldUsed[i]) {
+				int slot = -indexOf(oldKeys[i]) - 1;
+				keys_[slot] = oldKeys[i];
+				weights_[slot] = oldWeights[i];
+				used_[slot] = true;
+				size_++;
+			}
+		}
+	}
+
+	/**
+	 * Adds weight to an element, adding the element if it is not already
+	 * present.
+	 *
+	 * @param key
+	 *            The element.
+	 * @param weight
+	 *            The weight to add.
+	 * @return The new weight of the element.
+	 */
+	public double add(int key, double weight) {
+		ordered_ = null;
+		int slot = indexOf(key);
+		if (slot >= 0) {
+			weights_[slot] += weight;
+			return weights_[slot];
+		}
+		insert(slot, key, weight);
+		return weight;
+	}
+
+	/**
+	 * Adds every element of another set to this one, summing weights.
+	 *
+	 * @param other
+	 *            The set to add.
+	 * @param scale
+	 *            The value to scale the added weights by.
+	 */
+	public void addAll(IntWeightedSet other, double scale) {
+		for (int i = 0; i < other.keys_.length; i++)
+			if (other.used_[i])
+				add(other.keys_[i], other.weights_[i] * scale);
+	}
+
+	public void clear() {
+		Arrays.fill(used_, false);
+		size_ = 0;
+		ordered_ = null;
+	}
+
+	public boolean contains(int key) {
+		return indexOf(key) >= 0;
+	}
+
+	/**
+	 * Gets the elements of the set, ordered from highest to lowest weight
+	 * (ties broken by lowest element first).
+	 *
+	 * @return The ordered elements.
+	 */
+	public int[] getOrdered() {
+		if (ordered_ == null) {
+			int[] slots = new int[size_];
+			int j = 0;
+			for (int i = 0; i < keys_.length; i++)
+				if (used_[i])
+					slots[j++] = i;
+			sortSlots(slots, new int[size_], 0, size_);
+			for (int i = 0; i < size_; i++)
+				slots[i] = keys_[slots[i]];
+			ordered_ = slots;
+		}
+		return ordered_.clone();
+	}
+
+	/**
+	 * If the element at one slot is ordered before the element at another.
+	 *
+	 * @param slotA
+	 *            The first slot.
+	 * @param slotB
+	 *            The second slot.
+	 * @return True if slotA has a greater weight (or equal weight and lower
+	 *         element).
+	 */
+	private boolean isBefore(int slotA, int slotB) {
+		int result = Double.compare(weights_[slotB], weights_[slotA]);
+		if (result != 0)
+			return result < 0;
+		return keys_[slotA] < keys_[slotB];
+	}
+
+	/**
+	 * Gets the sum of all weights.
+	 *
+	 * @return The total weight of the set.
+	 */
+	public double getTotalWeight() {
+		double total = 0;
+		for (int i = 0; i < keys_.length; i++)
+			if (used_[i])
+				total += weights_[i];
+		return total;
+	}
+
+	/**
+	 * Gets the weight of an element.
+	 *
+	 * @param key
+	 *            The element.
+	 * @return The weight of the element, or 0 if it is not present.
+	 */
+	public double getWeight(int key) {
+		int slot = indexOf(key);
+		if (slot < 0)
+			return 0;
+		return weights_[slot];
+	}
+
+	public boolean isEmpty() {
+		return size_ == 0;
+	}
+
+	/**
+	 * Gets the elements of the set in no particular order.
+	 *
+	 * @return The elements of the set.
+	 */
+	public int[] keys() {
+		int[] keys = new int[size_];
+		int j = 0;
+		for (int i = 0; i < keys_.length; i++)
+			if (used_[i])
+				keys[j++] = keys_[i];
+		return keys;
+	}
+
+	/**
+	 * Sets every element of another set in this one, keeping the maximum
+	 * weight for elements in both.
+	 *
+	 * @param other
+	 *            The set to merge in.
+	 */
+	public void maxAll(IntWeightedSet other) {
+		for (int i = 0; i < other.keys_.length; i++)
+			if (other.used_[i])
+				setMax(other.keys_[i], other.weights_[i]);
+	}
+
+	/**
+	 * Normalises the weights to sum to 1, removing any elements with a
+	 * normalised weight below the cutoff.
+	 *
+	 * @param cutoffThreshold
+	 *            The minimum normalised weight to keep.
+	 */
+	public void normaliseWeightTo1(double cutoffThreshold) {
+		double total = getTotalWeight();
+		if (total <= 0)
+			return;
+		ordered_ = null;
+		boolean removed = false;
+		for (int i = 0; i < keys_.length; i++) {
+			if (used_[i]) {
+				weights_[i] /= total;
+				if (weights_[i] < cutoffThreshold) {
+					used_[i] = false;
+					size_--;
+					removed = true;
+				}
+			}
+		}
+		// Removing in place breaks probe chains, so rebuild
+		if (removed)
+			rehash(capacityFor(size_));
+	}
+
+	/**
+	 * Removes an element from the set.
+	 *
+	 * @param key
+	 *            The element to remove.
+	 * @return True if the element was present.
+	 */
+	public boolean remove(int key) {
+		int slot = indexOf(key);
+		if (slot < 0)
+			return false;
+		ordered_ = null;
+		used_[slot] = false;
+		size_--;
+
+		// Shift back any following elements of the probe chain
+		int mask = keys_.length - 1;
+		int i = (slot + 1) & mask;
+		while (used_[i]) {
+			int home = hash(keys_[i]);
+			// Move the element if its home is not between the gap and it
+			if (((i - home) & mask) >= ((i - slot) & mask)) {
+				keys_[slot] = keys_[i];
+				weights_[slot] = weights_[i];
+				used_[slot] = true;
+				used_[i] = false;
+				slot = i;
+			}
+			i = (i + 1) & mask;
+		}
+		return true;
+	}
+
+	/**
+	 * Multiplies every weight by a value.
+	 *
+	 * @param scale
+	 *            The value to multiply weights by.
+	 */
+	public void scaleAll(double scale) {
+		for (int i = 0; i < keys_.length; i++)
+			if (used_[i])
+				weights_[i] *= scale;
+		if (scale <= 0)
+			ordered_ = null;
+	}
+
+	/**
+	 * Merge sorts a range of slots into weight order.
+	 *
+	 * @param slots
+	 *            The slots to sort.
+	 * @param buffer
+	 *            A buffer the same size as slots.
+	 * @param from
+	 *            The start of the range (inclusive).
+	 * @param to
+	 *            The end of the range (exclusive).
+	 */
+	private void sortSlots(int[] slots, int[] buffer, int from, int to) {
+		if (to - from < 2)
+			return;
+		int mid = (from + to) >>> 1;
+		sortSlots(slots, buffer, from, mid);
+		sortSlots(slots, buffer, mid, to);
+		System.arraycopy(slots, from, buffer, from, to - from);
+		int left = from;
+		int right = mid;
+		for (int i = from; i < to; i++) {
+			if (right >= to
+					|| (left < mid && !isBefore(buffer[right], buffer[left])))
+				slots[i] = buffer[left++];
+			else
+				slots[i] = buffer[right++];
+		}
+	}
+
+	/**
+	 * Sets the weight of an element, adding it if it is not already present.
+	 *
+	 * @param key
+	 *            The element.
+	 * @param weight
+	 *            The weight of the element.
+	 */
+	public void set(int key, double weight) {
+		ordered_ = null;
+		int slot = indexOf(key);
+		if (slot >= 0)
+			weights_[slot] = weight;
+		else
+			insert(slot, key, weight);
+	}
+
+	/**
+	 * Sets the weight of an element only if it is not present or has a lower
+	 * weight.
+	 *
+	 * @param key
+	 *            The element.
+	 * @param weight
+	 *            The candidate weight of the element.
+	 */
+	public void setMax(int key, double weight) {
+		int slot = indexOf(key);
+		if (slot >= 0) {
+			if (weights_[slot] < weight) {
+				weights_[slot] = weight;
+				ordered_ = null;
+			}
+		} else {
+			ordered_ = null;
+			insert(slot, key, weight);
+		}
+	}
+
+	public int size() {
+		return size_;
+	}
+
+	/**
+	 * Converts this set into a (boxed) {@link WeightedSet}.
+	 *
+	 * @return A WeightedSet with the same elements and weights.
+	 */
+	public WeightedSet<Integer> toWeightedSet() {
+		WeightedSet<Integer> weightedSet = new WeightedSet<>(size_);
+		for (int i = 0; i < keys_.length; i++)
+			if (used_[i])
+				weightedSet.set(keys_[i], weights_[i]);
+		return weightedSet;
+	}
+
+	/**
+	 * Creates an IntWeightedSet from a (boxed) {@link WeightedSet}.
+	 *
+	 * @param weightedSet
+	 *            The set to convert.
+	 * @return An IntWeightedSet with the same elements and weights.
+	 */
+	public static IntWeightedSet valueOf(WeightedSet<Integer> weightedSet) {
+		IntWeightedSet result = new IntWeightedSet(weightedSet.size());
+		for (Integer element : weightedSet)
+			result.set(element, weightedSet.getWeight(element));
+		return result;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = size_;
+		for (int i = 0; i < keys_.length; i++) {
+			if (used_[i]) {
+				long bits = Double.doubleToLongBits(weights_[i]);
+				result += keys_[i] ^ (int) (bits ^ (bits >>> 32));
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		IntWeightedSet other = (IntWeightedSet) obj;
+		if (size_ != other.size_)
+			return false;
+		for (int i = 0; i < keys_.length; i++) {
+			if (used_[i]) {
+				int slot = other.indexOf(keys_[i]);
+				if (slot < 0 || other.weights_[slot] != weights_[i])
+					return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("{");
+		for (int key : getOrdered()) {
+			if (builder.length() > 1)
+				builder.append(", ");
+			builder.append(key + ":" + getWeight(key));
+		}
+		return builder.append("}").toString();
+	}
+}
@@ -17,6 +17,8 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 import opennlp.tools.chunker.Chunker;
 import opennlp.tools.chunker.ChunkerME;
@@ -48,6 +50,9 @@ public class OpenNLP {
 
 	private static final File LEMMA_FILE = new File(MODELS_DIR, "lemmaList.txt");
 
+	private static final File PARSER_FILE = new File(MODELS_DIR,
+			"chunker/en-parser-chunking.bin");
+
 	private static SentenceDetector sentenceDetector_;
 
 	private static POSTagger tagger_;
@@ -56,6 +61,8 @@ public class OpenNLP {
 
 	private static Parser parser_;
 
+	private static final ReentrantLock PARSER_LOCK = new ReentrantLock();
+
 	private static SnowballStemmer stemmer_;
 
 	/** A map of plurals to single. */
@@ -79,8 +86,7 @@ public class OpenNLP {
 					+ File.separator + "chunker/en-chunker.bin"));
 			chunker_ = new ChunkerME(chunkerModel);
 
-			ParserModel parserModel = new ParserModel(new File(MODELS_DIR
-					+ File.separator + "chunker/en-parser-chunking.bin"));
+			ParserModel parserModel = new ParserModel(PARSER_FILE);
 			parser_ = ParserFactory.create(parserModel);
 
 			stemmer_ = new englishStemmer();
@@ -89,6 +95,17 @@ public class OpenNLP {
 		}
 	}
 
+	/**
+	 * Describes the parser model, such that any change to it produces a
+	 * different description.
+	 *
+	 * @return The parser version.
+	 */
+	public static String getParserVersion() {
+		return "OpenNLP:" + PARSER_FILE.getName() + ":" + PARSER_FILE.length()
+				+ ":" + PARSER_FILE.lastModified();
+	}
+
 	public static Chunker getChunker() {
 		return chunker_;
 	}
@@ -120,7 +137,95 @@ public class OpenNLP {
 		return StringUtils.join(split, ' ');
 	}
 
+	/**
+	 * Creates a shallow parse of a sentence from its chunks alone: a single
+	 * clause of chunks, each holding the tagged tokens. This is far cheaper
+	 * than a full parse.
+	 *
+	 * @param text
+	 *            The sentence to parse.
+	 * @return The shallow parse.
+	 */
+	public synchronized static Parse chunkLine(String text) {
+		Span[] tokenSpans = tokenizer_.tokenizePos(text);
+		String[] tokens = Span.spansToStrings(tokenSpans, text);
+		String[] tags = tagger_.tag(tokens);
+		Span[] chunks = chunker_.chunkAsSpans(tokens, tags);
+
+		// Build bottom up, as a chunk may share its span with its tag
+		Span whole = new Span(0, text.length());
+		Parse clause = new Parse(text, whole, "S", 1, 0);
+		int c = 0;
+		for (int idx = 0; idx < tokenSpans.length;) {
+			Parse parent = clause;
+			int end = idx + 1;
+			if (c < chunks.length && chunks[c].getStart() == idx) {
+				end = chunks[c].getEnd();
+				parent = new Parse(text, new Span(tokenSpans[idx].getStart(),
+						tokenSpans[end - 1].getEnd()), chunks[c].getType(), 1,
+						idx);
+				clause.insert(parent);
+				c++;
+			}
+			for (; idx < end; idx++) {
+				Parse tag = new Parse(text, tokenSpans[idx], tags[idx], 1, idx);
+				tag.insert(new Parse(text, tokenSpans[idx],
+						AbstractBottomUpParser.TOK_NODE, 0, idx));
+				parent.insert(tag);
+			}
+		}
+		Parse p = new Parse(text, whole, AbstractBottomUpParser.TOP_NODE, 1, 0);
+		p.insert(clause);
+		return p;
+	}
+
+	/**
+	 * Fully parses a sentence. Only the parse itself holds the parser lock, so
+	 * a long parse does not block the other tools.
+	 *
+	 * @param text
+	 *            The sentence to parse.
+	 * @return The parse, with an INC top node if incomplete.
+	 */
 	public static Parse parseLine(String text) {
+		Parse p = tokenParse(text);
+		PARSER_LOCK.lock();
+		try {
+			return parser_.parse(p);
+		} finally {
+			PARSER_LOCK.unlock();
+		}
+	}
+
+	/**
+	 * Fully parses a sentence, waiting at most a given time for the parser.
+	 * The parser cannot be interrupted, so a parse abandoned by its caller
+	 * keeps the parser until it finishes; waiting callers can be interrupted.
+	 *
+	 * @param text
+	 *            The sentence to parse.
+	 * @param wait
+	 *            The maximum time (ms) to wait for the parser.
+	 * @return The parse, or null if the parser did not become free in time.
+	 * @throws InterruptedException
+	 *             If interrupted while waiting for the parser.
+	 */
+	public static Parse parseLine(String text, long wait)
+			throws InterruptedException {
+		Parse p = tokenParse(text);
+		if (!PARSER_LOCK.tryLock(wait, TimeUnit.MILLISECONDS))
+			return null;
+		try {
+			return parser_.parse(p);
+		} finally {
+			PARSER_LOCK.unlock();
+		}
+	}
+
+	/**
+	 * Builds the unparsed (token-level) parse of a sentence.
+	 */
+	private static Parse tokenParse(String text) {
 		final Parse p = new Parse(text,
 		// a new span covering the entire text
 				new Span(0, text.length()),
@@ -132,7 +237,10 @@ public class OpenNLP {
 				0);
 
 		// make sure to initialize the _tokenizer correctly
-		final Span[] spans = tokenizer_.tokenizePos(text);
+		final Span[] spans;
+		synchronized (OpenNLP.class) {
+			spans = tokenizer_.tokenizePos(text);
+		}
 
 		for (int idx = 0; idx < spans.length; idx++) {
 			final Span span = spans[idx];
@@ -140,7 +248,7 @@ public class OpenNLP {
 			p.insert(new Parse(text, span, AbstractBottomUpParser.TOK_NODE, 0,
 					idx));
 		}
-		return parser_.parse(p);
+		return p;
 	}
 
 	public static void main(String[] args) {
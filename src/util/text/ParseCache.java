@@ -0,0 +1,295 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package util.text;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import util.collection.CacheMap;
+
+/**
+ * A persistent cache of sentence parses, keyed by the normalised sentence.
+ * Parses are stored as strings in append-only segment files on disk (one
+ * directory per parser version, so changing the parser model or options
+ * never returns stale parses), with the most recently used parses also held
+ * in memory. The cache is shared between threads and survives between runs.
+ *
+ * @author Sam Sarjant
+ */
+public class ParseCache {
+	/** The root directory of the cache. */
+	public static File cacheDir_ = new File("parseCache");
+
+	/** The number of parses to hold in memory. */
+	private static final int MEMORY_CACHE_SIZE = 10000;
+
+	/** The maximum size of a segment before a new one is started. */
+	private static final long MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	private static final String SEGMENT_PREFIX = "segment";
+
+	private static final Map<String, ParseCache> instances_ = new HashMap<>();
+
+	/** If parses are cached at all. */
+	public static boolean enabled_ = true;
+
+	/** The directory of this cache version. */
+	private File directory_;
+
+	/** The location of each stored parse: segment index and offset. */
+	private Map<Long, Long> index_;
+
+	private Logger logger_ = LoggerFactory.getLogger(ParseCache.class);
+
+	/** The recently used parses. */
+	private CacheMap<String, String> memory_;
+
+	/** The segment files, for reading. */
+	private List<RandomAccessFile> segments_;
+
+	/** The segment currently being written to. */
+	private DataOutputStream writer_;
+
+	/** The size of the segment currently being written to. */
+	private long writerSize_;
+
+	private ParseCache(String version) {
+		directory_ = new File(cacheDir_, Integer.toHexString(version
+				.hashCode()));
+		index_ = new HashMap<>();
+		memory_ = new CacheMap<>(MEMORY_CACHE_SIZE, false);
+		segments_ = new ArrayList<>();
+		directory_.mkdirs();
+		loadSegments();
+	}
+
+	/**
+	 * Indexes every record of the existing segments. A truncated record
+	 * (from an interrupted run) ends the segment.
+	 */
+	private void loadSegments() {
+		for (int i = 0;; i++) {
+			File file = segmentFile(i);
+			if (!file.exists())
+				break;
+			long offset = 0;
+			try (DataInputStream in = new DataInputStream(
+					new BufferedInputStream(new FileInputStream(file)))) {
+				while (true) {
+					long key = in.readLong();
+					int length = in.readInt();
+					if (in.skipBytes(length) != length)
+						break;
+					index_.put(key, location(i, offset));
+					offset += 12 + length;
+				}
+			} catch (EOFException e) {
+				// End of segment
+			} catch (IOException e) {
+				logger_.error("Could not read parse segment {}: {}", file,
+						e.toString());
+			}
+			try {
+				segments_.add(new RandomAccessFile(file, "r"));
+			} catch (IOException e) {
+				logger_.error("Could not open parse segment {}: {}", file,
+						e.toString());
+				segments_.add(null);
+			}
+		}
+		logger_.info("Parse cache {} holds {} parses", directory_,
+				index_.size());
+	}
+
+	private File segmentFile(int index) {
+		return new File(directory_, SEGMENT_PREFIX + index + ".dat");
+	}
+
+	/**
+	 * Reads a stored record.
+	 *
+	 * @return The record's sentence and parse, or null if it could not be
+	 *         read.
+	 */
+	private String[] readRecord(long location) {
+		int segment = (int) (location >>> 40);
+		long offset = location & ((1L << 40) - 1);
+		RandomAccessFile file = (segment < segments_.size()) ? segments_
+				.get(segment) : null;
+		if (file == null)
+			return null;
+		try {
+			file.seek(offset + 8);
+			byte[] bytes = new byte[file.readInt()];
+			file.readFully(bytes);
+			String record = new String(bytes, StandardCharsets.UTF_8);
+			int split = record.indexOf('\n');
+			if (split == -1)
+				return null;
+			return new String[] { record.substring(0, split),
+					record.substring(split + 1) };
+		} catch (IOException e) {
+			logger_.error("Could not read parse: {}", e.toString());
+			return null;
+		}
+	}
+
+	/**
+	 * Starts a new segment to append to.
+	 */
+	private void startSegment() throws IOException {
+		if (writer_ != null)
+			writer_.close();
+		File file = segmentFile(segments_.size());
+		writer_ = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file)));
+		writerSize_ = 0;
+		segments_.add(new RandomAccessFile(file, "r"));
+	}
+
+	/**
+	 * Gets a cached parse.
+	 *
+	 * @param sentence
+	 *            The sentence that was parsed.
+	 * @return The parse string or null if not cached.
+	 */
+	public synchronized String get(String sentence) {
+		String normalised = normalise(sentence);
+		String parse = memory_.get(normalised);
+		if (parse != null)
+			return parse;
+
+		Long location = index_.get(hash(normalised));
+		if (location == null)
+			return null;
+		if (writer_ != null && (location >>> 40) == segments_.size() - 1) {
+			try {
+				writer_.flush();
+			} catch (IOException e) {
+				return null;
+			}
+		}
+		String[] record = readRecord(location);
+		if (record == null || !record[0].equals(normalised))
+			return null;
+		memory_.put(normalised, record[1]);
+		return record[1];
+	}
+
+	/**
+	 * Stores a parse.
+	 *
+	 * @param sentence
+	 *            The sentence that was parsed.
+	 * @param parse
+	 *            The parse, as a string.
+	 */
+	public synchronized void put(String sentence, String parse) {
+		String normalised = normalise(sentence);
+		memory_.put(normalised, parse);
+		long key = hash(normalised);
+		if (index_.containsKey(key))
+			return;
+		try {
+			if (writer_ == null || writerSize_ > MAX_SEGMENT_SIZE)
+				startSegment();
+			byte[] bytes = (normalised + "\n" + parse)
+					.getBytes(StandardCharsets.UTF_8);
+			index_.put(key, location(segments_.size() - 1, writerSize_));
+			writer_.writeLong(key);
+			writer_.writeInt(bytes.length);
+			writer_.write(bytes);
+			writerSize_ += 12 + bytes.length;
+		} catch (IOException e) {
+			logger_.error("Could not store parse: {}", e.toString());
+		}
+	}
+
+	/**
+	 * Writes any buffered parses to disk.
+	 */
+	public synchronized void flush() {
+		if (writer_ == null)
+			return;
+		try {
+			writer_.flush();
+		} catch (IOException e) {
+			logger_.error("Could not flush parses: {}", e.toString());
+		}
+	}
+
+	public synchronized int size() {
+		return index_.size();
+	}
+
+	/**
+	 * Gets the cache for a parser version, creating it if necessary.
+	 *
+	 * @param version
+	 *            A description of the parser (model and options). Parses from
+	 *            different versions are never shared.
+	 * @return The parse cache for the version.
+	 */
+	public static ParseCache getInstance(String version) {
+		synchronized (instances_) {
+			ParseCache cache = instances_.get(version);
+			if (cache == null) {
+				cache = new ParseCache(version);
+				instances_.put(version, cache);
+				final ParseCache flushed = cache;
+				Runtime.getRuntime().addShutdownHook(new Thread() {
+					@Override
+					public void run() {
+						flushed.flush();
+					}
+				});
+			}
+			return cache;
+		}
+	}
+
+	/**
+	 * A 64-bit FNV-1a hash of a string.
+	 */
+	static long hash(String text) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < text.length(); i++) {
+			hash ^= text.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	private static long location(int segment, long offset) {
+		return ((long) segment << 40) | offset;
+	}
+
+	/**
+	 * Normalises a sentence for caching: trimmed with single spacing.
+	 *
+	 * @param sentence
+	 *            The sentence to normalise.
+	 * @return The normalised sentence.
+	 */
+	public static String normalise(String sentence) {
+		return sentence.trim().replaceAll("\\s+", " ");
+	}
+}
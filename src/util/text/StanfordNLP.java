@@ -5,6 +5,7 @@ package util.text;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
@@ -23,15 +24,20 @@ public class StanfordNLP {
 	private static StanfordNLP instance_;
 	/** The directory for language models. */
 	private static final String MODEL_DIR = "lib";
+	/** The parser model. */
+	private static final File MODEL_FILE = new File(MODEL_DIR,
+			"englishPCFG.ser.gz");
+	/** The maximum number of tokens the parser will parse. */
+	public static final int MAX_LENGTH = 150;
+	/** The parser options. */
+	private static final String[] OPTIONS = { "-maxLength", MAX_LENGTH + "",
+			"-retainTmpSubcategories" };
 	/** The language pack for dependencies. */
 	private static final TreebankLanguagePack TLP = new PennTreebankLanguagePack();
 	private LexicalizedParser lp_;
 
 	private StanfordNLP() {
-		String[] options = new String[] { "-maxLength", "150",
-				"-retainTmpSubcategories" };
-		lp_ = LexicalizedParser.loadModel(MODEL_DIR + File.separator
-				+ "englishPCFG.ser.gz", options);
+		lp_ = LexicalizedParser.loadModel(MODEL_FILE.getPath(), OPTIONS);
 	}
 
 	public Tree apply(List<String> words) {
@@ -90,7 +96,19 @@ public class StanfordNLP {
 		return buffer.toString().trim();
 	}
 
-	public static StanfordNLP getInstance() {
+	/**
+	 * Describes the parser model and options, such that any change to either
+	 * produces a different description.
+	 *
+	 * @return The parser version.
+	 */
+	public static String getVersion() {
+		return "Stanford:" + MODEL_FILE.getName() + ":" + MODEL_FILE.length()
+				+ ":" + MODEL_FILE.lastModified() + ":"
+				+ Arrays.toString(OPTIONS);
+	}
+
+	public static synchronized StanfordNLP getInstance() {
 		if (instance_ == null)
 			instance_ = new StanfordNLP();
 		return instance_;
@@ -0,0 +1,27 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package util.wikipedia;
+
+import java.io.IOException;
+
+/**
+ * Receives the bullet points of an article from {@link BulletListParser} as
+ * they are parsed.
+ *
+ * @author Sam Sarjant
+ */
+public interface BulletHandler {
+	/**
+	 * Receives a single (cleaned) bullet point.
+	 *
+	 * @param contextTitle
+	 *            The heading the point is under.
+	 * @param point
+	 *            The bullet point.
+	 * @return True to continue parsing, false to stop.
+	 * @throws IOException
+	 *             Should something go awry...
+	 */
+	boolean point(String contextTitle, String point) throws IOException;
+}
@@ -3,6 +3,7 @@
  ******************************************************************************/
 package util.wikipedia;
 
+import java.io.IOException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -11,13 +12,15 @@ import util.collection.MultiMap;
 /**
  * This utility searches an article for a list of bulleted items and returns the
  * key item of each bullet as a child article, along with any other contextual
- * assertions it can make about the item.
+ * assertions it can make about the item. Points can also be streamed to a
+ * {@link BulletHandler} rather than collected.
  * 
  * @author Sam Sarjant
  */
 public class BulletListParser {
 	private static final Pattern BULLET_PATTERN = Pattern
 			.compile("(?:\\*+\\s*.+?\\n)+");
+	private static final Pattern BULLET_PREFIX = Pattern.compile("\\*+\\s*");
 	/** The key to use for no context bullet points. */
 	public static final String NO_CONTEXT = "NO_CONTEXT";
 	public static final String[] USELESS_CONTEXTS = { "see also", "references",
@@ -33,13 +36,36 @@ public class BulletListParser {
 	 */
 	public static MultiMap<String, String> parseBulletList(String markup)
 			throws Exception {
-		MultiMap<String, String> elements = MultiMap.createListMultiMap();
+		final MultiMap<String, String> elements = MultiMap
+				.createListMultiMap();
+		parseBulletList(markup, new BulletHandler() {
+			@Override
+			public boolean point(String contextTitle, String point) {
+				elements.put(contextTitle, point);
+				return true;
+			}
+		});
+		return elements;
+	}
 
+	/**
+	 * Parses the elements of the bulleted lists of an article, passing each
+	 * to a handler as it is found (in article order).
+	 * 
+	 * @param markup
+	 *            The markup to parse.
+	 * @param handler
+	 *            The handler to receive the points.
+	 * @throws IOException
+	 *             If the handler throws an exception.
+	 */
+	public static void parseBulletList(CharSequence markup,
+			BulletHandler handler) throws IOException {
 		Matcher m = BULLET_PATTERN.matcher(markup);
 		while (m.find()) {
 			// Get and check the context
-			String contextTitle = WikiParser.backSearchHeader(markup.substring(
-					0, m.start()));
+			String contextTitle = WikiParser.backSearchHeader(new MarkupView(
+					markup, 0, m.start()));
 			if (contextTitle != null)
 				contextTitle = contextTitle.trim();
 			else
@@ -53,21 +79,28 @@ public class BulletListParser {
 					skip = true;
 					break;
 				}
-			if (!skip) {
-				// Parse each point out.
-				String bulletMarkup = m.group();
-				String[] split = bulletMarkup.split("\\n");
-				for (String point : split) {
-					String niceString = point.replaceFirst("\\*+\\s*", "");
-					niceString = WikiParser.cleanupUselessMarkup(niceString);
-					niceString = WikiParser
-							.cleanupExternalLinksAndStyling(niceString);
-					niceString = niceString.trim();
-					elements.put(contextTitle, niceString);
-				}
+			if (skip)
+				continue;
+
+			// Parse each point (line) out, ignoring trailing empty lines
+			int end = m.end();
+			while (end > m.start() && markup.charAt(end - 1) == '\n')
+				end--;
+			for (int start = m.start(); start <= end;) {
+				int lineEnd = start;
+				while (lineEnd < end && markup.charAt(lineEnd) != '\n')
+					lineEnd++;
+				String point = markup.subSequence(start, lineEnd).toString();
+				String niceString = BULLET_PREFIX.matcher(point)
+						.replaceFirst("");
+				niceString = WikiParser.cleanupUselessMarkup(niceString);
+				niceString = WikiParser
+						.cleanupExternalLinksAndStyling(niceString);
+				niceString = niceString.trim();
+				if (!handler.point(contextTitle, niceString))
+					return;
+				start = lineEnd + 1;
 			}
 		}
-
-		return elements;
 	}
 }
@@ -23,6 +23,17 @@ public class InfoboxData {
 		relations_ = new HashMap<String, String>();
 	}
 
+	/**
+	 * Copy constructor for an infobox.
+	 * 
+	 * @param data
+	 *            The infobox to copy.
+	 */
+	public InfoboxData(InfoboxData data) {
+		infoboxType_ = data.infoboxType_;
+		relations_ = new HashMap<String, String>(data.relations_);
+	}
+
 	public void putRelation(String leftSide, String rightSide) {
 		relations_.put(leftSide, rightSide);
 	}
@@ -0,0 +1,328 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package util.wikipedia;
+
+import util.IllegalDelimiterException;
+
+/**
+ * A read-only slice of markup. Slicing a view (or searching within it) shares
+ * the backing characters rather than copying them, so markup can be split and
+ * searched by offset and only turned into a String when needed.
+ *
+ * @author Sam Sarjant
+ */
+public class MarkupView implements CharSequence {
+	/** The characters the view is over. */
+	private final CharSequence backing_;
+
+	/** The (exclusive) end of the view in the backing characters. */
+	private final int end_;
+
+	/** The start of the view in the backing characters. */
+	private final int start_;
+
+	/** The view as a String, once materialised. */
+	private String string_;
+
+	/**
+	 * A view over an entire sequence.
+	 *
+	 * @param backing
+	 *            The characters to view.
+	 */
+	public MarkupView(CharSequence backing) {
+		this(backing, 0, backing.length());
+	}
+
+	/**
+	 * A view over part of a sequence.
+	 *
+	 * @param backing
+	 *            The characters to view.
+	 * @param start
+	 *            The start of the view.
+	 * @param end
+	 *            The (exclusive) end of the view.
+	 */
+	public MarkupView(CharSequence backing, int start, int end) {
+		if (start < 0 || end > backing.length() || start > end)
+			throw new IndexOutOfBoundsException("[" + start + "," + end
+					+ ") of " + backing.length());
+		if (backing instanceof MarkupView) {
+			MarkupView view = (MarkupView) backing;
+			backing = view.backing_;
+			start += view.start_;
+			end += view.start_;
+		}
+		backing_ = backing;
+		start_ = start;
+		end_ = end;
+		if (backing instanceof String && start == 0
+				&& end == backing.length())
+			string_ = (String) backing;
+	}
+
+	/**
+	 * Checks if a group delimiter opens or closes at an index, updating the
+	 * group counts if so.
+	 *
+	 * @param index
+	 *            The index to check.
+	 * @param group
+	 *            The group delimiter index.
+	 * @param side
+	 *            0 for the opening delimiter, 1 for the closing.
+	 * @param counts
+	 *            The current counts of the groups.
+	 * @param groupDelimiters
+	 *            The group delimiters.
+	 * @return The index after the delimiter if found, otherwise the index.
+	 */
+	private int matchesGrouper(int index, int group, int side, int[] counts,
+			String[][] groupDelimiters) {
+		String matchingString = groupDelimiters[group][side];
+		int j = patternEnd(matchingString, index);
+		if (j != index) {
+			// Special case for apostrophes
+			if (matchingString.charAt(0) == '\'') {
+				if (counts[group] == 0)
+					counts[group]++;
+				else
+					counts[group]--;
+			} else if (side == 0)
+				counts[group]++;
+			else
+				counts[group]--;
+			return j;
+		}
+		return index;
+	}
+
+	@Override
+	public char charAt(int index) {
+		return backing_.charAt(start_ + index);
+	}
+
+	/**
+	 * Finds the end of the first ungrouped delimiter from a point. Delimiters
+	 * within groups (such as brackets) are skipped, as are escaped characters.
+	 *
+	 * @param from
+	 *            The index to search from.
+	 * @param safeDelimiters
+	 *            The delimiter(s) to break on.
+	 * @param exceptionDelimiters
+	 *            The delimiter(s) that cause an exception if found (grouped or
+	 *            not). May be null.
+	 * @param groupDelimiters
+	 *            The delimiters for enclosing groups.
+	 * @return The index after the first safe delimiter, or the length of the
+	 *         view if there is none.
+	 * @throws IllegalDelimiterException
+	 *             If an exception delimiter is found first.
+	 */
+	public int delimit(int from, String[] safeDelimiters,
+			String[] exceptionDelimiters, String[][] groupDelimiters)
+			throws IllegalDelimiterException {
+		int length = length();
+		int[] counts = new int[groupDelimiters.length];
+		boolean escaped = false;
+
+		// Run through character by character.
+		for (int i = from; i < length; i++) {
+			char c = charAt(i);
+			// Checking for escape character
+			if (escaped) {
+				escaped = false;
+				continue;
+			} else if (c == '\\') {
+				escaped = true;
+				continue;
+			}
+
+			// Check for grouping characters
+			boolean canDelimit = true;
+			boolean usedClosingBracket = false;
+			for (int g = 0; g < groupDelimiters.length; g++) {
+				boolean bracketFound = false;
+				// Opening
+				int j = matchesGrouper(i, g, 0, counts, groupDelimiters);
+				if (j != i) {
+					i = j - 1;
+					bracketFound = true;
+				} else {
+					j = matchesGrouper(i, g, 1, counts, groupDelimiters);
+					if (j != i) {
+						i = j - 1;
+						bracketFound = true;
+					}
+				}
+
+				// If there is a group, do not delimit
+				if (counts[g] > 0)
+					canDelimit = false;
+
+				if (bracketFound) {
+					if (counts[g] >= 0)
+						usedClosingBracket = true;
+				}
+			}
+			if (usedClosingBracket)
+				continue;
+
+			if (canDelimit) {
+				// Check for safe delimiter
+				for (String delimiter : safeDelimiters) {
+					int j = patternEnd(delimiter, i);
+					if (j != i)
+						return j;
+				}
+			}
+			// Check for exception delimiter
+			if (exceptionDelimiters != null) {
+				for (String delimiter : exceptionDelimiters) {
+					int j = patternEnd(delimiter, i);
+					if (j != i)
+						throw new IllegalDelimiterException(delimiter,
+								substring(from, j));
+				}
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Finds the first unescaped left bracket from a point.
+	 *
+	 * @param from
+	 *            The index to search from.
+	 * @param leftBracket
+	 *            The left bracket.
+	 * @return The index of the bracket or -1.
+	 */
+	public int findOpenBracket(int from, char leftBracket) {
+		int length = length();
+		for (int i = from; i < length; i++) {
+			char c = charAt(i);
+			if (c == '\\')
+				i++;
+			else if (c == leftBracket)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the right bracket closing a left bracket, skipping escaped
+	 * characters and nested brackets.
+	 *
+	 * @param open
+	 *            The index of the left bracket.
+	 * @param leftBracket
+	 *            The left bracket.
+	 * @param rightBracket
+	 *            The right bracket.
+	 * @return The index of the closing bracket or -1.
+	 */
+	public int matchBracket(int open, char leftBracket, char rightBracket) {
+		int length = length();
+		int bracketCount = 0;
+		for (int i = open; i < length; i++) {
+			char c = charAt(i);
+			if (c == '\\')
+				i++;
+			else if (c == leftBracket)
+				bracketCount++;
+			else if (c == rightBracket && --bracketCount == 0)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the index of a character from a point.
+	 *
+	 * @param c
+	 *            The character to find.
+	 * @param from
+	 *            The index to search from.
+	 * @return The index of the character or -1.
+	 */
+	public int indexOf(char c, int from) {
+		int length = length();
+		for (int i = Math.max(from, 0); i < length; i++)
+			if (charAt(i) == c)
+				return i;
+		return -1;
+	}
+
+	@Override
+	public int length() {
+		return end_ - start_;
+	}
+
+	/**
+	 * Finds the end of a pattern if it is present at an index. For
+	 * consistency with the delimiter search, a pattern ending the view is not
+	 * considered present.
+	 *
+	 * @param pattern
+	 *            The pattern to check for. May be null.
+	 * @param index
+	 *            The index to check at.
+	 * @return The index after the pattern if present, otherwise the index.
+	 */
+	public int patternEnd(String pattern, int index) {
+		if (pattern == null)
+			return index;
+		if (index + pattern.length() >= length())
+			return index;
+		return (startsWith(pattern, index)) ? index + pattern.length() : index;
+	}
+
+	/**
+	 * Checks if a string is present at an index.
+	 *
+	 * @param prefix
+	 *            The string to check for.
+	 * @param index
+	 *            The index to check at.
+	 * @return True if the view contains the string at the index.
+	 */
+	public boolean startsWith(String prefix, int index) {
+		if (index < 0 || index + prefix.length() > length())
+			return false;
+		for (int j = 0; j < prefix.length(); j++)
+			if (charAt(index + j) != prefix.charAt(j))
+				return false;
+		return true;
+	}
+
+	@Override
+	public MarkupView subSequence(int start, int end) {
+		return new MarkupView(this, start, end);
+	}
+
+	/**
+	 * Materialises part of the view.
+	 *
+	 * @param start
+	 *            The start of the part.
+	 * @param end
+	 *            The (exclusive) end of the part.
+	 * @return The part as a String.
+	 */
+	public String substring(int start, int end) {
+		if (string_ != null)
+			return string_.substring(start, end);
+		return backing_.subSequence(start_ + start, start_ + end).toString();
+	}
+
+	@Override
+	public String toString() {
+		if (string_ == null)
+			string_ = backing_.subSequence(start_, end_).toString();
+		return string_;
+	}
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (C) 2013 University of Waikato, Hamilton, New Zealand
+ ******************************************************************************/
+package util.wikipedia;
+
+import java.io.IOException;
+
+/**
+ * Receives the tables of an article from {@link TableMiner} as they are
+ * parsed, one row at a time. Returning false from any method stops the
+ * parsing early.
+ *
+ * @author Sam Sarjant
+ */
+public interface TableHandler {
+	/**
+	 * Notes the start of a table.
+	 *
+	 * @param contextTitle
+	 *            The caption or heading of the table.
+	 * @return True if the table should be parsed, false to skip it.
+	 * @throws IOException
+	 *             Should something go awry...
+	 */
+	boolean startTable(String contextTitle) throws IOException;
+
+	/**
+	 * Receives a row of the table, with any rowspans/colspans filled in.
+	 *
+	 * @param header
+	 *            The header of the row.
+	 * @param row
+	 *            The row elements (may be shorter than the header, and may
+	 *            contain nulls).
+	 * @return True to continue with the table, false to skip the rest of it.
+	 * @throws IOException
+	 *             Should something go awry...
+	 */
+	boolean row(String[] header, String[] row) throws IOException;
+
+	/**
+	 * Notes the end of a table.
+	 *
+	 * @return True to continue with the next table, false to stop parsing.
+	 * @throws IOException
+	 *             Should something go awry...
+	 */
+	boolean endTable() throws IOException;
+}
@@ -3,6 +3,7 @@
  ******************************************************************************/
 package util.wikipedia;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
@@ -12,15 +13,15 @@ import java.util.regex.Pattern;
 
 /**
  * This utility parses formal tables from Wiki markup and returns the table
- * values in separate objects.
+ * values in separate objects, or streams the rows to a {@link TableHandler}.
  * 
  * @author Sam Sarjant
  */
 public class TableMiner {
 	private static final Pattern SORT_NAME_PATTERN = Pattern
 			.compile("\\{\\{sortname\\|(.+?)\\|(.+?)(?:\\|(.+?))?\\}\\}");
-	private static final Pattern TABLE_PATTERN = Pattern.compile(
-			"\\{\\|.*?\\n(?:\\|\\+\\s*(.+?)\\n)?.+?\\|\\}", Pattern.DOTALL);
+	/** The characters matched by a regular expression \\s. */
+	private static final String WHITESPACE = " \t\n\013\f\r";
 	/** The key to use for no context bullet points. */
 	public static final String NO_CONTEXT = "NO_CONTEXT";
 
@@ -178,32 +179,87 @@ public class TableMiner {
 	 * @return A collection of all the tables on a page.
 	 */
 	public static Collection<WikiTable> parseTable(String markup) {
-		Collection<WikiTable> pageTables = new ArrayList<>();
+		final Collection<WikiTable> pageTables = new ArrayList<>();
+		try {
+			parseTable(markup, new TableHandler() {
+				private WikiTable table_;
+
+				@Override
+				public boolean startTable(String contextTitle) {
+					table_ = new WikiTable(contextTitle);
+					return true;
+				}
+
+				@Override
+				public boolean row(String[] header, String[] row) {
+					return table_.recordRow(row, header);
+				}
+
+				@Override
+				public boolean endTable() {
+					if (!table_.isEmpty())
+						pageTables.add(table_);
+					return true;
+				}
+			});
+		} catch (IOException e) {
+			// Not thrown by this handler
+		}
+		return pageTables;
+	}
+
+	/**
+	 * Parses the tables of an article's markup, passing each row to a handler
+	 * as it is parsed. Only the rows still to be filled by rowspans are held
+	 * in memory.
+	 * 
+	 * @param markup
+	 *            The markup to parse.
+	 * @param handler
+	 *            The handler to receive the tables.
+	 * @throws IOException
+	 *             If the handler throws an exception.
+	 */
+	public static void parseTable(CharSequence markup, TableHandler handler)
+			throws IOException {
+		MarkupView view = new MarkupView(markup);
+		int[] bounds = new int[3];
+		int from = 0;
+		while (findTable(view, from, bounds)) {
+			int start = bounds[0];
+			int end = bounds[1];
+			from = end;
 
-		Matcher m = TABLE_PATTERN.matcher(markup);
-		while (m.find()) {
 			// Get and check the context
-			String contextTitle = m.group(1);
-			if (contextTitle == null)
-				contextTitle = WikiParser.backSearchHeader(markup.substring(0,
-						m.start()));
+			String contextTitle = null;
+			if (bounds[2] != -1)
+				contextTitle = view.substring(bounds[2],
+						view.indexOf('\n', bounds[2]));
+			else
+				contextTitle = WikiParser.backSearchHeader(view.subSequence(0,
+						start));
 
 			if (contextTitle != null)
 				contextTitle = WikiParser.cleanAllMarkup(contextTitle).trim();
 			else
 				contextTitle = NO_CONTEXT;
 
-			WikiTable table = new WikiTable(contextTitle);
+			if (!handler.startTable(contextTitle))
+				continue;
 
-			// Parse each point out.
+			// Parse each line out.
 			List<String[]> rows = new LinkedList<>();
 			String[] header = null;
 			int numColumns = -1;
-			String tableMarkup = m.group();
-			String[] split = tableMarkup.split("\\n");
-			for (String line : split) {
+			for (int lineStart = start; lineStart < end;) {
+				int lineEnd = view.indexOf('\n', lineStart);
+				if (lineEnd == -1 || lineEnd > end)
+					lineEnd = end;
+				MarkupView line = view.subSequence(lineStart, lineEnd);
+				lineStart = lineEnd + 1;
+
 				// Row end, record it
-				if (line.startsWith("|-") || line.startsWith("|}")) {
+				if (line.startsWith("|-", 0) || line.startsWith("|}", 0)) {
 					if (rows.isEmpty())
 						continue;
 
@@ -212,22 +268,77 @@ public class TableMiner {
 					numColumns = rowData.length;
 					if (header == null)
 						header = rowData;
-					else if (!table.recordRow(rowData, header))
+					else if (!handler.row(header, rowData))
 						break;
 					continue;
-				} else if (line.startsWith("|+") || line.startsWith("{|") || line.isEmpty())
+				} else if (line.startsWith("|+", 0) || line.startsWith("{|", 0)
+						|| line.length() == 0)
 					continue;
 				else {
 					// If header tag, reset the headers
-					if (line.startsWith("!"))
+					if (line.startsWith("!", 0))
 						header = null;
-					numColumns = parseRow(line, rows, numColumns);
+					numColumns = parseRow(line.toString(), rows, numColumns);
 				}
 			}
 
-			if (!table.isEmpty())
-				pageTables.add(table);
+			if (!handler.endTable())
+				return;
 		}
-		return pageTables;
+	}
+
+	/**
+	 * Finds the next table in the markup: from an opening '{|' to the first
+	 * closing '|}' after the line it is on, with an optional '|+' caption on
+	 * the following line.
+	 * 
+	 * @param view
+	 *            The markup.
+	 * @param from
+	 *            The index to search from.
+	 * @param bounds
+	 *            The array to record the table start, end (exclusive) and
+	 *            caption start (or -1) in.
+	 * @return True if a table was found.
+	 */
+	private static boolean findTable(MarkupView view, int from, int[] bounds) {
+		int start = indexOf(view, "{|", from);
+		if (start == -1)
+			return false;
+		int body = view.indexOf('\n', start + 2) + 1;
+		if (body == 0)
+			return false;
+
+		// Caption
+		bounds[2] = -1;
+		int end = -1;
+		if (view.startsWith("|+", body)) {
+			int caption = body + 2;
+			while (caption < view.length()
+					&& WHITESPACE.indexOf(view.charAt(caption)) != -1)
+				caption++;
+			int captionEnd = view.indexOf('\n', caption + 1);
+			if (captionEnd != -1
+					&& (end = indexOf(view, "|}", captionEnd + 2)) != -1)
+				bounds[2] = caption;
+		}
+		if (end == -1)
+			end = indexOf(view, "|}", body + 1);
+		if (end == -1)
+			return false;
+		bounds[0] = start;
+		bounds[1] = end + 2;
+		return true;
+	}
+
+	/**
+	 * Gets the index of a string in a view.
+	 */
+	private static int indexOf(MarkupView view, String str, int from) {
+		for (int i = view.indexOf(str.charAt(0), from); i != -1; i = view
+				.indexOf(str.charAt(0), i + 1))
+			if (view.startsWith(str, i))
+				return i;
+		return -1;
 	}
 }
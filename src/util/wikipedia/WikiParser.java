@@ -7,8 +7,6 @@ import java.util.ArrayList;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.commons.lang3.StringUtils;
-
 import util.IllegalDelimiterException;
 import util.Pair;
 import util.UtilityMethods;
@@ -60,92 +58,72 @@ public class WikiParser {
 	public static final byte UNKNOWN_STANDING = -7;
 
 	/**
-	 * Checks the string array for a special list of characters, returning the
-	 * index of the last character of the pattern if found.
+	 * Finds the first pair of brackets in a view from a point.
 	 * 
-	 * @param charArray
-	 *            The characters to check.
-	 * @param pattern
-	 *            The pattern to search for at the index.
-	 * @param i
-	 *            The index to check at.
-	 * @return The index after the matched pattern if found, otherwise the old
-	 *         index.
+	 * @param view
+	 *            The view to search.
+	 * @param startPoint
+	 *            The start point in the view.
+	 * @param leftBracket
+	 *            The left bracket to find.
+	 * @param rightBracket
+	 *            The right bracket to find.
+	 * @return The starting and ending indices of the brackets (inclusive) or
+	 *         null if not found.
 	 */
-	private static int isPatternPresent(char[] charArray, String pattern, int i) {
-		if (pattern == null)
-			return i;
-		if (i + pattern.length() >= charArray.length)
-			return i;
-
-		for (int j = 0; j < pattern.length(); j++) {
-			if (charArray[i + j] != pattern.charAt(j))
-				return i;
-		}
-		return i + pattern.length();
+	private static Pair<Integer, Integer> findBrackets(MarkupView view,
+			int startPoint, char leftBracket, char rightBracket) {
+		int open = view.findOpenBracket(startPoint, leftBracket);
+		if (open == -1)
+			return null;
+		int close = view.matchBracket(open, leftBracket, rightBracket);
+		if (close == -1)
+			return null;
+		return new Pair<Integer, Integer>(open, close);
 	}
 
 	/**
-	 * Checks if this matching character currently matches this character. This
-	 * is simply an equals in many cases, but in other cases, the existing
-	 * counts and surrounding context can make a difference.
-	 * 
-	 * @param charArray
-	 *            The char array of the string being parsed.
-	 * @param charIndex
-	 *            The current char index.
-	 * @param matchGroup
-	 *            The matching group index.
-	 * @param counts
-	 *            The current counts for the matching groups.
-	 * @param groupDelimiters
-	 * @param matchingString
-	 *            The matching String to check.
-	 * @param opening
-	 *            If the group is opening.
-	 * @return The end of the matching group index if true or the original index
-	 *         if false.
+	 * Checks if a character ends a line (as far as regular expressions are
+	 * concerned).
 	 */
-	private static int matchesGrouper(char[] charArray, int charIndex,
-			int matchGroup, int groupSideIndex, int[] counts,
-			String[][] groupDelimiters) {
-		// Special case for apostrophes
-		String matchingString = groupDelimiters[matchGroup][groupSideIndex];
-		int j = isPatternPresent(charArray, matchingString, charIndex);
-		if (j != charIndex) {
-			// Special case for apostrophes
-			if (matchingString.charAt(0) == '\'') {
-				if (counts[matchGroup] == 0)
-					counts[matchGroup]++;
-				else
-					counts[matchGroup]--;
-			} else if (groupSideIndex == 0)
-				counts[matchGroup]++;
-			else
-				counts[matchGroup]--;
-			return j;
-		}
-		return charIndex;
+	private static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028'
+				|| c == '\u2029';
 	}
 
 	/**
 	 * Searches for the closest prior header by scanning a string backwards for
-	 * a header.
+	 * a header. Only lines that could be headers are copied.
 	 * 
 	 * @param priorText
 	 *            The text to scan.
 	 * @return The header found.
 	 */
-	public static String backSearchHeader(String priorText) {
-		// Search backwards for a heading
-		String reverseMarkup = new StringBuilder(priorText).reverse()
-				.toString();
-		Matcher m2 = HEADER_PARSER.matcher(reverseMarkup);
-		if (m2.find())
-			return new StringBuilder(m2.group(2)).reverse().toString();
+	public static String backSearchHeader(CharSequence priorText) {
+		// Search backwards (line by line) for a heading
+		int end = priorText.length();
+		while (end >= 0) {
+			int start = end;
+			while (start > 0 && !isLineTerminator(priorText.charAt(start - 1)))
+				start--;
+			if (end - start >= 3 && isHeaderChar(priorText.charAt(start))
+					&& isHeaderChar(priorText.charAt(end - 1))) {
+				// Headers are matched in reverse
+				String reverseLine = new StringBuilder(priorText.subSequence(
+						start, end)).reverse().toString();
+				Matcher m = HEADER_PARSER.matcher(reverseLine);
+				if (m.matches())
+					return new StringBuilder(m.group(2)).reverse().toString();
+			}
+			end = start - 1;
+		}
 		return null;
 	}
 
+	private static boolean isHeaderChar(char c) {
+		return c == '\'' || c == '=';
+	}
+
 	/**
 	 * Removes all markup from a string and replaces non-unicode characters for
 	 * unicode characters.
@@ -199,18 +177,19 @@ public class WikiParser {
 	public static String cleanBrackets(String string, int startPoint,
 			char leftBracket, char rightBracket, boolean onlyOnce,
 			boolean ungroupedOnly) {
-		StringBuilder buffer = new StringBuilder();
+		MarkupView view = new MarkupView(string);
+		StringBuilder buffer = new StringBuilder(string.length());
 		Pair<Integer, Integer> bracketGroup;
-		while ((!ungroupedOnly && (bracketGroup = findBrackets(string,
+		while ((!ungroupedOnly && (bracketGroup = findBrackets(view,
 				startPoint, leftBracket, rightBracket)) != null)
 				|| (ungroupedOnly && (bracketGroup = findUngroupedBrackets(
-						string, startPoint, leftBracket, rightBracket)) != null)) {
-			buffer.append(string.substring(startPoint, bracketGroup.objA_));
+						view, startPoint, leftBracket, rightBracket)) != null)) {
+			buffer.append(string, startPoint, bracketGroup.objA_);
 			startPoint = bracketGroup.objB_ + 1;
 			if (onlyOnce)
 				break;
 		}
-		buffer.append(string.substring(startPoint));
+		buffer.append(string, startPoint, string.length());
 		return buffer.toString();
 	}
 
@@ -231,33 +210,8 @@ public class WikiParser {
 	 */
 	public static Pair<Integer, Integer> findBrackets(String string,
 			int startPoint, char leftBracket, char rightBracket) {
-		char[] charArray = string.toCharArray();
-		int bracketCount = 0;
-		int bracketStart = 0;
-		boolean escaped = false;
-		for (int i = startPoint; i < charArray.length; i++) {
-			char c = charArray[i];
-			if (escaped) {
-				escaped = false;
-				continue;
-			} else if (c == '\\') {
-				escaped = true;
-				continue;
-			}
-
-			if (c == leftBracket) {
-				if (bracketCount == 0)
-					bracketStart = i;
-				bracketCount++;
-			} else if (c == rightBracket) {
-				bracketCount--;
-				if (bracketCount < 0)
-					bracketCount = 0;
-				else if (bracketCount == 0)
-					return new Pair<Integer, Integer>(bracketStart, i);
-			}
-		}
-		return null;
+		return findBrackets(new MarkupView(string), startPoint, leftBracket,
+				rightBracket);
 	}
 
 	/**
@@ -275,6 +229,26 @@ public class WikiParser {
 	 */
 	public static Pair<Integer, Integer> findUngroupedBrackets(String string,
 			int startPoint, char leftBracket, char rightBracket) {
+		return findUngroupedBrackets(new MarkupView(string), startPoint,
+				leftBracket, rightBracket);
+	}
+
+	/**
+	 * Find the first occurrence of ungrouped brackets in a view.
+	 * 
+	 * @param view
+	 *            The view to search.
+	 * @param startPoint
+	 *            The start point to search.
+	 * @param leftBracket
+	 *            The left bracket to search for.
+	 * @param rightBracket
+	 *            The right bracket to search for.
+	 * @return The left and right indexes of the bracketed expression.
+	 */
+	private static Pair<Integer, Integer> findUngroupedBrackets(
+			MarkupView view, int startPoint, char leftBracket,
+			char rightBracket) {
 		String[][] groupDelimiters = new String[3][2];
 		int i = 0;
 		for (String[] bracketSet : BRACKETS_ONLY) {
@@ -282,11 +256,12 @@ public class WikiParser {
 				groupDelimiters[i++] = bracketSet;
 		}
 		try {
-			int startBracket = first(string, startPoint,
-					new String[] { leftBracket + "" }, new String[0],
-					groupDelimiters).length()
-					+ startPoint - 1;
-			return findBrackets(string, startBracket, leftBracket, rightBracket);
+			int startBracket = startPoint - 1;
+			if (startPoint < view.length())
+				startBracket = view.delimit(startPoint,
+						new String[] { leftBracket + "" }, null,
+						groupDelimiters) - 1;
+			return findBrackets(view, startBracket, leftBracket, rightBracket);
 		} catch (Exception e) {
 		}
 		return null;
@@ -302,11 +277,12 @@ public class WikiParser {
 	 */
 	public static String replaceBracketedByWhitespace(String text,
 			char leftBracket, char rightBracket) {
+		MarkupView view = new MarkupView(text);
 		int startPoint = 0;
 		Pair<Integer, Integer> leftRight = null;
-		StringBuilder buffer = new StringBuilder();
+		StringBuilder buffer = new StringBuilder(text.length());
 		do {
-			leftRight = findUngroupedBrackets(text, startPoint, leftBracket,
+			leftRight = findUngroupedBrackets(view, startPoint, leftBracket,
 					rightBracket);
 			if (leftRight == null)
 				break;
@@ -320,11 +296,12 @@ public class WikiParser {
 				right++;
 
 			// Replace by whitespace
-			buffer.append(text.substring(startPoint, left)
-					+ StringUtils.repeat(' ', right - left));
+			buffer.append(text, startPoint, left);
+			for (int i = left; i < right; i++)
+				buffer.append(' ');
 			startPoint = right;
 		} while (leftRight != null);
-		buffer.append(text.substring(startPoint));
+		buffer.append(text, startPoint, text.length());
 		return buffer.toString();
 	}
 
@@ -349,23 +326,26 @@ public class WikiParser {
 		// Close punctuation gaps
 		string = string.replaceAll(" ([,;:.?!])", "$1");
 		// Remove image/file links (file:X|Y|Z|W)
-		StringBuilder buffer = new StringBuilder();
 		Matcher m = MEDIA_LINK_PREFIX.matcher(string);
+		if (!m.find())
+			return string;
+		MarkupView view = new MarkupView(string);
+		StringBuilder buffer = new StringBuilder(string.length());
 		int startPoint = 0;
 		while (m.find(startPoint)) {
 			// Found media link
 			int bracketStart = m.start();
-			Pair<Integer, Integer> location = findBrackets(string,
-					bracketStart, '[', ']');
+			Pair<Integer, Integer> location = findBrackets(view, bracketStart,
+					'[', ']');
 			if (location != null) {
-				buffer.append(string.substring(startPoint, location.objA_));
+				buffer.append(string, startPoint, location.objA_);
 				startPoint = location.objB_ + 1;
 			} else {
-				buffer.append(string.substring(startPoint, bracketStart + 1));
+				buffer.append(string, startPoint, bracketStart + 1);
 				startPoint = bracketStart + 1;
 			}
 		}
-		buffer.append(string.substring(startPoint));
+		buffer.append(string, startPoint, string.length());
 		string = buffer.toString();
 		return string;
 	}
@@ -451,75 +431,9 @@ public class WikiParser {
 			String[][] groupDelimiters) throws IllegalDelimiterException {
 		if (startPoint >= string.length())
 			return "";
-		char[] charArray = string.toCharArray();
-		int[] counts = new int[groupDelimiters.length];
-		boolean escaped = false;
-		if (exceptionDelimiters == null)
-			exceptionDelimiters = new String[0];
-
-		// Run through character by character.
-		for (int i = startPoint; i < charArray.length; i++) {
-			char c = charArray[i];
-			// Checking for escape character
-			if (escaped) {
-				escaped = false;
-				continue;
-			} else if (c == '\\') {
-				escaped = true;
-				continue;
-			}
-
-			// Check for grouping characters
-			boolean canDelimit = true;
-			boolean usedClosingBracket = false;
-			for (int g = 0; g < groupDelimiters.length; g++) {
-				boolean bracketFound = false;
-				// Opening
-				int j = matchesGrouper(charArray, i, g, 0, counts,
-						groupDelimiters);
-				if (j != i) {
-					i = j - 1;
-					bracketFound = true;
-				} else {
-					j = matchesGrouper(charArray, i, g, 1, counts,
-							groupDelimiters);
-					if (j != i) {
-						i = j - 1;
-						bracketFound = true;
-					}
-				}
-
-				// If there is a group, do not delimit
-				if (counts[g] > 0)
-					canDelimit = false;
-
-				if (bracketFound) {
-					if (counts[g] >= 0)
-						usedClosingBracket = true;
-				}
-			}
-			if (usedClosingBracket)
-				continue;
-
-			if (canDelimit) {
-				// Check for safe delimiter
-				for (String delimiter : safeDelimiters) {
-					int j = isPatternPresent(charArray, delimiter, i);
-					if (j != i)
-						return string.substring(startPoint, j);
-				}
-			}
-			// Check for exception delimiter
-			for (String delimiter : exceptionDelimiters) {
-				int j = isPatternPresent(charArray, delimiter, i);
-				if (j != i) {
-					throw new IllegalDelimiterException(delimiter,
-							string.substring(startPoint, j));
-				}
-			}
-		}
-
-		return string.substring(startPoint);
+		return string.substring(startPoint, new MarkupView(string).delimit(
+				startPoint, safeDelimiters, exceptionDelimiters,
+				groupDelimiters));
 	}
 
 	/**
@@ -530,9 +444,9 @@ public class WikiParser {
 	 * @return True if there are any open brackets.
 	 */
 	public static boolean isOpenBrackets(String string) {
-		char[] charArray = string.toCharArray();
 		int bracketCount = 0;
-		for (char c : charArray) {
+		for (int i = 0; i < string.length(); i++) {
+			char c = string.charAt(i);
 			if (c == '(')
 				bracketCount++;
 			if (c == ')')
@@ -635,7 +549,7 @@ public class WikiParser {
 		}
 		if (resewn.length() <= 2)
 			return string;
-		return resewn.toString().substring(1, resewn.length() - 1);
+		return resewn.substring(1, resewn.length() - 1);
 	}
 
 	/**
@@ -655,29 +569,33 @@ public class WikiParser {
 			results.add("");
 			return results;
 		}
+		int start = 0;
 		if (string.startsWith(delimiter)) {
-			string = string.substring(delimiter.length());
+			start = delimiter.length();
 			results.add("");
 		}
 
-		String result = null;
+		MarkupView view = new MarkupView(string);
+		String[] delimiters = { delimiter };
+		int length = string.length();
 		try {
-			while (!(result = first(string, delimiter, null)).equals(string)) {
-				string = string.substring(result.length());
-				results.add(result.substring(0,
-						result.length() - delimiter.length()));
+			int end;
+			while (start < length
+					&& (end = view.delimit(start, delimiters, null,
+							ALL_DELIMITERS)) != length) {
+				results.add(string.substring(start, end - delimiter.length()));
+				start = end;
 			}
 		} catch (IllegalDelimiterException e) {
 		}
 
-		if (!string.isEmpty()) {
-			if (string.endsWith(delimiter)) {
-				string = string.substring(0,
-						string.length() - delimiter.length());
-				results.add(string);
+		if (start < length) {
+			int end = length - delimiter.length();
+			if (end >= start && view.startsWith(delimiter, end)) {
+				results.add(string.substring(start, end));
 				results.add("");
 			} else
-				results.add(string);
+				results.add(string.substring(start));
 		}
 
 		return results;
@@ -694,11 +612,12 @@ public class WikiParser {
 	 * @return The index of the pattern or -1.
 	 */
 	public static int indexOf(String string, String pattern) {
-		String result;
+		MarkupView view = new MarkupView(string);
 		try {
-			result = first(string, pattern, null);
-			if (result.endsWith(pattern))
-				return result.length() - pattern.length();
+			int end = view.delimit(0, new String[] { pattern }, null,
+					ALL_DELIMITERS);
+			if (view.startsWith(pattern, end - pattern.length()))
+				return end - pattern.length();
 		} catch (IllegalDelimiterException e) {
 		}
 		return -1;